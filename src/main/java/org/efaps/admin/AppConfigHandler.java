@@ -42,6 +42,23 @@ public final class AppConfigHandler
          */
         ACCESSCACHE_DEACTIVATE("org.efaps.application.config.AccessCache.deactivate"),
 
+        /**
+         * JGroups configuration used for the cluster communication. If not
+         * set the cluster communication is not activated.
+         */
+        CLUSTER_CONFIG("org.efaps.application.config.Cluster.Config"),
+
+        /**
+         * Name of the cluster to join. Default "eFaps".
+         */
+        CLUSTER_NAME("org.efaps.application.config.Cluster.Name"),
+
+        /**
+         * Load all compiled ESJP classes in one go into an archive kept by
+         * the EFapsClassLoader, instead of querying them one by one.
+         */
+        ESJP_ARCHIVE("org.efaps.application.config.Esjp.Archive"),
+
         /**
          * Deactivate the AccessCache.
          */
@@ -96,6 +113,11 @@ public final class AppConfigHandler
      */
     private final boolean queryCacheDeactivated;
 
+    /**
+     * Load the compiled ESJP classes as an archive.
+     */
+    private final boolean esjpArchiveActivated;
+
     /**
      *  The id of this system as needed by the GeneralInstance mechanism.
      */
@@ -106,6 +128,16 @@ public final class AppConfigHandler
      */
     private final URI tmpURI;
 
+    /**
+     * JGroups configuration used for the cluster communication.
+     */
+    private final String clusterConfig;
+
+    /**
+     * Name of the cluster to join.
+     */
+    private final String clusterName;
+
     /**
      * Singleton Constructor.
      * @param _values values for the init
@@ -114,6 +146,7 @@ public final class AppConfigHandler
     {
         this.accessCacheDeactivated =  "true".equalsIgnoreCase(_values.get(Parameter.ACCESSCACHE_DEACTIVATE.getKey()));
         this.queryCacheDeactivated =  "true".equalsIgnoreCase(_values.get(Parameter.QUERYCACHE_DEACTIVATE.getKey()));
+        this.esjpArchiveActivated = "true".equalsIgnoreCase(_values.get(Parameter.ESJP_ARCHIVE.getKey()));
         if (_values.containsKey(Parameter.SYSTEMID.getKey())) {
             this.systemID = Integer.parseInt(_values.get(Parameter.SYSTEMID.getKey()));
         } else {
@@ -124,6 +157,8 @@ public final class AppConfigHandler
         } else {
             this.tmpURI = null;
         }
+        this.clusterConfig = _values.get(Parameter.CLUSTER_CONFIG.getKey());
+        this.clusterName = _values.getOrDefault(Parameter.CLUSTER_NAME.getKey(), "eFaps");
     }
 
     /**
@@ -146,6 +181,16 @@ public final class AppConfigHandler
         return this.queryCacheDeactivated;
     }
 
+    /**
+     * Getter method for the instance variable {@link #esjpArchiveActivated}.
+     *
+     * @return value of instance variable {@link #esjpArchiveActivated}
+     */
+    public boolean isEsjpArchiveActivated()
+    {
+        return this.esjpArchiveActivated;
+    }
+
     /**
      * Getter method for the instance variable {@link #systemID}.
      *
@@ -170,6 +215,26 @@ public final class AppConfigHandler
         return ret;
     }
 
+    /**
+     * Getter method for the instance variable {@link #clusterConfig}.
+     *
+     * @return value of instance variable {@link #clusterConfig}
+     */
+    public String getClusterConfig()
+    {
+        return this.clusterConfig;
+    }
+
+    /**
+     * Getter method for the instance variable {@link #clusterName}.
+     *
+     * @return value of instance variable {@link #clusterName}
+     */
+    public String getClusterName()
+    {
+        return this.clusterName;
+    }
+
     /**
      * Init the Handler. Can only be executed once.
      * @param _values values for the init
@@ -189,6 +189,15 @@ public interface KernelSettings
 
     String FORCETRANSACTION4UPDATE = "org.efaps.kernel.update.ForceTransaction";
 
+    /**
+     * Integer: number of threads used to parse the update files and, if each
+     * update is committed on its own, to execute the updates of one life
+     * cycle step concurrently. Updates of the data model, access, store and
+     * user definitions are always executed sequential. 1 executes everything
+     * sequential in a deterministic order. Default: 1
+     */
+    String UPDATETHREADS = "org.efaps.kernel.update.Threads";
+
     /**
      * Activate the general index mechanism.
      */
@@ -218,6 +227,37 @@ public interface KernelSettings
      */
     String INDEXDEFAULTOP = "org.efaps.kernel.index.DefaultOperator4Search";
 
+    /**
+     * Integer: interval in seconds the queue of instances to be indexed is
+     * drained by a Quartz job. Zero or less deactivates the job. Default: 30
+     */
+    String INDEXQUEUEINTERVAL = "org.efaps.kernel.index.QueueInterval";
+
+    /**
+     * Integer: maximum number of instances indexed in one batch by the queue
+     * job. Default: 200
+     */
+    String INDEXQUEUEBATCHSIZE = "org.efaps.kernel.index.QueueBatchSize";
+
+    /**
+     * Integer: maximum number of queue entries processed by one execution of
+     * the queue job. The remaining entries are processed by the next
+     * executions. Default: 5000
+     */
+    String INDEXQUEUEMAXENTRIES = "org.efaps.kernel.index.QueueMaxEntries";
+
+    /**
+     * Integer: number of instances read and indexed together during a full
+     * reindex. Default: 1000
+     */
+    String INDEXREINDEXPAGESIZE = "org.efaps.kernel.index.ReindexPageSize";
+
+    /**
+     * Integer: number of threads building the documents during a full
+     * reindex. Default: number of available processors
+     */
+    String INDEXREINDEXTHREADS = "org.efaps.kernel.index.ReindexThreads";
+
     // core only !!!
     String CLASSPATH = "org.efaps.kernel.rest.Classpath";
 
@@ -226,5 +266,70 @@ public interface KernelSettings
     String STORERESOURCELIFESPAN = "org.efaps.kernel.store.resource.LifeSpanInMinutes";
 
     String GENINSTCACHELIFESPAN = "org.efaps.kernel.db.generalInstance.LifeSpanInMinutes";
-}
 
+    /**
+     * Integer: number of instances the access is evaluated for at once while
+     * iterating the result of a print. Zero or less evaluates all instances
+     * at once. Default: 500
+     */
+    String ACCESSWINDOWSIZE = "org.efaps.kernel.db.access.WindowSize";
+
+    /**
+     * Integer: maximum number of ids used in the IN clause of one update
+     * statement. Limited by the maximum number of expressions supported by
+     * the database. Default: 1000
+     */
+    String UPDATECHUNKSIZE = "org.efaps.kernel.db.update.ChunkSize";
+
+    /**
+     * Boolean: render the values of the where clauses of EQL prints as bind
+     * parameters and execute them using prepared statements that are cached
+     * per connection. Default: false
+     */
+    String BINDPARAMETERS = "org.efaps.kernel.db.BindParameters";
+
+    /**
+     * Integer: maximum number of prepared statements cached per connection
+     * if {@link #BINDPARAMETERS} is activated. Default: 50
+     */
+    String STMTCACHESIZE = "org.efaps.kernel.db.StatementCacheSize";
+
+    /**
+     * Integer: maximum number of prepared plans for EQL prints kept in the
+     * cache. Zero or less deactivates the cache. Default: 500
+     */
+    String PRINTPLANCACHESIZE = "org.efaps.kernel.db.print.PlanCacheSize";
+
+    /**
+     * Integer: maximum number of parsed EQL statements kept in the cache.
+     * Zero or less deactivates the cache. Default: 500
+     */
+    String EQLSTMTCACHESIZE = "org.efaps.kernel.eql.StatementCacheSize";
+
+    /**
+     * Integer: interval in seconds the history of the EQL statements executed
+     * via REST is written by a Quartz job. Zero or less deactivates the job
+     * and the history is written by each request. Default: 5
+     */
+    String HISTORYEQLINTERVAL = "org.efaps.kernel.rest.HistoryEQLInterval";
+
+    /**
+     * Integer: number of EQL statements written in one batch. A full batch
+     * triggers the job before its interval. Default: 100
+     */
+    String HISTORYEQLBATCHSIZE = "org.efaps.kernel.rest.HistoryEQLBatchSize";
+
+    /**
+     * Integer: maximum number of EQL statements waiting to be written. If
+     * the queue is full the request writes its history itself.
+     * Default: 10000
+     */
+    String HISTORYEQLCAPACITY = "org.efaps.kernel.rest.HistoryEQLCapacity";
+
+    /**
+     * Long: maximum number of bytes used by the compact rows stored in the
+     * QueryCache. Results are not cached if the budget is exhausted.
+     * Default: 67108864 (64MB)
+     */
+    String QUERYCACHEMAXBYTES = "org.efaps.kernel.db.QueryCache.MaxBytes";
+}
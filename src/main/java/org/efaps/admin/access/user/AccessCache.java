@@ -15,14 +15,36 @@
  */
 package org.efaps.admin.access.user;
 
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
 
 import org.efaps.admin.access.AccessType;
+import org.efaps.cluster.ClusterCommunication;
+import org.efaps.cluster.InvalidationEvent;
+import org.efaps.db.Context;
 import org.efaps.db.Instance;
+import org.efaps.util.EFapsException;
 import org.efaps.util.cache.CacheLogListener;
 import org.efaps.util.cache.InfinispanCache;
 import org.infinispan.Cache;
-import org.infinispan.query.Search;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntriesEvicted;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryExpired;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntriesEvictedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryExpiredEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +71,17 @@ public final class AccessCache
      */
     private static final Logger LOG = LoggerFactory.getLogger(AccessCache.class);
 
+    /**
+     * Keys of the PermissionCache registered by the id of their person.
+     */
+    private static final Map<Long, Set<Key>> PERSON2KEYS = new ConcurrentHashMap<>();
+
+    /**
+     * Keys of the StatusCache updated by the running transactions. They are
+     * published to the other members of the cluster after the commit.
+     */
+    private static final Map<Transaction, PendingUpdates> PENDING = new ConcurrentHashMap<>();
+
     /**
      * Instantiates a new access cache.
      */
@@ -67,6 +100,8 @@ public final class AccessCache
             InfinispanCache.get().<UUID, AccessType>getCache(AccessCache.PERMISSIONCACHE)
                             .addListener(new CacheLogListener(AccessCache.LOG));
         }
+        InfinispanCache.get().addListener(AccessCache.PERMISSIONCACHE, new PermissionListener());
+        AccessCache.PERSON2KEYS.clear();
         if (InfinispanCache.get().exists(AccessCache.STATUSCACHE)) {
             InfinispanCache.get().<Long, AccessType>getCache(AccessCache.STATUSCACHE).clear();
         } else {
@@ -93,26 +128,197 @@ public final class AccessCache
     }
 
     /**
+     * The status of the instance is removed from the local StatusCache. If
+     * the transaction of the current context is active, the keys of all
+     * updated instances are removed again after the transaction ended and
+     * published with one event to the other members of the cluster after its
+     * commit.
+     *
      * @param _instance Instance the update will be registered for
      */
     public static void registerUpdate(final Instance _instance)
     {
         AccessCache.LOG.debug("Registered Update for: {}", _instance);
-        AccessCache.getStatusCache().remove(_instance.getKey());
+        AccessCache.evictStatus(_instance.getKey());
+        PendingUpdates pending = null;
+        try {
+            final Transaction transaction = Context.isThreadActive()
+                            ? Context.getThreadContext().getTransaction() : null;
+            if (transaction != null && transaction.getStatus() == Status.STATUS_ACTIVE) {
+                pending = AccessCache.PENDING.computeIfAbsent(transaction, AccessCache::register);
+            }
+        } catch (final EFapsException | SystemException e) {
+            AccessCache.LOG.error("Could not evaluate the transaction for the update of {}", _instance, e);
+        }
+        if (pending == null) {
+            ClusterCommunication.invalidate(InvalidationEvent.Region.ACCESSSTATUS, _instance.getKey());
+        } else {
+            pending.add(_instance.getKey());
+        }
+    }
+
+    /**
+     * Register the synchronization for the updates of a transaction.
+     *
+     * @param _transaction transaction the synchronization is registered for
+     * @return the pending updates of the transaction, <code>null</code> if the
+     *         synchronization could not be registered
+     */
+    private static PendingUpdates register(final Transaction _transaction)
+    {
+        PendingUpdates ret = new PendingUpdates(_transaction);
+        try {
+            _transaction.registerSynchronization(ret);
+        } catch (final RollbackException | SystemException | IllegalStateException e) {
+            AccessCache.LOG.error("Could not register synchronization for the StatusCache", e);
+            ret = null;
+        }
+        return ret;
+    }
+
+    /**
+     * Remove the status of an instance from the local StatusCache.
+     *
+     * @param _key key of the instance
+     */
+    public static void evictStatus(final String _key)
+    {
+        AccessCache.getStatusCache().remove(_key);
     }
 
     /**
      * @param _personId personid the access cache must be clean for
      */
     public static void clean4Person(final long _personId)
+    {
+        AccessCache.evict4Person(_personId);
+        ClusterCommunication.invalidate(InvalidationEvent.Region.ACCESSPERMISSION, _personId);
+    }
+
+    /**
+     * Remove the entries of a person from the local PermissionCache.
+     *
+     * @param _personId personid the access cache must be clean for
+     */
+    public static void evict4Person(final long _personId)
     {
         AccessCache.LOG.debug("Cleaning cache for Person: {}", _personId);
-        final Cache<Key, PermissionSet> cache = AccessCache.getPermissionCache();
-        final var queryFactory = Search.getQueryFactory(cache);
-        final var query = queryFactory.<PermissionSet>create("FROM org.efaps.admin.access.user.PermissionSet p "
-                        + "WHERE p.personId = " + _personId);
-        query.execute().list().forEach(set -> {
-            cache.remove(set.getKey());
-        });
+        final Set<Key> keys = AccessCache.PERSON2KEYS.remove(_personId);
+        if (keys != null) {
+            final Cache<Key, PermissionSet> cache = AccessCache.getPermissionCache();
+            keys.forEach(cache::remove);
+        }
+    }
+
+    /**
+     * Collects the keys of the instances updated in one transaction.
+     */
+    private static final class PendingUpdates
+        implements Synchronization
+    {
+
+        /**
+         * The transaction the updates belong to.
+         */
+        private final Transaction transaction;
+
+        /**
+         * Keys of the updated instances.
+         */
+        private final Set<String> keys = new LinkedHashSet<>();
+
+        /**
+         * @param _transaction the transaction the updates belong to
+         */
+        private PendingUpdates(final Transaction _transaction)
+        {
+            this.transaction = _transaction;
+        }
+
+        /**
+         * @param _key key of the updated instance
+         */
+        private synchronized void add(final String _key)
+        {
+            this.keys.add(_key);
+        }
+
+        @Override
+        public void beforeCompletion()
+        {
+            // nothing to do before the commit
+        }
+
+        @Override
+        public synchronized void afterCompletion(final int _status)
+        {
+            AccessCache.PENDING.remove(this.transaction);
+            // a status read inside of the transaction might have been cached
+            this.keys.forEach(AccessCache::evictStatus);
+            if (_status == Status.STATUS_COMMITTED) {
+                ClusterCommunication.invalidate(InvalidationEvent.Region.ACCESSSTATUS, this.keys);
+            }
+        }
+    }
+
+    /**
+     * Registers the keys of the PermissionCache for their person, so that
+     * {@link AccessCache#clean4Person(long)} must not search the cache.
+     */
+    @Listener
+    public static class PermissionListener
+    {
+
+        /**
+         * @param _event event
+         */
+        @CacheEntryCreated
+        public void onCacheEntryCreated(final CacheEntryCreatedEvent<Key, PermissionSet> _event)
+        {
+            if (!_event.isPre()) {
+                AccessCache.PERSON2KEYS.computeIfAbsent(_event.getKey().getPersonId(),
+                                personId -> ConcurrentHashMap.newKeySet()).add(_event.getKey());
+            }
+        }
+
+        /**
+         * @param _event event
+         */
+        @CacheEntryRemoved
+        public void onCacheEntryRemoved(final CacheEntryRemovedEvent<Key, PermissionSet> _event)
+        {
+            if (!_event.isPre()) {
+                unregister(_event.getKey());
+            }
+        }
+
+        /**
+         * @param _event event
+         */
+        @CacheEntryExpired
+        public void onCacheEntryExpired(final CacheEntryExpiredEvent<Key, PermissionSet> _event)
+        {
+            unregister(_event.getKey());
+        }
+
+        /**
+         * @param _event event
+         */
+        @CacheEntriesEvicted
+        public void onCacheEntriesEvicted(final CacheEntriesEvictedEvent<Key, PermissionSet> _event)
+        {
+            _event.getEntries().keySet().forEach(this::unregister);
+        }
+
+        /**
+         * @param _key key no longer stored in the cache
+         */
+        private void unregister(final Key _key)
+        {
+            AccessCache.PERSON2KEYS.computeIfPresent(_key.getPersonId(), (personId, keys) -> {
+                keys.remove(_key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
     }
 }
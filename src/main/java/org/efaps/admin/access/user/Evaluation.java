@@ -15,9 +15,14 @@
  */
 package org.efaps.admin.access.user;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -49,6 +54,11 @@ public final class Evaluation
      */
     private static final Logger LOG = LoggerFactory.getLogger(Evaluation.class);
 
+    /**
+     * Source of the access definitions stored in the database.
+     */
+    private static final AccessSource SOURCE = new DBAccessSource();
+
     /**
      * Instantiates a new evaluation.
      */
@@ -102,6 +112,86 @@ public final class Evaluation
         return ret;
     }
 
+    /**
+     * Evaluate the access relevant information for a list of instances at
+     * once: the PermissionSets for all distinct types and the status of all
+     * instances are resolved with a fixed number of queries and stored in
+     * the {@link AccessCache}.
+     *
+     * @param _instances the instances
+     * @return mapping of instance to PermissionSet
+     * @throws EFapsException on error
+     */
+    public static Map<Instance, PermissionSet> evaluate(final Collection<Instance> _instances)
+        throws EFapsException
+    {
+        final Map<Instance, PermissionSet> ret = Evaluation.getPermissionSets(_instances, true);
+        Evaluation.evalStatus(_instances);
+        return ret;
+    }
+
+    /**
+     * Gets the PermissionSets for a list of instances. The PermissionSets
+     * missing in the cache are evaluated together.
+     *
+     * @param _instances the instances
+     * @param _evaluate the evaluate
+     * @return mapping of instance to PermissionSet
+     * @throws EFapsException on error
+     */
+    public static Map<Instance, PermissionSet> getPermissionSets(final Collection<Instance> _instances,
+                                                                 final boolean _evaluate)
+        throws EFapsException
+    {
+        return Evaluation.getPermissionSets(_instances, _evaluate, Evaluation.SOURCE);
+    }
+
+    /**
+     * Gets the PermissionSets for a list of instances using the access
+     * definitions of the given source.
+     *
+     * @param _instances the instances
+     * @param _evaluate the evaluate
+     * @param _source source of the access definitions
+     * @return mapping of instance to PermissionSet
+     * @throws EFapsException on error
+     */
+    static Map<Instance, PermissionSet> getPermissionSets(final Collection<Instance> _instances,
+                                                          final boolean _evaluate,
+                                                          final AccessSource _source)
+        throws EFapsException
+    {
+        Evaluation.LOG.debug("Retrieving PermissionSets for {}", _instances);
+        final Map<Instance, PermissionSet> ret = new LinkedHashMap<>();
+        if (CollectionUtils.isNotEmpty(_instances)) {
+            final Cache<Key, PermissionSet> cache = AccessCache.getPermissionCache();
+            final Map<Key, PermissionSet> sets = new HashMap<>();
+            final List<PermissionSet> toEval = new ArrayList<>();
+            for (final Instance instance : _instances) {
+                final Key accessKey = Key.get4Instance(instance);
+                PermissionSet set = sets.get(accessKey);
+                if (set == null && !sets.containsKey(accessKey)) {
+                    if (cache.containsKey(accessKey)) {
+                        set = cache.get(accessKey);
+                    } else if (_evaluate) {
+                        set = new PermissionSet().setPersonId(accessKey.getPersonId())
+                                        .setCompanyId(accessKey.getCompanyId()).setTypeId(accessKey.getTypeId());
+                        toEval.add(set);
+                    }
+                    sets.put(accessKey, set);
+                }
+                ret.put(instance, set);
+            }
+            if (!toEval.isEmpty()) {
+                Evaluation.eval(toEval, _source);
+                for (final PermissionSet set : toEval) {
+                    cache.put(set.getKey(), set);
+                }
+            }
+        }
+        return ret;
+    }
+
     /**
      * Eval.
      *
@@ -111,51 +201,76 @@ public final class Evaluation
     public static void eval(final PermissionSet _permissionSet)
         throws EFapsException
     {
-        Evaluation.LOG.debug("Evaluating PermissionSet {}", _permissionSet);
-        final Person person = Person.get(_permissionSet.getPersonId());
-        final Set<Long> ids = new HashSet<>(person.getRoles());
-        ids.addAll(person.getGroups());
-        ids.add(person.getId());
-
-        final QueryBuilder userAttrQueryBldr = new QueryBuilder(CIAdminAccess.AccessSet2UserAbstract);
-        userAttrQueryBldr.addWhereAttrEqValue(CIAdminAccess.AccessSet2UserAbstract.UserAbstractLink, ids.toArray());
-
-        final QueryBuilder typeAttrQueryBldr = new QueryBuilder(CIAdminAccess.AccessSet2DataModelType);
-        typeAttrQueryBldr.addWhereAttrEqValue(CIAdminAccess.AccessSet2DataModelType.DataModelTypeLink, _permissionSet
-                        .getTypeId());
-
-        final QueryBuilder queryBldr = new QueryBuilder(CIAdminAccess.AccessSet2Type);
-        queryBldr.addWhereAttrInQuery(CIAdminAccess.AccessSet2Type.AccessSetLink, typeAttrQueryBldr.getAttributeQuery(
-                        CIAdminAccess.AccessSet2DataModelType.AccessSetLink));
-        queryBldr.addWhereAttrInQuery(CIAdminAccess.AccessSet2Type.AccessSetLink, userAttrQueryBldr.getAttributeQuery(
-                        CIAdminAccess.AccessSet2UserAbstract.AccessSetLink));
-        final CachedMultiPrintQuery multi = queryBldr.getCachedPrint4Request();
-        multi.addAttribute(CIAdminAccess.AccessSet2Type.AccessTypeLink);
-        multi.executeWithoutAccessCheck();
-        while (multi.next()) {
-            _permissionSet.addAccessTypeId(multi.<Long>getAttribute(CIAdminAccess.AccessSet2Type.AccessTypeLink));
-        }
+        Evaluation.eval(Collections.singletonList(_permissionSet));
+    }
+
+    /**
+     * Evaluate a list of PermissionSets with one query for the AccessSets
+     * of all their types, one for the AccessTypes and one for the Status.
+     *
+     * @param _permissionSets the PermissionSets
+     * @throws EFapsException on error
+     */
+    public static void eval(final Collection<PermissionSet> _permissionSets)
+        throws EFapsException
+    {
+        Evaluation.eval(_permissionSets, Evaluation.SOURCE);
+    }
+
+    /**
+     * Evaluate a list of PermissionSets with the access definitions of the
+     * given source.
+     *
+     * @param _permissionSets the PermissionSets
+     * @param _source source of the access definitions
+     * @throws EFapsException on error
+     */
+    static void eval(final Collection<PermissionSet> _permissionSets,
+                     final AccessSource _source)
+        throws EFapsException
+    {
+        Evaluation.LOG.debug("Evaluating PermissionSets {}", _permissionSets);
+        final Map<Long, List<PermissionSet>> person2sets = _permissionSets.stream()
+                        .collect(Collectors.groupingBy(PermissionSet::getPersonId));
+        for (final Map.Entry<Long, List<PermissionSet>> entry : person2sets.entrySet()) {
+            final Map<Long, List<PermissionSet>> type2sets = entry.getValue().stream()
+                            .collect(Collectors.groupingBy(PermissionSet::getTypeId));
+            final Map<Long, Set<Long>> accessSet2types = _source.getAccessSet2Types(
+                            _source.getUserIds(entry.getKey()), type2sets.keySet());
 
-        final Type type = Type.get(_permissionSet.getTypeId());
-        if (type.isCheckStatus()) {
-            final QueryBuilder statusQueryBldr = new QueryBuilder(CIAdminAccess.AccessSet2Status);
-            statusQueryBldr.addWhereAttrInQuery(CIAdminAccess.AccessSet2Status.AccessSetLink, typeAttrQueryBldr
-                            .getAttributeQuery(CIAdminAccess.AccessSet2DataModelType.AccessSetLink));
-            statusQueryBldr.addWhereAttrInQuery(CIAdminAccess.AccessSet2Status.AccessSetLink, userAttrQueryBldr
-                            .getAttributeQuery(CIAdminAccess.AccessSet2UserAbstract.AccessSetLink));
-
-            final CachedMultiPrintQuery statusMulti = statusQueryBldr.getCachedPrint4Request();
-            statusMulti.addAttribute(CIAdminAccess.AccessSet2Status.SatusLink);
-            statusMulti.executeWithoutAccessCheck();
-            while (statusMulti.next()) {
-                final Long statusId = statusMulti.getAttribute(CIAdminAccess.AccessSet2Status.SatusLink);
-                final Status status = Status.get(statusId);
-                if (status.getStatusGroup().getId() == type.getStatusAttribute().getLink().getId()) {
-                    _permissionSet.addStatusId(statusId);
+            if (!accessSet2types.isEmpty()) {
+                for (final Map.Entry<Long, Set<Long>> accessTypes : _source.getAccessSet2AccessTypes(
+                                accessSet2types.keySet()).entrySet()) {
+                    for (final Long typeId : accessSet2types.get(accessTypes.getKey())) {
+                        for (final Long accessTypeId : accessTypes.getValue()) {
+                            type2sets.get(typeId).forEach(set -> set.addAccessTypeId(accessTypeId));
+                        }
+                    }
+                }
+
+                boolean checkStatus = false;
+                for (final Long typeId : type2sets.keySet()) {
+                    checkStatus = checkStatus || Type.get(typeId).isCheckStatus();
+                }
+                if (checkStatus) {
+                    for (final Map.Entry<Long, Set<Long>> statusIds : _source.getAccessSet2Status(
+                                    accessSet2types.keySet()).entrySet()) {
+                        for (final Long statusId : statusIds.getValue()) {
+                            final Status status = Status.get(statusId);
+                            for (final Long typeId : accessSet2types.get(statusIds.getKey())) {
+                                final Type type = Type.get(typeId);
+                                if (type.isCheckStatus()
+                                                && status.getStatusGroup().getId() == type.getStatusAttribute()
+                                                                .getLink().getId()) {
+                                    type2sets.get(typeId).forEach(set -> set.addStatusId(statusId));
+                                }
+                            }
+                        }
+                    }
                 }
             }
         }
-        Evaluation.LOG.debug("Evaluated PermissionSet {}", _permissionSet);
+        Evaluation.LOG.debug("Evaluated PermissionSets {}", _permissionSets);
     }
 
     /**
@@ -189,7 +304,8 @@ public final class Evaluation
     }
 
     /**
-     * Eval status.
+     * Eval the status for all instances not cached yet with one query per
+     * type.
      *
      * @param _instances the instances
      * @throws EFapsException on error
@@ -200,11 +316,12 @@ public final class Evaluation
         Evaluation.LOG.debug("Evaluating Status for {}", _instances);
         if (CollectionUtils.isNotEmpty(_instances)) {
             final Cache<String, Long> cache = AccessCache.getStatusCache();
-            final List<Instance> instances = _instances.stream().filter(inst -> !cache.containsKey(inst.getKey()))
-                            .collect(Collectors.toList());
-            if (!instances.isEmpty()) {
-                final Attribute attr = instances.get(0).getType().getStatusAttribute();
-                final MultiPrintQuery multi = new MultiPrintQuery(instances);
+            final Map<Type, List<Instance>> type2instances = _instances.stream()
+                            .filter(inst -> inst.getType().isCheckStatus() && !cache.containsKey(inst.getKey()))
+                            .collect(Collectors.groupingBy(Instance::getType));
+            for (final Map.Entry<Type, List<Instance>> entry : type2instances.entrySet()) {
+                final Attribute attr = entry.getKey().getStatusAttribute();
+                final MultiPrintQuery multi = new MultiPrintQuery(entry.getValue());
                 multi.addAttribute(attr);
                 multi.executeWithoutAccessCheck();
                 while (multi.next()) {
@@ -214,4 +331,139 @@ public final class Evaluation
             }
         }
     }
+
+    /**
+     * Source of the access definitions used to evaluate the PermissionSets.
+     */
+    interface AccessSource
+    {
+
+        /**
+         * Get the ids of the person and of its roles and groups.
+         *
+         * @param _personId id of the person
+         * @return ids of the user abstracts
+         * @throws EFapsException on error
+         */
+        Set<Long> getUserIds(long _personId)
+            throws EFapsException;
+
+        /**
+         * Get the AccessSets assigned to one of the given users and linked to
+         * one of the given types.
+         *
+         * @param _userIds ids of the user abstracts
+         * @param _typeIds ids of the types
+         * @return mapping of AccessSet id to the ids of its types
+         * @throws EFapsException on error
+         */
+        Map<Long, Set<Long>> getAccessSet2Types(Set<Long> _userIds,
+                                                Set<Long> _typeIds)
+            throws EFapsException;
+
+        /**
+         * Get the AccessTypes of the given AccessSets.
+         *
+         * @param _accessSetIds ids of the AccessSets
+         * @return mapping of AccessSet id to the ids of its AccessTypes
+         * @throws EFapsException on error
+         */
+        Map<Long, Set<Long>> getAccessSet2AccessTypes(Set<Long> _accessSetIds)
+            throws EFapsException;
+
+        /**
+         * Get the Status of the given AccessSets.
+         *
+         * @param _accessSetIds ids of the AccessSets
+         * @return mapping of AccessSet id to the ids of its Status
+         * @throws EFapsException on error
+         */
+        Map<Long, Set<Long>> getAccessSet2Status(Set<Long> _accessSetIds)
+            throws EFapsException;
+    }
+
+    /**
+     * Reads the access definitions from the database with one query each.
+     */
+    private static final class DBAccessSource
+        implements AccessSource
+    {
+
+        @Override
+        public Set<Long> getUserIds(final long _personId)
+            throws EFapsException
+        {
+            final Person person = Person.get(_personId);
+            final Set<Long> ret = new HashSet<>(person.getRoles());
+            ret.addAll(person.getGroups());
+            ret.add(person.getId());
+            return ret;
+        }
+
+        @Override
+        public Map<Long, Set<Long>> getAccessSet2Types(final Set<Long> _userIds,
+                                                       final Set<Long> _typeIds)
+            throws EFapsException
+        {
+            final QueryBuilder userAttrQueryBldr = new QueryBuilder(CIAdminAccess.AccessSet2UserAbstract);
+            userAttrQueryBldr.addWhereAttrEqValue(CIAdminAccess.AccessSet2UserAbstract.UserAbstractLink,
+                            _userIds.toArray());
+
+            final QueryBuilder typeQueryBldr = new QueryBuilder(CIAdminAccess.AccessSet2DataModelType);
+            typeQueryBldr.addWhereAttrEqValue(CIAdminAccess.AccessSet2DataModelType.DataModelTypeLink,
+                            _typeIds.toArray());
+            typeQueryBldr.addWhereAttrInQuery(CIAdminAccess.AccessSet2DataModelType.AccessSetLink,
+                            userAttrQueryBldr.getAttributeQuery(CIAdminAccess.AccessSet2UserAbstract.AccessSetLink));
+            final CachedMultiPrintQuery typeMulti = typeQueryBldr.getCachedPrint4Request();
+            typeMulti.addAttribute(CIAdminAccess.AccessSet2DataModelType.AccessSetLink,
+                            CIAdminAccess.AccessSet2DataModelType.DataModelTypeLink);
+            typeMulti.executeWithoutAccessCheck();
+            final Map<Long, Set<Long>> ret = new HashMap<>();
+            while (typeMulti.next()) {
+                ret.computeIfAbsent(
+                                typeMulti.<Long>getAttribute(CIAdminAccess.AccessSet2DataModelType.AccessSetLink),
+                                accessSetId -> new HashSet<>())
+                        .add(typeMulti.<Long>getAttribute(CIAdminAccess.AccessSet2DataModelType.DataModelTypeLink));
+            }
+            return ret;
+        }
+
+        @Override
+        public Map<Long, Set<Long>> getAccessSet2AccessTypes(final Set<Long> _accessSetIds)
+            throws EFapsException
+        {
+            final QueryBuilder queryBldr = new QueryBuilder(CIAdminAccess.AccessSet2Type);
+            queryBldr.addWhereAttrEqValue(CIAdminAccess.AccessSet2Type.AccessSetLink, _accessSetIds.toArray());
+            final CachedMultiPrintQuery multi = queryBldr.getCachedPrint4Request();
+            multi.addAttribute(CIAdminAccess.AccessSet2Type.AccessSetLink,
+                            CIAdminAccess.AccessSet2Type.AccessTypeLink);
+            multi.executeWithoutAccessCheck();
+            final Map<Long, Set<Long>> ret = new HashMap<>();
+            while (multi.next()) {
+                ret.computeIfAbsent(multi.<Long>getAttribute(CIAdminAccess.AccessSet2Type.AccessSetLink),
+                                accessSetId -> new HashSet<>())
+                        .add(multi.<Long>getAttribute(CIAdminAccess.AccessSet2Type.AccessTypeLink));
+            }
+            return ret;
+        }
+
+        @Override
+        public Map<Long, Set<Long>> getAccessSet2Status(final Set<Long> _accessSetIds)
+            throws EFapsException
+        {
+            final QueryBuilder queryBldr = new QueryBuilder(CIAdminAccess.AccessSet2Status);
+            queryBldr.addWhereAttrEqValue(CIAdminAccess.AccessSet2Status.AccessSetLink, _accessSetIds.toArray());
+            final CachedMultiPrintQuery multi = queryBldr.getCachedPrint4Request();
+            multi.addAttribute(CIAdminAccess.AccessSet2Status.AccessSetLink,
+                            CIAdminAccess.AccessSet2Status.SatusLink);
+            multi.executeWithoutAccessCheck();
+            final Map<Long, Set<Long>> ret = new HashMap<>();
+            while (multi.next()) {
+                ret.computeIfAbsent(multi.<Long>getAttribute(CIAdminAccess.AccessSet2Status.AccessSetLink),
+                                accessSetId -> new HashSet<>())
+                        .add(multi.<Long>getAttribute(CIAdminAccess.AccessSet2Status.SatusLink));
+            }
+            return ret;
+        }
+    }
 }
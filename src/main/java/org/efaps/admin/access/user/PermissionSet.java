@@ -20,9 +20,6 @@ import java.util.Set;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
-import org.hibernate.search.engine.backend.types.Searchable;
-import org.hibernate.search.mapper.pojo.mapping.definition.annotation.GenericField;
-import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
 
 
 /**
@@ -30,12 +27,10 @@ import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
  *
  * @author The eFaps Team
  */
-@Indexed
 public class PermissionSet
 {
 
     /** The person id. */
-    @GenericField(searchable = Searchable.YES)
     private long personId;
 
     /** The instance type id. */
@@ -21,12 +21,15 @@ import java.util.UUID;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 
+import org.apache.commons.lang3.math.NumberUtils;
 import org.efaps.admin.EFapsSystemConfiguration;
 import org.efaps.admin.KernelSettings;
+import org.efaps.admin.index.QueueJob;
 import org.efaps.admin.user.Person;
 import org.efaps.db.transaction.DelegatingUserTransaction;
 import org.efaps.init.INamingBinds;
 import org.efaps.message.MessageStatusHolder;
+import org.efaps.rest.HistoryEQLJob;
 import org.efaps.util.EFapsException;
 import org.quartz.JobBuilder;
 import org.quartz.JobDetail;
@@ -178,6 +181,45 @@ public final class Quartz
                                         trigger);
                     }
                 }
+                if (config.getAttributeValueAsBoolean(KernelSettings.INDEXACTIVATE)) {
+                    final int interval = NumberUtils.toInt(config.getAttributeValue(
+                                    KernelSettings.INDEXQUEUEINTERVAL), 30);
+                    if (interval > 0) {
+                        final Trigger trigger = TriggerBuilder.newTrigger()
+                                        .withIdentity("IndexQueueTrigger", Quartz.QUARTZGROUP)
+                                        .withSchedule(SimpleScheduleBuilder.repeatSecondlyForever(interval))
+                                        .build();
+                        JobDetail jobDetail = Quartz.QUARTZ.scheduler.getJobDetail(new JobKey("IndexQueue",
+                                        Quartz.QUARTZGROUP));
+                        if (jobDetail == null) {
+                            jobDetail = JobBuilder.newJob(QueueJob.class)
+                                            .withIdentity("IndexQueue", Quartz.QUARTZGROUP).build();
+                            Quartz.QUARTZ.scheduler.scheduleJob(jobDetail, trigger);
+                        } else {
+                            Quartz.QUARTZ.scheduler.rescheduleJob(
+                                            new TriggerKey("IndexQueueTrigger", Quartz.QUARTZGROUP), trigger);
+                        }
+                    }
+                }
+                final int historyInterval = NumberUtils.toInt(config.getAttributeValue(
+                                KernelSettings.HISTORYEQLINTERVAL), 5);
+                if (historyInterval > 0) {
+                    final Trigger trigger = TriggerBuilder.newTrigger()
+                                    .withIdentity(HistoryEQLJob.NAME + "Trigger", Quartz.QUARTZGROUP)
+                                    .withSchedule(SimpleScheduleBuilder.repeatSecondlyForever(historyInterval))
+                                    .build();
+                    JobDetail jobDetail = Quartz.QUARTZ.scheduler.getJobDetail(new JobKey(HistoryEQLJob.NAME,
+                                    Quartz.QUARTZGROUP));
+                    if (jobDetail == null) {
+                        jobDetail = JobBuilder.newJob(HistoryEQLJob.class)
+                                        .withIdentity(HistoryEQLJob.NAME, Quartz.QUARTZGROUP).build();
+                        Quartz.QUARTZ.scheduler.scheduleJob(jobDetail, trigger);
+                    } else {
+                        Quartz.QUARTZ.scheduler.rescheduleJob(
+                                        new TriggerKey(HistoryEQLJob.NAME + "Trigger", Quartz.QUARTZGROUP), trigger);
+                    }
+                    HistoryEQLJob.activate();
+                }
                 Quartz.QUARTZ.scheduler.start();
             } catch (final SchedulerException e) {
                 throw new EFapsException(Quartz.class, "Quartz.SchedulerException", e);
@@ -200,12 +242,23 @@ public final class Quartz
         return Quartz.QUARTZ;
     }
 
+    /**
+     * Getter method for the instance variable {@link #scheduler}.
+     *
+     * @return value of instance variable {@link #scheduler}
+     */
+    public Scheduler getScheduler()
+    {
+        return this.scheduler;
+    }
+
     /**
      * ShutDown Quartz.
      */
     public static void shutDown()
     {
         if (Quartz.QUARTZ != null && Quartz.QUARTZ.scheduler != null) {
+            HistoryEQLJob.flush();
             try {
                 Quartz.QUARTZ.scheduler.shutdown();
             } catch (final SchedulerException e) {
@@ -24,10 +24,14 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.builder.ToStringBuilder;
@@ -35,6 +39,8 @@ import org.apache.commons.lang3.builder.ToStringStyle;
 import org.efaps.admin.datamodel.Type;
 import org.efaps.admin.user.Company;
 import org.efaps.ci.CIAdminCommon;
+import org.efaps.cluster.ClusterCommunication;
+import org.efaps.cluster.InvalidationEvent;
 import org.efaps.db.Context;
 import org.efaps.db.Instance;
 import org.efaps.db.wrapper.SQLPart;
@@ -168,8 +174,8 @@ public final class SystemConfiguration
      */
     private final String name;
 
-    /** The values. */
-    private final List<Value> values = new ArrayList<>();
+    /** The values by type and key, ordered as read from the database. */
+    private final Map<ConfType, Map<String, Candidates>> values = new EnumMap<>(ConfType.class);
 
     /**
      * Constructor setting instance variables.
@@ -535,54 +541,21 @@ public final class SystemConfiguration
                             final ConfType _type)
         throws EFapsException
     {
-        final List<Value> fv = values.stream()
-                        .filter(p -> p.type.equals(_type))
-                        .filter(p -> p.key.equals(_key))
-                        .filter(p -> priority(p) > 0)
-                        .sorted((_o1,
-                         _o2) -> Integer.compare(priority(_o2), priority(_o1))).collect(Collectors.toList());
-        SystemConfiguration.LOG.debug("Analyzed for key {}: {}", _key, fv);
+        final Map<String, Candidates> key2candidates = values.get(_type);
+        final Candidates candidates = key2candidates == null ? null : key2candidates.get(_key);
         final String ret;
-        if (fv.isEmpty()) {
+        if (candidates == null) {
             ret = null;
         } else {
-            ret = fv.get(0).value;
-        }
-        return ret;
-    }
-
-    /**
-     * Priority.
-     *
-     * @param _value the value
-     * @return the int
-     */
-    private int priority(final Value _value)
-    {
-        int ret = 1;
-        try {
-            if (StringUtils.isNotEmpty(_value.appKey)
-                            && !_value.appKey.equals(AppAccessHandler.getApplicationKey())) {
-                ret = -1;
-            } else {
-                final long companyId;
-                if (Context.isThreadActive()) {
-                    final Company company = Context.getThreadContext().getCompany();
-                    companyId = company == null ? 0 : company.getId();
-                } else {
-                    companyId = 0;
-                }
-                if (_value.companyId == companyId) {
-                    ret = ret + 100;
-                } else if (_value.companyId == 0) {
-                    ret = ret + 10;
-                } else if (_value.companyId != companyId) {
-                    ret = -1;
-                }
+            long companyId = 0;
+            if (Context.isThreadActive()) {
+                final Company company = Context.getThreadContext().getCompany();
+                companyId = company == null ? 0 : company.getId();
             }
-        } catch (final EFapsException e) {
-            SystemConfiguration.LOG.error("Catched", e);
+            final String appKey = AppAccessHandler.initialized() ? AppAccessHandler.getApplicationKey() : null;
+            ret = candidates.resolve(companyId, appKey);
         }
+        SystemConfiguration.LOG.debug("Analyzed for key {}: {}", _key, ret);
         return ret;
     }
 
@@ -594,6 +567,24 @@ public final class SystemConfiguration
         InfinispanCache.get().<UUID, SystemConfiguration>getCache(SystemConfiguration.UUIDCACHE).remove(uuid);
         InfinispanCache.get().<Long, SystemConfiguration>getCache(SystemConfiguration.IDCACHE).remove(id);
         InfinispanCache.get().<String, SystemConfiguration>getCache(SystemConfiguration.NAMECACHE).remove(name);
+        ClusterCommunication.invalidate(InvalidationEvent.Region.SYSTEMCONFIGURATION, uuid);
+    }
+
+    /**
+     * Remove a SystemConfiguration from the local Caches.
+     *
+     * @param _uuid UUID of the SystemConfiguration to be evicted
+     */
+    public static void evict(final UUID _uuid)
+    {
+        final SystemConfiguration sysConfig = InfinispanCache.get().<UUID, SystemConfiguration>getCache(
+                        SystemConfiguration.UUIDCACHE).remove(_uuid);
+        if (sysConfig != null) {
+            InfinispanCache.get().<Long, SystemConfiguration>getCache(SystemConfiguration.IDCACHE)
+                            .remove(sysConfig.getId());
+            InfinispanCache.get().<String, SystemConfiguration>getCache(SystemConfiguration.NAMECACHE)
+                            .remove(sysConfig.getName());
+        }
     }
 
     /**
@@ -652,7 +643,10 @@ public final class SystemConfiguration
                 } else {
                     confType = ConfType.ATTRIBUTE;
                 }
-                values.add(new Value(confType, key, value, companyId, appkey));
+                final Value confValue = new Value(confType, key, value, companyId, appkey);
+                values.computeIfAbsent(confType, typeKey -> new HashMap<>())
+                                .computeIfAbsent(confValue.key, valueKey -> new Candidates())
+                                .add(confValue);
             }
         } catch (final SQLException e) {
             throw new CacheReloadException("could not read SystemConfiguration attributes", e);
@@ -813,7 +807,7 @@ public final class SystemConfiguration
     /**
      * Value class.
      */
-    private enum ConfType
+    enum ConfType
     {
 
         /** The attribute. */
@@ -826,10 +820,110 @@ public final class SystemConfiguration
         OBJATTR
     }
 
+    /**
+     * The values for one type and key. The value used for a company is
+     * resolved once and remembered.
+     */
+    static class Candidates
+        implements Serializable
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The values in the order they were read. */
+        private final List<Value> values = new ArrayList<>();
+
+        /** The resolved values by company id. */
+        private transient Map<Long, Optional<String>> resolved;
+
+        /**
+         * Adds a value.
+         *
+         * @param _value the value
+         */
+        void add(final Value _value)
+        {
+            values.add(_value);
+            resolved = null;
+        }
+
+        /**
+         * Resolve the value for a company. A value defined for the company
+         * has priority over a value defined for all companies. Values of
+         * another application are ignored. The result is remembered per
+         * company as long as the application key is known.
+         *
+         * @param _companyId id of the company, 0 for none
+         * @param _appKey key of the application, <code>null</code> if the
+         *            application is not known yet
+         * @return the value, <code>null</code> if not defined
+         */
+        String resolve(final long _companyId,
+                       final String _appKey)
+        {
+            final Optional<String> ret;
+            if (_appKey == null) {
+                ret = evaluate(_companyId, null);
+            } else {
+                Map<Long, Optional<String>> memo = resolved;
+                if (memo == null) {
+                    memo = new ConcurrentHashMap<>();
+                    resolved = memo;
+                }
+                ret = memo.computeIfAbsent(_companyId, companyId -> evaluate(companyId, _appKey));
+            }
+            return ret.orElse(null);
+        }
+
+        /**
+         * Checks if the value for a company was already resolved.
+         *
+         * @param _companyId id of the company, 0 for none
+         * @return true, if resolved
+         */
+        boolean isResolved(final long _companyId)
+        {
+            final Map<Long, Optional<String>> memo = resolved;
+            return memo != null && memo.containsKey(_companyId);
+        }
+
+        /**
+         * Evaluate the value for a company.
+         *
+         * @param _companyId id of the company, 0 for none
+         * @param _appKey key of the application, <code>null</code> if the
+         *            application is not known yet
+         * @return the value
+         */
+        private Optional<String> evaluate(final long _companyId,
+                                          final String _appKey)
+        {
+            Value ret = null;
+            for (final Value value : values) {
+                if (StringUtils.isEmpty(value.appKey) || _appKey == null
+                                || value.appKey.equals(_appKey)) {
+                    if (value.companyId == _companyId) {
+                        ret = value;
+                        break;
+                    } else if (value.companyId == 0 && ret == null) {
+                        ret = value;
+                    }
+                }
+            }
+            return Optional.ofNullable(ret == null ? null : ret.value);
+        }
+
+        @Override
+        public String toString()
+        {
+            return values.toString();
+        }
+    }
+
     /**
      * Value class.
      */
-    private static class Value
+    static class Value
         implements Serializable
     {
 
@@ -37,6 +37,8 @@ import org.efaps.admin.event.Return;
 import org.efaps.admin.event.Return.ReturnValues;
 import org.efaps.ci.CIAdminDataModel;
 import org.efaps.ci.CIAdminUser;
+import org.efaps.cluster.ClusterCommunication;
+import org.efaps.cluster.InvalidationEvent;
 import org.efaps.db.Context;
 import org.efaps.db.databases.information.ColumnInformation;
 import org.efaps.db.wrapper.SQLInsert;
@@ -730,13 +732,27 @@ public class Attribute
     }
 
     /**
-     * Method to initialize this Cache.
+     * Method to initialize this Cache. If the caches were already
+     * initialized, the other members of the cluster are informed to clear
+     * their caches also.
      *
      * @param _class clas that called this method
      * @throws CacheReloadException on error
      */
     public static void initialize(final Class<?> _class)
         throws CacheReloadException
+    {
+        final boolean reload = InfinispanCache.get().exists(Attribute.NAMECACHE);
+        Attribute.evictAll();
+        if (reload) {
+            ClusterCommunication.invalidate(InvalidationEvent.Region.ATTRIBUTE, InvalidationEvent.ALL);
+        }
+    }
+
+    /**
+     * Remove all Attributes from the local caches.
+     */
+    public static void evictAll()
     {
         if (InfinispanCache.get().exists(Attribute.NAMECACHE)) {
             InfinispanCache.get().<String, Attribute>getCache(Attribute.NAMECACHE).clear();
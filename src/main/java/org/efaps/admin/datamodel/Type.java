@@ -57,6 +57,8 @@ import org.efaps.ci.CIAdminAccess;
 import org.efaps.ci.CIAdminDataModel;
 import org.efaps.ci.CIAdminUserInterface;
 import org.efaps.ci.CIType;
+import org.efaps.cluster.ClusterCommunication;
+import org.efaps.cluster.InvalidationEvent;
 import org.efaps.db.AttributeQuery;
 import org.efaps.db.Context;
 import org.efaps.db.Instance;
@@ -64,8 +66,10 @@ import org.efaps.db.InstanceQuery;
 import org.efaps.db.MultiPrintQuery;
 import org.efaps.db.QueryBuilder;
 import org.efaps.db.QueryCache;
+import org.efaps.db.stmt.runner.PrintPlan;
 import org.efaps.db.wrapper.SQLPart;
 import org.efaps.db.wrapper.SQLSelect;
+import org.efaps.eql.StatementCache;
 import org.efaps.util.EFapsException;
 import org.efaps.util.cache.CacheLogListener;
 import org.efaps.util.cache.CacheReloadException;
@@ -1236,13 +1240,27 @@ public class Type
     }
 
     /**
-     * Method to initialize the Cache of this CacheObjectInterface.
+     * Method to initialize the Cache of this CacheObjectInterface. If the
+     * caches were already initialized, the other members of the cluster are
+     * informed to clear their caches also.
      *
      * @param _class class that called the method
      * @throws CacheReloadException on error
      */
     public static void initialize(final Class<?> _class)
         throws CacheReloadException
+    {
+        final boolean reload = InfinispanCache.get().exists(Type.UUIDCACHE);
+        Type.evictAll();
+        if (reload) {
+            ClusterCommunication.invalidate(InvalidationEvent.Region.TYPE, InvalidationEvent.ALL);
+        }
+    }
+
+    /**
+     * Remove all Types from the local caches.
+     */
+    public static void evictAll()
     {
         if (InfinispanCache.get().exists(Type.UUIDCACHE)) {
             InfinispanCache.get().<UUID, Type>getCache(Type.UUIDCACHE).clear();
@@ -1263,6 +1281,8 @@ public class Type
             InfinispanCache.get().getCache(EnumType.CACHE).clear();
         }
         QueryCache.initialize();
+        PrintPlan.clear();
+        StatementCache.clear();
     }
 
     /**
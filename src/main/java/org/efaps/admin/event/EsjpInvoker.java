@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.admin.event;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.efaps.admin.program.esjp.EFapsClassLoader;
+import org.efaps.admin.program.esjp.EFapsStateless;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolved invoker for the method of an esjp. The class, the constructor and
+ * the method are resolved once and kept as MethodHandles, so that the
+ * execution of an event does not need to search them again.
+ *
+ * @author The eFaps Team
+ */
+public final class EsjpInvoker
+{
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(EsjpInvoker.class);
+
+    /**
+     * Type of the constructor after adaption.
+     */
+    private static final MethodType CONSTRUCTORTYPE = MethodType.methodType(Object.class);
+
+    /**
+     * Type of the method after adaption.
+     */
+    private static final MethodType METHODTYPE = MethodType.methodType(Return.class, Object.class,
+                    Parameter.class);
+
+    /**
+     * Resolved invokers by the name of the class and the method.
+     */
+    private static final Map<String, EsjpInvoker> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Handle to the constructor of the esjp.
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * Handle to the method of the esjp.
+     */
+    private final MethodHandle method;
+
+    /**
+     * Instance shared by all invocations if the esjp is stateless.
+     */
+    private final Object shared;
+
+    /**
+     * @param _constructor handle to the constructor
+     * @param _method handle to the method
+     * @param _stateless is the esjp stateless
+     * @throws Throwable if the shared instance could not be created
+     */
+    private EsjpInvoker(final MethodHandle _constructor,
+                        final MethodHandle _method,
+                        final boolean _stateless)
+        throws Throwable
+    {
+        this.constructor = _constructor;
+        this.method = _method;
+        this.shared = _stateless ? (Object) _constructor.invokeExact() : null;
+    }
+
+    /**
+     * Invoke the method on an instance of the esjp.
+     *
+     * @param _parameter Parameter handed to the method
+     * @return Return of the method
+     * @throws Throwable thrown by the method
+     */
+    public Return invoke(final Parameter _parameter)
+        throws Throwable
+    {
+        final Object target = this.shared == null ? (Object) this.constructor.invokeExact() : this.shared;
+        return (Return) this.method.invokeExact(target, _parameter);
+    }
+
+    /**
+     * Get the invoker for the given method of an esjp.
+     *
+     * @param _className name of the class of the esjp
+     * @param _methodName name of the method
+     * @return the invoker
+     * @throws ReflectiveOperationException if the class or method could not
+     *             be resolved
+     */
+    public static EsjpInvoker get(final String _className,
+                                  final String _methodName)
+        throws ReflectiveOperationException
+    {
+        final String key = _className + "#" + _methodName;
+        EsjpInvoker ret = EsjpInvoker.CACHE.get(key);
+        if (ret == null) {
+            ret = EsjpInvoker.resolve(_className, _methodName);
+            EsjpInvoker.CACHE.put(key, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Resolve the invoker for the given method of an esjp.
+     *
+     * @param _className name of the class of the esjp
+     * @param _methodName name of the method
+     * @return the invoker
+     * @throws ReflectiveOperationException if the class or method could not
+     *             be resolved
+     */
+    private static EsjpInvoker resolve(final String _className,
+                                       final String _methodName)
+        throws ReflectiveOperationException
+    {
+        EsjpInvoker.LOG.debug("Resolving method '{}' for Resource '{}'", _methodName, _className);
+        final Class<?> cls = Class.forName(_className, true, EFapsClassLoader.getInstance());
+        final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        final MethodHandle constructor = lookup.unreflectConstructor(cls.getDeclaredConstructor())
+                        .asType(EsjpInvoker.CONSTRUCTORTYPE);
+        final MethodHandle method = lookup.unreflect(cls.getMethod(_methodName, Parameter.class))
+                        .asType(EsjpInvoker.METHODTYPE);
+        try {
+            return new EsjpInvoker(constructor, method, cls.isAnnotationPresent(EFapsStateless.class));
+        //CHECKSTYLE:OFF
+        } catch (final Throwable e) {
+        //CHECKSTYLE:ON
+            final InstantiationException ex = new InstantiationException(_className);
+            ex.initCause(e);
+            throw ex;
+        }
+    }
+
+    /**
+     * Remove all resolved invokers. Must be called after the ESJPs were
+     * compiled.
+     */
+    public static void clear()
+    {
+        EsjpInvoker.CACHE.clear();
+    }
+}
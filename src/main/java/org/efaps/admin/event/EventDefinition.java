@@ -191,21 +191,22 @@ public final class EventDefinition
         _parameter.put(ParameterValues.PROPERTIES, new HashMap<>(super.evalProperties()));
         try {
             EventDefinition.LOG.debug("Invoking method '{}' for Resource '{}'", this.methodName, this.resourceName);
-            final Class<?> cls = Class.forName(this.resourceName, true, EFapsClassLoader.getInstance());
-            final Method method = cls.getMethod(this.methodName, new Class[] { Parameter.class });
-            ret = (Return) method.invoke(cls.getDeclaredConstructor().newInstance(), _parameter);
+            final EsjpInvoker invoker = EsjpInvoker.get(this.resourceName, this.methodName);
+            try {
+                ret = invoker.invoke(_parameter);
+            //CHECKSTYLE:OFF
+            } catch (final Throwable e) {
+            //CHECKSTYLE:ON
+                EventDefinition.LOG.error("could not invoke method: '{}' in class: '{}'", this.methodName,
+                                this.resourceName, e);
+                throw new EFapsException("InvocationTargetException", e);
+            }
             EventDefinition.LOG.debug("Terminated invokation of method '{}' for Resource '{}'",
                             this.methodName, this.resourceName);
         } catch (final SecurityException e) {
             EventDefinition.LOG.error("security wrong: '{}'", this.resourceName, e);
-        } catch (final IllegalArgumentException e) {
-            EventDefinition.LOG.error("arguments invalid : '{}'- '{}'", this.resourceName, this.methodName, e);
         } catch (final IllegalAccessException e) {
             EventDefinition.LOG.error("could not access class: '{}'", this.resourceName, e);
-        } catch (final InvocationTargetException e) {
-            EventDefinition.LOG.error("could not invoke method: '{}' in class: '{}'", this.methodName,
-                            this.resourceName, e);
-            throw new EFapsException("InvocationTargetException", e.getCause());
         } catch (final ClassNotFoundException e) {
             EventDefinition.LOG.error("class not found: '{}" + this.resourceName, e);
         } catch (final NoSuchMethodException e) {
@@ -213,6 +214,9 @@ public final class EventDefinition
                             new Object[] { this.methodName, this.resourceName, e });
         } catch (final InstantiationException e) {
             EventDefinition.LOG.error("could not instantiat Class: '{}'", this.resourceName, e);
+        } catch (final ReflectiveOperationException e) {
+            EventDefinition.LOG.error("could not resolve method: '{}' in class: '{}'", this.methodName,
+                            this.resourceName, e);
         }
         return ret;
     }
@@ -0,0 +1,303 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.admin.index;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
+import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager.SearcherAndTaxonomy;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.efaps.admin.user.Company;
+import org.efaps.db.Context;
+import org.efaps.util.EFapsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Process wide manager of the index of a company. It keeps one
+ * {@link IndexWriter} and one {@link DirectoryTaxonomyWriter} open and
+ * hands out searchers that are refreshed after each commit, so that
+ * searches reuse the already opened segment readers.
+ * <p>
+ * The open writers hold the <code>write.lock</code> of their directories
+ * until {@link #closeAll()} is called. Therefore the manager must be the only
+ * writer of a directory: all writes of this process go through the manager
+ * registered for the directory, and the directories must not be shared with
+ * the other members of a cluster or with external writers. Opening a manager
+ * for a directory locked by another writer fails.
+ * </p>
+ *
+ * @author The eFaps Team
+ */
+public final class IndexManager
+{
+
+    /**
+     * Logging instance used in this class.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(IndexManager.class);
+
+    /**
+     * Managers by the key of their directory.
+     */
+    private static final Map<Object, IndexManager> MANAGERS = new ConcurrentHashMap<>();
+
+    /**
+     * Managers by company id.
+     */
+    private static final Map<Long, IndexManager> COMPANIES = new ConcurrentHashMap<>();
+
+    /** The writer for the index. */
+    private final IndexWriter writer;
+
+    /** The writer for the taxonomy. */
+    private final DirectoryTaxonomyWriter taxonomyWriter;
+
+    /** The manager for the searchers. */
+    private final SearcherTaxonomyManager searcherManager;
+
+    /**
+     * Instantiates a new index manager.
+     *
+     * @param _context the context
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private IndexManager(final IndexContext _context)
+        throws IOException
+    {
+        this.writer = new IndexWriter(_context.getDirectory(), new IndexWriterConfig(_context.getAnalyzer()));
+        this.taxonomyWriter = new DirectoryTaxonomyWriter(_context.getTaxonomyDirectory());
+        this.searcherManager = new SearcherTaxonomyManager(this.writer, new SearcherFactory(), this.taxonomyWriter);
+    }
+
+    /**
+     * Getter method for the instance variable {@link #writer}.
+     *
+     * @return value of instance variable {@link #writer}
+     */
+    public IndexWriter getWriter()
+    {
+        return this.writer;
+    }
+
+    /**
+     * Getter method for the instance variable {@link #taxonomyWriter}.
+     *
+     * @return value of instance variable {@link #taxonomyWriter}
+     */
+    public DirectoryTaxonomyWriter getTaxonomyWriter()
+    {
+        return this.taxonomyWriter;
+    }
+
+    /**
+     * Commit the changes of the writers and refresh the searchers.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public synchronized void commit()
+        throws IOException
+    {
+        this.taxonomyWriter.commit();
+        this.writer.commit();
+        this.searcherManager.maybeRefresh();
+    }
+
+    /**
+     * Commit the changes of the writers together with the given data.
+     *
+     * @param _commitData data stored with the commit
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public synchronized void commit(final Map<String, String> _commitData)
+        throws IOException
+    {
+        this.writer.setLiveCommitData(new HashMap<>(_commitData).entrySet());
+        commit();
+    }
+
+    /**
+     * Gets the data stored with the last commit.
+     *
+     * @return the commit data
+     */
+    public synchronized Map<String, String> getCommitData()
+    {
+        final Map<String, String> ret = new HashMap<>();
+        final Iterable<Map.Entry<String, String>> commitData = this.writer.getLiveCommitData();
+        if (commitData != null) {
+            commitData.forEach(entry -> ret.put(entry.getKey(), entry.getValue()));
+        }
+        return ret;
+    }
+
+    /**
+     * Acquire a searcher. Must be released by {@link #release(SearcherAndTaxonomy)}.
+     *
+     * @return the searcher and taxonomy reader
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public SearcherAndTaxonomy acquire()
+        throws IOException
+    {
+        return this.searcherManager.acquire();
+    }
+
+    /**
+     * Release a searcher acquired by {@link #acquire()}.
+     *
+     * @param _searcher the searcher to release
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    public void release(final SearcherAndTaxonomy _searcher)
+        throws IOException
+    {
+        this.searcherManager.release(_searcher);
+    }
+
+    /**
+     * Close the searchers and the writers.
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private void close()
+        throws IOException
+    {
+        this.searcherManager.close();
+        this.taxonomyWriter.close();
+        this.writer.close();
+    }
+
+    /**
+     * Gets the manager for the company of the current context.
+     *
+     * @return the index manager
+     * @throws EFapsException on error
+     */
+    public static IndexManager get()
+        throws EFapsException
+    {
+        final Company company = Context.getThreadContext().getCompany();
+        return IndexManager.get(company == null ? 0 : company.getId());
+    }
+
+    /**
+     * Gets the manager for a company. The directories and the analyzer are
+     * retrieved once for the company, which must be the company of the
+     * current context.
+     *
+     * @param _companyId the company id
+     * @return the index manager
+     * @throws EFapsException on error
+     */
+    public static IndexManager get(final long _companyId)
+        throws EFapsException
+    {
+        IndexManager ret = IndexManager.COMPANIES.get(_companyId);
+        if (ret == null) {
+            synchronized (IndexManager.class) {
+                ret = IndexManager.COMPANIES.get(_companyId);
+                if (ret == null) {
+                    ret = IndexManager.get(new IndexContext().setAnalyzer(Index.getAnalyzer())
+                                    .setDirectory(Index.getDirectory())
+                                    .setTaxonomyDirectory(Index.getTaxonomyDirectory())
+                                    .setCompanyId(_companyId));
+                    IndexManager.COMPANIES.put(_companyId, ret);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the manager for the directory of the given context. If no manager
+     * is registered for the directory yet, it is opened with the directories
+     * and the analyzer of the context.
+     *
+     * @param _context the context defining the directories
+     * @return the index manager
+     * @throws EFapsException on error
+     */
+    public static IndexManager get(final IndexContext _context)
+        throws EFapsException
+    {
+        final Object key = IndexManager.getKey(_context.getDirectory());
+        IndexManager ret = IndexManager.MANAGERS.get(key);
+        if (ret == null) {
+            synchronized (IndexManager.class) {
+                ret = IndexManager.MANAGERS.get(key);
+                if (ret == null) {
+                    try {
+                        ret = new IndexManager(_context);
+                    } catch (final LockObtainFailedException e) {
+                        throw new EFapsException(IndexManager.class, "get.LockObtainFailedException", e);
+                    } catch (final IOException e) {
+                        throw new EFapsException(IndexManager.class, "get", e);
+                    }
+                    IndexManager.MANAGERS.put(key, ret);
+                    LOG.info("Opened index {} for company {}", key, _context.getCompanyId());
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * The key of a directory. Directories in the file system are identified
+     * by their path, so that different instances opened for the same path
+     * share one manager, all others by their identity.
+     *
+     * @param _directory the directory
+     * @return the key
+     */
+    private static Object getKey(final Directory _directory)
+    {
+        final Object ret;
+        if (_directory instanceof FSDirectory) {
+            ret = ((FSDirectory) _directory).getDirectory().toAbsolutePath().normalize();
+        } else {
+            ret = _directory;
+        }
+        return ret;
+    }
+
+    /**
+     * Close all managers.
+     */
+    public static void closeAll()
+    {
+        synchronized (IndexManager.class) {
+            for (final Map.Entry<Object, IndexManager> entry : IndexManager.MANAGERS.entrySet()) {
+                try {
+                    entry.getValue().close();
+                } catch (final IOException e) {
+                    LOG.error("Could not close index {}", entry.getKey(), e);
+                }
+            }
+            IndexManager.MANAGERS.clear();
+            IndexManager.COMPANIES.clear();
+        }
+    }
+}
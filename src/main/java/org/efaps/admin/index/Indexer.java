@@ -17,7 +17,10 @@ package org.efaps.admin.index;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -32,9 +35,7 @@ import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.facet.FacetField;
 import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
-import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
 import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.Term;
 import org.efaps.admin.datamodel.Attribute;
 import org.efaps.admin.datamodel.attributetype.CreatedType;
@@ -44,9 +45,7 @@ import org.efaps.admin.program.esjp.EFapsClassLoader;
 import org.efaps.admin.user.Company;
 import org.efaps.db.Context;
 import org.efaps.db.Instance;
-import org.efaps.db.InstanceQuery;
 import org.efaps.db.MultiPrintQuery;
-import org.efaps.db.QueryBuilder;
 import org.efaps.util.EFapsException;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
@@ -79,7 +78,13 @@ public final class Indexer
         CREATED,
 
         /** The created string field used for searching. */
-        CREATEDSTR;
+        CREATEDSTR,
+
+        /** The id of the type as numeric field used to resolve the instance. */
+        TYPEID,
+
+        /** The id as numeric field used to resolve the instance. */
+        ID;
     }
 
     /**
@@ -108,19 +113,16 @@ public final class Indexer
     }
 
     /**
-     * Index or reindex using the Indexdefinitions.
+     * Index or reindex using the Indexdefinitions. The instances are read
+     * page by page and indexed in parallel, an interrupted reindex is resumed.
      *
+     * @see Reindex
      * @throws EFapsException the e faps exception
      */
     public static void index()
         throws EFapsException
     {
-        final List<IndexDefinition> defs = IndexDefinition.get();
-        for (final IndexDefinition def : defs) {
-            final QueryBuilder queryBldr = new QueryBuilder(def.getUUID());
-            final InstanceQuery query = queryBldr.getQuery();
-            index(query.execute());
-        }
+        Reindex.execute();
     }
 
     /**
@@ -133,14 +135,16 @@ public final class Indexer
     public static void index(final List<Instance> _instances)
         throws EFapsException
     {
-        Indexer.index(new IndexContext().setAnalyzer(Index.getAnalyzer()).setDirectory(Index.getDirectory())
-                        .setLanguage(Context.getThreadContext().getLanguage())
+        Indexer.index(new IndexContext().setLanguage(Context.getThreadContext().getLanguage())
                         .setCompanyId(Context.getThreadContext().getCompany().getId()), _instances);
     }
 
     /**
      * Index or reindex a given list of instances. The given instances m,ust be
-     * all of the same type!
+     * all of the same type! If the context does not define a directory the
+     * shared {@link IndexManager} of the company is used, else the
+     * {@link IndexManager} of the given directory, so that the writer holding
+     * the lock of a directory is reused.
      *
      * @param _context the _context
      * @param _instances the instances
@@ -156,118 +160,188 @@ public final class Indexer
 
             Context.getThreadContext().setCompany(Company.get(_context.getCompanyId()));
             Context.getThreadContext().setLanguage(_context.getLanguage());
-            final IndexWriterConfig config = new IndexWriterConfig(_context.getAnalyzer());
-            try (
-                            IndexWriter writer = new IndexWriter(_context.getDirectory(), config);
-                            TaxonomyWriter taxonomyWriter = new DirectoryTaxonomyWriter(
-                                            _context.getTaxonomyDirectory());) {
+            try {
+                final IndexManager manager = _context.getDirectory() == null
+                                ? IndexManager.get(_context.getCompanyId())
+                                : IndexManager.get(_context);
+                Indexer.addDocuments(_instances, manager.getWriter(), manager.getTaxonomyWriter());
+                manager.commit();
+            } catch (final IOException e) {
+                throw new EFapsException(Indexer.class, "Catched", e);
+            } finally {
+                Context.getThreadContext().setCompany(currentCompany);
+                Context.getThreadContext().setLanguage(currentLanguage);
+            }
+        }
+    }
 
-                final IndexDefinition def = IndexDefinition.get(_instances.get(0).getType().getUUID());
-                final MultiPrintQuery multi = new MultiPrintQuery(_instances);
-                for (final IndexField field : def.getFields()) {
-                    multi.addSelect(field.getSelect());
-                }
-                Attribute createdAttr = null;
-                if (!_instances.get(0).getType().getAttributes(CreatedType.class).isEmpty()) {
-                    createdAttr = _instances.get(0).getType().getAttributes(CreatedType.class).iterator().next();
-                    multi.addAttribute(createdAttr);
+    /**
+     * Add the documents for the given instances to the writers. The documents
+     * of instances that do not exist anymore are deleted. All documents are
+     * built before the writers are touched, so that a failing instance does
+     * not leave a part of the batch buffered in the shared writers, where the
+     * next commit would persist it.
+     *
+     * @param _instances the instances
+     * @param _writer the writer
+     * @param _taxonomyWriter the taxonomy writer
+     * @throws EFapsException on error
+     */
+    protected static void addDocuments(final List<Instance> _instances,
+                                       final IndexWriter _writer,
+                                       final TaxonomyWriter _taxonomyWriter)
+        throws EFapsException
+    {
+        final Map<String, Document> docs = Indexer.buildDocuments(_instances);
+        try {
+            for (final Map.Entry<String, Document> entry : docs.entrySet()) {
+                _writer.updateDocument(new Term(Key.OID.name(), entry.getKey()),
+                                Index.getFacetsConfig().build(_taxonomyWriter, entry.getValue()));
+                LOG.debug("Add Document: {}", entry.getValue());
+            }
+            Indexer.deleteDocuments(_instances, docs.keySet(), _writer);
+        } catch (final IOException e) {
+            throw new EFapsException(Indexer.class, "Catched", e);
+        }
+    }
+
+    /**
+     * Build the documents for the given instances. Instances that do not
+     * exist anymore have no document.
+     *
+     * @param _instances the instances
+     * @return the documents by oid
+     * @throws EFapsException on error
+     */
+    protected static Map<String, Document> buildDocuments(final List<Instance> _instances)
+        throws EFapsException
+    {
+        final Map<String, Document> ret = new LinkedHashMap<>();
+        try {
+            final IndexDefinition def = IndexDefinition.get(_instances.get(0).getType().getUUID());
+            final MultiPrintQuery multi = new MultiPrintQuery(_instances);
+            for (final IndexField field : def.getFields()) {
+                multi.addSelect(field.getSelect());
+            }
+            Attribute createdAttr = null;
+            if (!_instances.get(0).getType().getAttributes(CreatedType.class).isEmpty()) {
+                createdAttr = _instances.get(0).getType().getAttributes(CreatedType.class).iterator().next();
+                multi.addAttribute(createdAttr);
+            }
+            multi.addMsgPhrase(def.getMsgPhrase());
+            multi.executeWithoutAccessCheck();
+            while (multi.next()) {
+                final String oid = multi.getCurrentInstance().getOid();
+                final String type = multi.getCurrentInstance().getType().getLabel();
+                final DateTime created;
+                if (createdAttr == null) {
+                    created = new DateTime();
+                } else {
+                    created = multi.getAttribute(createdAttr);
                 }
-                multi.addMsgPhrase(def.getMsgPhrase());
-                multi.executeWithoutAccessCheck();
-                while (multi.next()) {
-                    final String oid = multi.getCurrentInstance().getOid();
-                    final String type = multi.getCurrentInstance().getType().getLabel();
-                    final DateTime created;
-                    if (createdAttr == null) {
-                        created = new DateTime();
-                    } else {
-                        created = multi.getAttribute(createdAttr);
-                    }
-                    LOG.debug("Indexing: oid: {} type: {} ", oid, type);
-                    final Document doc = new Document();
-                    doc.add(new FacetField(Dimension.DIMTYPE.name(), type));
-                    doc.add(new FacetField(Dimension.DIMCREATED.name(), String.valueOf(created.getYear()),
-                                    String.format("%02d", created.getMonthOfYear())));
-                    doc.add(new StringField(Key.OID.name(), oid, Store.YES));
-                    doc.add(new TextField(DBProperties.getProperty("index.Type"), type, Store.YES));
-                    doc.add(new NumericDocValuesField(Key.CREATED.name(), created.getMillis()));
-                    doc.add(new StringField(Key.CREATEDSTR.name(),
-                                    DateTools.dateToString(created.toDate(), DateTools.Resolution.DAY), Store.NO));
+                LOG.debug("Indexing: oid: {} type: {} ", oid, type);
+                final Document doc = new Document();
+                doc.add(new FacetField(Dimension.DIMTYPE.name(), type));
+                doc.add(new FacetField(Dimension.DIMCREATED.name(), String.valueOf(created.getYear()),
+                                String.format("%02d", created.getMonthOfYear())));
+                doc.add(new StringField(Key.OID.name(), oid, Store.YES));
+                doc.add(new TextField(DBProperties.getProperty("index.Type"), type, Store.YES));
+                doc.add(new NumericDocValuesField(Key.CREATED.name(), created.getMillis()));
+                doc.add(new NumericDocValuesField(Key.TYPEID.name(),
+                                multi.getCurrentInstance().getType().getId()));
+                doc.add(new NumericDocValuesField(Key.ID.name(), multi.getCurrentInstance().getId()));
+                doc.add(new StringField(Key.CREATEDSTR.name(),
+                                DateTools.dateToString(created.toDate(), DateTools.Resolution.DAY), Store.NO));
 
-                    final StringBuilder allBldr = new StringBuilder()
-                                    .append(type).append(" ");
+                final StringBuilder allBldr = new StringBuilder()
+                                .append(type).append(" ");
 
-                    for (final IndexField field : def.getFields()) {
-                        final String name = DBProperties.getProperty(field.getKey());
-                        Object value = multi.getSelect(field.getSelect());
-                        if (value != null) {
-                            if (StringUtils.isNoneEmpty(field.getTransform())) {
-                                final Class<?> clazz = Class.forName(field.getTransform(),
-                                                false, EFapsClassLoader.getInstance());
-                                final ITransformer transformer = (ITransformer) clazz.getConstructor().newInstance();
-                                value = transformer.transform(value);
-                            }
-                            switch (field.getFieldType()) {
-                                case LONG:
-                                    long val = 0;
-                                    if (value instanceof String) {
-                                        val = NumberUtils.toLong((String) value);
-                                    } else if (value instanceof Number) {
-                                        val = ((Number) value).longValue();
-                                    }
-                                    doc.add(new NumericDocValuesField(name, val));
-                                    allBldr.append(value).append(" ");
-                                    break;
-                                case SEARCHLONG:
-                                    long val2 = 0;
-                                    if (value instanceof String) {
-                                        val2 = NumberUtils.toLong((String) value);
-                                    } else if (value instanceof Number) {
-                                        val2 = ((Number) value).longValue();
-                                    }
-                                    doc.add(new LongPoint(name, val2));
-                                    allBldr.append(value).append(" ");
-                                    break;
-                                case STRING:
-                                    doc.add(new StringField(name, String.valueOf(value), Store.YES));
-                                    allBldr.append(value).append(" ");
-                                    break;
-                                case SEARCHSTRING:
-                                    doc.add(new StringField(name, String.valueOf(value), Store.NO));
-                                    allBldr.append(value).append(" ");
-                                    break;
-                                case TEXT:
-                                    doc.add(new TextField(name, String.valueOf(value), Store.YES));
-                                    allBldr.append(value).append(" ");
-                                    break;
-                                case SEARCHTEXT:
-                                    doc.add(new TextField(name, String.valueOf(value), Store.NO));
-                                    allBldr.append(value).append(" ");
-                                    break;
-                                case STORED:
-                                    doc.add(new StoredField(name, String.valueOf(value)));
-                                    allBldr.append(value).append(" ");
-                                    break;
-                                default:
-                                    break;
-                            }
+                for (final IndexField field : def.getFields()) {
+                    final String name = DBProperties.getProperty(field.getKey());
+                    Object value = multi.getSelect(field.getSelect());
+                    if (value != null) {
+                        if (StringUtils.isNoneEmpty(field.getTransform())) {
+                            final Class<?> clazz = Class.forName(field.getTransform(),
+                                            false, EFapsClassLoader.getInstance());
+                            final ITransformer transformer = (ITransformer) clazz.getConstructor().newInstance();
+                            value = transformer.transform(value);
+                        }
+                        switch (field.getFieldType()) {
+                            case LONG:
+                                long val = 0;
+                                if (value instanceof String) {
+                                    val = NumberUtils.toLong((String) value);
+                                } else if (value instanceof Number) {
+                                    val = ((Number) value).longValue();
+                                }
+                                doc.add(new NumericDocValuesField(name, val));
+                                allBldr.append(value).append(" ");
+                                break;
+                            case SEARCHLONG:
+                                long val2 = 0;
+                                if (value instanceof String) {
+                                    val2 = NumberUtils.toLong((String) value);
+                                } else if (value instanceof Number) {
+                                    val2 = ((Number) value).longValue();
+                                }
+                                doc.add(new LongPoint(name, val2));
+                                allBldr.append(value).append(" ");
+                                break;
+                            case STRING:
+                                doc.add(new StringField(name, String.valueOf(value), Store.YES));
+                                allBldr.append(value).append(" ");
+                                break;
+                            case SEARCHSTRING:
+                                doc.add(new StringField(name, String.valueOf(value), Store.NO));
+                                allBldr.append(value).append(" ");
+                                break;
+                            case TEXT:
+                                doc.add(new TextField(name, String.valueOf(value), Store.YES));
+                                allBldr.append(value).append(" ");
+                                break;
+                            case SEARCHTEXT:
+                                doc.add(new TextField(name, String.valueOf(value), Store.NO));
+                                allBldr.append(value).append(" ");
+                                break;
+                            case STORED:
+                                doc.add(new StoredField(name, String.valueOf(value)));
+                                allBldr.append(value).append(" ");
+                                break;
+                            default:
+                                break;
                         }
                     }
-                    doc.add(new StoredField(Key.MSGPHRASE.name(), multi.getMsgPhrase(def.getMsgPhrase())));
-                    doc.add(new TextField(Key.ALL.name(), allBldr.toString(), Store.NO));
-                    writer.updateDocument(new Term(Key.OID.name(), oid),
-                                    Index.getFacetsConfig().build(taxonomyWriter, doc));
-                    LOG.debug("Add Document: {}", doc);
                 }
-                writer.close();
-                taxonomyWriter.close();
-            } catch (final IOException | ClassNotFoundException | InstantiationException | IllegalAccessException
-                            | IllegalArgumentException | InvocationTargetException | NoSuchMethodException
-                            | SecurityException e) {
-                throw new EFapsException(Indexer.class, "Catched", e);
-            } finally {
-                Context.getThreadContext().setCompany(currentCompany);
-                Context.getThreadContext().setLanguage(currentLanguage);
+                doc.add(new StoredField(Key.MSGPHRASE.name(), multi.getMsgPhrase(def.getMsgPhrase())));
+                doc.add(new TextField(Key.ALL.name(), allBldr.toString(), Store.NO));
+                ret.put(oid, doc);
+            }
+        } catch (final ClassNotFoundException | InstantiationException | IllegalAccessException
+                        | IllegalArgumentException | InvocationTargetException | NoSuchMethodException
+                        | SecurityException e) {
+            throw new EFapsException(Indexer.class, "Catched", e);
+        }
+        return ret;
+    }
+
+    /**
+     * Delete the documents of the instances that were not indexed, because
+     * they do not exist anymore.
+     *
+     * @param _instances the instances
+     * @param _indexed the oids of the indexed instances
+     * @param _writer the writer
+     * @throws IOException on error
+     */
+    protected static void deleteDocuments(final List<Instance> _instances,
+                                          final Set<String> _indexed,
+                                          final IndexWriter _writer)
+        throws IOException
+    {
+        for (final Instance instance : _instances) {
+            if (!_indexed.contains(instance.getOid())) {
+                LOG.debug("Delete Document for oid: {}", instance.getOid());
+                _writer.deleteDocuments(new Term(Key.OID.name(), instance.getOid()));
             }
         }
     }
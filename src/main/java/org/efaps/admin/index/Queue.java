@@ -15,13 +15,27 @@
  */
 package org.efaps.admin.index;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
+
 import org.efaps.admin.EFapsSystemConfiguration;
 import org.efaps.admin.KernelSettings;
+import org.efaps.admin.user.Company;
+import org.efaps.db.Context;
 import org.efaps.db.Instance;
 import org.efaps.util.EFapsException;
 import org.efaps.util.RandomUtil;
 import org.efaps.util.cache.InfinispanCache;
 import org.infinispan.AdvancedCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * TODO comment!
@@ -36,6 +50,23 @@ public final class Queue
      */
     public static final String CACHENAME = Queue.class.getName() + ".Cache";
 
+    /**
+     * Separator for the parts of the key: company id, language and a random
+     * part.
+     */
+    public static final String SEPARATOR = "|";
+
+    /**
+     * Logging instance used in this class.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(Queue.class);
+
+    /**
+     * Updates registered by the running transactions. They are put into the
+     * queue only after the transaction was committed.
+     */
+    private static final Map<Transaction, PendingUpdates> PENDING = new ConcurrentHashMap<>();
+
     /**
      * Instantiates a new queue.
      */
@@ -44,7 +75,10 @@ public final class Queue
     }
 
     /**
-     * Register update.
+     * Register update. The instance is indexed by the {@link QueueJob} for
+     * the company and language of the current context. If a transaction is
+     * active the instance is put into the queue on its commit, a rolled back
+     * transaction does not change the queue.
      *
      * @param _instance the _instance
      * @throws EFapsException the e faps exception
@@ -57,9 +91,127 @@ public final class Queue
                         && EFapsSystemConfiguration.get().getAttributeValueAsBoolean(KernelSettings.INDEXACTIVATE)) {
             if (_instance != null && _instance.getType() != null
                             && IndexDefinition.get(_instance.getType().getUUID()) != null) {
-                final AdvancedCache<String, String> cache = InfinispanCache.get()
-                                .<String, String>getIgnReCache(CACHENAME);
-                cache.put(RandomUtil.random(12), _instance.getOid());
+                final Company company = Context.getThreadContext().getCompany();
+                final String key = (company == null ? 0 : company.getId()) + SEPARATOR
+                                + Context.getThreadContext().getLanguage() + SEPARATOR + RandomUtil.random(12);
+                Queue.enqueue(key, _instance.getOid());
+            }
+        }
+    }
+
+    /**
+     * Put an entry into the queue. If the transaction of the current context
+     * is active, the entry is put on its commit.
+     *
+     * @param _key key of the entry
+     * @param _oid oid of the instance
+     * @throws EFapsException on error
+     */
+    protected static void enqueue(final String _key,
+                                  final String _oid)
+        throws EFapsException
+    {
+        final Transaction transaction = Context.isThreadActive()
+                        ? Context.getThreadContext().getTransaction() : null;
+        final PendingUpdates pending = Queue.isActive(transaction)
+                        ? Queue.PENDING.computeIfAbsent(transaction, Queue::register) : null;
+        if (pending == null) {
+            Queue.getCache().put(_key, _oid);
+        } else {
+            pending.put(_key, _oid);
+        }
+    }
+
+    /**
+     * @return the cache used as queue
+     */
+    protected static AdvancedCache<String, String> getCache()
+    {
+        return InfinispanCache.get().<String, String>getIgnReCache(CACHENAME);
+    }
+
+    /**
+     * @param _transaction transaction to check
+     * @return <i>true</i> if the transaction is active, else <i>false</i>
+     * @throws EFapsException on error
+     */
+    private static boolean isActive(final Transaction _transaction)
+        throws EFapsException
+    {
+        try {
+            return _transaction != null && _transaction.getStatus() == Status.STATUS_ACTIVE;
+        } catch (final SystemException e) {
+            throw new EFapsException(Queue.class, "isActive.SystemException", e);
+        }
+    }
+
+    /**
+     * Register the synchronization for the updates of a transaction.
+     *
+     * @param _transaction transaction the synchronization is registered for
+     * @return the pending updates of the transaction, <code>null</code> if the
+     *         synchronization could not be registered
+     */
+    private static PendingUpdates register(final Transaction _transaction)
+    {
+        PendingUpdates ret = new PendingUpdates(_transaction);
+        try {
+            _transaction.registerSynchronization(ret);
+        } catch (final RollbackException | SystemException | IllegalStateException e) {
+            LOG.error("Could not register synchronization for the index queue", e);
+            ret = null;
+        }
+        return ret;
+    }
+
+    /**
+     * Collects the updates of one transaction and puts them into the queue
+     * after the transaction was committed.
+     */
+    private static final class PendingUpdates
+        implements Synchronization
+    {
+
+        /**
+         * The transaction the updates belong to.
+         */
+        private final Transaction transaction;
+
+        /**
+         * Key to oid.
+         */
+        private final Map<String, String> entries = new LinkedHashMap<>();
+
+        /**
+         * @param _transaction the transaction the updates belong to
+         */
+        private PendingUpdates(final Transaction _transaction)
+        {
+            transaction = _transaction;
+        }
+
+        /**
+         * @param _key key for the queue
+         * @param _oid oid of the instance
+         */
+        private void put(final String _key,
+                         final String _oid)
+        {
+            entries.put(_key, _oid);
+        }
+
+        @Override
+        public void beforeCompletion()
+        {
+            // nothing to do before the commit
+        }
+
+        @Override
+        public void afterCompletion(final int _status)
+        {
+            Queue.PENDING.remove(transaction);
+            if (_status == Status.STATUS_COMMITTED) {
+                Queue.getCache().putAll(entries);
             }
         }
     }
@@ -0,0 +1,249 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.admin.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.efaps.admin.EFapsSystemConfiguration;
+import org.efaps.admin.KernelSettings;
+import org.efaps.admin.common.SystemConfiguration;
+import org.efaps.admin.datamodel.Type;
+import org.efaps.db.Context;
+import org.efaps.db.Instance;
+import org.efaps.util.EFapsException;
+import org.efaps.util.cache.InfinispanCache;
+import org.infinispan.AdvancedCache;
+import org.infinispan.commons.util.CloseableIterator;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Quartz job that drains the {@link Queue}. The registered instances are
+ * deduplicated, grouped by company, language and type and indexed in
+ * batches, so that the transactions registering the updates never do the
+ * work of the index. Failed batches stay in the queue and are retried by
+ * the next executions up to {@link #MAXATTEMPTS} times.
+ *
+ * @author The eFaps Team
+ */
+@DisallowConcurrentExecution
+public class QueueJob
+    implements Job
+{
+
+    /**
+     * Default for the number of instances indexed in one batch.
+     */
+    public static final int DEFAULT_BATCHSIZE = 200;
+
+    /**
+     * Default for the number of queue entries processed in one execution.
+     */
+    public static final int DEFAULT_MAXENTRIES = 5000;
+
+    /**
+     * Maximum number of attempts to index a queue entry.
+     */
+    public static final int MAXATTEMPTS = 3;
+
+    /**
+     * Logging instance used in this class.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(QueueJob.class);
+
+    /**
+     * Failed attempts by queue key.
+     */
+    private static final Map<String, Integer> ATTEMPTS = new ConcurrentHashMap<>();
+
+    /**
+     * Execute the job.
+     *
+     * @param _context JobExecutionContext
+     * @throws JobExecutionException on error
+     */
+    @Override
+    public void execute(final JobExecutionContext _context)
+        throws JobExecutionException
+    {
+        boolean contextStarted = false;
+        try {
+            if (!Context.isThreadActive()) {
+                Context.begin(null, Context.Inheritance.Local);
+                contextStarted = true;
+            }
+            QueueJob.drain();
+            if (contextStarted) {
+                contextStarted = false;
+                Context.commit();
+            }
+        } catch (final EFapsException e) {
+            throw new JobExecutionException(e);
+        } finally {
+            if (contextStarted) {
+                try {
+                    Context.rollback();
+                } catch (final EFapsException e) {
+                    LOG.error("Could not rollback the Context", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drain the queue.
+     *
+     * @throws EFapsException on error
+     */
+    public static void drain()
+        throws EFapsException
+    {
+        QueueJob.drain(Indexer::index);
+    }
+
+    /**
+     * Drain the queue using the given indexer for the batches.
+     *
+     * @param _indexer indexer for the batches
+     * @throws EFapsException on error
+     */
+    protected static void drain(final IBatchIndexer _indexer)
+        throws EFapsException
+    {
+        int batchSize = QueueJob.DEFAULT_BATCHSIZE;
+        int maxEntries = QueueJob.DEFAULT_MAXENTRIES;
+        final SystemConfiguration config = EFapsSystemConfiguration.get();
+        if (config != null) {
+            batchSize = NumberUtils.toInt(config.getAttributeValue(KernelSettings.INDEXQUEUEBATCHSIZE),
+                            QueueJob.DEFAULT_BATCHSIZE);
+            maxEntries = NumberUtils.toInt(config.getAttributeValue(KernelSettings.INDEXQUEUEMAXENTRIES),
+                            QueueJob.DEFAULT_MAXENTRIES);
+        }
+        final AdvancedCache<String, String> cache = InfinispanCache.get().<String, String>getIgnReCache(
+                        Queue.CACHENAME);
+        // company and language -> oid -> queue keys
+        final Map<String, Map<String, List<String>>> groups = new LinkedHashMap<>();
+        int count = 0;
+        try (CloseableIterator<Entry<String, String>> iter = cache.entrySet().iterator()) {
+            while (iter.hasNext() && count < maxEntries) {
+                final Entry<String, String> entry = iter.next();
+                final String group = StringUtils.substringBeforeLast(entry.getKey(), Queue.SEPARATOR);
+                groups.computeIfAbsent(group, key -> new LinkedHashMap<>())
+                                .computeIfAbsent(entry.getValue(), key -> new ArrayList<>())
+                                .add(entry.getKey());
+                count++;
+            }
+        }
+        LOG.debug("Draining {} entries from the index queue", count);
+        for (final Entry<String, Map<String, List<String>>> group : groups.entrySet()) {
+            final String[] parts = StringUtils.splitByWholeSeparatorPreserveAllTokens(group.getKey(),
+                            Queue.SEPARATOR);
+            final IndexContext indexContext = new IndexContext()
+                            .setCompanyId(NumberUtils.toLong(parts[0]))
+                            .setLanguage(parts.length > 1 && !"null".equals(parts[1]) ? parts[1] : null);
+            final Map<Type, List<Instance>> type2instances = new HashMap<>();
+            for (final Entry<String, List<String>> entry : group.getValue().entrySet()) {
+                final Instance instance = Instance.get(entry.getKey());
+                if (instance.getType() == null) {
+                    LOG.warn("Removing invalid oid '{}' from the index queue", entry.getKey());
+                    QueueJob.remove(cache, entry.getValue());
+                } else {
+                    type2instances.computeIfAbsent(instance.getType(), type -> new ArrayList<>()).add(instance);
+                }
+            }
+            for (final List<Instance> instances : type2instances.values()) {
+                for (final List<Instance> batch : ListUtils.partition(instances, Math.max(1, batchSize))) {
+                    final List<String> keys = new ArrayList<>();
+                    for (final Instance instance : batch) {
+                        keys.addAll(group.getValue().get(instance.getOid()));
+                    }
+                    try {
+                        _indexer.index(indexContext, batch);
+                        QueueJob.remove(cache, keys);
+                    } catch (final EFapsException e) {
+                        LOG.error("Indexing of batch failed", e);
+                        QueueJob.retry(cache, keys);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes one batch of instances.
+     */
+    @FunctionalInterface
+    protected interface IBatchIndexer
+    {
+
+        /**
+         * @param _context the index context
+         * @param _instances the instances of the batch
+         * @throws EFapsException on error
+         */
+        void index(IndexContext _context,
+                   List<Instance> _instances)
+            throws EFapsException;
+    }
+
+    /**
+     * Remove the entries from the queue.
+     *
+     * @param _cache the cache
+     * @param _keys the keys
+     */
+    private static void remove(final AdvancedCache<String, String> _cache,
+                               final List<String> _keys)
+    {
+        for (final String key : _keys) {
+            _cache.remove(key);
+            QueueJob.ATTEMPTS.remove(key);
+        }
+    }
+
+    /**
+     * Register a failed attempt for the entries. Entries that failed
+     * {@link #MAXATTEMPTS} times are removed from the queue.
+     *
+     * @param _cache the cache
+     * @param _keys the keys
+     */
+    private static void retry(final AdvancedCache<String, String> _cache,
+                              final List<String> _keys)
+    {
+        for (final String key : _keys) {
+            if (QueueJob.ATTEMPTS.merge(key, 1, Integer::sum) >= QueueJob.MAXATTEMPTS) {
+                LOG.error("Removing '{}' from the index queue after {} failed attempts", _cache.get(key),
+                                QueueJob.MAXATTEMPTS);
+                _cache.remove(key);
+                QueueJob.ATTEMPTS.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.admin.index;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.efaps.admin.EFapsSystemConfiguration;
+import org.efaps.admin.KernelSettings;
+import org.efaps.admin.common.SystemConfiguration;
+import org.efaps.admin.user.Company;
+import org.efaps.db.Context;
+import org.efaps.db.Instance;
+import org.efaps.db.QueryBuilder;
+import org.efaps.util.EFapsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Full reindex using the IndexDefinitions. The instances of each definition
+ * are read page by page ordered by their id, the documents are built by a
+ * pool of workers sharing the writer of the {@link IndexManager}. The id of
+ * the last indexed instance of each definition is stored as checkpoint with
+ * the commits of the index, so that an interrupted reindex resumes where it
+ * stopped. As for the indexing of single instances, the query of a
+ * definition includes the child types of its type.
+ *
+ * @author The eFaps Team
+ */
+public final class Reindex
+{
+
+    /**
+     * Prefix of the keys of the checkpoints in the commit data.
+     */
+    public static final String CHECKPOINT = "org.efaps.admin.index.Reindex.";
+
+    /**
+     * Checkpoint value of a completed definition.
+     */
+    public static final String DONE = "DONE";
+
+    /**
+     * Number of pages after which the checkpoints are committed.
+     */
+    public static final int COMMITPAGES = 10;
+
+    /**
+     * Default for the number of instances per page.
+     */
+    public static final int DEFAULT_PAGESIZE = 1000;
+
+    /**
+     * Logging instance used in this class.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(Reindex.class);
+
+    /**
+     * Instantiates a new reindex.
+     */
+    private Reindex()
+    {
+    }
+
+    /**
+     * Execute the reindex for the company of the current context.
+     *
+     * @throws EFapsException on error
+     */
+    public static void execute()
+        throws EFapsException
+    {
+        int pageSize = Reindex.DEFAULT_PAGESIZE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        final SystemConfiguration config = EFapsSystemConfiguration.get();
+        if (config != null) {
+            pageSize = NumberUtils.toInt(config.getAttributeValue(KernelSettings.INDEXREINDEXPAGESIZE),
+                            Reindex.DEFAULT_PAGESIZE);
+            threads = NumberUtils.toInt(config.getAttributeValue(KernelSettings.INDEXREINDEXTHREADS), threads);
+        }
+        final Context context = Context.getThreadContext();
+        final long companyId = context.getCompany() == null ? 0 : context.getCompany().getId();
+        final String language = context.getLanguage();
+        final String userName = context.getPerson() == null ? null : context.getPerson().getName();
+
+        final IndexManager manager = IndexManager.get(companyId);
+        final Map<String, PageQuery> queries = new LinkedHashMap<>();
+        for (final IndexDefinition def : IndexDefinition.get()) {
+            queries.put(Reindex.CHECKPOINT + def.getUUID(), (_lastId, _pageSize) -> {
+                final QueryBuilder queryBldr = new QueryBuilder(def.getUUID());
+                queryBldr.addWhereAttrGreaterValue("ID", _lastId);
+                queryBldr.addOrderByAttributeAsc("ID");
+                queryBldr.setLimit(_pageSize);
+                return queryBldr.getQuery().execute();
+            });
+        }
+        Reindex.execute(manager, queries, pageSize, threads,
+            _instances -> Reindex.index(userName, companyId, language, manager, _instances));
+    }
+
+    /**
+     * Execute the reindex for the given queries. Each query is executed page
+     * by page with the id of the last instance of the previous page, starting
+     * after the checkpoint stored for its key.
+     *
+     * @param _manager the manager
+     * @param _queries the queries by the keys of their checkpoints
+     * @param _pageSize number of instances per page
+     * @param _threads number of workers
+     * @param _indexer the indexer for one page
+     * @return number of indexed documents
+     * @throws EFapsException on error
+     */
+    static long execute(final IndexManager _manager,
+                        final Map<String, PageQuery> _queries,
+                        final int _pageSize,
+                        final int _threads,
+                        final PageIndexer _indexer)
+        throws EFapsException
+    {
+        final Map<String, String> checkpoints = _manager.getCommitData();
+        final ForkJoinPool pool = new ForkJoinPool(Math.max(1, _threads));
+        final Deque<Page> pending = new ArrayDeque<>();
+        final long start = System.currentTimeMillis();
+        long docs = 0;
+        int pages = 0;
+        try {
+            for (final Map.Entry<String, PageQuery> entry : _queries.entrySet()) {
+                final String key = entry.getKey();
+                if (Reindex.DONE.equals(checkpoints.get(key))) {
+                    LOG.info("Skipping already reindexed {}", key);
+                    continue;
+                }
+                long lastId = NumberUtils.toLong(checkpoints.get(key));
+                LOG.info("Reindexing {} starting after id {}", key, lastId);
+                List<Instance> instances;
+                do {
+                    instances = entry.getValue().query(lastId, _pageSize);
+                    if (!instances.isEmpty()) {
+                        lastId = instances.get(instances.size() - 1).getId();
+                        final List<Instance> pageInstances = instances;
+                        pending.add(new Page(key, String.valueOf(lastId),
+                                        pool.submit(() -> _indexer.index(pageInstances))));
+                    }
+                    while (!pending.isEmpty() && (pending.size() > _threads * 2 || pending.peek().isDone())) {
+                        docs += Reindex.complete(pending.poll(), checkpoints, _manager, ++pages);
+                    }
+                } while (instances.size() == _pageSize);
+                pending.add(new Page(key, Reindex.DONE, null));
+            }
+            while (!pending.isEmpty()) {
+                docs += Reindex.complete(pending.poll(), checkpoints, _manager, ++pages);
+            }
+            checkpoints.keySet().removeIf(key -> key.startsWith(Reindex.CHECKPOINT));
+            _manager.commit(checkpoints);
+        } catch (final IOException e) {
+            throw new EFapsException(Reindex.class, "execute", e);
+        } finally {
+            pool.shutdownNow();
+            final long duration = Math.max(1, System.currentTimeMillis() - start);
+            LOG.info("Reindexed {} documents in {} ms ({} docs/sec)", docs, duration, docs * 1000 / duration);
+        }
+        return docs;
+    }
+
+    /**
+     * Wait for the page to be indexed and register its checkpoint. The
+     * checkpoints are committed every {@link #COMMITPAGES} pages and every
+     * time a definition is completed.
+     *
+     * @param _page the page
+     * @param _checkpoints the checkpoints
+     * @param _manager the manager
+     * @param _pages number of completed pages
+     * @return number of indexed documents
+     * @throws EFapsException on error
+     */
+    private static int complete(final Page _page,
+                                final Map<String, String> _checkpoints,
+                                final IndexManager _manager,
+                                final int _pages)
+        throws EFapsException
+    {
+        int ret = 0;
+        try {
+            if (_page.future != null) {
+                ret = _page.future.get();
+            }
+            _checkpoints.put(_page.key, _page.checkpoint);
+            if (_page.future == null || _pages % Reindex.COMMITPAGES == 0) {
+                _manager.commit(_checkpoints);
+                LOG.debug("Committed checkpoints {}", _checkpoints);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EFapsException(Reindex.class, "complete", e);
+        } catch (final ExecutionException | IOException e) {
+            try {
+                _manager.commit(_checkpoints);
+            } catch (final IOException e1) {
+                LOG.error("Could not commit the checkpoints", e1);
+            }
+            throw new EFapsException(Reindex.class, "complete", e);
+        }
+        return ret;
+    }
+
+    /**
+     * Index a page of instances in a context of its own.
+     *
+     * @param _userName name of the user
+     * @param _companyId id of the company
+     * @param _language language
+     * @param _manager the manager
+     * @param _instances the instances
+     * @return number of indexed documents
+     * @throws EFapsException on error
+     */
+    private static int index(final String _userName,
+                             final long _companyId,
+                             final String _language,
+                             final IndexManager _manager,
+                             final List<Instance> _instances)
+        throws EFapsException
+    {
+        Context.begin(_userName, Context.Inheritance.Local);
+        try {
+            Context.getThreadContext().setCompany(Company.get(_companyId));
+            Context.getThreadContext().setLanguage(_language);
+            Indexer.addDocuments(_instances, _manager.getWriter(), _manager.getTaxonomyWriter());
+        } finally {
+            Context.rollback();
+        }
+        return _instances.size();
+    }
+
+    /**
+     * Query for a page of instances ordered by their id.
+     */
+    @FunctionalInterface
+    interface PageQuery
+    {
+
+        /**
+         * @param _lastId id of the last instance of the previous page
+         * @param _pageSize maximum number of instances
+         * @return the instances with an id greater than the given one
+         * @throws EFapsException on error
+         */
+        List<Instance> query(long _lastId,
+                             int _pageSize)
+            throws EFapsException;
+    }
+
+    /**
+     * Indexer for a page of instances.
+     */
+    @FunctionalInterface
+    interface PageIndexer
+    {
+
+        /**
+         * @param _instances the instances of the page
+         * @return number of indexed documents
+         * @throws EFapsException on error
+         */
+        int index(List<Instance> _instances)
+            throws EFapsException;
+    }
+
+    /**
+     * A page of instances submitted for indexing.
+     */
+    private static final class Page
+    {
+
+        /** Key of the checkpoint. */
+        private final String key;
+
+        /** Checkpoint reached if the page is indexed. */
+        private final String checkpoint;
+
+        /** The future of the indexing, <code>null</code> for the end of a definition. */
+        private final Future<Integer> future;
+
+        /**
+         * Instantiates a new page.
+         *
+         * @param _key key of the checkpoint
+         * @param _checkpoint checkpoint reached if the page is indexed
+         * @param _future future of the indexing
+         */
+        private Page(final String _key,
+                     final String _checkpoint,
+                     final Future<Integer> _future)
+        {
+            this.key = _key;
+            this.checkpoint = _checkpoint;
+            this.future = _future;
+        }
+
+        /**
+         * @return true if the indexing of the page is done
+         */
+        private boolean isDone()
+        {
+            return this.future == null || this.future.isDone();
+        }
+    }
+}
@@ -17,12 +17,17 @@ package org.efaps.admin.index;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.EnumUtils;
@@ -34,9 +39,12 @@ import org.apache.lucene.facet.FacetsConfig;
 import org.apache.lucene.facet.FacetsConfig.DimConfig;
 import org.apache.lucene.facet.LabelAndValue;
 import org.apache.lucene.facet.taxonomy.FastTaxonomyFacetCounts;
-import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyReader;
-import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager.SearcherAndTaxonomy;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
 import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
 import org.apache.lucene.queryparser.flexible.standard.config.StandardQueryConfigHandler;
@@ -49,7 +57,9 @@ import org.apache.lucene.search.TopFieldDocs;
 import org.efaps.admin.EFapsSystemConfiguration;
 import org.efaps.admin.KernelSettings;
 import org.efaps.admin.access.AccessTypeEnums;
+import org.efaps.admin.access.user.Evaluation;
 import org.efaps.admin.datamodel.Type;
+import org.efaps.admin.event.EventType;
 import org.efaps.admin.index.Indexer.Key;
 import org.efaps.db.Instance;
 import org.efaps.json.index.SearchResult;
@@ -82,7 +92,7 @@ public final class Searcher
     /**
      * Instantiates a new search.
      */
-    private Searcher()
+    Searcher()
     {
     }
 
@@ -109,58 +119,107 @@ public final class Searcher
             }
             final Query query = queryParser.parse(_search.getQuery(), "ALL");
 
-            final IndexReader reader = DirectoryReader.open(Index.getDirectory());
             Sort sort = _search.getSort();
             if (sort == null) {
                 sort  = new Sort(new SortField(Key.CREATED.name(), SortField.Type.LONG, true));
             }
 
             final FacetsConfig facetConfig = Index.getFacetsConfig();
-            final DirectoryTaxonomyReader taxoReader = new DirectoryTaxonomyReader(Index.getTaxonomyDirectory());
-
-            final IndexSearcher searcher = new IndexSearcher(reader);
-            final FacetsCollector fc = new FacetsCollector();
+            final IndexManager manager = IndexManager.get();
+            final SearcherAndTaxonomy searcherAndTaxonomy = manager.acquire();
+            try {
+                executeSearch(_search, ret, query, sort, facetConfig, searcherAndTaxonomy);
+            } finally {
+                manager.release(searcherAndTaxonomy);
+            }
+        } catch (final IOException | QueryNodeException e) {
+            LOG.error("Catched Exception", e);
+        }
+        return ret;
+    }
 
-            final TopFieldDocs topFieldDocs = FacetsCollector.search(searcher, query, _search.getNumHits(), sort, fc);
+    /**
+     * Execute the search using an acquired searcher. The instances of the
+     * hits are resolved from the doc values and their access is checked
+     * before any stored field is loaded, so that the documents are only
+     * read for the hits that are returned.
+     *
+     * @param _search the search
+     * @param _result the result
+     * @param _query the query
+     * @param _sort the sort
+     * @param _facetConfig the facet config
+     * @param _searcherAndTaxonomy the searcher and taxonomy reader
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws EFapsException on error
+     */
+    void executeSearch(final ISearch _search,
+                       final SearchResult _result,
+                       final Query _query,
+                       final Sort _sort,
+                       final FacetsConfig _facetConfig,
+                       final SearcherAndTaxonomy _searcherAndTaxonomy)
+        throws IOException, EFapsException
+    {
+        final IndexSearcher searcher = _searcherAndTaxonomy.searcher;
+        final TaxonomyReader taxoReader = _searcherAndTaxonomy.taxonomyReader;
+        final FacetsCollector fc = new FacetsCollector();
+        final TopFieldDocs topFieldDocs = FacetsCollector.search(searcher, _query, _search.getNumHits(), _sort, fc);
 
-            if (_search.getConfigs().contains(SearchConfig.ACTIVATE_DIMENSION)) {
-                final Facets facets = new FastTaxonomyFacetCounts(taxoReader, facetConfig, fc);
+        if (_search.getConfigs().contains(SearchConfig.ACTIVATE_DIMENSION)) {
+            final Facets facets = new FastTaxonomyFacetCounts(taxoReader, _facetConfig, fc);
 
-                for (final FacetResult result : facets.getAllDims(1000)) {
-                    LOG.debug("FacetResult {}.", result);
-                    final DimConfig dimConfig = facetConfig.getDimConfig(result.dim);
-                    final Dimension retDim = new Dimension().setKey(result.dim);
-                    ret.getDimensions().add(retDim);
-                    for (final LabelAndValue labelValue : result.labelValues) {
-                        final DimValue dimValue = new DimValue().setLabel(labelValue.label)
-                                        .setValue(labelValue.value.intValue());
-                        dimValue.setPath(new String[] { retDim.getKey() });
-                        retDim.getValues().add(dimValue);
-                        if (dimConfig.hierarchical) {
-                            addSubDimension(facets, dimValue, result.dim, labelValue.label);
-                        }
+            for (final FacetResult result : facets.getAllDims(1000)) {
+                LOG.debug("FacetResult {}.", result);
+                final DimConfig dimConfig = _facetConfig.getDimConfig(result.dim);
+                final Dimension retDim = new Dimension().setKey(result.dim);
+                _result.getDimensions().add(retDim);
+                for (final LabelAndValue labelValue : result.labelValues) {
+                    final DimValue dimValue = new DimValue().setLabel(labelValue.label)
+                                    .setValue(labelValue.value.intValue());
+                    dimValue.setPath(new String[] { retDim.getKey() });
+                    retDim.getValues().add(dimValue);
+                    if (dimConfig.hierarchical) {
+                        addSubDimension(facets, dimValue, result.dim, labelValue.label);
                     }
                 }
             }
-            ret.setHitCount(topFieldDocs.totalHits.value);
-            if (ret.getHitCount() > 0) {
-                final ScoreDoc[] hits = topFieldDocs.scoreDocs;
+        }
+        _result.setHitCount(topFieldDocs.totalHits.value);
+        if (_result.getHitCount() > 0) {
+            final ScoreDoc[] hits = topFieldDocs.scoreDocs;
+            LOG.debug("Found {} hits.", hits.length);
 
-                LOG.debug("Found {} hits.", hits.length);
-                for (int i = 0; i < hits.length; ++i) {
-                    final Document doc = searcher.doc(hits[i].doc);
-                    final String oid = doc.get(Key.OID.name());
+            // resolve in the order of the documents to read the doc values sequentially
+            final Integer[] docOrder = new Integer[hits.length];
+            for (int i = 0; i < hits.length; ++i) {
+                docOrder[i] = i;
+            }
+            Arrays.sort(docOrder, Comparator.comparingInt(idx -> hits[idx].doc));
+            final Instance[] instances = resolveInstances(searcher, hits, docOrder);
+            for (final Instance instance : instances) {
+                typeMapping.computeIfAbsent(instance.getType(), type -> new ArrayList<>()).add(instance);
+            }
+            final Map<Instance, Boolean> accessMap = checkAccess();
+
+            // load the stored fields only for the hits with access
+            final Set<String> fieldsToLoad = new HashSet<>();
+            fieldsToLoad.add(Key.MSGPHRASE.name());
+            _search.getResultFields().values().forEach(fieldsToLoad::addAll);
+            final Document[] docs = new Document[hits.length];
+            for (final int idx : docOrder) {
+                if (accessMap.isEmpty() || accessMap.getOrDefault(instances[idx], false)) {
+                    docs[idx] = searcher.doc(hits[idx].doc, fieldsToLoad);
+                }
+            }
+
+            for (int i = 0; i < hits.length; ++i) {
+                final Document doc = docs[i];
+                if (doc != null) {
+                    final Instance instance = instances[i];
+                    final String oid = instance.getOid();
                     final String text = doc.get(Key.MSGPHRASE.name());
                     LOG.debug("{}. {}\t {}", i + 1, oid, text);
-                    final Instance instance = Instance.get(oid);
-                    final List<Instance> list;
-                    if (typeMapping.containsKey(instance.getType())) {
-                        list = typeMapping.get(instance.getType());
-                    } else {
-                        list = new ArrayList<Instance>();
-                        typeMapping.put(instance.getType(), list);
-                    }
-                    list.add(instance);
                     final Element element = new Element().setOid(oid).setText(text);
                     for (final Entry<String, Collection<String>> entry : _search.getResultFields().entrySet()) {
                         for (final String name : entry.getValue()) {
@@ -173,11 +232,53 @@ public final class Searcher
                     elements.put(instance, element);
                 }
             }
-            reader.close();
-            checkAccess();
-            ret.getElements().addAll(elements.values());
-        } catch (final IOException | QueryNodeException e) {
-            LOG.error("Catched Exception", e);
+            _result.getElements().addAll(elements.values());
+        }
+    }
+
+    /**
+     * Resolve the instances of the hits from the type id and id stored as
+     * doc values. Only for documents indexed before the doc values were
+     * added the stored OID is loaded.
+     *
+     * @param _searcher the searcher
+     * @param _hits the hits
+     * @param _docOrder indexes of the hits ordered by document
+     * @return the instances, in the order of the hits
+     * @throws IOException Signals that an I/O exception has occurred.
+     * @throws EFapsException on error
+     */
+    private Instance[] resolveInstances(final IndexSearcher _searcher,
+                                        final ScoreDoc[] _hits,
+                                        final Integer[] _docOrder)
+        throws IOException, EFapsException
+    {
+        final Instance[] ret = new Instance[_hits.length];
+        final Set<String> oidField = Collections.singleton(Key.OID.name());
+        final Map<Long, Type> types = new HashMap<>();
+        final List<LeafReaderContext> leaves = _searcher.getIndexReader().leaves();
+        LeafReaderContext leaf = null;
+        NumericDocValues typeIds = null;
+        NumericDocValues ids = null;
+        for (final int idx : _docOrder) {
+            final int docId = _hits[idx].doc;
+            final LeafReaderContext current = leaves.get(ReaderUtil.subIndex(docId, leaves));
+            if (current != leaf) {
+                leaf = current;
+                typeIds = DocValues.getNumeric(leaf.reader(), Key.TYPEID.name());
+                ids = DocValues.getNumeric(leaf.reader(), Key.ID.name());
+            }
+            if (typeIds.advanceExact(docId - leaf.docBase) && ids.advanceExact(docId - leaf.docBase)) {
+                Type type = types.get(typeIds.longValue());
+                if (type == null) {
+                    type = Type.get(typeIds.longValue());
+                    types.put(typeIds.longValue(), type);
+                }
+                ret[idx] = Instance.get(type, ids.longValue());
+            } else {
+                // documents indexed before the doc values were added
+                ret[idx] = Instance.get(_searcher.doc(docId, oidField).get(Key.OID.name()));
+            }
         }
         return ret;
     }
@@ -213,18 +314,28 @@ public final class Searcher
     /**
      * Check access.
      *
+     * @return the access map, empty if nothing was evaluated
      * @throws EFapsException on error
      */
-    private void checkAccess()
+    private Map<Instance, Boolean> checkAccess()
         throws EFapsException
     {
+        // evaluate the access relevant information for all instances at once
+        final List<Instance> toEvaluate = new ArrayList<>();
+        for (final Entry<Type, List<Instance>> entry : typeMapping.entrySet()) {
+            if (entry.getKey().hasEvents(EventType.ACCESSCHECK)) {
+                toEvaluate.addAll(entry.getValue());
+            }
+        }
+        if (!toEvaluate.isEmpty()) {
+            Evaluation.evaluate(toEvaluate);
+        }
         // check the access for the given instances
         final Map<Instance, Boolean> accessmap = new HashMap<Instance, Boolean>();
         for (final Entry<Type, List<Instance>> entry : typeMapping.entrySet()) {
             accessmap.putAll(entry.getKey().checkAccess(entry.getValue(), AccessTypeEnums.SHOW.getAccessType()));
         }
-        elements.entrySet().removeIf(entry -> accessmap.size() > 0 && (!accessmap.containsKey(entry.getKey())
-                        || !accessmap.get(entry.getKey())));
+        return accessmap;
     }
 
     /**
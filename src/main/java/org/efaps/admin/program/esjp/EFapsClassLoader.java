@@ -15,20 +15,37 @@
  */
 package org.efaps.admin.program.esjp;
 
-import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.commons.io.FileUtils;
+import javax.transaction.RollbackException;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.SystemException;
+import javax.transaction.Transaction;
+
+import org.apache.commons.io.IOUtils;
 import org.efaps.admin.AppConfigHandler;
+import org.efaps.admin.event.EsjpInvoker;
 import org.efaps.ci.CIAdminProgram;
 import org.efaps.ci.CIType;
+import org.efaps.cluster.ClusterCommunication;
+import org.efaps.cluster.InvalidationEvent;
 import org.efaps.db.Checkout;
+import org.efaps.db.Context;
 import org.efaps.db.InstanceQuery;
+import org.efaps.db.MultiPrintQuery;
 import org.efaps.db.QueryBuilder;
 import org.efaps.util.EFapsException;
-import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,9 +71,13 @@ public final class EFapsClassLoader
     private static final Logger LOG = LoggerFactory.getLogger(EFapsClassLoader.class);
 
     /**
-     * Temporary folder.
+     * Protocol of the URLs for the compiled classes.
      */
-    private static File TMPFOLDER;
+    private static final String PROTOCOL = "efaps";
+
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
 
     /**
      * Type instance of compile EJSP program.
@@ -68,6 +89,38 @@ public final class EFapsClassLoader
      */
     private final boolean offline;
 
+    /**
+     * Must all compiled classes be loaded into the {@link #archive} on
+     * first access.
+     */
+    private final boolean archiveActivated;
+
+    /**
+     * Compiled classes by their name.
+     */
+    private final Map<String, byte[]> archive = new ConcurrentHashMap<>();
+
+    /**
+     * Names that are known to have no compiled class.
+     */
+    private final Set<String> missing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Lock used to load the {@link #archive}.
+     */
+    private final Object archiveLock = new Object();
+
+    /**
+     * Does the {@link #archive} contain all compiled classes.
+     */
+    private volatile boolean archived;
+
+    /**
+     * Did the loading of the {@link #archive} fail. The classes are read
+     * one by one until the archive is cleared.
+     */
+    private volatile boolean archiveFailed;
+
     /**
      * Constructor setting the Parent of the EFapsClassLoader in ClassLoader.
      *
@@ -80,6 +133,7 @@ public final class EFapsClassLoader
         super(_parentClassLoader);
         this.offline = _offline;
         this.classType = CIAdminProgram.JavaClass;
+        this.archiveActivated = AppConfigHandler.get().isEsjpArchiveActivated();
     }
 
     /**
@@ -129,14 +183,38 @@ public final class EFapsClassLoader
         final String name = _name.replaceAll(System.getProperty("file.separator"), ".").replaceAll(".class", "");
         final byte[] data = loadClassData(name);
         if (data != null && data.length > 0) {
-            final File file = FileUtils.getFile(EFapsClassLoader.getTempFolder(), name);
             try {
-                if (!file.exists() || FileUtils.isFileOlder(file, new DateTime().minusHours(1).toDate())) {
-                    FileUtils.writeByteArrayToFile(file, data);
-                }
-                ret = file.toURI().toURL();
-            } catch (final IOException e) {
-                EFapsClassLoader.LOG.error("Could not geneate File for reading from URL: {}", name);
+                ret = new URL(EFapsClassLoader.PROTOCOL, null, -1, "/" + name, new URLStreamHandler()
+                {
+
+                    @Override
+                    protected URLConnection openConnection(final URL _url)
+                    {
+                        return new URLConnection(_url)
+                        {
+
+                            @Override
+                            public void connect()
+                            {
+                                this.connected = true;
+                            }
+
+                            @Override
+                            public InputStream getInputStream()
+                            {
+                                return new ByteArrayInputStream(data);
+                            }
+
+                            @Override
+                            public long getContentLengthLong()
+                            {
+                                return data.length;
+                            }
+                        };
+                    }
+                });
+            } catch (final MalformedURLException e) {
+                EFapsClassLoader.LOG.error("Could not geneate URL for: {}", name);
             }
         }
         return ret;
@@ -167,54 +245,176 @@ public final class EFapsClassLoader
     public byte[] read(final String _resourceName)
     {
         byte[] ret = null;
-        EFapsClassLoader.LOG.debug("read ''", _resourceName);
-        try {
-            final QueryBuilder queryBuilder = new QueryBuilder(this.classType);
-            queryBuilder.addWhereAttrEqValue("Name", _resourceName);
-            final InstanceQuery query = queryBuilder.getCachedQuery("esjp");
-            query.execute();
-            if (query.next()) {
-                final Checkout checkout = new Checkout(query.getCurrentValue());
-                final InputStream is = checkout.executeWithoutAccessCheck();
-
-                ret = new byte[is.available()];
-                is.read(ret);
-                is.close();
+        EFapsClassLoader.LOG.debug("read '{}'", _resourceName);
+        if (this.archiveActivated && !this.archived && !this.archiveFailed) {
+            loadArchive();
+        }
+        if (this.archive.containsKey(_resourceName)) {
+            ret = this.archive.get(_resourceName);
+        } else if (!this.archived && !this.missing.contains(_resourceName)) {
+            try {
+                final QueryBuilder queryBuilder = new QueryBuilder(this.classType);
+                queryBuilder.addWhereAttrEqValue("Name", _resourceName);
+                final InstanceQuery query = queryBuilder.getCachedQuery("esjp");
+                query.execute();
+                if (query.next()) {
+                    final Checkout checkout = new Checkout(query.getCurrentValue());
+                    try (InputStream is = checkout.executeWithoutAccessCheck()) {
+                        ret = IOUtils.toByteArray(is);
+                    }
+                } else {
+                    this.missing.add(_resourceName);
+                }
+            } catch (final EFapsException e) {
+                EFapsClassLoader.LOG.error("could not access the Database for reading '{}' - {}", _resourceName, e);
+            } catch (final IOException e) {
+                EFapsClassLoader.LOG.error("could not read the Javaclass '{}' - {}", _resourceName, e);
             }
-        } catch (final EFapsException e) {
-            EFapsClassLoader.LOG.error("could not access the Database for reading '{}' - {}", _resourceName, e);
-        } catch (final IOException e) {
-            EFapsClassLoader.LOG.error("could not read the Javaclass '{}' - {}", _resourceName, e);
         }
         return ret;
     }
 
     /**
-     * @return the tmpfolder
+     * Read all compiled classes from the eFaps database into the archive. Once
+     * loaded, names not contained in the archive are not searched in the
+     * database anymore. If the loading fails it is not tried again until the
+     * archive is cleared.
      */
-    private static File getTempFolder()
+    public void loadArchive()
     {
-        if (EFapsClassLoader.TMPFOLDER == null || !EFapsClassLoader.TMPFOLDER.exists()) {
-            File tmpfld = AppConfigHandler.get().getTempFolder();
-            if (tmpfld == null) {
-                final File temp;
+        synchronized (this.archiveLock) {
+            if (!this.archived && !this.archiveFailed && !this.offline) {
+                final long start = System.currentTimeMillis();
+                boolean contextStarted = false;
                 try {
-                    temp = File.createTempFile("eFaps", ".tmp");
-                    tmpfld = temp.getParentFile();
-                    temp.delete();
+                    if (!Context.isThreadActive()) {
+                        Context.begin(null, Context.Inheritance.Local);
+                        contextStarted = true;
+                    }
+                    final QueryBuilder queryBldr = new QueryBuilder(this.classType);
+                    final MultiPrintQuery multi = queryBldr.getPrint();
+                    multi.addAttribute("Name");
+                    multi.executeWithoutAccessCheck();
+                    while (multi.next()) {
+                        final String name = multi.<String>getAttribute("Name");
+                        final Checkout checkout = new Checkout(multi.getCurrentInstance());
+                        try (InputStream is = checkout.executeWithoutAccessCheck()) {
+                            this.archive.put(name, IOUtils.toByteArray(is));
+                        }
+                    }
+                    this.archived = true;
+                    this.missing.clear();
+                    EFapsClassLoader.LOG.info("Loaded {} compiled ESJP classes in {}ms", this.archive.size(),
+                                    System.currentTimeMillis() - start);
+                } catch (final EFapsException e) {
+                    EFapsClassLoader.LOG.error("could not load the archive of compiled ESJP classes", e);
+                    this.archive.clear();
+                    this.archiveFailed = true;
                 } catch (final IOException e) {
-                    EFapsClassLoader.LOG.error("Cannot create temp file", e);
+                    EFapsClassLoader.LOG.error("could not read the archive of compiled ESJP classes", e);
+                    this.archive.clear();
+                    this.archiveFailed = true;
+                } finally {
+                    if (contextStarted) {
+                        try {
+                            Context.rollback();
+                        } catch (final EFapsException e) {
+                            EFapsClassLoader.LOG.error("could not close the Context", e);
+                        }
+                    }
                 }
             }
-            EFapsClassLoader.TMPFOLDER = new File(tmpfld, "eFaps-ClassFiles");
-            if (!EFapsClassLoader.TMPFOLDER.exists()) {
-                final boolean mkdir = EFapsClassLoader.TMPFOLDER.mkdir();
-                if (!mkdir) {
-                    EFapsClassLoader.LOG.error("Temp folder was not created");
-                }
+        }
+    }
+
+    /**
+     * Clear the archive and the names known to be missing from the local
+     * classloader.
+     */
+    public void clearArchive()
+    {
+        synchronized (this.archiveLock) {
+            this.archive.clear();
+            this.missing.clear();
+            this.archived = false;
+            this.archiveFailed = false;
+        }
+    }
+
+    /**
+     * @return the compiled classes by their name if the archive is
+     *         activated and could be loaded, else <code>null</code>
+     */
+    public Map<String, byte[]> getArchive()
+    {
+        Map<String, byte[]> ret = null;
+        if (this.archiveActivated && !this.offline) {
+            if (!this.archived) {
+                loadArchive();
+            }
+            if (this.archived) {
+                ret = Collections.unmodifiableMap(this.archive);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Remove the compiled classes known by the local classloader and the
+     * resolved invokers.
+     */
+    public static void evict()
+    {
+        if (EFapsClassLoader.isInitialized()) {
+            EFapsClassLoader.getInstance().clearArchive();
+        }
+        EsjpInvoker.clear();
+    }
+
+    /**
+     * Evict the compiled classes from the local classloader and from the
+     * classloaders of the other members of the cluster. Must be called after
+     * the ESJPs were compiled. If the transaction of the current context is
+     * active, the classes are evicted after its commit, so that the
+     * classloaders do not read the old classes again.
+     *
+     * @throws EFapsException on error
+     */
+    public static void reset()
+        throws EFapsException
+    {
+        final Transaction transaction = Context.isThreadActive()
+                        ? Context.getThreadContext().getTransaction() : null;
+        boolean registered = false;
+        try {
+            if (transaction != null && transaction.getStatus() == Status.STATUS_ACTIVE) {
+                transaction.registerSynchronization(new Synchronization()
+                {
+
+                    @Override
+                    public void beforeCompletion()
+                    {
+                        // nothing to do before the commit
+                    }
+
+                    @Override
+                    public void afterCompletion(final int _status)
+                    {
+                        if (_status == Status.STATUS_COMMITTED) {
+                            EFapsClassLoader.evict();
+                            ClusterCommunication.invalidate(InvalidationEvent.Region.ESJP, InvalidationEvent.ALL);
+                        }
+                    }
+                });
+                registered = true;
             }
+        } catch (final SystemException | RollbackException e) {
+            throw new EFapsException(EFapsClassLoader.class, "reset", e);
+        }
+        if (!registered) {
+            EFapsClassLoader.evict();
+            ClusterCommunication.invalidate(InvalidationEvent.Region.ESJP, InvalidationEvent.ALL);
         }
-        return EFapsClassLoader.TMPFOLDER;
     }
 
     /**
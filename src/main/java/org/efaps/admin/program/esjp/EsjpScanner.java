@@ -15,6 +15,7 @@
  */
 package org.efaps.admin.program.esjp;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
@@ -22,6 +23,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.efaps.admin.AppConfigHandler;
@@ -153,8 +155,13 @@ public class EsjpScanner
         {
             final Set<File> files = new HashSet<>();
             try {
-                // check required during source-install maven target
-                if (CIAdminProgram.JavaClass.getType() != null) {
+                final Map<String, byte[]> archive = EFapsClassLoader.getInstance().getArchive();
+                if (archive != null) {
+                    for (final Map.Entry<String, byte[]> entry : archive.entrySet()) {
+                        files.add(new EsjpFile(entry.getKey(), entry.getValue()));
+                    }
+                } else if (CIAdminProgram.JavaClass.getType() != null) {
+                    // check required during source-install maven target
                     final QueryBuilder queryBldr = new QueryBuilder(CIAdminProgram.JavaClass);
                     final InstanceQuery query = queryBldr.getQuery();
                     query.executeWithoutAccessCheck();
@@ -188,6 +195,21 @@ public class EsjpScanner
             instance = _instance;
         }
 
+        /**
+         * File for a compiled class read from the archive of the
+         * {@link EFapsClassLoader}.
+         *
+         * @param _className name of the class
+         * @param _data the compiled class
+         */
+        public EsjpFile(final String _className,
+                        final byte[] _data)
+        {
+            instance = null;
+            name = _className + ".class";
+            in = new ByteArrayInputStream(_data);
+        }
+
         private void init()
         {
             if (name == null) {
@@ -28,6 +28,7 @@ import java.util.Map;
 
 import org.efaps.admin.common.Quartz;
 import org.efaps.admin.program.esjp.Listener;
+import org.efaps.cluster.ClusterCommunication;
 import org.efaps.db.Context;
 import org.efaps.db.wrapper.SQLPart;
 import org.efaps.db.wrapper.SQLSelect;
@@ -162,6 +163,7 @@ public final class RunLevel
      */
     public static void stop()
     {
+        ClusterCommunication.stop();
         InfinispanCache.stop();
         Quartz.shutDown();
     }
@@ -212,6 +214,7 @@ public final class RunLevel
                 cache.clear();
             }
         }
+        ClusterCommunication.start();
         for (final IRunLevelListener listener : Listener.get().<IRunLevelListener>invoke(IRunLevelListener.class)) {
             listener.onExecute(RunLevel.RUNLEVEL.name);
         }
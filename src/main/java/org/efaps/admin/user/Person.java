@@ -37,6 +37,8 @@ import org.efaps.admin.common.SystemConfiguration;
 import org.efaps.admin.datamodel.Type;
 import org.efaps.admin.datamodel.attributevalue.PasswordStore;
 import org.efaps.ci.CIAdminUser;
+import org.efaps.cluster.ClusterCommunication;
+import org.efaps.cluster.InvalidationEvent;
 import org.efaps.db.Context;
 import org.efaps.db.Instance;
 import org.efaps.db.PrintQuery;
@@ -1649,6 +1651,24 @@ public final class Person
             if (person.getUUID() != null) {
                 InfinispanCache.get().<UUID, Person>getCache(Person.UUIDCACHE).remove(person.getUUID());
             }
+            ClusterCommunication.invalidate(InvalidationEvent.Region.PERSON, person.getId());
+        }
+    }
+
+    /**
+     * Remove a person from the local Caches without reading it from the
+     * database.
+     *
+     * @param _id id of the Person to be evicted
+     */
+    public static void evict(final long _id)
+    {
+        final Person person = InfinispanCache.get().<Long, Person>getCache(Person.IDCACHE).remove(_id);
+        if (person != null) {
+            InfinispanCache.get().<String, Person>getCache(Person.NAMECACHE).remove(person.getName());
+            if (person.getUUID() != null) {
+                InfinispanCache.get().<UUID, Person>getCache(Person.UUIDCACHE).remove(person.getUUID());
+            }
         }
     }
 
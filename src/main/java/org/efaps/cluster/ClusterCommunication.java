@@ -15,18 +15,167 @@
  */
 package org.efaps.cluster;
 
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.efaps.admin.AppConfigHandler;
+import org.efaps.admin.access.user.AccessCache;
+import org.efaps.admin.common.SystemConfiguration;
+import org.efaps.admin.datamodel.Attribute;
+import org.efaps.admin.datamodel.Type;
+import org.efaps.admin.program.esjp.EFapsClassLoader;
+import org.efaps.admin.user.Person;
+import org.efaps.cluster.InvalidationEvent.Region;
+import org.efaps.db.QueryCache;
+import org.efaps.util.EFapsException;
 import org.jgroups.JChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ClusterCommunication
+/**
+ * Cluster wide communication of the kernel. If a JGroups configuration is
+ * given by {@link AppConfigHandler.Parameter#CLUSTER_CONFIG} a channel is
+ * opened on start and the evictions of local cache entries for
+ * {@link Type}, {@link Attribute}, {@link SystemConfiguration},
+ * {@link Person} and the {@link AccessCache} are published to the other
+ * members of the cluster.
+ */
+public final class ClusterCommunication
 {
 
+    /**
+     * Logging instance used in this class.
+     */
     private static final Logger LOG = LoggerFactory.getLogger(ClusterCommunication.class);
 
+    /**
+     * The bus if the cluster communication is activated.
+     */
+    private static InvalidationBus BUS;
+
+    /**
+     * Utility class.
+     */
+    private ClusterCommunication()
+    {
+    }
+
+    /**
+     * Start the cluster communication if it is configured and not already
+     * started.
+     *
+     * @throws EFapsException on error
+     */
+    public static synchronized void start()
+        throws EFapsException
+    {
+        final String config = AppConfigHandler.get().getClusterConfig();
+        if (ClusterCommunication.BUS == null && StringUtils.isNotEmpty(config)) {
+            try {
+                ClusterCommunication.start(new JChannel(config), AppConfigHandler.get().getClusterName());
+            } catch (final Exception e) {
+                throw new EFapsException(ClusterCommunication.class, "start", e);
+            }
+        }
+    }
+
+    /**
+     * Start the cluster communication on the given channel.
+     *
+     * @param _channel channel to be used
+     * @param _clusterName name of the cluster
+     * @throws EFapsException on error
+     */
+    public static synchronized void start(final JChannel _channel,
+                                          final String _clusterName)
+        throws EFapsException
+    {
+        ClusterCommunication.stop();
+        final InvalidationBus bus = new InvalidationBus(_channel)
+            .register(Region.TYPE, key -> Type.evictAll())
+            .register(Region.ATTRIBUTE, key -> Attribute.evictAll())
+            .register(Region.SYSTEMCONFIGURATION, key -> SystemConfiguration.evict(UUID.fromString(key)))
+            .register(Region.PERSON, key -> Person.evict(Long.parseLong(key)))
+            .register(Region.ACCESSPERMISSION, key -> AccessCache.evict4Person(Long.parseLong(key)))
+            .register(Region.ACCESSSTATUS, AccessCache::evictStatus)
+            .register(Region.QUERYTABLE, QueryCache::evictTable)
+            .register(Region.ESJP, key -> EFapsClassLoader.evict());
+        try {
+            bus.connect(_clusterName);
+        } catch (final Exception e) {
+            throw new EFapsException(ClusterCommunication.class, "start", e);
+        }
+        ClusterCommunication.LOG.info("Joined cluster '{}' as {}", _clusterName, _channel.getAddress());
+        ClusterCommunication.BUS = bus;
+    }
+
+    /**
+     * @return the channel if the cluster communication is activated, else null
+     */
     public static JChannel getChannel()
     {
-        LOG.warn("ClusterCommunication is not activated for kernel usage");
-        return null;
+        return ClusterCommunication.BUS == null ? null : ClusterCommunication.BUS.getChannel();
+    }
+
+    /**
+     * Publish the eviction of a local cache entry to the other members of the
+     * cluster. Does nothing if the cluster communication is not activated.
+     *
+     * @param _region region the key belongs to
+     * @param _key key of the entry to be evicted
+     */
+    public static void invalidate(final Region _region,
+                                  final Object _key)
+    {
+        final InvalidationBus bus = ClusterCommunication.BUS;
+        if (bus != null) {
+            bus.publish(_region, String.valueOf(_key));
+        }
+    }
+
+    /**
+     * Publish the eviction of several local cache entries of a region to the
+     * other members of the cluster with one message. Does nothing if the
+     * cluster communication is not activated.
+     *
+     * @param _region region the keys belong to
+     * @param _keys keys of the entries to be evicted
+     */
+    public static void invalidate(final Region _region,
+                                  final Collection<?> _keys)
+    {
+        final InvalidationBus bus = ClusterCommunication.BUS;
+        if (bus != null) {
+            bus.publish(_region, _keys.stream().map(String::valueOf).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * Send a payload to the {@link IClusterMsgListener} of the other members
+     * of the cluster. Does nothing if the cluster communication is not
+     * activated.
+     *
+     * @param _payload payload to be send
+     */
+    public static void send(final Serializable _payload)
+    {
+        final InvalidationBus bus = ClusterCommunication.BUS;
+        if (bus != null) {
+            bus.send(_payload);
+        }
+    }
+
+    /**
+     * Leave the cluster.
+     */
+    public static synchronized void stop()
+    {
+        if (ClusterCommunication.BUS != null) {
+            ClusterCommunication.BUS.close();
+            ClusterCommunication.BUS = null;
+        }
     }
 }
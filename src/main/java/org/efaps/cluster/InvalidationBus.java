@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.cluster;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.efaps.admin.program.esjp.Listener;
+import org.efaps.cluster.InvalidationEvent.Region;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.ObjectMessage;
+import org.jgroups.Receiver;
+import org.jgroups.View;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bus on top of a JChannel that publishes {@link InvalidationEvent} to the
+ * other members of the cluster and applies the events received from them
+ * to the handler registered for their region. Messages that are not
+ * invalidation events are passed on to the {@link IClusterMsgListener}.
+ */
+public class InvalidationBus
+    implements Receiver
+{
+
+    /**
+     * Logging instance used in this class.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(InvalidationBus.class);
+
+    /**
+     * Channel the bus is using.
+     */
+    private final JChannel channel;
+
+    /**
+     * Handler evicting the local cache entries for a region.
+     */
+    private final Map<Region, Consumer<String>> handlers = new ConcurrentHashMap<>();
+
+    /**
+     * @param _channel channel the bus is using
+     */
+    public InvalidationBus(final JChannel _channel)
+    {
+        this.channel = _channel;
+    }
+
+    /**
+     * @param _region region the handler is registered for
+     * @param _handler handler evicting the local entry for a given key
+     * @return this for chaining
+     */
+    public InvalidationBus register(final Region _region,
+                                    final Consumer<String> _handler)
+    {
+        this.handlers.put(_region, _handler);
+        return this;
+    }
+
+    /**
+     * Connect the channel to the cluster.
+     *
+     * @param _clusterName name of the cluster
+     * @throws Exception on error
+     */
+    public void connect(final String _clusterName)
+        throws Exception
+    {
+        this.channel.setDiscardOwnMessages(true);
+        this.channel.setReceiver(this);
+        this.channel.connect(_clusterName);
+    }
+
+    /**
+     * @return true if the channel is connected
+     */
+    public boolean isConnected()
+    {
+        return this.channel.isConnected();
+    }
+
+    /**
+     * Publish the invalidation of an entry to the other members of the
+     * cluster.
+     *
+     * @param _region region the key belongs to
+     * @param _key key of the entry to be evicted
+     */
+    public void publish(final Region _region,
+                        final String _key)
+    {
+        send(new InvalidationEvent(_region, _key));
+    }
+
+    /**
+     * Publish the invalidation of several entries of a region to the other
+     * members of the cluster with one message.
+     *
+     * @param _region region the keys belong to
+     * @param _keys keys of the entries to be evicted
+     */
+    public void publish(final Region _region,
+                        final Collection<String> _keys)
+    {
+        if (!_keys.isEmpty()) {
+            send(new InvalidationEvent(_region, _keys));
+        }
+    }
+
+    /**
+     * Send a payload to the other members of the cluster. It will be passed
+     * on to the {@link IClusterMsgListener}.
+     *
+     * @param _payload payload to be send
+     */
+    public void send(final Serializable _payload)
+    {
+        send(new StreamableWrapper(_payload));
+    }
+
+    /**
+     * @param _object object to be send
+     */
+    private void send(final Object _object)
+    {
+        if (isConnected()) {
+            try {
+                this.channel.send(new ObjectMessage(null, _object));
+            } catch (final Exception e) {
+                InvalidationBus.LOG.error("Could not send message: {}", _object, e);
+            }
+        }
+    }
+
+    @Override
+    public void receive(final Message _msg)
+    {
+        final Object object = _msg.getObject();
+        if (object instanceof InvalidationEvent) {
+            final InvalidationEvent event = (InvalidationEvent) object;
+            InvalidationBus.LOG.debug("Received invalidation {} from {}", event, _msg.getSrc());
+            final Consumer<String> handler = this.handlers.get(event.getRegion());
+            if (handler == null) {
+                InvalidationBus.LOG.warn("No handler registered for {}", event);
+            } else {
+                for (final String key : event.getKeys()) {
+                    try {
+                        handler.accept(key);
+                    } catch (final RuntimeException e) {
+                        InvalidationBus.LOG.error("Could not apply invalidation {} for {}", event.getRegion(), key, e);
+                    }
+                }
+            }
+        } else {
+            for (final IClusterMsgListener listener : Listener.get()
+                            .<IClusterMsgListener>invoke(IClusterMsgListener.class)) {
+                if (listener.onMessage(_msg) && object instanceof StreamableWrapper) {
+                    try {
+                        listener.onPayload(((StreamableWrapper) object).<Serializable>getObject());
+                    } catch (final IOException e) {
+                        InvalidationBus.LOG.error("Could not read payload from {}", _msg.getSrc(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void viewAccepted(final View _view)
+    {
+        InvalidationBus.LOG.info("Cluster view: {}", _view);
+    }
+
+    /**
+     * Getter method for the instance variable {@link #channel}.
+     *
+     * @return value of instance variable {@link #channel}
+     */
+    public JChannel getChannel()
+    {
+        return this.channel;
+    }
+
+    /**
+     * Close the channel.
+     */
+    public void close()
+    {
+        this.channel.close();
+    }
+}
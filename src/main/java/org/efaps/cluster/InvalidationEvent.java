@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.cluster;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.jgroups.util.SizeStreamable;
+
+/**
+ * Compact event send over the cluster to evict entries of a local cache. It
+ * consists only of the {@link Region} and the keys of the entries.
+ */
+public class InvalidationEvent
+    implements SizeStreamable
+{
+
+    /**
+     * Regions that can be invalidated by an event.
+     */
+    public enum Region
+    {
+        /** Type, key is {@link InvalidationEvent#ALL}. */
+        TYPE,
+        /** Attribute, key is {@link InvalidationEvent#ALL}. */
+        ATTRIBUTE,
+        /** SystemConfiguration, key is the UUID of the SystemConfiguration. */
+        SYSTEMCONFIGURATION,
+        /** Person, key is the id of the Person. */
+        PERSON,
+        /** PermissionCache of the AccessCache, key is the id of the Person. */
+        ACCESSPERMISSION,
+        /** StatusCache of the AccessCache, key is the key of the Instance. */
+        ACCESSSTATUS,
+        /** QueryCache, key is the name of the written SQL table. */
+        QUERYTABLE,
+        /** Compiled ESJP classes, key is {@link InvalidationEvent#ALL}. */
+        ESJP;
+    }
+
+    /**
+     * Key used to evict all entries of a region.
+     */
+    public static final String ALL = "*";
+
+    /**
+     * Region the key belongs to.
+     */
+    private Region region;
+
+    /**
+     * Keys of the entries to be evicted.
+     */
+    private List<String> keys;
+
+    /**
+     * Constructor used on deserialization.
+     */
+    public InvalidationEvent()
+    {
+    }
+
+    /**
+     * @param _region region the key belongs to
+     * @param _key key of the entry to be evicted
+     */
+    public InvalidationEvent(final Region _region,
+                             final String _key)
+    {
+        this(_region, Collections.singletonList(_key));
+    }
+
+    /**
+     * @param _region region the keys belong to
+     * @param _keys keys of the entries to be evicted
+     */
+    public InvalidationEvent(final Region _region,
+                             final Collection<String> _keys)
+    {
+        this.region = _region;
+        this.keys = new ArrayList<>(_keys);
+    }
+
+    /**
+     * Getter method for the instance variable {@link #region}.
+     *
+     * @return value of instance variable {@link #region}
+     */
+    public Region getRegion()
+    {
+        return this.region;
+    }
+
+    /**
+     * Getter method for the instance variable {@link #keys}.
+     *
+     * @return value of instance variable {@link #keys}
+     */
+    public List<String> getKeys()
+    {
+        return this.keys;
+    }
+
+    @Override
+    public int serializedSize()
+    {
+        int ret = Byte.BYTES + Integer.BYTES;
+        for (final String key : this.keys) {
+            ret = ret + Short.BYTES + key.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return ret;
+    }
+
+    @Override
+    public void writeTo(final DataOutput _out)
+        throws IOException
+    {
+        _out.writeByte(this.region.ordinal());
+        _out.writeInt(this.keys.size());
+        for (final String key : this.keys) {
+            _out.writeUTF(key);
+        }
+    }
+
+    @Override
+    public void readFrom(final DataInput _in)
+        throws IOException
+    {
+        this.region = Region.values()[_in.readByte()];
+        final int size = _in.readInt();
+        this.keys = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            this.keys.add(_in.readUTF());
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return this.region + ":" + this.keys;
+    }
+}
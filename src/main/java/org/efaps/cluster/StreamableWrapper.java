@@ -15,75 +15,177 @@
  */
 package org.efaps.cluster;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
 import java.io.Serializable;
 
+import org.apache.commons.lang3.SerializationUtils;
 import org.efaps.admin.program.esjp.EFapsApplication;
+import org.efaps.admin.program.esjp.EFapsClassLoader;
 import org.efaps.admin.program.esjp.EFapsUUID;
 import org.jgroups.util.ByteArray;
 import org.jgroups.util.SizeStreamable;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+/**
+ * Wraps a serializable payload so that it can be send as a message over the
+ * cluster. The payload is serialized lazily and deserialized using the
+ * EFapsClassLoader, so esjp classes can be part of the payload. Only the
+ * classes allowed by {@link #FILTER} are deserialized.
+ */
 @EFapsUUID("deceedf1-9dc9-4f8c-9178-0c276a926969")
 @EFapsApplication("eFaps-Kernel")
 public class StreamableWrapper
     implements SizeStreamable
 {
-    private static final Logger LOG = LoggerFactory.getLogger(StreamableWrapper.class);
 
+    /**
+     * Allow-list for the classes of a payload: the JDK value and collection
+     * classes, the eFaps classes (including the esjps) and joda time. All
+     * other classes are rejected.
+     */
+    public static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+                    "maxdepth=64;java.lang.*;java.util.*;java.time.*;java.math.*;org.efaps.**;org.joda.time.**;!*");
+
+    /**
+     * The wrapped object.
+     */
+    private Serializable object;
+
+    /**
+     * The serialized object.
+     */
+    private byte[] serialized;
+
+    /**
+     * Constructor used on deserialization.
+     */
     public StreamableWrapper()
     {
     }
 
-    public StreamableWrapper(final Serializable obj)
+    /**
+     * @param _obj object to be wrapped
+     */
+    public StreamableWrapper(final Serializable _obj)
     {
-        LOG.warn("ClusterCommunication is not activated for kernel usage");
+        setObject(_obj);
     }
 
-    public <T> T getObject()
+    /**
+     * @param <T> type of the object
+     * @return the wrapped object
+     * @throws IOException on error during deserialization
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T getObject()
+        throws IOException
     {
-        return null;
+        if (this.object == null && this.serialized != null) {
+            try (ObjectInputStream in = new EFapsObjectInputStream(new ByteArrayInputStream(this.serialized))) {
+                this.object = (Serializable) in.readObject();
+            } catch (final ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+        return (T) this.object;
     }
 
-    public synchronized StreamableWrapper setObject(final Serializable obj)
+    /**
+     * @param _obj object to be wrapped
+     * @return this for chaining
+     */
+    public synchronized StreamableWrapper setObject(final Serializable _obj)
     {
-        LOG.warn("ClusterCommunication is not activated for kernel usage");
+        this.object = _obj;
+        this.serialized = null;
         return this;
     }
 
+    /**
+     * @return the serialized object
+     */
     public synchronized ByteArray getSerialized()
     {
-        LOG.warn("ClusterCommunication is not activated for kernel usage");
-        return null;
+        if (this.serialized == null) {
+            this.serialized = SerializationUtils.serialize(this.object);
+        }
+        return new ByteArray(this.serialized);
     }
 
+    /**
+     * @return length of the serialized object
+     */
     public int getLength()
     {
         return getSerialized().getLength();
     }
 
-
     @Override
     public int serializedSize()
     {
-        LOG.warn("ClusterCommunication is not activated for kernel usage");
-        return 0;
+        return Integer.BYTES + getLength();
     }
 
     @Override
-    public void writeTo(DataOutput out)
+    public void writeTo(final DataOutput _out)
         throws IOException
     {
-        LOG.warn("ClusterCommunication is not activated for kernel usage");
+        final ByteArray bytes = getSerialized();
+        _out.writeInt(bytes.getLength());
+        _out.write(bytes.getArray(), bytes.getOffset(), bytes.getLength());
     }
 
     @Override
-    public void readFrom(DataInput in)
-        throws IOException, ClassNotFoundException
+    public synchronized void readFrom(final DataInput _in)
+        throws IOException
+    {
+        final byte[] bytes = new byte[_in.readInt()];
+        _in.readFully(bytes);
+        this.object = null;
+        this.serialized = bytes;
+    }
+
+    /**
+     * ObjectInputStream resolving the classes with the EFapsClassLoader if
+     * it is initialized and accepting only the classes allowed by
+     * {@link StreamableWrapper#FILTER}.
+     */
+    private static class EFapsObjectInputStream
+        extends ObjectInputStream
     {
-        LOG.warn("ClusterCommunication is not activated for kernel usage");
+
+        /**
+         * @param _in stream to read from
+         * @throws IOException on error
+         */
+        EFapsObjectInputStream(final InputStream _in)
+            throws IOException
+        {
+            super(_in);
+            setObjectInputFilter(StreamableWrapper.FILTER);
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass _desc)
+            throws IOException, ClassNotFoundException
+        {
+            Class<?> ret;
+            if (EFapsClassLoader.isInitialized()) {
+                try {
+                    ret = Class.forName(_desc.getName(), false, EFapsClassLoader.getInstance());
+                } catch (final ClassNotFoundException e) {
+                    ret = super.resolveClass(_desc);
+                }
+            } else {
+                ret = super.resolveClass(_desc);
+            }
+            return ret;
+        }
     }
 }
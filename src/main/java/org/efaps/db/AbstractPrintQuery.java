@@ -16,16 +16,19 @@
 package org.efaps.db;
 
 import java.io.StringReader;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.apache.commons.dbutils.handlers.ArrayListHandler;
 import org.efaps.admin.common.MsgPhrase;
@@ -40,6 +43,7 @@ import org.efaps.ci.CIAttribute;
 import org.efaps.ci.CIMsgPhrase;
 import org.efaps.db.print.OneSelect;
 import org.efaps.db.print.Phrase;
+import org.efaps.db.stmt.runner.SQLRunner;
 import org.efaps.db.transaction.ConnectionResource;
 import org.efaps.db.wrapper.SQLPart;
 import org.efaps.db.wrapper.SQLSelect;
@@ -106,6 +110,11 @@ public abstract class AbstractPrintQuery
      */
     private int typeColumnIndex = 0;
 
+    /**
+     * Names of the SQL tables the statement reads from.
+     */
+    private Set<String> sqlTableNames = Collections.emptySet();
+
     /**
      * Add an attribute to the PrintQuery. It is used to get editable values
      * from the eFaps DataBase.
@@ -841,7 +850,13 @@ public abstract class AbstractPrintQuery
         boolean ret = false;
         if (isMarked4execute()) {
             if (getInstanceList().size() > 0) {
-                ret = executeOneCompleteStmt(createSQLStatement(), this.allSelects);
+                if (SQLRunner.isBindParameters() && Context.getDbType().getIdArrayType() != null) {
+                    final List<Object> parameters = new ArrayList<>();
+                    final String sql = createSQLStatement(parameters);
+                    ret = executeOneCompleteStmt(sql, parameters, this.allSelects);
+                } else {
+                    ret = executeOneCompleteStmt(createSQLStatement(), this.allSelects);
+                }
             }
             if (ret) {
                 for (final OneSelect onesel : this.allSelects) {
@@ -863,6 +878,22 @@ public abstract class AbstractPrintQuery
     protected String createSQLStatement()
         throws EFapsException
     {
+        return createSQLStatement(null);
+    }
+
+    /**
+     * Method to create on Statement out of the different parts. If a list of
+     * parameters is given, the ids of the instances are bound as one
+     * parameter.
+     *
+     * @param _parameters list the bound values are added to,
+     *            <code>null</code> to render the values literally
+     * @return StringBuilder containing the SQL statement
+     * @throws EFapsException on error
+     */
+    protected String createSQLStatement(final List<Object> _parameters)
+        throws EFapsException
+    {
 
         final SQLSelect select = new SQLSelect()
                         .column(0, "ID")
@@ -871,6 +902,8 @@ public abstract class AbstractPrintQuery
             oneSel.append2SQLFrom(select);
         }
 
+        this.sqlTableNames = select.getTableNames();
+
         int colIndex = select.getColumns().size() + 1;
         // if the main table has a column for the type it is selected also
         if (getMainType().getMainTable().getSqlColType() != null) {
@@ -885,29 +918,35 @@ public abstract class AbstractPrintQuery
             }
         }
 
-        select.addPart(SQLPart.WHERE).addColumnPart(0, "ID").addPart(SQLPart.IN).addPart(SQLPart.PARENTHESIS_OPEN);
-
-        int i = 0;
-        for (final Instance instance : getInstanceList()) {
-            if (Context.getDbType().getMaxExpressions() > -1 && i > Context.getDbType().getMaxExpressions()) {
-                select.addPart(SQLPart.PARENTHESIS_CLOSE)
-                                .addPart(SQLPart.OR)
-                                .addColumnPart(0, "ID").addPart(SQLPart.IN).addPart(SQLPart.PARENTHESIS_OPEN);
-                i = 0;
-            }
-            if (i > 0) {
-                select.addPart(SQLPart.COMMA);
+        if (_parameters == null) {
+            select.addPart(SQLPart.WHERE).addColumnPart(0, "ID").addPart(SQLPart.IN)
+                            .addPart(SQLPart.PARENTHESIS_OPEN);
+            int i = 0;
+            for (final Instance instance : getInstanceList()) {
+                if (Context.getDbType().getMaxExpressions() > -1 && i > Context.getDbType().getMaxExpressions()) {
+                    select.addPart(SQLPart.PARENTHESIS_CLOSE)
+                                    .addPart(SQLPart.OR)
+                                    .addColumnPart(0, "ID").addPart(SQLPart.IN).addPart(SQLPart.PARENTHESIS_OPEN);
+                    i = 0;
+                }
+                if (i > 0) {
+                    select.addPart(SQLPart.COMMA);
+                }
+                select.addValuePart(instance.getId());
+                i++;
             }
-            select.addValuePart(instance.getId());
-            i++;
+            select.addPart(SQLPart.PARENTHESIS_CLOSE);
+        } else {
+            select.addPart(SQLPart.WHERE).addIdFilterPart(0, "ID", getInstanceList().stream()
+                            .map(Instance::getId)
+                            .collect(Collectors.toList()));
         }
-        select.addPart(SQLPart.PARENTHESIS_CLOSE);
 
         for (final OneSelect oneSel : this.allSelects) {
             oneSel.append2SQLWhere(select);
         }
 
-        return select.getSQL();
+        return select.getSQL(_parameters);
     }
 
     /**
@@ -920,20 +959,43 @@ public abstract class AbstractPrintQuery
      * @throws EFapsException on error
      */
 
+    protected boolean executeOneCompleteStmt(final String _complStmt,
+                                             final List<OneSelect> _oneSelects)
+        throws EFapsException
+    {
+        return executeOneCompleteStmt(_complStmt, null, _oneSelects);
+    }
+
+    /**
+     * The instance method executes exact one complete statement and populates
+     * the result in the cached result {@link #cachedResult}. If parameters
+     * are given, the statement is executed as a prepared statement taken from
+     * the statement cache of the connection.
+     *
+     * @param _complStmt complete statement instance to execute
+     * @param _parameters the parameters to bind, <code>null</code> for a
+     *            literal statement
+     * @param _oneSelects lsit of OneSelects the statement is executed for
+     * @return true if the query contains values, else false
+     * @throws EFapsException on error
+     */
     @SuppressWarnings("unchecked")
     protected boolean executeOneCompleteStmt(final String _complStmt,
+                                             final List<Object> _parameters,
                                              final List<OneSelect> _oneSelects)
         throws EFapsException
     {
         boolean ret = false;
         ConnectionResource con = null;
         try {
-            AbstractPrintQuery.LOG.debug("Executing SQL: {}", _complStmt);
+            AbstractPrintQuery.LOG.debug("Executing SQL: {}, Parameters: {}", _complStmt, _parameters);
+            final String key = _parameters == null || _parameters.isEmpty() ? _complStmt
+                            : _complStmt + " " + _parameters;
 
             List<Object[]> rows = null;
             boolean cached = false;
             if (isCacheEnabled()) {
-                final QueryKey querykey = QueryKey.get(getKey(), _complStmt);
+                final QueryKey querykey = QueryKey.get(getKey(), key);
                 AbstractPrintQuery.LOG.debug("Searching for QueryKey: {}", querykey);
                 final var cache = QueryCache.get();
                 if (cache.containsKey(querykey)) {
@@ -949,17 +1011,23 @@ public abstract class AbstractPrintQuery
             if (!cached) {
                 AbstractPrintQuery.LOG.debug("Executing against database");
                 con = Context.getThreadContext().getConnectionResource();
-                final Statement stmt = con.createStatement();
-                final ResultSet rs = stmt.executeQuery(_complStmt);
                 final ArrayListHandler handler = new ArrayListHandler(Context.getDbType().getRowProcessor());
-                rows = handler.handle(rs);
-                rs.close();
-                stmt.close();
+                if (_parameters == null) {
+                    final Statement stmt = con.createStatement();
+                    final ResultSet rs = stmt.executeQuery(_complStmt);
+                    rows = handler.handle(rs);
+                    rs.close();
+                    stmt.close();
+                } else {
+                    final PreparedStatement stmt = con.prepareCachedStatement(_complStmt,
+                                    SQLRunner.getStatementCacheSize());
+                    rows = SQLRunner.executeQuery(stmt, _parameters, handler);
+                }
                 if (isCacheEnabled()) {
-                    final var querykey = QueryKey.get(getKey(), _complStmt);
+                    final var querykey = QueryKey.get(getKey(), key);
                     final var queryValue = QueryValue.get(getKey(), rows);
                     AbstractPrintQuery.LOG.debug("Caching with QueryKey: {}", querykey);
-                    QueryCache.put((ICacheDefinition) this, querykey, queryValue);
+                    QueryCache.put((ICacheDefinition) this, querykey, queryValue, this.sqlTableNames);
                 }
             }
 
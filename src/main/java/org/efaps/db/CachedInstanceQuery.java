@@ -135,7 +135,7 @@ public class CachedInstanceQuery
         } else {
             executeOneCompleteStmt(sql);
             final var queryValue = QueryValue.get(getKey(), getValues());
-            QueryCache.put(this, querykey, queryValue);
+            QueryCache.put(this, querykey, queryValue, getSQLTableNames());
         }
         return getValues();
     }
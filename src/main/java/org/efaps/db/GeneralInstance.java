@@ -131,6 +131,62 @@ public final class GeneralInstance
         return ret;
     }
 
+    /**
+     * Insert the GeneralInstances for the given instances using one batch.
+     * Falls back to {@link #insert(Instance, ConnectionResource)} for each
+     * instance if the database generates the ids itself.
+     *
+     * @param _instances Instances the GeneralInstances will be created for.
+     * @param _con      Connection the insert will be executed in
+     * @throws EFapsException on  error
+     */
+    public static void insert(final Collection<Instance> _instances,
+                              final ConnectionResource _con)
+        throws EFapsException
+    {
+        final List<Instance> instances = new ArrayList<>();
+        for (final Instance instance : _instances) {
+            if (instance.isValid() && instance.getType().isGeneralInstance()) {
+                instances.add(instance);
+            }
+        }
+        if (!instances.isEmpty()) {
+            if (Context.getDbType().supportsGetGeneratedKeys()) {
+                for (final Instance instance : instances) {
+                    GeneralInstance.insert(instance, _con);
+                }
+            } else {
+                try {
+                    final long[] ids = Context.getDbType().getNewIds(_con, GeneralInstance.TABLENAME,
+                                    GeneralInstance.IDCOLUMN, instances.size());
+                    final List<SQLInsert> inserts = new ArrayList<>();
+                    int idx = 0;
+                    for (final Instance instance : instances) {
+                        final SQLInsert insert = Context.getDbType().newInsert(GeneralInstance.TABLENAME,
+                                        GeneralInstance.IDCOLUMN, false);
+                        insert.presetId(ids[idx]);
+                        insert.column(GeneralInstance.ISTYPECOLUMN, instance.getType().getId());
+                        insert.column(GeneralInstance.ISIDCOLUMN, instance.getId());
+                        insert.column(GeneralInstance.EXIDCOLUMN, instance.getExchangeId(false));
+                        insert.column(GeneralInstance.EXSYSIDCOLUMN, instance.getExchangeSystemId(false));
+                        inserts.add(insert);
+                        idx++;
+                    }
+                    SQLInsert.executeBatch(_con, inserts);
+                    idx = 0;
+                    for (final Instance instance : instances) {
+                        instance.setGeneralId(ids[idx]);
+                        instance.setGeneralised(true);
+                        idx++;
+                    }
+                } catch (final SQLException e) {
+                    GeneralInstance.LOG.error("executeBatch", e);
+                    throw new EFapsException(GeneralInstance.class, "create", e);
+                }
+            }
+        }
+    }
+
     /**
      * @param _instance Instance the id of the GeneralInstance will be retrieved for.
      * @param _con      Connection the query will be executed in
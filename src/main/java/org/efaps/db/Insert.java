@@ -17,8 +17,10 @@ package org.efaps.db;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -165,6 +167,18 @@ public class Insert
     @Override
     public void execute()
         throws EFapsException
+    {
+        checkAccess();
+        executeWithoutAccessCheck();
+    }
+
+    /**
+     * Check if the current user is permitted to create the instance.
+     *
+     * @throws EFapsException if no access is given
+     */
+    private void checkAccess()
+        throws EFapsException
     {
         final boolean hasAccess = getType().hasAccess(Instance.get(getType(), 0),
                         AccessTypeEnums.CREATE.getAccessType(), getNewValuesMap());
@@ -173,7 +187,6 @@ public class Insert
                             getType());
             throw new EFapsException(getClass(), "execute.NoAccess", getType());
         }
-        executeWithoutAccessCheck();
     }
 
     /**
@@ -239,7 +252,17 @@ public class Insert
         } finally {
 
         }
+        triggerStatusListener();
+    }
 
+    /**
+     * Inform the status listeners about the status of the new instance.
+     *
+     * @throws EFapsException on error
+     */
+    private void triggerStatusListener()
+        throws EFapsException
+    {
         if (getType().isCheckStatus()) {
             Long statusId = 0L;
             for (final Entry<Attribute, Value> entry : attr2values.entrySet()) {
@@ -300,31 +323,9 @@ public class Insert
                                      final long _id)
         throws EFapsException
     {
-        Insert.LOG.debug("Preparing insert on table: {} for Values: {}", _table, _values);
         long ret = _id;
         try {
-            final SQLInsert insert = Context.getDbType().newInsert(_table.getSqlTable(),
-                                                                   _table.getSqlColId(),
-                                                                   _id == 0);
-
-            if (_id != 0) {
-                insert.column(_table.getSqlColId(), _id);
-            }
-            if (_table.getSqlColType() != null) {
-                insert.column(_table.getSqlColType(), getType().getId());
-            }
-
-            final ReverseListIterator<Value> iterator = new ReverseListIterator<>(_values);
-
-            final Set<String> added = new HashSet<>();
-            while (iterator.hasNext()) {
-                final Value value = iterator.next();
-                final String colKey = value.getAttribute().getSqlColNames().toString();
-                if (!added.contains(colKey)) {
-                    value.getAttribute().prepareDBInsert(insert, value.getValues());
-                    added.add(colKey);
-                }
-            }
+            final SQLInsert insert = prepareOneStatement(_table, _values, _id);
             final Long bck = insert.execute(_con);
             if (bck != null)  {
                 ret = bck;
@@ -335,4 +336,141 @@ public class Insert
         }
         return ret;
     }
+
+    /**
+     * Prepare the statement for one table. If the parameter '_id' is set to
+     * <code>0</code>, the statement is prepared to generate a new id.
+     *
+     * @param _table    sql table used to insert
+     * @param _values   values to be inserted
+     * @param _id       id of the instance, <code>0</code> for a new one
+     * @return the prepared insert
+     * @throws SQLException on error
+     */
+    private SQLInsert prepareOneStatement(final SQLTable _table,
+                                          final List<Value> _values,
+                                          final long _id)
+        throws SQLException
+    {
+        Insert.LOG.debug("Preparing insert on table: {} for Values: {}", _table, _values);
+        final SQLInsert insert = Context.getDbType().newInsert(_table.getSqlTable(),
+                                                               _table.getSqlColId(),
+                                                               _id == 0);
+        if (_id != 0) {
+            insert.column(_table.getSqlColId(), _id);
+        }
+        if (_table.getSqlColType() != null) {
+            insert.column(_table.getSqlColType(), getType().getId());
+        }
+
+        final ReverseListIterator<Value> iterator = new ReverseListIterator<>(_values);
+
+        final Set<String> added = new HashSet<>();
+        while (iterator.hasNext()) {
+            final Value value = iterator.next();
+            final String colKey = value.getAttribute().getSqlColNames().toString();
+            if (!added.contains(colKey)) {
+                value.getAttribute().prepareDBInsert(insert, value.getValues());
+                added.add(colKey);
+            }
+        }
+        return insert;
+    }
+
+    /**
+     * Executes the given inserts together. Access and the pre and override
+     * triggers are evaluated for each insert, the inserts that are not
+     * overwritten by a trigger are written using JDBC batches
+     * ({@link #executeBatchWithoutTrigger(Collection)}) and afterwards the
+     * post triggers are executed for each insert.
+     *
+     * @param _inserts the inserts
+     * @throws EFapsException on error
+     */
+    public static void executeBatch(final Collection<Insert> _inserts)
+        throws EFapsException
+    {
+        final List<Insert> batch = new ArrayList<>();
+        for (final Insert insert : _inserts) {
+            insert.checkAccess();
+            insert.executeEvents(EventType.INSERT_PRE);
+            if (!insert.executeEvents(EventType.INSERT_OVERRIDE)) {
+                batch.add(insert);
+            }
+        }
+        Insert.executeBatchWithoutTrigger(batch);
+        for (final Insert insert : _inserts) {
+            insert.executeEvents(EventType.INSERT_POST);
+        }
+    }
+
+    /**
+     * The inserts are done without calling triggers and check of access
+     * rights. If the database does not generate the ids itself, the ids for
+     * the main tables are allocated in one step and the rows are grouped by
+     * table and written using JDBC batches.
+     *
+     * @param _inserts the inserts
+     * @throws EFapsException if update not possible (unique key, object does
+     *             not exists, etc...)
+     */
+    public static void executeBatchWithoutTrigger(final Collection<Insert> _inserts)
+        throws EFapsException
+    {
+        final ConnectionResource con = Context.getThreadContext().getConnectionResource();
+        final List<SQLInsert> mainInserts = new ArrayList<>();
+        final List<SQLInsert> inserts = new ArrayList<>();
+        try {
+            if (Context.getDbType().supportsGetGeneratedKeys()) {
+                for (final Insert insert : _inserts) {
+                    final SQLTable mainTable = insert.getType().getMainTable();
+                    final long id = insert.executeOneStatement(con, mainTable,
+                                    insert.getTable2values().get(mainTable), 0);
+                    insert.setInstance(Instance.get(insert.getType(), id));
+                }
+            } else {
+                final Map<SQLTable, List<Insert>> table2inserts = new LinkedHashMap<>();
+                for (final Insert insert : _inserts) {
+                    table2inserts.computeIfAbsent(insert.getType().getMainTable(), table -> new ArrayList<>())
+                        .add(insert);
+                }
+                for (final Entry<SQLTable, List<Insert>> entry : table2inserts.entrySet()) {
+                    final SQLTable mainTable = entry.getKey();
+                    final long[] ids = Context.getDbType().getNewIds(con, mainTable.getSqlTable(),
+                                    mainTable.getSqlColId(), entry.getValue().size());
+                    int idx = 0;
+                    for (final Insert insert : entry.getValue()) {
+                        mainInserts.add(insert.prepareOneStatement(mainTable,
+                                        insert.getTable2values().get(mainTable), ids[idx]));
+                        insert.setInstance(Instance.get(insert.getType(), ids[idx]));
+                        idx++;
+                    }
+                }
+            }
+            final List<Instance> instances = new ArrayList<>();
+            for (final Insert insert : _inserts) {
+                insert.getInstance().setExchangeId(insert.exchangeId);
+                insert.getInstance().setExchangeSystemId(insert.exchangeSystemId);
+                instances.add(insert.getInstance());
+                final SQLTable mainTable = insert.getType().getMainTable();
+                for (final Entry<SQLTable, List<Value>> entry : insert.getTable2values().entrySet()) {
+                    final SQLTable table = entry.getKey();
+                    if (!table.equals(mainTable) && !table.isReadOnly()) {
+                        inserts.add(insert.prepareOneStatement(table, entry.getValue(),
+                                        insert.getInstance().getId()));
+                    }
+                }
+            }
+            SQLInsert.executeBatch(con, mainInserts);
+            GeneralInstance.insert(instances, con);
+            SQLInsert.executeBatch(con, inserts);
+        } catch (final SQLException e) {
+            Insert.LOG.error("executeBatchWithoutTrigger", e);
+            throw new EFapsException(Insert.class, "executeBatchWithoutTrigger.Exception", e);
+        }
+        for (final Insert insert : _inserts) {
+            Queue.registerUpdate(insert.getInstance());
+            insert.triggerStatusListener();
+        }
+    }
 }
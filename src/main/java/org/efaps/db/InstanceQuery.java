@@ -19,8 +19,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.UUID;
 
 import org.efaps.admin.datamodel.SQLTable;
@@ -120,6 +122,21 @@ public class InstanceQuery
         return select.getSQL();
     }
 
+    /**
+     * Get the names of the SQL tables the statement reads from.
+     *
+     * @return the names of the SQL tables
+     */
+    protected Set<String> getSQLTableNames()
+    {
+        final Set<String> ret = new HashSet<>();
+        ret.add(getBaseType().getMainTable().getSqlTable());
+        for (final SQLTable sqlTable : getSqlTable2Index().keySet()) {
+            ret.add(sqlTable.getSqlTable());
+        }
+        return ret;
+    }
+
     /**
      * Execute the actual statement against the database.
      * @param _complStmt        Statment to be executed
@@ -15,14 +15,41 @@
  */
 package org.efaps.db;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang3.math.NumberUtils;
 import org.efaps.admin.AppConfigHandler;
+import org.efaps.admin.EFapsSystemConfiguration;
+import org.efaps.admin.KernelSettings;
+import org.efaps.admin.common.SystemConfiguration;
+import org.efaps.cluster.ClusterCommunication;
+import org.efaps.cluster.InvalidationEvent.Region;
+import org.efaps.util.EFapsException;
 import org.efaps.util.cache.CacheLogListener;
 import org.efaps.util.cache.InfinispanCache;
 import org.efaps.util.cache.NoOpCache;
 import org.infinispan.Cache;
 import org.infinispan.context.Flag;
-import org.infinispan.query.Search;
-import org.infinispan.query.dsl.Query;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntriesEvicted;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryCreated;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryExpired;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryModified;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntryRemoved;
+import org.infinispan.notifications.cachelistener.event.CacheEntriesEvictedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryExpiredEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryModifiedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,7 +82,55 @@ public final class QueryCache
      */
     private static NoOpQueryCache NOOP;
 
-    private static boolean INIT;
+    /**
+     * Default for the maximum number of bytes used by the cached rows (64MB).
+     */
+    private static final long DEFAULT_MAXBYTES = 64L * 1024 * 1024;
+
+    /**
+     * Number of bytes used by the rows currently stored in the cache.
+     */
+    private static final AtomicLong BYTES = new AtomicLong();
+
+    /**
+     * Number of bytes reserved for each entry. The cache is used with
+     * {@link Flag#IGNORE_RETURN_VALUES}, so the events of removals and
+     * replacements can not be relied on to carry the old value.
+     */
+    private static final Map<QueryKey, Long> KEY2BYTES = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum number of bytes used by the cached rows, negative if not
+     * read yet.
+     */
+    private static volatile long MAXBYTES = -1;
+
+    /**
+     * Index of the QueryKeys stored in the cache by their key, used to clean
+     * all entries for a key without searching the cache.
+     */
+    private static final Map<String, Set<QueryKey>> INDEX = new ConcurrentHashMap<>();
+
+    /**
+     * Index of the QueryKeys stored in the cache by the SQL tables their
+     * query reads from, used to clean all entries depending on a table that
+     * was written.
+     */
+    private static final Map<String, Set<QueryKey>> TABLEINDEX = new ConcurrentHashMap<>();
+
+    /**
+     * SQL tables of the QueryKeys registered in {@link #TABLEINDEX}.
+     */
+    private static final Map<QueryKey, Set<String>> KEY2TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * Lock making the registration of an entry in the {@link #TABLEINDEX}
+     * and its put atomic in relation to the eviction of a table. Puts share
+     * the read lock, the eviction of a table takes the write lock, so that
+     * an entry can not be put after the eviction removed the index of its
+     * table.
+     */
+    private static final ReadWriteLock TABLELOCK = new ReentrantReadWriteLock();
 
     /**
      * Utility class therefore no public Constructor.
@@ -75,8 +150,13 @@ public final class QueryCache
             final Cache<QueryKey, Object> sqlCache = InfinispanCache.get()
                             .<QueryKey, Object>getCache(QueryCache.CACHE);
             sqlCache.clear();
-            if (!INIT) {
-                INIT = true;
+            QueryCache.INDEX.clear();
+            QueryCache.TABLEINDEX.clear();
+            QueryCache.KEY2TABLES.clear();
+            QueryCache.KEY2BYTES.clear();
+            QueryCache.BYTES.set(0);
+            QueryCache.MAXBYTES = -1;
+            if (InfinispanCache.get().addListener(QueryCache.CACHE, new EntryListener())) {
                 sqlCache.addListener(new CacheLogListener(QueryCache.LOG));
             }
         }
@@ -88,14 +168,53 @@ public final class QueryCache
     public static void cleanByKey(final String _key)
     {
         if (!AppConfigHandler.get().isQueryCacheDeactivated()) {
-            final var cache = get();
-            if (!cache.isEmpty()) {
-                final var queryFactory = Search.getQueryFactory(cache);
-                final Query<QueryKey> query = queryFactory
-                                .create("DELETE FROM org.efaps.db.QueryValue q WHERE q.key = :key");
-                query.setParameter("key", _key);
-                final var deleted = query.executeStatement();
-                LOG.debug("Deleted {} entries for {}", deleted, _key);
+            final Set<QueryKey> queryKeys = QueryCache.INDEX.remove(_key);
+            if (queryKeys != null) {
+                final var cache = get();
+                for (final QueryKey queryKey : queryKeys) {
+                    cache.remove(queryKey);
+                }
+                LOG.debug("Deleted {} entries for {}", queryKeys.size(), _key);
+            }
+        }
+    }
+
+    /**
+     * Remove all entries depending on the given SQL tables and inform the
+     * other members of the cluster.
+     *
+     * @param _tableNames names of the SQL tables that were written
+     */
+    public static void cleanByTables(final Collection<String> _tableNames)
+    {
+        for (final String tableName : _tableNames) {
+            QueryCache.evictTable(tableName);
+            ClusterCommunication.invalidate(Region.QUERYTABLE, tableName);
+        }
+    }
+
+    /**
+     * Remove all entries depending on the given SQL table from the local
+     * cache.
+     *
+     * @param _tableName name of the SQL table that was written
+     */
+    public static void evictTable(final String _tableName)
+    {
+        if (!AppConfigHandler.get().isQueryCacheDeactivated()) {
+            final Lock lock = QueryCache.TABLELOCK.writeLock();
+            lock.lock();
+            try {
+                final Set<QueryKey> queryKeys = QueryCache.TABLEINDEX.remove(_tableName.toUpperCase(Locale.ROOT));
+                if (queryKeys != null) {
+                    final var cache = get();
+                    for (final QueryKey queryKey : queryKeys) {
+                        cache.remove(queryKey);
+                    }
+                    LOG.debug("Deleted {} entries for table {}", queryKeys.size(), _tableName);
+                }
+            } finally {
+                lock.unlock();
             }
         }
     }
@@ -108,21 +227,102 @@ public final class QueryCache
     public static void put(final ICacheDefinition _cacheDef,
                            final QueryKey _querykey,
                            final QueryValue _object)
+    {
+        QueryCache.put(_cacheDef, _querykey, _object, Collections.emptySet());
+    }
+
+    /**
+     * @param _cacheDef cacheDefinition
+     * @param _querykey QueryKey
+     * @param _object object to store
+     * @param _tableNames names of the SQL tables the query reads from, the
+     *            entry is removed if one of them is written
+     */
+    public static void put(final ICacheDefinition _cacheDef,
+                           final QueryKey _querykey,
+                           final QueryValue _object,
+                           final Set<String> _tableNames)
     {
         if (!AppConfigHandler.get().isQueryCacheDeactivated()) {
             final Cache<QueryKey, QueryValue> cache = QueryCache.get();
-            if (_cacheDef.getMaxIdleTime() != 0) {
-                cache.put(_querykey, _object, _cacheDef.getLifespan(), _cacheDef.getLifespanUnit(),
-                                _cacheDef.getMaxIdleTime(), _cacheDef.getMaxIdleTimeUnit());
-            } else if (_cacheDef.getLifespan() != 0) {
-                cache.put(_querykey, _object, _cacheDef.getLifespan(), _cacheDef.getLifespanUnit());
+            if (_object.getByteSize() > 0 && QueryCache.BYTES.get() + _object.getByteSize() > getMaxBytes()) {
+                LOG.debug("Byte budget exhausted, not caching entry for {}", _querykey);
             } else {
-                cache.put(_querykey, _object);
+                final Lock lock = _tableNames.isEmpty() ? null : QueryCache.TABLELOCK.readLock();
+                if (lock != null) {
+                    lock.lock();
+                }
+                try {
+                    QueryCache.registerTables(_querykey, _tableNames);
+                    if (_cacheDef.getMaxIdleTime() != 0) {
+                        cache.put(_querykey, _object, _cacheDef.getLifespan(), _cacheDef.getLifespanUnit(),
+                                        _cacheDef.getMaxIdleTime(), _cacheDef.getMaxIdleTimeUnit());
+                    } else if (_cacheDef.getLifespan() != 0) {
+                        cache.put(_querykey, _object, _cacheDef.getLifespan(), _cacheDef.getLifespanUnit());
+                    } else {
+                        cache.put(_querykey, _object);
+                    }
+                } finally {
+                    if (lock != null) {
+                        lock.unlock();
+                    }
+                }
+                LOG.debug("Added entry for {}", _querykey);
+            }
+        }
+    }
+
+    /**
+     * Register the QueryKey for the SQL tables its query reads from.
+     *
+     * @param _querykey QueryKey
+     * @param _tableNames names of the SQL tables
+     */
+    private static void registerTables(final QueryKey _querykey,
+                                       final Set<String> _tableNames)
+    {
+        if (!_tableNames.isEmpty()) {
+            final Set<String> tableNames = ConcurrentHashMap.newKeySet();
+            for (final String tableName : _tableNames) {
+                tableNames.add(tableName.toUpperCase(Locale.ROOT));
+            }
+            QueryCache.KEY2TABLES.put(_querykey, tableNames);
+            for (final String tableName : tableNames) {
+                QueryCache.TABLEINDEX.computeIfAbsent(tableName, key -> ConcurrentHashMap.newKeySet())
+                                .add(_querykey);
             }
-            LOG.debug("Added entry for {}", _querykey);
         }
     }
 
+    /**
+     * @return number of bytes used by the rows currently stored in the cache
+     */
+    static long getBytes()
+    {
+        return QueryCache.BYTES.get();
+    }
+
+    /**
+     * @return the maximum number of bytes used by the cached rows
+     */
+    private static long getMaxBytes()
+    {
+        if (QueryCache.MAXBYTES < 0) {
+            long maxBytes = QueryCache.DEFAULT_MAXBYTES;
+            try {
+                final SystemConfiguration config = EFapsSystemConfiguration.get();
+                if (config != null) {
+                    maxBytes = NumberUtils.toLong(config.getAttributeValue(KernelSettings.QUERYCACHEMAXBYTES),
+                                    QueryCache.DEFAULT_MAXBYTES);
+                }
+            } catch (final EFapsException e) {
+                LOG.error("Could not read the byte budget for the QueryCache", e);
+            }
+            QueryCache.MAXBYTES = maxBytes;
+        }
+        return QueryCache.MAXBYTES;
+    }
+
     /**
      * @return the QueryCache
      */
@@ -146,4 +346,109 @@ public final class QueryCache
     {
 
     }
+
+    /**
+     * Keeps the index of the QueryKeys and the number of bytes used by the
+     * rows stored in the cache up to date.
+     */
+    @Listener
+    public static class EntryListener
+    {
+
+        /**
+         * @param _event event
+         */
+        @CacheEntryCreated
+        public void onCacheEntryCreated(final CacheEntryCreatedEvent<QueryKey, QueryValue> _event)
+        {
+            if (!_event.isPre()) {
+                QueryCache.INDEX.computeIfAbsent(_event.getKey().getKey(), key -> ConcurrentHashMap.newKeySet())
+                                .add(_event.getKey());
+                reserveBytes(_event.getKey(), _event.getValue());
+            }
+        }
+
+        /**
+         * An existing entry was replaced, the bytes reserved for the old
+         * value are replaced by the bytes of the new one. The event fired
+         * together with the creation of an entry is ignored.
+         *
+         * @param _event event
+         */
+        @CacheEntryModified
+        public void onCacheEntryModified(final CacheEntryModifiedEvent<QueryKey, QueryValue> _event)
+        {
+            if (!_event.isPre() && !_event.isCreated()) {
+                reserveBytes(_event.getKey(), _event.getNewValue());
+            }
+        }
+
+        /**
+         * @param _event event
+         */
+        @CacheEntryRemoved
+        public void onCacheEntryRemoved(final CacheEntryRemovedEvent<QueryKey, QueryValue> _event)
+        {
+            if (!_event.isPre()) {
+                release(_event.getKey());
+            }
+        }
+
+        /**
+         * @param _event event
+         */
+        @CacheEntryExpired
+        public void onCacheEntryExpired(final CacheEntryExpiredEvent<QueryKey, QueryValue> _event)
+        {
+            release(_event.getKey());
+        }
+
+        /**
+         * @param _event event
+         */
+        @CacheEntriesEvicted
+        public void onCacheEntriesEvicted(final CacheEntriesEvictedEvent<QueryKey, QueryValue> _event)
+        {
+            _event.getEntries().keySet().forEach(this::release);
+        }
+
+        /**
+         * @param _queryKey key no longer stored in the cache
+         */
+        private void release(final QueryKey _queryKey)
+        {
+            QueryCache.INDEX.computeIfPresent(_queryKey.getKey(), (key, queryKeys) -> {
+                queryKeys.remove(_queryKey);
+                return queryKeys.isEmpty() ? null : queryKeys;
+            });
+            final Set<String> tableNames = QueryCache.KEY2TABLES.remove(_queryKey);
+            if (tableNames != null) {
+                for (final String tableName : tableNames) {
+                    QueryCache.TABLEINDEX.computeIfPresent(tableName, (key, queryKeys) -> {
+                        queryKeys.remove(_queryKey);
+                        return queryKeys.isEmpty() ? null : queryKeys;
+                    });
+                }
+            }
+            final Long bytes = QueryCache.KEY2BYTES.remove(_queryKey);
+            if (bytes != null) {
+                QueryCache.BYTES.addAndGet(-bytes);
+            }
+        }
+
+        /**
+         * Reserve the bytes of the value stored for a key, replacing the
+         * bytes reserved for a former value of the key.
+         *
+         * @param _queryKey key stored in the cache
+         * @param _value value stored in the cache
+         */
+        private void reserveBytes(final QueryKey _queryKey,
+                                  final QueryValue _value)
+        {
+            final long bytes = _value == null ? 0 : _value.getByteSize();
+            final Long former = QueryCache.KEY2BYTES.put(_queryKey, bytes);
+            QueryCache.BYTES.addAndGet(bytes - (former == null ? 0 : former));
+        }
+    }
 }
@@ -0,0 +1,301 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.AbstractList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compact, read only storage for the rows of a query stored in the
+ * {@link QueryCache}. The rows are encoded into one length prefixed binary
+ * buffer that is allocated outside of the heap, so that a cached result does
+ * not consist of thousands of boxed values that are promoted to the old
+ * generation. A row is decoded only when it is accessed.
+ *
+ * @author The eFaps Team
+ */
+public final class QueryRows
+    extends AbstractList<Object[]>
+    implements Serializable
+{
+
+    /** Needed for serialization. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Logging instance used in this class.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(QueryRows.class);
+
+    /** Tag for <code>null</code>. */
+    private static final byte NULL = 0;
+    /** Tag for a Long. */
+    private static final byte LONG = 1;
+    /** Tag for an Integer. */
+    private static final byte INTEGER = 2;
+    /** Tag for a BigDecimal. */
+    private static final byte DECIMAL = 3;
+    /** Tag for a String. */
+    private static final byte STRING = 4;
+    /** Tag for a Timestamp. */
+    private static final byte TIMESTAMP = 5;
+    /** Tag for a Boolean. */
+    private static final byte BOOLEAN = 6;
+    /** Tag for a Double. */
+    private static final byte DOUBLE = 7;
+    /** Tag for any other serializable value. */
+    private static final byte SERIALIZED = 8;
+
+    /**
+     * Encoded rows.
+     */
+    private transient ByteBuffer data;
+
+    /**
+     * Start position of each row inside {@link #data}.
+     */
+    private int[] offsets;
+
+    /**
+     * @param _data encoded rows
+     * @param _offsets start position of each row
+     */
+    private QueryRows(final ByteBuffer _data,
+                      final int[] _offsets)
+    {
+        this.data = _data;
+        this.offsets = _offsets;
+    }
+
+    @Override
+    public Object[] get(final int _index)
+    {
+        final ByteBuffer buffer = this.data.asReadOnlyBuffer();
+        buffer.position(this.offsets[_index]);
+        final Object[] ret = new Object[buffer.getShort()];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = read(buffer);
+        }
+        return ret;
+    }
+
+    @Override
+    public int size()
+    {
+        return this.offsets.length;
+    }
+
+    /**
+     * @return the number of bytes used by the encoded rows
+     */
+    public long getByteSize()
+    {
+        return this.data.capacity() + 4L * this.offsets.length;
+    }
+
+    /**
+     * @param _buffer buffer positioned at the value to read
+     * @return the decoded value
+     */
+    private Object read(final ByteBuffer _buffer)
+    {
+        final Object ret;
+        final byte tag = _buffer.get();
+        switch (tag) {
+            case LONG:
+                ret = _buffer.getLong();
+                break;
+            case INTEGER:
+                ret = _buffer.getInt();
+                break;
+            case DECIMAL:
+                final int scale = _buffer.getInt();
+                ret = new BigDecimal(new BigInteger(readBytes(_buffer)), scale);
+                break;
+            case STRING:
+                ret = new String(readBytes(_buffer), StandardCharsets.UTF_8);
+                break;
+            case TIMESTAMP:
+                final Timestamp timestamp = new Timestamp(_buffer.getLong());
+                timestamp.setNanos(_buffer.getInt());
+                ret = timestamp;
+                break;
+            case BOOLEAN:
+                ret = _buffer.get() == 1;
+                break;
+            case DOUBLE:
+                ret = _buffer.getDouble();
+                break;
+            case SERIALIZED:
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(readBytes(_buffer)))) {
+                    ret = in.readObject();
+                } catch (final IOException | ClassNotFoundException e) {
+                    throw new IllegalStateException("Could not decode cached value", e);
+                }
+                break;
+            default:
+                ret = null;
+                break;
+        }
+        return ret;
+    }
+
+    /**
+     * @param _buffer buffer positioned at a length prefixed byte array
+     * @return the byte array
+     */
+    private byte[] readBytes(final ByteBuffer _buffer)
+    {
+        final byte[] ret = new byte[_buffer.getInt()];
+        _buffer.get(ret);
+        return ret;
+    }
+
+    /**
+     * @param _out stream to write to
+     * @throws IOException on error
+     */
+    private void writeObject(final ObjectOutputStream _out)
+        throws IOException
+    {
+        _out.defaultWriteObject();
+        final byte[] bytes = new byte[this.data.capacity()];
+        this.data.asReadOnlyBuffer().rewind().get(bytes);
+        _out.writeInt(bytes.length);
+        _out.write(bytes);
+    }
+
+    /**
+     * @param _in stream to read from
+     * @throws IOException on error
+     * @throws ClassNotFoundException on error
+     */
+    private void readObject(final ObjectInputStream _in)
+        throws IOException, ClassNotFoundException
+    {
+        _in.defaultReadObject();
+        final byte[] bytes = new byte[_in.readInt()];
+        _in.readFully(bytes);
+        this.data = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+    }
+
+    /**
+     * Encode the given rows.
+     *
+     * @param _rows rows to be encoded
+     * @return the encoded rows, <code>null</code> if one of the values can
+     *         not be encoded
+     */
+    public static QueryRows encode(final List<Object[]> _rows)
+    {
+        QueryRows ret = null;
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            final int[] offsets = new int[_rows.size()];
+            int idx = 0;
+            for (final Object[] row : _rows) {
+                offsets[idx++] = out.size();
+                out.writeShort(row.length);
+                for (final Object value : row) {
+                    write(out, value);
+                }
+            }
+            out.flush();
+            final ByteBuffer data = ByteBuffer.allocateDirect(out.size()).put(bytes.toByteArray());
+            ret = new QueryRows(data, offsets);
+        } catch (final IOException e) {
+            LOG.debug("Rows could not be encoded, caching them as they are", e);
+        }
+        return ret;
+    }
+
+    /**
+     * @param _out stream to write to
+     * @param _value value to encode
+     * @throws IOException if the value can not be encoded
+     */
+    private static void write(final DataOutputStream _out,
+                              final Object _value)
+        throws IOException
+    {
+        if (_value == null) {
+            _out.writeByte(NULL);
+        } else if (_value instanceof Long) {
+            _out.writeByte(LONG);
+            _out.writeLong((Long) _value);
+        } else if (_value instanceof Integer) {
+            _out.writeByte(INTEGER);
+            _out.writeInt((Integer) _value);
+        } else if (_value instanceof BigDecimal) {
+            final BigDecimal decimal = (BigDecimal) _value;
+            _out.writeByte(DECIMAL);
+            _out.writeInt(decimal.scale());
+            writeBytes(_out, decimal.unscaledValue().toByteArray());
+        } else if (_value instanceof String) {
+            _out.writeByte(STRING);
+            writeBytes(_out, ((String) _value).getBytes(StandardCharsets.UTF_8));
+        } else if (_value.getClass().equals(Timestamp.class)) {
+            final Timestamp timestamp = (Timestamp) _value;
+            _out.writeByte(TIMESTAMP);
+            _out.writeLong(timestamp.getTime());
+            _out.writeInt(timestamp.getNanos());
+        } else if (_value instanceof Boolean) {
+            _out.writeByte(BOOLEAN);
+            _out.writeByte((Boolean) _value ? 1 : 0);
+        } else if (_value instanceof Double) {
+            _out.writeByte(DOUBLE);
+            _out.writeDouble((Double) _value);
+        } else if (_value instanceof Serializable) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objOut = new ObjectOutputStream(bytes)) {
+                objOut.writeObject(_value);
+            }
+            _out.writeByte(SERIALIZED);
+            writeBytes(_out, bytes.toByteArray());
+        } else {
+            throw new IOException("Value of class " + _value.getClass() + " can not be encoded");
+        }
+    }
+
+    /**
+     * @param _out stream to write to
+     * @param _bytes bytes to be written length prefixed
+     * @throws IOException on error
+     */
+    private static void writeBytes(final DataOutputStream _out,
+                                   final byte[] _bytes)
+        throws IOException
+    {
+        _out.writeInt(_bytes.length);
+        _out.write(_bytes);
+    }
+}
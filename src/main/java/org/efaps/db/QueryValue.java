@@ -16,19 +16,16 @@
 package org.efaps.db;
 
 import java.io.Serializable;
+import java.util.List;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
-import org.hibernate.search.mapper.pojo.mapping.definition.annotation.Indexed;
-import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordField;
 
-@Indexed
 public class QueryValue
     implements Serializable
 {
 
     private static final long serialVersionUID = 1L;
-    @KeywordField
     private final String key;
     private final Object content;
 
@@ -49,6 +46,15 @@ public class QueryValue
         return content;
     }
 
+    /**
+     * @return the number of bytes used by the content if it is stored
+     *         compact, else 0
+     */
+    public long getByteSize()
+    {
+        return content instanceof QueryRows ? ((QueryRows) content).getByteSize() : 0;
+    }
+
     @Override
     public String toString()
     {
@@ -56,13 +62,25 @@ public class QueryValue
     }
 
     /**
+     * Rows of a query (a list of object arrays) are stored as
+     * {@link QueryRows}.
+     *
      * @param _key key
-     * @param _sql sql
-     * @return new QueryKey
+     * @param _content content
+     * @return new QueryValue
      */
+    @SuppressWarnings("unchecked")
     public static QueryValue get(final String _key,
-                                 final Object content)
+                                 final Object _content)
     {
+        Object content = _content;
+        if (_content instanceof List && !(_content instanceof QueryRows)
+                        && ((List<?>) _content).stream().allMatch(Object[].class::isInstance)) {
+            final QueryRows rows = QueryRows.encode((List<Object[]>) _content);
+            if (rows != null) {
+                content = rows;
+            }
+        }
         return new QueryValue(_key, content);
     }
 }
@@ -1027,6 +1027,30 @@ public abstract class AbstractDatabase<T extends AbstractDatabase<?>>
         return -1;
     }
 
+    /**
+     * The fetch size handed to the JDBC driver for a forward only cursor
+     * that streams a result in chunks.
+     *
+     * @param _chunkSize size of the chunks the rows are consumed in
+     * @return fetch size for the statement
+     */
+    public int getStreamFetchSize(final int _chunkSize)
+    {
+        return _chunkSize;
+    }
+
+    /**
+     * SQL type of the elements of an array used to bind a list of ids as one
+     * parameter (<code>ID = ANY(?)</code>). If <code>null</code> the ids are
+     * written into an IN clause.
+     *
+     * @return always <code>null</code> because not supported in this class
+     */
+    public String getIdArrayType()
+    {
+        return null;
+    }
+
     /**
      * A new id for given column of a SQL table is returned (e.g. with
      * sequences). This abstract class always throws a SQLException, because for
@@ -1048,6 +1072,32 @@ public abstract class AbstractDatabase<T extends AbstractDatabase<?>>
         throw new SQLException("method 'getNewId' not imlemented");
     }
 
+    /**
+     * A range of new ids for given column of a SQL table is returned (e.g.
+     * with sequences). Used to pre allocate the ids for batch inserts. The
+     * default implementation calls {@link #getNewId} for each id, a database
+     * implementation should overwrite it to retrieve the ids in one round trip.
+     *
+     * @param _con sql connection
+     * @param _table sql table for which the new ids must returned
+     * @param _column sql table column for which the new ids must returned
+     * @param _count number of ids
+     * @return array of new ids
+     * @throws SQLException if the ids could not be retrieved
+     */
+    public long[] getNewIds(final ConnectionResource _con,
+                            final String _table,
+                            final String _column,
+                            final int _count)
+        throws SQLException
+    {
+        final long[] ret = new long[_count];
+        for (int i = 0; i < _count; i++) {
+            ret[i] = getNewId(_con, _table, _column);
+        }
+        return ret;
+    }
+
     /**
      * The method returns if a database implementation supports to get generated
      * keys while inserting a new line in a SQL table.
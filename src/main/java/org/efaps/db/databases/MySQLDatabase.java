@@ -659,6 +659,19 @@ public class MySQLDatabase
         return ret;
     }
 
+    /**
+     * MySQL only streams the rows of a result if the fetch size is set to
+     * {@link Integer#MIN_VALUE}.
+     *
+     * @param _chunkSize size of the chunks the rows are consumed in
+     * @return {@link Integer#MIN_VALUE}
+     */
+    @Override
+    public int getStreamFetchSize(final int _chunkSize)
+    {
+        return Integer.MIN_VALUE;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -413,6 +413,47 @@ public class OracleDatabase
         return ret;
     }
 
+    /**
+     * The new ids are retrieved in one statement by selecting the sequence
+     * for the wanted number of rows.
+     *
+     * @param _con      sql connection
+     * @param _table    sql table for which the new ids must returned
+     * @param _column   sql table column for which the new ids must returned
+     * @param _count    number of ids
+     * @throws SQLException if the new ids could not be retrieved
+     * @return array of new ids
+     */
+    @Override
+    public long[] getNewIds(final ConnectionResource _con,
+                            final String _table,
+                            final String _column,
+                            final int _count)
+        throws SQLException
+    {
+        final long[] ret = new long[_count];
+        final Statement stmt = _con.createStatement();
+        try  {
+            final StringBuilder cmd = new StringBuilder()
+                .append("select ").append(_table).append("_SEQ.nextval from DUAL connect by level <= ")
+                .append(_count);
+
+            final ResultSet rs = stmt.executeQuery(cmd.toString());
+            int idx = 0;
+            while (rs.next() && idx < _count)  {
+                ret[idx] = rs.getLong(1);
+                idx++;
+            }
+            rs.close();
+            if (idx < _count) {
+                throw new SQLException("Could not retrieve " + _count + " ids for table '" + _table + "'");
+            }
+        } finally  {
+            stmt.close();
+        }
+        return ret;
+    }
+
     /**
      * {@inheritDoc}
      */
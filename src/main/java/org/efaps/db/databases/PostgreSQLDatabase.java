@@ -417,6 +417,47 @@ public class PostgreSQLDatabase
         return ret;
     }
 
+    /**
+     * The new ids are retrieved in one statement by calling the sequence for
+     * each row of a generated series.
+     *
+     * @param _con      sql connection
+     * @param _table    sql table for which the new ids must returned
+     * @param _column   sql table column for which the new ids must returned
+     * @param _count    number of ids
+     * @throws SQLException if the new ids could not be retrieved
+     * @return array of new ids
+     */
+    @Override
+    public long[] getNewIds(final ConnectionResource _con,
+                            final String _table,
+                            final String _column,
+                            final int _count)
+        throws SQLException
+    {
+        final long[] ret = new long[_count];
+        final Statement stmt = _con.createStatement();
+        try {
+            final StringBuilder cmd = new StringBuilder();
+            cmd.append("select nextval('").append(_table).append("_").append(_column).append("_SEQ')")
+                .append(" from generate_series(1,").append(_count).append(")");
+
+            final ResultSet rs = stmt.executeQuery(cmd.toString());
+            int idx = 0;
+            while (rs.next() && idx < _count) {
+                ret[idx] = rs.getLong(1);
+                idx++;
+            }
+            rs.close();
+            if (idx < _count) {
+                throw new SQLException("Could not retrieve " + _count + " ids for table '" + _table + "'");
+            }
+        } finally {
+            stmt.close();
+        }
+        return ret;
+    }
+
     /**
      * @return always <i>true</i> because supported by PostgreSQL database
      */
@@ -426,6 +467,16 @@ public class PostgreSQLDatabase
         return true;
     }
 
+    /**
+     * @return always <i>int8</i> because arrays are supported by PostgreSQL
+     *         database
+     */
+    @Override
+    public String getIdArrayType()
+    {
+        return "int8";
+    }
+
     /**
      * <p>Creates sequence <code>_name</code> in PostgreSQL. As name of the
      * sequence the lower case of <code>_name</code> is used.</p>
@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.db.stmt;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.efaps.admin.event.EventType;
+import org.efaps.db.Instance;
+import org.efaps.db.stmt.runner.StmtRunner;
+import org.efaps.db.stmt.update.BatchInsert;
+import org.efaps.db.stmt.update.Insert;
+import org.efaps.eql2.IInsertStatement;
+import org.efaps.eql2.StmtFlag;
+import org.efaps.util.EFapsException;
+
+/**
+ * Executes a set of insert statements together. The rows are written using
+ * JDBC batches, the triggers are still executed for every single insert.
+ */
+public final class BatchInsertStmt
+{
+
+    /** The insert statements. */
+    private final List<InsertStmt> insertStmts = new ArrayList<>();
+
+    /**
+     * Instantiates a new batch insert stmt.
+     */
+    private BatchInsertStmt()
+    {
+    }
+
+    /**
+     * Execute.
+     *
+     * @return the created instances in the order of the statements
+     * @throws EFapsException the e faps exception
+     */
+    public List<Instance> execute()
+        throws EFapsException
+    {
+        final List<Insert> inserts = new ArrayList<>();
+        final List<Insert> batch = new ArrayList<>();
+        final List<Insert> triggered = new ArrayList<>();
+        for (final InsertStmt insertStmt : insertStmts) {
+            final Insert insert = new Insert((IInsertStatement) insertStmt.getEQLStmt());
+            inserts.add(insert);
+            if (insertStmt.has(StmtFlag.TRIGGEROFF)) {
+                batch.add(insert);
+            } else {
+                triggered.add(insert);
+                insert.executeEvents(EventType.INSERT_PRE);
+                if (!insert.executeEvents(EventType.INSERT_OVERRIDE)) {
+                    batch.add(insert);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            StmtRunner.get().execute(new BatchInsert(batch));
+        }
+        for (final Insert insert : triggered) {
+            insert.executeEvents(EventType.INSERT_POST);
+        }
+        final List<Instance> ret = new ArrayList<>();
+        for (final Insert insert : inserts) {
+            ret.add(insert.getInstance());
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the.
+     *
+     * @param _insertStmts the insert stmts
+     * @return the batch insert stmt
+     */
+    public static BatchInsertStmt get(final Collection<InsertStmt> _insertStmts)
+    {
+        final BatchInsertStmt ret = new BatchInsertStmt();
+        ret.insertStmts.addAll(_insertStmts);
+        return ret;
+    }
+}
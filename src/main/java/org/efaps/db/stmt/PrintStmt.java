@@ -41,11 +41,17 @@ public final class PrintStmt
     extends AbstractStmt
 {
 
+    /** Default size of the chunks for a streamed print. */
+    public static final int DEFAULT_CHUNKSIZE = 500;
+
     /** The print. */
     private AbstractPrint print;
 
     private EvalHelper helper;
 
+    /** Size of the chunks the result is streamed in, 0 if not streamed. */
+    private int chunkSize;
+
     /**
      * Instantiates a new prints the stmt.
      */
@@ -75,10 +81,40 @@ public final class PrintStmt
         } else if (getEQLStmt() instanceof IPrintQueryStatement) {
             print = new QueryPrint((IPrintQueryStatement) getEQLStmt(), getFlags());
         }
+        print.setChunkSize(chunkSize);
         StmtRunner.get().execute(print);
         return this;
     }
 
+    /**
+     * Stream the result using the default chunk size.
+     *
+     * @return the prints the stmt
+     * @see #stream(int)
+     */
+    public PrintStmt stream()
+    {
+        return stream(DEFAULT_CHUNKSIZE);
+    }
+
+    /**
+     * Stream the result instead of reading it completely into memory. The
+     * rows are read with a forward only cursor and handed to the
+     * Evaluator in chunks of the given size, access is evaluated per chunk.
+     * Statements that must see the complete result (e.g. linkfrom selects
+     * or esjp selects) fall back to the normal mode. The Evaluator must be
+     * consumed within the current transaction and closed afterwards, e.g.
+     * by using {@link #evaluate(IEvaluation)}.
+     *
+     * @param _chunkSize the chunk size
+     * @return the prints the stmt
+     */
+    public PrintStmt stream(final int _chunkSize)
+    {
+        chunkSize = _chunkSize;
+        return this;
+    }
+
     /**
      * Evaluator.
      *
@@ -94,6 +130,25 @@ public final class PrintStmt
         return Evaluator.get(print, helper);
     }
 
+    /**
+     * Evaluate the statement and hand the Evaluator to the given
+     * evaluation. The Evaluator, and with it the cursor of a streamed
+     * print, is closed afterwards, also if the evaluation did not read
+     * all rows or failed.
+     *
+     * @param <T> the type of the result
+     * @param _evaluation the evaluation
+     * @return the result of the evaluation
+     * @throws EFapsException the eFaps exception
+     */
+    public <T> T evaluate(final IEvaluation<T> _evaluation)
+        throws EFapsException
+    {
+        try (Evaluator evaluator = evaluate()) {
+            return _evaluation.evaluate(evaluator);
+        }
+    }
+
     public String asString()
     {
         final StringBuilder ret = new StringBuilder();
@@ -121,4 +176,24 @@ public final class PrintStmt
         ret.setHelper(_helper);
         return ret;
     }
+
+    /**
+     * Evaluation of the rows of a PrintStmt.
+     *
+     * @param <T> the type of the result
+     */
+    @FunctionalInterface
+    public interface IEvaluation<T>
+    {
+
+        /**
+         * Evaluate the rows.
+         *
+         * @param _evaluator the evaluator
+         * @return the result
+         * @throws EFapsException on error
+         */
+        T evaluate(Evaluator _evaluator)
+            throws EFapsException;
+    }
 }
@@ -283,6 +283,7 @@ public class Filter
                                 .comparison(_element.getComparison())
                                 .values(new LinkedHashSet<>(values))
                                 .escape(!noEscape)
+                                .attrType(attrType)
                                 .connection(Connection.OR));
                 group.add(new Criteria()
                                 .tableIndex(_tableIdx.getIdx())
@@ -292,7 +293,8 @@ public class Filter
                 _sqlSelect.getWhere().section(group);
             } else {
                 _sqlSelect.getWhere().addCriteria(_tableIdx.getIdx(), _attr.getSqlColNames(), _element.getComparison(),
-                                new LinkedHashSet<>(values), !noEscape, _term.getConnection());
+                                new LinkedHashSet<>(values), !noEscape, _term.getConnection())
+                    .attrType(attrType);
             }
         }
     }
@@ -21,6 +21,7 @@ import java.util.Set;
 
 import org.efaps.admin.datamodel.Type;
 import org.efaps.db.stmt.runner.AbstractRunnable;
+import org.efaps.db.stmt.selection.IRowCursor;
 import org.efaps.db.stmt.selection.ISelectionProvider;
 import org.efaps.db.stmt.selection.IStmtProvider;
 import org.efaps.db.stmt.selection.Selection;
@@ -43,6 +44,12 @@ public abstract class AbstractPrint
     /** The types. */
     private final Set<Type> types = new LinkedHashSet<>();
 
+    /** Size of the chunks the result is streamed in, 0 if not streamed. */
+    private int chunkSize;
+
+    /** The cursor. */
+    private IRowCursor cursor;
+
     public AbstractPrint(final EnumSet<StmtFlag> _flags)
     {
         super(_flags);
@@ -91,4 +98,50 @@ public abstract class AbstractPrint
     {
         return types;
     }
+
+    /**
+     * Gets the size of the chunks the result is streamed in.
+     *
+     * @return the chunk size, 0 if not streamed
+     */
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the size of the chunks the result is streamed in.
+     *
+     * @param _chunkSize the chunk size, 0 to deactivate streaming
+     */
+    public void setChunkSize(final int _chunkSize)
+    {
+        chunkSize = _chunkSize;
+    }
+
+    /**
+     * Checks if the result is streamed.
+     *
+     * @return true, if streamed
+     */
+    public boolean isStreamed()
+    {
+        return chunkSize > 0;
+    }
+
+    @Override
+    public IRowCursor getCursor()
+    {
+        return cursor;
+    }
+
+    /**
+     * Sets the cursor.
+     *
+     * @param _cursor the new cursor
+     */
+    public void setCursor(final IRowCursor _cursor)
+    {
+        cursor = _cursor;
+    }
 }
@@ -0,0 +1,264 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.db.stmt.runner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.commons.collections4.map.LRUMap;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.efaps.admin.EFapsSystemConfiguration;
+import org.efaps.admin.KernelSettings;
+import org.efaps.admin.common.SystemConfiguration;
+import org.efaps.admin.datamodel.Type;
+import org.efaps.db.stmt.filter.TypeCriterion;
+import org.efaps.db.stmt.print.AbstractPrint;
+import org.efaps.db.stmt.selection.Select;
+import org.efaps.db.stmt.selection.elements.AbstractDataElement;
+import org.efaps.db.stmt.selection.elements.AbstractElement;
+import org.efaps.db.wrapper.SQLSelect;
+import org.efaps.eql2.ILimit;
+import org.efaps.eql2.IOffset;
+import org.efaps.eql2.IOrder;
+import org.efaps.eql2.IOrderElement;
+import org.efaps.eql2.IPageable;
+import org.efaps.eql2.IPrintQueryStatement;
+import org.efaps.eql2.IPrintStatement;
+import org.efaps.eql2.ISelect;
+import org.efaps.util.EFapsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The prepared columns, tables and joins of a print together with the column
+ * layout of its selection. A print with the same selects, types, order and
+ * paging can be prepared from the plan, so that only the where clause must
+ * be added. The plans are cleared with the cache of the types.
+ *
+ * @author The eFaps Team
+ */
+public final class PrintPlan
+{
+
+    /** The Constant LOG. */
+    private static final Logger LOG = LoggerFactory.getLogger(PrintPlan.class);
+
+    /** Default for the number of cached plans. */
+    private static final int DEFAULT_SIZE = 500;
+
+    /** The plans, <code>null</code> if deactivated. */
+    private static Map<String, PrintPlan> PLANS;
+
+    /** Was the map of plans initialized. */
+    private static boolean INITIALIZED;
+
+    /** The prepared select without where clause. */
+    private final SQLSelect sqlSelect;
+
+    /** The type criteria collected from the selection. */
+    private final Set<TypeCriterion> typeCriteria;
+
+    /** The column indexes of the data elements in the order of the selection. */
+    private final List<int[]> layout;
+
+    /**
+     * Instantiates a new prints the plan.
+     *
+     * @param _sqlSelect the sql select
+     * @param _typeCriteria the type criteria
+     * @param _layout the layout
+     */
+    private PrintPlan(final SQLSelect _sqlSelect,
+                      final Set<TypeCriterion> _typeCriteria,
+                      final List<int[]> _layout)
+    {
+        sqlSelect = _sqlSelect;
+        typeCriteria = _typeCriteria;
+        layout = _layout;
+    }
+
+    /**
+     * Restore the column layout of the selection of the given print and get
+     * a new select prepared from this plan. The plan itself is never changed,
+     * the select is a copy including copies of the joins, their where clauses
+     * and type criteria, so that plans can be applied concurrently.
+     *
+     * @param _print the print
+     * @return the prepared select
+     */
+    public SQLSelect apply(final AbstractPrint _print)
+    {
+        int idx = 0;
+        for (final AbstractDataElement<?> element : getDataElements(_print)) {
+            element.setColumnIdxs(layout.get(idx));
+            idx++;
+        }
+        return sqlSelect.getPlanCopy();
+    }
+
+    /**
+     * Gets the type criteria.
+     *
+     * @return a copy of the type criteria
+     */
+    public Set<TypeCriterion> getTypeCriteria()
+    {
+        return new HashSet<>(typeCriteria);
+    }
+
+    /**
+     * Gets the plan for the given print.
+     *
+     * @param _print the print
+     * @return the plan, <code>null</code> if not found
+     * @throws EFapsException on error
+     */
+    public static PrintPlan get(final AbstractPrint _print)
+        throws EFapsException
+    {
+        PrintPlan ret = null;
+        final Map<String, PrintPlan> plans = getPlans();
+        if (plans != null && _print.getSelection().isPlanable()) {
+            ret = plans.get(getKey(_print));
+        }
+        return ret;
+    }
+
+    /**
+     * Register a plan for the given print. Must be called after the selection
+     * was appended to the select and before the where clause is added.
+     *
+     * @param _print the print
+     * @param _sqlSelect the sql select
+     * @param _typeCriteria the type criteria
+     * @throws EFapsException on error
+     */
+    public static void register(final AbstractPrint _print,
+                                final SQLSelect _sqlSelect,
+                                final Set<TypeCriterion> _typeCriteria)
+        throws EFapsException
+    {
+        final Map<String, PrintPlan> plans = getPlans();
+        if (plans != null && _print.getSelection().isPlanable()) {
+            final List<int[]> layout = new ArrayList<>();
+            for (final AbstractDataElement<?> element : getDataElements(_print)) {
+                layout.add(element.getColumnIdxs());
+            }
+            final String key = getKey(_print);
+            LOG.debug("Registering plan for: {}", key);
+            plans.put(key, new PrintPlan(_sqlSelect.getPlanCopy(), new HashSet<>(_typeCriteria), layout));
+        }
+    }
+
+    /**
+     * Remove all plans.
+     */
+    public static void clear()
+    {
+        synchronized (PrintPlan.class) {
+            PLANS = null;
+            INITIALIZED = false;
+        }
+    }
+
+    /**
+     * Gets the plans.
+     *
+     * @return the plans, <code>null</code> if deactivated
+     * @throws EFapsException on error
+     */
+    private static Map<String, PrintPlan> getPlans()
+        throws EFapsException
+    {
+        synchronized (PrintPlan.class) {
+            if (!INITIALIZED) {
+                int size = DEFAULT_SIZE;
+                final SystemConfiguration config = EFapsSystemConfiguration.get();
+                if (config != null) {
+                    size = NumberUtils.toInt(config.getAttributeValue(KernelSettings.PRINTPLANCACHESIZE),
+                                    DEFAULT_SIZE);
+                }
+                PLANS = size > 0 ? Collections.synchronizedMap(new LRUMap<>(size)) : null;
+                INITIALIZED = true;
+            }
+            return PLANS;
+        }
+    }
+
+    /**
+     * Gets the data elements of the selection in a stable order.
+     *
+     * @param _print the print
+     * @return the data elements
+     */
+    private static List<AbstractDataElement<?>> getDataElements(final AbstractPrint _print)
+    {
+        final List<AbstractDataElement<?>> ret = new ArrayList<>();
+        for (final Select select : _print.getSelection().getAllSelects()) {
+            for (final AbstractElement<?> element : select.getElements()) {
+                if (element instanceof AbstractDataElement) {
+                    ret.add((AbstractDataElement<?>) element);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the key for the print consisting of the kind of print, the types,
+     * the selects, the order and the paging.
+     *
+     * @param _print the print
+     * @return the key
+     */
+    private static String getKey(final AbstractPrint _print)
+    {
+        final StringBuilder ret = new StringBuilder().append(_print.getClass().getSimpleName());
+        ret.append(_print.getTypes().stream()
+                        .map(Type::getId)
+                        .sorted()
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(",", "[", "]")));
+        final IPrintStatement<?> stmt = (IPrintStatement<?>) _print.getStmt();
+        for (final ISelect select : stmt.getSelection().getSelects()) {
+            ret.append(" ").append(select.eqlStmt()).append(" as ").append(select.getAlias());
+        }
+        if (_print.getStmt() instanceof IPrintQueryStatement) {
+            final IOrder order = ((IPrintQueryStatement) _print.getStmt()).getOrder();
+            if (order != null) {
+                for (final IOrderElement orderElement : order.getElementsList()) {
+                    ret.append(" order ").append(orderElement.getKey()).append(orderElement.isDesc());
+                }
+            }
+        }
+        if (_print.getStmt() instanceof IPageable) {
+            final ILimit limit = ((IPageable<?>) _print.getStmt()).getQuery().getLimit();
+            final IOffset offset = ((IPageable<?>) _print.getStmt()).getQuery().getOffset();
+            if (limit != null) {
+                ret.append(" limit ").append(limit.getValue());
+            }
+            if (offset != null) {
+                ret.append(" offset ").append(offset.getValue());
+            }
+        }
+        return ret.toString();
+    }
+}
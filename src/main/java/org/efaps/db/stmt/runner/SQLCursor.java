@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.db.stmt.runner;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+
+import org.apache.commons.dbutils.RowProcessor;
+import org.efaps.db.stmt.selection.IRowCursor;
+import org.efaps.db.stmt.selection.Select;
+import org.efaps.util.EFapsException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cursor on an open JDBC ResultSet. The rows are converted with the
+ * RowProcessor of the current database and handed directly to the selects,
+ * without materializing the complete result.
+ *
+ * @author The eFaps Team
+ */
+public class SQLCursor
+    implements IRowCursor
+{
+
+    /** The Constant LOG. */
+    private static final Logger LOG = LoggerFactory.getLogger(SQLCursor.class);
+
+    /** The statement. */
+    private final Statement stmt;
+
+    /** The result set. */
+    private final ResultSet resultSet;
+
+    /** The row processor. */
+    private final RowProcessor rowProcessor;
+
+    /** Maximum number of rows read per fetch. */
+    private final int chunkSize;
+
+    /** Is the cursor closed. */
+    private boolean closed;
+
+    /**
+     * Instantiates a new SQL cursor.
+     *
+     * @param _stmt the statement
+     * @param _resultSet the result set
+     * @param _rowProcessor the row processor
+     * @param _chunkSize maximum number of rows read per fetch
+     */
+    public SQLCursor(final Statement _stmt,
+                     final ResultSet _resultSet,
+                     final RowProcessor _rowProcessor,
+                     final int _chunkSize)
+    {
+        stmt = _stmt;
+        resultSet = _resultSet;
+        rowProcessor = _rowProcessor;
+        chunkSize = _chunkSize;
+    }
+
+    @Override
+    public boolean fetch(final Collection<Select> _selects)
+        throws EFapsException
+    {
+        int count = 0;
+        if (!closed) {
+            try {
+                while (count < chunkSize && resultSet.next()) {
+                    final Object[] row = rowProcessor.toArray(resultSet);
+                    for (final Select select : _selects) {
+                        select.addObject(row);
+                    }
+                    count++;
+                }
+                if (count < chunkSize) {
+                    close();
+                }
+            } catch (final SQLException e) {
+                close();
+                throw new EFapsException(SQLCursor.class, "fetch", e);
+            }
+        }
+        return count > 0;
+    }
+
+    @Override
+    public void close()
+    {
+        if (!closed) {
+            closed = true;
+            try {
+                resultSet.close();
+                stmt.close();
+            } catch (final SQLException e) {
+                LOG.error("Could not close cursor", e);
+            }
+        }
+    }
+
+    @Override
+    public boolean isClosed()
+    {
+        return closed;
+    }
+}
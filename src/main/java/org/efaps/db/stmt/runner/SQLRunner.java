@@ -15,6 +15,8 @@
  */
 package org.efaps.db.stmt.runner;
 
+import java.sql.Array;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -34,8 +36,11 @@ import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.apache.commons.dbutils.handlers.ArrayListHandler;
+import org.efaps.admin.EFapsSystemConfiguration;
+import org.efaps.admin.KernelSettings;
 import org.efaps.admin.access.user.AccessCache;
 import org.efaps.admin.common.Association;
+import org.efaps.admin.common.SystemConfiguration;
 import org.efaps.admin.datamodel.Attribute;
 import org.efaps.admin.datamodel.AttributeType;
 import org.efaps.admin.datamodel.SQLTable;
@@ -65,6 +70,7 @@ import org.efaps.db.stmt.selection.elements.IOrderable;
 import org.efaps.db.stmt.selection.elements.ITypeCriterion;
 import org.efaps.db.stmt.update.AbstractObjectUpdate;
 import org.efaps.db.stmt.update.AbstractUpdate;
+import org.efaps.db.stmt.update.BatchInsert;
 import org.efaps.db.stmt.update.Insert;
 import org.efaps.db.stmt.update.ListUpdate;
 import org.efaps.db.stmt.update.ObjectUpdate;
@@ -109,6 +115,9 @@ public class SQLRunner
     /** The Constant LOG. */
     private static final Logger LOG = LoggerFactory.getLogger(SQLRunner.class);
 
+    /** Default for the number of prepared statements cached per connection. */
+    private static final int DEFAULT_STMTCACHESIZE = 50;
+
     /** The print. */
     private IRunnable runnable;
 
@@ -118,6 +127,12 @@ public class SQLRunner
     /** The updatemap. */
     private final Map<SQLTable, AbstractSQLInsertUpdate<?>> updatemap = new LinkedHashMap<>();
 
+    /** The updatemaps for each type of a list update. */
+    private final List<Map<SQLTable, AbstractSQLInsertUpdate<?>>> typeUpdatemaps = new ArrayList<>();
+
+    /** The updatemaps for each insert of a batch. */
+    private final Map<Insert, Map<SQLTable, AbstractSQLInsertUpdate<?>>> batchmap = new LinkedHashMap<>();
+
     @Override
     public void prepare(final IRunnable _runnable)
         throws EFapsException
@@ -128,7 +143,9 @@ public class SQLRunner
         if (isPrint()) {
             preparePrint((AbstractPrint) _runnable);
         } else if (isInsert()) {
-            prepareInsert();
+            prepareInsert((Insert) runnable);
+        } else if (isBatchInsert()) {
+            prepareBatchInsert();
         } else if (isDelete()){
             prepareDelete();
         } else {
@@ -147,28 +164,39 @@ public class SQLRunner
     {
         if (runnable instanceof ObjectUpdate) {
             final ObjectUpdate update = (ObjectUpdate) runnable;
-            prepareUpdate(update.getInstance().getType(), update.getInstance());
+            prepareUpdate(update, update.getInstance().getType(), update.getInstance());
         } else if (runnable instanceof ListUpdate) {
             final ListUpdate update = (ListUpdate) runnable;
             final Map<Type, List<Instance>> types = update.getInstances().stream()
                 .collect(Collectors.groupingBy(Instance::getType));
             for (final Entry<Type, List<Instance>> entry : types.entrySet()) {
-                prepareUpdate(entry.getKey(), entry.getValue().stream().toArray(Instance[]::new));
+                prepareUpdate(update, entry.getKey(), entry.getValue().stream().toArray(Instance[]::new));
+                typeUpdatemaps.add(new LinkedHashMap<>(updatemap));
+                updatemap.clear();
             }
         }
     }
 
-    private void prepareInsert()
+    private void prepareInsert(final Insert _insert)
         throws EFapsException
     {
-        final Insert insert = (Insert) runnable;
-        final Type type = insert.getType();
+        final Type type = _insert.getType();
         final SQLTable mainTable = type.getMainTable();
         getSQLInsert(mainTable);
-        prepareUpdate(type);
+        prepareUpdate(_insert, type);
+    }
+
+    private void prepareBatchInsert()
+        throws EFapsException
+    {
+        for (final Insert insert : ((BatchInsert) runnable).getInserts()) {
+            prepareInsert(insert);
+            batchmap.put(insert, new LinkedHashMap<>(updatemap));
+            updatemap.clear();
+        }
     }
 
-    private void prepareUpdate(final Type _type, final Instance... _instances)
+    private void prepareUpdate(final AbstractUpdate _update, final Type _type, final Instance... _instances)
         throws EFapsException
     {
         final Iterator<?> iter = _type.getAttributes().entrySet().iterator();
@@ -192,7 +220,7 @@ public class SQLRunner
             }
         }
 
-        final IUpdateElementsStmt<?> eqlStmt = ((AbstractUpdate) runnable).getEqlStmt();
+        final IUpdateElementsStmt<?> eqlStmt = _update.getEqlStmt();
         for (final IUpdateElement element : eqlStmt.getUpdateElements()) {
             final Attribute attr = _type.getAttribute(element.getAttribute());
             final SQLTable sqlTable = attr.getTable();
@@ -274,43 +302,51 @@ public class SQLRunner
             offset = ((IPageable<?>) stmt).getQuery().getOffset();
         }
 
-        final Set<TypeCriterion> typeCriteria = new HashSet<>();
-        int idx = 1;
-        for (final Select select : _print.getSelection().getAllSelects()) {
-            for (final AbstractElement<?> element : select.getElements()) {
-                if (element instanceof AbstractDataElement) {
-                    ((AbstractDataElement<?>) element).append2SQLSelect(sqlSelect);
-                }
-                if (element instanceof ITypeCriterion) {
-                    ((ITypeCriterion) element).add2TypeCriteria(sqlSelect, typeCriteria);
+        final PrintPlan plan = PrintPlan.get(_print);
+        final Set<TypeCriterion> typeCriteria;
+        if (plan == null) {
+            typeCriteria = new HashSet<>();
+            int idx = 1;
+            for (final Select select : _print.getSelection().getAllSelects()) {
+                for (final AbstractElement<?> element : select.getElements()) {
+                    if (element instanceof AbstractDataElement) {
+                        ((AbstractDataElement<?>) element).append2SQLSelect(sqlSelect);
+                    }
+                    if (element instanceof ITypeCriterion) {
+                        ((ITypeCriterion) element).add2TypeCriteria(sqlSelect, typeCriteria);
+                    }
                 }
-            }
 
-            if (order != null) {
-                int orderIdx = 0;
-                for (final IOrderElement orderElement: order.getElementsList()) {
-                    if (orderElement.getKey().equals(select.getAlias()) || orderElement.getKey().equals(String.valueOf(idx))) {
-                        final List<AbstractElement<?>> orderables = select.getElements().stream()
-                                        .filter(element -> element instanceof IOrderable)
-                                        .collect(Collectors.toList());
-                        if (orderables.isEmpty()) {
-                            LOG.warn("Cannot add order for Key: {}", orderElement);
-                        } else {
-                            ((IOrderable) orderables.get(orderables.size() - 1)).append2SQLOrder(orderIdx, sqlSelect.getOrder(),
-                                            orderElement.isDesc());
+                if (order != null) {
+                    int orderIdx = 0;
+                    for (final IOrderElement orderElement: order.getElementsList()) {
+                        if (orderElement.getKey().equals(select.getAlias()) || orderElement.getKey().equals(String.valueOf(idx))) {
+                            final List<AbstractElement<?>> orderables = select.getElements().stream()
+                                            .filter(element -> element instanceof IOrderable)
+                                            .collect(Collectors.toList());
+                            if (orderables.isEmpty()) {
+                                LOG.warn("Cannot add order for Key: {}", orderElement);
+                            } else {
+                                ((IOrderable) orderables.get(orderables.size() - 1)).append2SQLOrder(orderIdx, sqlSelect.getOrder(),
+                                                orderElement.isDesc());
+                            }
+                            break;
                         }
-                        break;
+                        orderIdx++;
                     }
-                    orderIdx++;
                 }
+                if (limit != null) {
+                    sqlSelect.limit(Integer.valueOf(limit.getValue()));
+                }
+                if (offset != null) {
+                    sqlSelect.offset(Integer.valueOf(offset.getValue()));
+                }
+                idx++;
             }
-            if (limit != null) {
-                sqlSelect.limit(Integer.valueOf(limit.getValue()));
-            }
-            if (offset != null) {
-                sqlSelect.offset(Integer.valueOf(offset.getValue()));
-            }
-            idx++;
+            PrintPlan.register(_print, sqlSelect, typeCriteria);
+        } else {
+            sqlSelect = plan.apply(_print);
+            typeCriteria = plan.getTypeCriteria();
         }
         if (sqlSelect.getColumns().size() > 0) {
             if (_print instanceof ObjectPrint) {
@@ -345,6 +381,10 @@ public class SQLRunner
         return runnable instanceof Insert;
     }
 
+    private boolean isBatchInsert() {
+        return runnable instanceof BatchInsert;
+    }
+
     private boolean isDelete() {
         return runnable instanceof AbstractDelete;
     }
@@ -540,13 +580,9 @@ public class SQLRunner
         } else {
             sqlSelect.addPart(SQLPart.AND);
         }
-        sqlSelect.addColumnPart(0, "ID")
-            .addPart(SQLPart.IN)
-            .addPart(SQLPart.PARENTHESIS_OPEN)
-            .addValuePart(_print.getInstances().stream()
-                        .map(instance -> String.valueOf(instance.getId()))
-                        .collect(Collectors.joining(SQLPart.COMMA.getDefaultValue())))
-            .addPart(SQLPart.PARENTHESIS_CLOSE);
+        sqlSelect.addIdFilterPart(0, "ID", _print.getInstances().stream()
+                        .map(Instance::getId)
+                        .collect(Collectors.toList()));
     }
 
     @Override
@@ -555,9 +591,20 @@ public class SQLRunner
     {
         LOG.trace("Executing: {}", this);
         if (isPrint()) {
-            executeSQLStmt((ISelectionProvider) runnable, sqlSelect.getSQL());
+            final AbstractPrint print = (AbstractPrint) runnable;
+            if (print.isStreamed() && !print.has(StmtFlag.REQCACHED) && print.getSelection().isStreamable()) {
+                openCursor(print, sqlSelect.getSQL());
+            } else if (isBindParameters()) {
+                final List<Object> parameters = new ArrayList<>();
+                final String sql = sqlSelect.getSQL(parameters);
+                executeSQLStmt((ISelectionProvider) runnable, sql, parameters);
+            } else {
+                executeSQLStmt((ISelectionProvider) runnable, sqlSelect.getSQL());
+            }
         } else if (isInsert()) {
             executeInserts();
+        } else if (isBatchInsert()) {
+            executeBatchInserts();
         } else if (isDelete()) {
             executeDeletes();
         } else {
@@ -624,8 +671,18 @@ public class SQLRunner
         ConnectionResource con = null;
         try {
             con = Context.getThreadContext().getConnectionResource();
-            for (final Entry<SQLTable, AbstractSQLInsertUpdate<?>> entry : updatemap.entrySet()) {
-                ((SQLUpdate) entry.getValue()).execute(con);
+            if (runnable instanceof ListUpdate) {
+                final List<SQLUpdate> updates = new ArrayList<>();
+                for (final Map<SQLTable, AbstractSQLInsertUpdate<?>> map : typeUpdatemaps) {
+                    for (final AbstractSQLInsertUpdate<?> update : map.values()) {
+                        updates.add((SQLUpdate) update);
+                    }
+                }
+                SQLUpdate.execute(con, updates);
+            } else {
+                for (final Entry<SQLTable, AbstractSQLInsertUpdate<?>> entry : updatemap.entrySet()) {
+                    ((SQLUpdate) entry.getValue()).execute(con);
+                }
             }
         } catch (final SQLException e) {
             throw new EFapsException(SQLRunner.class, "executeOneCompleteStmt", e);
@@ -664,6 +721,145 @@ public class SQLRunner
         }
     }
 
+    /**
+     * Execute the inserts of a batch. If the database does not generate the
+     * ids itself, the ids for the main tables are allocated in one step and
+     * the rows are written grouped by table using JDBC batches.
+     *
+     * @throws EFapsException the e faps exception
+     */
+    private void executeBatchInserts()
+        throws EFapsException
+    {
+        try {
+            final ConnectionResource con = Context.getThreadContext().getConnectionResource();
+            final List<SQLInsert> mainInserts = new ArrayList<>();
+            final List<SQLInsert> inserts = new ArrayList<>();
+            if (Context.getDbType().supportsGetGeneratedKeys()) {
+                for (final Entry<Insert, Map<SQLTable, AbstractSQLInsertUpdate<?>>> entry : batchmap.entrySet()) {
+                    final Insert insert = entry.getKey();
+                    final SQLTable mainTable = insert.getType().getMainTable();
+                    final SQLInsert sqlInsert = (SQLInsert) entry.getValue().get(mainTable);
+                    if (mainTable.getSqlColType() != null) {
+                        sqlInsert.column(mainTable.getSqlColType(), insert.getType().getId());
+                    }
+                    insert.evaluateInstance(sqlInsert.execute(con));
+                }
+            } else {
+                final Map<SQLTable, List<Insert>> tables = batchmap.keySet().stream()
+                                .collect(Collectors.groupingBy(insert -> insert.getType().getMainTable(),
+                                                LinkedHashMap::new, Collectors.toList()));
+                for (final Entry<SQLTable, List<Insert>> entry : tables.entrySet()) {
+                    final SQLTable mainTable = entry.getKey();
+                    final long[] ids = Context.getDbType().getNewIds(con, mainTable.getSqlTable(),
+                                    mainTable.getSqlColId(), entry.getValue().size());
+                    int idx = 0;
+                    for (final Insert insert : entry.getValue()) {
+                        final SQLInsert sqlInsert = (SQLInsert) batchmap.get(insert).get(mainTable);
+                        sqlInsert.presetId(ids[idx]);
+                        if (mainTable.getSqlColType() != null) {
+                            sqlInsert.column(mainTable.getSqlColType(), insert.getType().getId());
+                        }
+                        insert.evaluateInstance(ids[idx]);
+                        mainInserts.add(sqlInsert);
+                        idx++;
+                    }
+                }
+            }
+            for (final Entry<Insert, Map<SQLTable, AbstractSQLInsertUpdate<?>>> entry : batchmap.entrySet()) {
+                final Insert insert = entry.getKey();
+                final SQLTable mainTable = insert.getType().getMainTable();
+                for (final Entry<SQLTable, AbstractSQLInsertUpdate<?>> tableEntry : entry.getValue().entrySet()) {
+                    if (!tableEntry.getKey().equals(mainTable)) {
+                        tableEntry.getValue().column(tableEntry.getKey().getSqlColId(), insert.getInstance().getId());
+                        if (tableEntry.getKey().getSqlColType() != null) {
+                            tableEntry.getValue().column(tableEntry.getKey().getSqlColType(),
+                                            insert.getType().getId());
+                        }
+                        inserts.add((SQLInsert) tableEntry.getValue());
+                    }
+                }
+            }
+            SQLInsert.executeBatch(con, mainInserts);
+            SQLInsert.executeBatch(con, inserts);
+            GeneralInstance.insert(batchmap.keySet().stream()
+                            .map(Insert::getInstance)
+                            .collect(Collectors.toList()), con);
+            for (final Insert insert : batchmap.keySet()) {
+                insert.triggerListeners();
+            }
+        } catch (final SQLException e) {
+            throw new EFapsException(SQLRunner.class, "executeBatchInserts", e);
+        }
+    }
+
+    /**
+     * Checks if the values of prints must be bound as parameters.
+     *
+     * @return true, if bind parameters are activated
+     * @throws EFapsException the e faps exception
+     */
+    public static boolean isBindParameters()
+        throws EFapsException
+    {
+        final SystemConfiguration config = EFapsSystemConfiguration.get();
+        return config != null && config.getAttributeValueAsBoolean(KernelSettings.BINDPARAMETERS);
+    }
+
+    /**
+     * Gets the number of prepared statements cached per connection.
+     *
+     * @return the statement cache size
+     * @throws EFapsException the e faps exception
+     */
+    public static int getStatementCacheSize()
+        throws EFapsException
+    {
+        final SystemConfiguration config = EFapsSystemConfiguration.get();
+        final int size = config == null ? 0 : config.getAttributeValueAsInteger(KernelSettings.STMTCACHESIZE);
+        return size > 0 ? size : DEFAULT_STMTCACHESIZE;
+    }
+
+    /**
+     * Bind the parameters to the prepared statement, execute it and read
+     * the result with the given handler. The SQL arrays created for
+     * {@link SQLSelect.IdArray} parameters are freed afterwards.
+     *
+     * @param _stmt the prepared statement
+     * @param _parameters the parameters
+     * @param _handler the handler to read the result with
+     * @return the rows
+     * @throws SQLException on error
+     */
+    public static List<Object[]> executeQuery(final PreparedStatement _stmt,
+                                              final List<Object> _parameters,
+                                              final ArrayListHandler _handler)
+        throws SQLException
+    {
+        final List<Array> arrays = new ArrayList<>();
+        try {
+            int idx = 1;
+            for (final Object parameter : _parameters) {
+                if (parameter instanceof SQLSelect.IdArray) {
+                    arrays.add(((SQLSelect.IdArray) parameter).bind(_stmt, idx++));
+                } else {
+                    _stmt.setObject(idx++, parameter);
+                }
+            }
+            try (ResultSet rs = _stmt.executeQuery()) {
+                return _handler.handle(rs);
+            }
+        } finally {
+            for (final Array array : arrays) {
+                try {
+                    array.free();
+                } catch (final SQLException e) {
+                    LOG.warn("Could not free array", e);
+                }
+            }
+        }
+    }
+
     /**
      * Execute SQL stmt.
      *
@@ -672,18 +868,40 @@ public class SQLRunner
      * @return true, if successful
      * @throws EFapsException the e faps exception
      */
-    @SuppressWarnings("unchecked")
     protected boolean executeSQLStmt(final ISelectionProvider _sqlProvider, final String _complStmt)
         throws EFapsException
     {
-        SQLRunner.LOG.debug("SQL-Statement: {}", _complStmt);
+        return executeSQLStmt(_sqlProvider, _complStmt, null);
+    }
+
+    /**
+     * Execute SQL stmt. If parameters are given, the statement is executed
+     * as a prepared statement taken from the statement cache of the
+     * connection.
+     *
+     * @param _sqlProvider the sql provider
+     * @param _complStmt the compl stmt
+     * @param _parameters the parameters to bind, <code>null</code> for a
+     *            literal statement
+     * @return true, if successful
+     * @throws EFapsException the e faps exception
+     */
+    @SuppressWarnings("unchecked")
+    protected boolean executeSQLStmt(final ISelectionProvider _sqlProvider,
+                                     final String _complStmt,
+                                     final List<Object> _parameters)
+        throws EFapsException
+    {
+        SQLRunner.LOG.debug("SQL-Statement: {}, Parameters: {}", _complStmt, _parameters);
+        final String key = _parameters == null || _parameters.isEmpty() ? _complStmt
+                        : _complStmt + " " + _parameters;
 
         boolean ret = false;
         List<Object[]> rows = new ArrayList<>();
 
         boolean cached = false;
         if (runnable.has(StmtFlag.REQCACHED)) {
-            final QueryKey querykey = QueryKey.get(Context.getThreadContext().getRequestId(), _complStmt);
+            final QueryKey querykey = QueryKey.get(Context.getThreadContext().getRequestId(), key);
             final var cache = QueryCache.get();
             if (cache.containsKey(querykey)) {
                 final var queryValue = cache.get(querykey);
@@ -697,12 +915,17 @@ public class SQLRunner
             ConnectionResource con = null;
             try {
                 con = Context.getThreadContext().getConnectionResource();
-                final Statement stmt = con.createStatement();
-                final ResultSet rs = stmt.executeQuery(_complStmt);
                 final ArrayListHandler handler = new ArrayListHandler(Context.getDbType().getRowProcessor());
-                rows = handler.handle(rs);
-                rs.close();
-                stmt.close();
+                if (_parameters == null) {
+                    final Statement stmt = con.createStatement();
+                    final ResultSet rs = stmt.executeQuery(_complStmt);
+                    rows = handler.handle(rs);
+                    rs.close();
+                    stmt.close();
+                } else {
+                    final PreparedStatement stmt = con.prepareCachedStatement(_complStmt, getStatementCacheSize());
+                    rows = executeQuery(stmt, _parameters, handler);
+                }
             } catch (final SQLException e) {
                 LOG.error("SQL Statment threw error: {}", _complStmt);
                 throw new EFapsException(SQLRunner.class, "executeOneCompleteStmt", e);
@@ -722,8 +945,9 @@ public class SQLRunner
                         return TimeUnit.MINUTES;
                     }
                 };
-                QueryCache.put(cacheDefinition, QueryKey.get(Context.getThreadContext().getRequestId(), _complStmt),
-                               QueryValue.get(Context.getThreadContext().getRequestId(), rows));
+                QueryCache.put(cacheDefinition, QueryKey.get(Context.getThreadContext().getRequestId(), key),
+                               QueryValue.get(Context.getThreadContext().getRequestId(), rows),
+                               sqlSelect.getTableNames());
             }
         }
         for (final Object[] row : rows) {
@@ -735,6 +959,32 @@ public class SQLRunner
         return ret;
     }
 
+    /**
+     * Execute the SQL statement with a forward only cursor and register the
+     * cursor on the print, so that the rows are read in chunks by the
+     * Evaluator instead of materializing the complete result.
+     *
+     * @param _print the print
+     * @param _complStmt the compl stmt
+     * @throws EFapsException the e faps exception
+     */
+    protected void openCursor(final AbstractPrint _print,
+                              final String _complStmt)
+        throws EFapsException
+    {
+        SQLRunner.LOG.debug("SQL-Statement (streamed): {}", _complStmt);
+        try {
+            final ConnectionResource con = Context.getThreadContext().getConnectionResource();
+            final Statement stmt = con.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(Context.getDbType().getStreamFetchSize(_print.getChunkSize()));
+            final ResultSet rs = stmt.executeQuery(_complStmt);
+            _print.setCursor(new SQLCursor(stmt, rs, Context.getDbType().getRowProcessor(), _print.getChunkSize()));
+        } catch (final SQLException e) {
+            LOG.error("SQL Statment threw error: {}", _complStmt);
+            throw new EFapsException(SQLRunner.class, "openCursor", e);
+        }
+    }
+
     /**
      * The Class TypeCriteria.
      */
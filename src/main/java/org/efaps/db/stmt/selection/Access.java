@@ -18,12 +18,18 @@ package org.efaps.db.stmt.selection;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import org.apache.commons.collections4.MultiMapUtils;
 import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.efaps.admin.EFapsSystemConfiguration;
+import org.efaps.admin.KernelSettings;
 import org.efaps.admin.access.AccessType;
+import org.efaps.admin.common.SystemConfiguration;
 import org.efaps.admin.datamodel.Type;
 import org.efaps.db.Instance;
 import org.efaps.util.EFapsException;
@@ -31,15 +37,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The Class Access.
+ * The Class Access. The access is not evaluated for all instances at once,
+ * but lazily in windows following the order of the instances, so that the
+ * first rows can be consumed before the access for the last row is known.
  */
 public class Access
 {
+    /** Default size of the window the access is evaluated in. */
+    public static final int DEFAULT_WINDOWSIZE = 500;
+
     /** The Constant LOG. */
     private static final Logger LOG = LoggerFactory.getLogger(Access.class);
 
-    /** The instance map. */
-    private final MultiValuedMap<Type, Instance> instanceMap = MultiMapUtils.newSetValuedHashMap();
+    /** The instances the access was not evaluated for yet. */
+    private final Iterator<Instance> pending;
 
     /** The access type. */
     private final AccessType accessType;
@@ -47,38 +58,48 @@ public class Access
     /** The access map. */
     private final Map<Instance, Boolean> accessMap = new HashMap<>();
 
-    /** The init. */
-    private boolean init;
+    /** Size of the window, zero or less to evaluate everything at once. */
+    private final int windowSize;
 
     /**
      * Instantiates a new access.
      *
      * @param _accessType the access type
-     * @param _instances the instances
+     * @param _instances iterator over the instances, only read on demand
+     * @param _windowSize size of the window
      */
     private Access(final AccessType _accessType,
-                   final Collection<Instance> _instances)
+                   final Iterator<Instance> _instances,
+                   final int _windowSize)
     {
         accessType = _accessType;
-        _instances.forEach(inst -> {
-            instanceMap.put(inst.getType(), inst);
-        });
+        pending = _instances;
+        windowSize = _windowSize;
     }
 
     /**
-     * Initialize.
+     * Evaluate the access for the next window of instances.
      *
+     * @return true, if instances were evaluated
      * @throws EFapsException the e faps exception
      */
-    private void initialize()
+    private boolean evalNextWindow()
         throws EFapsException
     {
-        if (!init) {
-            init = true;
-            for (final Entry<Type, Collection<Instance>> entry : instanceMap.asMap().entrySet()) {
-                accessMap.putAll(entry.getKey().checkAccess(entry.getValue(), accessType));
+        final MultiValuedMap<Type, Instance> instanceMap = MultiMapUtils.newSetValuedHashMap();
+        int count = 0;
+        boolean read = false;
+        while (pending.hasNext() && (windowSize < 1 || count < windowSize)) {
+            final Instance instance = pending.next();
+            read = true;
+            if (!accessMap.containsKey(instance) && instanceMap.put(instance.getType(), instance)) {
+                count++;
             }
         }
+        for (final Entry<Type, Collection<Instance>> entry : instanceMap.asMap().entrySet()) {
+            accessMap.putAll(entry.getKey().checkAccess(entry.getValue(), accessType));
+        }
+        return read;
     }
 
     /**
@@ -90,7 +111,10 @@ public class Access
     public boolean hasAccess(final Instance _instance)
     {
         try {
-            initialize();
+            boolean evaluated = _instance != null;
+            while (evaluated && !accessMap.containsKey(_instance)) {
+                evaluated = evalNextWindow();
+            }
         } catch (final EFapsException e) {
             LOG.error("Problems while evaluation access.", e);
         }
@@ -98,7 +122,7 @@ public class Access
     }
 
     /**
-     * Gets the.
+     * Gets the Access using the window size defined by the SystemConfiguration.
      *
      * @param _accessType the access type
      * @param _instances the instances
@@ -106,12 +130,77 @@ public class Access
      */
     public static Access get(final AccessType _accessType, final Collection<Instance> _instances)
     {
-        return new Access(_accessType, _instances);
+        return get(_accessType, _instances, getWindowSize());
+    }
+
+    /**
+     * Gets the Access using the window size defined by the SystemConfiguration.
+     * The instances are read from the iterator only when the access for
+     * them is requested.
+     *
+     * @param _accessType the access type
+     * @param _instances iterator over the instances
+     * @return the access
+     */
+    public static Access get(final AccessType _accessType, final Iterator<Instance> _instances)
+    {
+        return get(_accessType, _instances, getWindowSize());
+    }
+
+    /**
+     * Gets the.
+     *
+     * @param _accessType the access type
+     * @param _instances the instances
+     * @param _windowSize size of the window, zero or less to evaluate all at once
+     * @return the access
+     */
+    public static Access get(final AccessType _accessType,
+                             final Collection<Instance> _instances,
+                             final int _windowSize)
+    {
+        return get(_accessType, new LinkedHashSet<>(_instances).iterator(), _windowSize);
+    }
+
+    /**
+     * Gets the Access. The instances are read from the iterator only when
+     * the access for them is requested.
+     *
+     * @param _accessType the access type
+     * @param _instances iterator over the instances
+     * @param _windowSize size of the window, zero or less to evaluate all at once
+     * @return the access
+     */
+    public static Access get(final AccessType _accessType,
+                             final Iterator<Instance> _instances,
+                             final int _windowSize)
+    {
+        return new Access(_accessType, _instances, _windowSize);
+    }
+
+    /**
+     * Gets the window size defined by the SystemConfiguration.
+     *
+     * @return the window size
+     */
+    private static int getWindowSize()
+    {
+        int ret = DEFAULT_WINDOWSIZE;
+        try {
+            final SystemConfiguration config = EFapsSystemConfiguration.get();
+            if (config != null) {
+                ret = NumberUtils.toInt(config.getAttributeValue(KernelSettings.ACCESSWINDOWSIZE),
+                                DEFAULT_WINDOWSIZE);
+            }
+        } catch (final EFapsException e) {
+            LOG.error("Could not read the window size for access evaluation.", e);
+        }
+        return ret;
     }
 
     public static Access getNoOp()
     {
-        return new Access(null, Collections.emptyList())
+        return new Access(null, Collections.emptyIterator(), 0)
         {
             @Override
             public boolean hasAccess(final Instance _instance)
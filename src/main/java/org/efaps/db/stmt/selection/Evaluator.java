@@ -29,6 +29,8 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -61,9 +63,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The Class SelectionEvaluator.
+ * The Class SelectionEvaluator. For a streamed print the Evaluator holds an
+ * open cursor and must be closed.
  */
 public final class Evaluator
+    implements AutoCloseable
 {
     /** The Constant LOG. */
     private static final Logger LOG = LoggerFactory.getLogger(Evaluator.class);
@@ -81,6 +85,12 @@ public final class Evaluator
 
     private EnumSet<StmtFlag> flags;
 
+    /** The cursor the rows are streamed from, <code>null</code> if not streamed. */
+    private final IRowCursor cursor;
+
+    /** Is the evaluator closed. */
+    private boolean closed;
+
     /**
      * Instantiates a new selection evaluator.
      *
@@ -96,6 +106,7 @@ public final class Evaluator
             flags = ((IFlagged) _selectionProvider).getFlags();
         }
         helper = _helper;
+        cursor = _selectionProvider.getCursor();
     }
 
     /**
@@ -108,6 +119,9 @@ public final class Evaluator
         throws EFapsException
     {
         if (!init) {
+            if (cursor != null) {
+                cursor.fetch(selection.getAllSelects());
+            }
             squash();
             evalAccess();
             init = true;
@@ -148,6 +162,9 @@ public final class Evaluator
     public long count()
         throws EFapsException
     {
+        if (cursor != null) {
+            throw new EFapsException(Evaluator.class, "count.streamed");
+        }
         initialize(false);
         final Select select = selection.getInstSelects().get(Selection.BASEPATH);
         return select.getObjects(this).size();
@@ -389,11 +406,17 @@ public final class Evaluator
     public boolean next()
         throws EFapsException
     {
+        if (closed) {
+            return false;
+        }
         initialize(false);
         boolean skip = true; // must step into the first one
         boolean ret = true;
         while (skip && ret) {
             ret = step(selection.getAllSelects());
+            if (!ret && cursor != null && fetch()) {
+                ret = step(selection.getAllSelects());
+            }
             skip = !access.hasAccess(inst());
         }
         return ret;
@@ -501,40 +524,90 @@ public final class Evaluator
     }
 
     /**
-     * Evaluate the access for the instances.
+     * Replace the content of the selects by the next chunk of the cursor.
      *
+     * @return true, if a new chunk was fetched
      * @throws EFapsException on error
      */
-    private void evalAccess()
+    private boolean fetch()
         throws EFapsException
+    {
+        for (final Select select : selection.getAllSelects()) {
+            select.clear();
+        }
+        final boolean ret = cursor.fetch(selection.getAllSelects());
+        if (ret) {
+            evalAccess();
+        }
+        return ret;
+    }
+
+    /**
+     * Evaluate the access for the instances. The instances are handed
+     * lazily to the Access, so the access is evaluated window by window as
+     * the rows are consumed.
+     */
+    private void evalAccess()
     {
         if (flags != null && flags.contains(StmtFlag.TRIGGEROFF)) {
             access = Access.getNoOp();
         } else {
-            final List<Instance> instances = new ArrayList<>();
-            while (step(selection.getInstSelects().values())) {
-                for (final Entry<String, Select> entry : selection.getInstSelects().entrySet()) {
-                    final Object object = entry.getValue().getCurrent();
-                    if (object != null) {
-                        if (object instanceof List) {
-                            ((List<?>) object).stream()
-                                .filter(Objects::nonNull)
-                                .forEach(e -> instances.add((Instance) e));
-                        } else {
-                            instances.add((Instance) object);
-                        }
-                    }
-                }
-            }
-            for (final Entry<String, Select> entry : selection.getInstSelects().entrySet()) {
-                entry.getValue().reset();
-            }
-            access = Access.get(AccessTypeEnums.READ.getAccessType(), instances);
+            access = Access.get(AccessTypeEnums.READ.getAccessType(),
+                            instances(selection.getInstSelects().values()));
+        }
+    }
+
+    /**
+     * Iterator over the instances of the given instance selects, following
+     * the order of the rows. The rows are only read when the iterator
+     * advances.
+     *
+     * @param _instSelects the instance selects
+     * @return the iterator
+     */
+    protected static Iterator<Instance> instances(final Collection<Select> _instSelects)
+    {
+        final int rows = _instSelects.stream()
+                        .mapToInt(select -> select.getObjects().size())
+                        .min()
+                        .orElse(0);
+        return IntStream.range(0, rows)
+                        .boxed()
+                        .flatMap(idx -> _instSelects.stream().map(select -> select.getObject(idx)))
+                        .flatMap(object -> object instanceof List ? ((List<?>) object).stream()
+                                        : Stream.of(object))
+                        .filter(Objects::nonNull)
+                        .map(Instance.class::cast)
+                        .iterator();
+    }
+
+    /**
+     * Close the evaluator and with it the cursor of a streamed print.
+     * Must be called if the rows are not read until {@link #next()} returns
+     * false.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        if (cursor != null) {
+            cursor.close();
         }
     }
 
     /**
-     * Gets the data list.
+     * Checks if the evaluator is closed. A streamed evaluator is also
+     * closed as soon as its cursor was read completely.
+     *
+     * @return true, if closed
+     */
+    public boolean isClosed()
+    {
+        return closed || cursor != null && cursor.isClosed();
+    }
+
+    /**
+     * Gets the data list. The evaluator is closed afterwards.
      *
      * @return the data list
      * @throws EFapsException
@@ -543,27 +616,47 @@ public final class Evaluator
         throws EFapsException
     {
         final DataList ret = new DataList();
-        while (next()) {
-            final ObjectData data = new ObjectData();
-            int idx = 1;
-            for (final Select select : selection.getSelects()) {
-                final String key = select.getAlias() == null ? String.valueOf(idx) : select.getAlias();
-                data.getValues().add(JSONData.getValue(key, get(select)));
-                idx++;
+        try {
+            while (next()) {
+                final ObjectData data = new ObjectData();
+                int idx = 1;
+                for (final Select select : selection.getSelects()) {
+                    final String key = select.getAlias() == null ? String.valueOf(idx) : select.getAlias();
+                    data.getValues().add(JSONData.getValue(key, get(select)));
+                    idx++;
+                }
+                ret.add(data);
             }
-            ret.add(data);
+        } finally {
+            close();
         }
         return ret;
     }
 
     /**
-     * Gets the data.
+     * Gets the data. The evaluator is closed afterwards.
      *
      * @return the data
      * @throws EFapsException the e faps exception
      */
     public Collection<Map<String, ?>> getData()
         throws EFapsException
+    {
+        try {
+            return readData();
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Read the data of all rows.
+     *
+     * @return the data
+     * @throws EFapsException the e faps exception
+     */
+    private Collection<Map<String, ?>> readData()
+        throws EFapsException
     {
         final Collection<Map<String, ?>> ret = new ArrayList<>();
         while (next()) {
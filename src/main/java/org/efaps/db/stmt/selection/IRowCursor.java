@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.db.stmt.selection;
+
+import java.util.Collection;
+
+import org.efaps.util.EFapsException;
+
+/**
+ * A forward only cursor that feeds the rows of a print into the selects in
+ * chunks, so that not the complete result must be held in memory.
+ *
+ * @author The eFaps Team
+ */
+public interface IRowCursor
+{
+
+    /**
+     * Read the next chunk of rows and add them to the given selects.
+     *
+     * @param _selects the selects the rows will be added to
+     * @return true, if at least one row was read
+     * @throws EFapsException on error
+     */
+    boolean fetch(Collection<Select> _selects)
+        throws EFapsException;
+
+    /**
+     * Close the cursor and release the underlying resources.
+     */
+    void close();
+
+    /**
+     * Checks if the cursor is closed.
+     *
+     * @return true, if the cursor is closed
+     */
+    boolean isClosed();
+}
@@ -34,4 +34,15 @@ public interface ISelectionProvider
     Selection getSelection()
         throws EFapsException;
 
+    /**
+     * Gets the cursor the rows are streamed from. If <code>null</code> the
+     * selects already contain the complete result.
+     *
+     * @return the cursor, <code>null</code> if not streamed
+     */
+    default IRowCursor getCursor()
+    {
+        return null;
+    }
+
 }
@@ -170,6 +170,18 @@ public final class Select
         return Collections.unmodifiableList(result);
     }
 
+    /**
+     * Gets the object of the given row.
+     *
+     * @param _idx index of the row
+     * @return the object
+     */
+    protected Object getObject(final int _idx)
+    {
+        final Object object = objects.get(_idx);
+        return object instanceof ProxiedObject ? ((ProxiedObject) object).getObject() : object;
+    }
+
     /**
      * Gets the elements.
      *
@@ -227,6 +239,16 @@ public final class Select
         current = null;
     }
 
+    /**
+     * Remove all objects, used to make space for the next chunk of a
+     * streamed result.
+     */
+    protected void clear()
+    {
+        objects.clear();
+        reset();
+    }
+
     /**
      * Gets the.
      *
@@ -41,6 +41,7 @@ import org.efaps.db.stmt.selection.elements.ExecElement;
 import org.efaps.db.stmt.selection.elements.FirstElement;
 import org.efaps.db.stmt.selection.elements.FormatElement;
 import org.efaps.db.stmt.selection.elements.IDElement;
+import org.efaps.db.stmt.selection.elements.IProxy;
 import org.efaps.db.stmt.selection.elements.InstIDElement;
 import org.efaps.db.stmt.selection.elements.InstanceElement;
 import org.efaps.db.stmt.selection.elements.JoiningElement;
@@ -374,6 +375,35 @@ public final class Selection
         return Collections.unmodifiableCollection(ret);
     }
 
+    /**
+     * Checks if the selection can be evaluated on a streamed result. Selects
+     * that must see all rows at once (squashing of linkfrom, esjp selects)
+     * prevent streaming.
+     *
+     * @return true, if streamable
+     */
+    public boolean isStreamable()
+    {
+        return getAllSelects().stream()
+                        .noneMatch(select -> select.isSquash() || select.getElements().stream()
+                                        .anyMatch(element -> element instanceof IProxy));
+    }
+
+    /**
+     * Checks if the SQL prepared for this selection can be cached as a plan.
+     * Linkfrom selects prepare their own statements and esjp selects are
+     * evaluated outside of the SQL, so they prevent the caching.
+     *
+     * @return true, if the selection can be prepared from a plan
+     */
+    public boolean isPlanable()
+    {
+        return getAllSelects().stream()
+                        .noneMatch(select -> select.getElements().stream()
+                                        .anyMatch(element -> element instanceof IProxy
+                                                        || element instanceof LinkfromElement));
+    }
+
     /**
      * Gets the.
      *
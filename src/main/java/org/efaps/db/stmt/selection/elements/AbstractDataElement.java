@@ -76,4 +76,26 @@ public abstract class AbstractDataElement<T>
      */
     public abstract void append2SQLSelect(SQLSelect _sqlSelect)
         throws EFapsException;
+
+    /**
+     * Gets the indexes of the columns this element reads from a row. Used to
+     * restore the element from a cached plan instead of appending it to a
+     * SQL select again.
+     *
+     * @return the column indexes
+     */
+    public int[] getColumnIdxs()
+    {
+        return new int[0];
+    }
+
+    /**
+     * Sets the indexes of the columns this element reads from a row.
+     *
+     * @param _colIdxs the column indexes
+     */
+    public void setColumnIdxs(final int[] _colIdxs)
+    {
+        // nothing to restore by default
+    }
 }
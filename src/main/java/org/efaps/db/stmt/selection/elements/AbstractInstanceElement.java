@@ -62,6 +62,19 @@ public abstract class AbstractInstanceElement<T>
         }
     }
 
+    @Override
+    public int[] getColumnIdxs()
+    {
+        return new int[] { this.idColIdxs, this.typeColIdxs };
+    }
+
+    @Override
+    public void setColumnIdxs(final int[] _colIdxs)
+    {
+        this.idColIdxs = _colIdxs[0];
+        this.typeColIdxs = _colIdxs[1];
+    }
+
     @Override
     public Object getObject(final Object[] _row)
         throws EFapsException
@@ -90,6 +90,18 @@ public class AttributeElement
         }
     }
 
+    @Override
+    public int[] getColumnIdxs()
+    {
+        return colIdxs == null ? new int[0] : colIdxs.clone();
+    }
+
+    @Override
+    public void setColumnIdxs(final int[] _colIdxs)
+    {
+        colIdxs = _colIdxs.length == 0 ? null : _colIdxs.clone();
+    }
+
     @Override
     public Object getObject(final Object[] _row)
         throws EFapsException
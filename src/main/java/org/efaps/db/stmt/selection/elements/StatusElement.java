@@ -76,6 +76,18 @@ public class StatusElement
         }
     }
 
+    @Override
+    public int[] getColumnIdxs()
+    {
+        return new int[] { colIdx };
+    }
+
+    @Override
+    public void setColumnIdxs(final int[] _colIdxs)
+    {
+        colIdx = _colIdxs[0];
+    }
+
     @Override
     public Object getObject(final Object[] _row)
         throws EFapsException
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.db.stmt.update;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.efaps.db.stmt.runner.AbstractRunnable;
+
+/**
+ * A set of inserts that are written to the database using JDBC batches.
+ *
+ * @author The eFaps Team
+ */
+public class BatchInsert
+    extends AbstractRunnable
+{
+
+    /** The inserts. */
+    private final List<Insert> inserts;
+
+    /**
+     * Instantiates a new batch insert.
+     *
+     * @param _inserts the inserts
+     */
+    public BatchInsert(final List<Insert> _inserts)
+    {
+        inserts = _inserts;
+    }
+
+    /**
+     * Gets the inserts.
+     *
+     * @return the inserts
+     */
+    public List<Insert> getInserts()
+    {
+        return Collections.unmodifiableList(inserts);
+    }
+}
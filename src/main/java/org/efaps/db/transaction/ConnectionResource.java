@@ -19,10 +19,15 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 import javax.transaction.xa.XAException;
 import javax.transaction.xa.Xid;
 
+import org.efaps.db.QueryCache;
 import org.efaps.util.EFapsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,6 +51,19 @@ public class ConnectionResource
      */
     private Connection connection = null;
 
+    /**
+     * Prepared statements cached for this connection, keyed by their SQL.
+     * The least recently used statement is closed if the cache is full.
+     */
+    private Map<String, PreparedStatement> statementCache = null;
+
+    /**
+     * Names of the SQL tables written with this connection. The entries of
+     * the QueryCache depending on them are removed when the transaction
+     * ends.
+     */
+    private Set<String> writtenTables = null;
+
     /**
      * Instantiates a new connection resource.
      *
@@ -83,6 +101,7 @@ public class ConnectionResource
         throws EFapsException
     {
         try {
+            closeCachedStatements();
             if (!getConnection().isClosed()) {
                 getConnection().close();
             }
@@ -103,6 +122,21 @@ public class ConnectionResource
         return getConnection().createStatement();
     }
 
+    /**
+     * Creates the statement.
+     *
+     * @param _resultSetType the result set type
+     * @param _resultSetConcurrency the result set concurrency
+     * @return the statement
+     * @throws SQLException the SQL exception
+     */
+    public Statement createStatement(final int _resultSetType,
+                                     final int _resultSetConcurrency)
+        throws SQLException
+    {
+        return getConnection().createStatement(_resultSetType, _resultSetConcurrency);
+    }
+
     /**
      * Prepare statement.
      *
@@ -147,6 +181,101 @@ public class ConnectionResource
         return getConnection().prepareStatement(_string, _returnGeneratedKeys);
     }
 
+    /**
+     * Returns a prepared statement for the given SQL from the cache of this
+     * connection. If the SQL was not prepared yet, a new statement is prepared
+     * and cached. The statement must not be closed by the caller.
+     *
+     * @param _sql the sql
+     * @param _cacheSize maximum number of statements cached for this
+     *            connection
+     * @return the prepared statement
+     * @throws SQLException the SQL exception
+     */
+    public PreparedStatement prepareCachedStatement(final String _sql,
+                                                    final int _cacheSize)
+        throws SQLException
+    {
+        if (this.statementCache == null) {
+            this.statementCache = new LinkedHashMap<>(16, 0.75f, true)
+            {
+
+                /** The Constant serialVersionUID. */
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, PreparedStatement> _eldest)
+                {
+                    final boolean ret = size() > _cacheSize;
+                    if (ret) {
+                        closeStatement(_eldest.getValue());
+                    }
+                    return ret;
+                }
+            };
+        }
+        PreparedStatement ret = this.statementCache.get(_sql);
+        if (ret == null || ret.isClosed()) {
+            ret = getConnection().prepareStatement(_sql);
+            this.statementCache.put(_sql, ret);
+        } else {
+            ret.clearParameters();
+        }
+        return ret;
+    }
+
+    /**
+     * Register that the given SQL table was written with this connection.
+     *
+     * @param _tableName name of the SQL table
+     */
+    public void registerWrite(final String _tableName)
+    {
+        if (this.writtenTables == null) {
+            this.writtenTables = new HashSet<>();
+        }
+        this.writtenTables.add(_tableName);
+    }
+
+    /**
+     * Remove the entries of the QueryCache depending on the written tables.
+     * Done on rollback also, because queries executed inside the transaction
+     * might have cached uncommitted rows.
+     */
+    private void cleanQueryCache()
+    {
+        if (this.writtenTables != null) {
+            QueryCache.cleanByTables(this.writtenTables);
+            this.writtenTables = null;
+        }
+    }
+
+    /**
+     * Close all cached statements.
+     */
+    private void closeCachedStatements()
+    {
+        if (this.statementCache != null) {
+            for (final PreparedStatement stmt : this.statementCache.values()) {
+                closeStatement(stmt);
+            }
+            this.statementCache = null;
+        }
+    }
+
+    /**
+     * Close the statement, errors are only logged.
+     *
+     * @param _stmt statement to close
+     */
+    private static void closeStatement(final Statement _stmt)
+    {
+        try {
+            _stmt.close();
+        } catch (final SQLException e) {
+            ConnectionResource.LOG.error("Could not close cached statement", e);
+        }
+    }
 
     /**
      * Informs the resource manager to roll back work done on behalf of a
@@ -169,6 +298,8 @@ public class ConnectionResource
             throw xa;
         } finally  {
             try {
+                closeCachedStatements();
+                cleanQueryCache();
                 if (this.connection != null && !this.connection.isClosed())  {
                     this.connection.close();
                 }
@@ -202,6 +333,8 @@ public class ConnectionResource
             throw xa;
         } finally  {
             try {
+                closeCachedStatements();
+                cleanQueryCache();
                 if (this.connection != null && !this.connection.isClosed())  {
                     this.connection.close();
                 }
@@ -100,6 +100,7 @@ public class SQLDelete
                 .append(Context.getDbType().getSQLPart(SQLPart.EQUAL))
                 .append(def.getId());
             stmt.addBatch(cmd.toString());
+            _con.registerWrite(def.getTablename());
             if (SQLDelete.LOG.isDebugEnabled()) {
                 SQLDelete.LOG.debug(cmd.toString());
             }
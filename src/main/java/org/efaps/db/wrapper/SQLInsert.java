@@ -19,6 +19,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 
 import org.efaps.db.Context;
 import org.efaps.db.transaction.ConnectionResource;
@@ -47,10 +53,15 @@ public class SQLInsert
      */
     private static final Logger LOG = LoggerFactory.getLogger(SQLInsert.class);
 
+    /**
+     * Maximum number of rows send to the database in one batch.
+     */
+    private static final int BATCHSIZE = 1000;
+
     /**
      * Must a new id created within this insert?
      */
-    private final boolean newId;
+    private boolean newId;
 
     /**
      * Initializes the insert. Do not call the constructor directly, instead
@@ -90,6 +101,88 @@ public class SQLInsert
             this.column(getIdColumn(), ret);
         }
 
+        final String cmd = getSQL();
+
+        SQLInsert.LOG.debug("Executing SQL: {}", cmd);
+
+        final PreparedStatement stmt;
+        if (this.newId && supGenKey) {
+            if (Context.getDbType().supportsMultiGeneratedKeys()) {
+                stmt = _con.prepareStatement(cmd, new String[]{ getIdColumn() });
+            } else {
+                stmt = _con.prepareStatement(cmd, Statement.RETURN_GENERATED_KEYS);
+            }
+        } else {
+            stmt = _con.prepareStatement(cmd);
+        }
+
+        setValues(stmt);
+        _con.registerWrite(getTableName());
+
+        try {
+            final int rows = stmt.executeUpdate();
+            if (rows == 0) {
+                throw new SQLException("Object for SQL table '" + getTableName()
+                        + "' does not exists and was not inserted.");
+            }
+
+            // if auto generated get new id
+            if (this.newId && supGenKey) {
+                final ResultSet resultset = stmt.getGeneratedKeys();
+                if (resultset.next()) {
+                    ret = resultset.getLong(1);
+                }
+                resultset.close();
+            }
+        } finally  {
+            stmt.close();
+        }
+
+        if (this.newId && SQLInsert.LOG.isDebugEnabled()) {
+            SQLInsert.LOG.debug("new generated id " + ret);
+        }
+
+        return ret;
+    }
+
+    /**
+     * Sets an id that was allocated before (e.g. for a batch) as the value
+     * of the id column. No new id will be created by this insert.
+     *
+     * @param _id the id
+     * @return this SQL insert
+     */
+    public SQLInsert presetId(final long _id)
+    {
+        this.newId = false;
+        return column(getIdColumn(), _id);
+    }
+
+    /**
+     * Set the values of the columns in the prepared statement.
+     *
+     * @param _stmt the prepared statement
+     * @throws SQLException on error
+     */
+    protected void setValues(final PreparedStatement _stmt)
+        throws SQLException
+    {
+        int index = 1;
+        for (final AbstractColumnWithValue<?> col : getColumnWithValues())  {
+            if (SQLInsert.LOG.isDebugEnabled()) {
+                SQLInsert.LOG.debug("    " + index + " = " + col.getValue());
+            }
+            col.set(index++, _stmt);
+        }
+    }
+
+    /**
+     * Gets the SQL command of this insert.
+     *
+     * @return the SQL command
+     */
+    protected String getSQL()
+    {
         final StringBuilder cmd = new StringBuilder()
             .append(Context.getDbType().getSQLPart(SQLPart.INSERT))
             .append(" ")
@@ -136,51 +229,51 @@ public class SQLInsert
             .append(Context.getDbType().getSQLPart(SQLPart.PARENTHESIS_OPEN))
             .append(val)
             .append(Context.getDbType().getSQLPart(SQLPart.PARENTHESIS_CLOSE));
+        return cmd.toString();
+    }
 
-        SQLInsert.LOG.debug("Executing SQL: {}", cmd.toString());
-
-        final PreparedStatement stmt;
-        if (this.newId && supGenKey) {
-            if (Context.getDbType().supportsMultiGeneratedKeys()) {
-                stmt = _con.prepareStatement(cmd.toString(), new String[]{ getIdColumn() });
-            } else {
-                stmt = _con.prepareStatement(cmd.toString(), Statement.RETURN_GENERATED_KEYS);
-            }
-        } else {
-            stmt = _con.prepareStatement(cmd.toString());
-        }
-
-        int index = 1;
-        for (final AbstractColumnWithValue<?> col : getColumnWithValues())  {
-            if (SQLInsert.LOG.isDebugEnabled()) {
-                SQLInsert.LOG.debug("    " + index + " = " + col.getValue());
+    /**
+     * Executes the given inserts using JDBC batches. The inserts are grouped
+     * by their SQL command so that each distinct command is prepared only
+     * once. The inserts must not create a new id, the ids must be set before
+     * by using {@link #presetId(long)} or explicitly as column.
+     *
+     * @param _con SQL connection
+     * @param _inserts inserts to be executed
+     * @throws SQLException if an insert failed
+     */
+    public static void executeBatch(final ConnectionResource _con,
+                                    final Collection<SQLInsert> _inserts)
+        throws SQLException
+    {
+        final Map<String, List<SQLInsert>> cmd2inserts = new LinkedHashMap<>();
+        for (final SQLInsert insert : _inserts) {
+            if (insert.newId) {
+                throw new SQLException("Insert for SQL table '" + insert.getTableName()
+                                + "' requires a new id and can not be executed in a batch.");
             }
-            col.set(index++, stmt);
+            cmd2inserts.computeIfAbsent(insert.getSQL(), cmd -> new ArrayList<>()).add(insert);
+            _con.registerWrite(insert.getTableName());
         }
-
-        try {
-            final int rows = stmt.executeUpdate();
-            if (rows == 0) {
-                throw new SQLException("Object for SQL table '" + getTableName()
-                        + "' does not exists and was not inserted.");
-            }
-
-            // if auto generated get new id
-            if (this.newId && supGenKey) {
-                final ResultSet resultset = stmt.getGeneratedKeys();
-                if (resultset.next()) {
-                    ret = resultset.getLong(1);
+        for (final Entry<String, List<SQLInsert>> entry : cmd2inserts.entrySet()) {
+            SQLInsert.LOG.debug("Executing SQL batch for {} rows: {}", entry.getValue().size(), entry.getKey());
+            final PreparedStatement stmt = _con.prepareStatement(entry.getKey());
+            try {
+                int count = 0;
+                for (final SQLInsert insert : entry.getValue()) {
+                    insert.setValues(stmt);
+                    stmt.addBatch();
+                    count++;
+                    if (count % SQLInsert.BATCHSIZE == 0) {
+                        stmt.executeBatch();
+                    }
                 }
-                resultset.close();
+                if (count % SQLInsert.BATCHSIZE != 0) {
+                    stmt.executeBatch();
+                }
+            } finally {
+                stmt.close();
             }
-        } finally  {
-            stmt.close();
         }
-
-        if (this.newId && SQLInsert.LOG.isDebugEnabled()) {
-            SQLInsert.LOG.debug("new generated id " + ret);
-        }
-
-        return ret;
     }
 }
@@ -52,6 +52,19 @@ public class SQLOrder
         }
     }
 
+    /**
+     * Gets a copy of this order for the given select.
+     *
+     * @param _sqlSelect the sql select the copy belongs to
+     * @return the copy
+     */
+    protected SQLOrder getCopy(final SQLSelect _sqlSelect)
+    {
+        final SQLOrder ret = new SQLOrder(_sqlSelect);
+        ret.elements.addAll(elements);
+        return ret;
+    }
+
     public void appendSQL(final String _tablePrefix,
                           final StringBuilder _cmd)
     {
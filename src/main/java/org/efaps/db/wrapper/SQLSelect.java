@@ -15,10 +15,16 @@
  */
 package org.efaps.db.wrapper;
 
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.efaps.db.Context;
@@ -63,7 +69,7 @@ public class SQLSelect
     private final String tablePrefix;
 
     /** The indexer. */
-    private final TableIndexer indexer = new TableIndexer();
+    private final TableIndexer indexer;
 
     /** The where. */
     private SQLWhere where;
@@ -88,8 +94,21 @@ public class SQLSelect
      * @param _prefix the _prefix
      */
     public SQLSelect(final String _prefix)
+    {
+        this(_prefix, new TableIndexer());
+    }
+
+    /**
+     * Instantiates a new SQL select.
+     *
+     * @param _prefix the _prefix
+     * @param _indexer the indexer
+     */
+    private SQLSelect(final String _prefix,
+                      final TableIndexer _indexer)
     {
         tablePrefix = _prefix;
+        indexer = _indexer;
     }
 
     /**
@@ -211,6 +230,21 @@ public class SQLSelect
         return fromTables;
     }
 
+    /**
+     * Gets the names of the tables this select reads from, including the
+     * joined tables.
+     *
+     * @return the names of the tables
+     */
+    public Set<String> getTableNames()
+    {
+        final Set<String> ret = new HashSet<>();
+        for (final FromTable fromTable : fromTables) {
+            ret.add(fromTable.getTableName());
+        }
+        return ret;
+    }
+
     /**
      *
      * @param _tableName name of the SQL table
@@ -321,6 +355,20 @@ public class SQLSelect
      * @return SQL statement
      */
     public String getSQL()
+    {
+        return getSQL(null);
+    }
+
+    /**
+     * Returns the depending SQL statement. If a list of parameters is given,
+     * the values of the where criterias are rendered as placeholders and
+     * added to the list in the order they must be bound.
+     *
+     * @param _parameters list the bound values are added to,
+     *            <code>null</code> to render the values literally
+     * @return SQL statement
+     */
+    public String getSQL(final List<Object> _parameters)
     {
         final StringBuilder cmd = new StringBuilder().append(" ")
                         .append(Context.getDbType().getSQLPart(SQLPart.SELECT)).append(" ");
@@ -339,7 +387,7 @@ public class SQLSelect
         cmd.append(" ").append(Context.getDbType().getSQLPart(SQLPart.FROM)).append(" ");
         first = true;
         for (final FromTable fromTable : fromTables) {
-            fromTable.appendSQL(first, cmd);
+            fromTable.appendSQL(first, cmd, _parameters);
             if (first) {
                 first = false;
             }
@@ -347,14 +395,14 @@ public class SQLSelect
         cmd.append(" ");
         boolean whereAdded = false;
         for (final SQLSelectPart part : parts) {
-            part.appendSQL(cmd);
+            part.appendSQL(cmd, _parameters);
             cmd.append(" ");
             whereAdded = whereAdded || !whereAdded && SQLPart.WHERE.equals(part.sqlpart);
         }
 
         if (where != null) {
             where.setStarted(whereAdded);
-            where.appendSQL(tablePrefix, cmd);
+            where.appendSQL(tablePrefix, cmd, _parameters);
         }
 
         if (order != null) {
@@ -453,6 +501,24 @@ public class SQLSelect
         return this;
     }
 
+    /**
+     * Add a filter for the given ids on a column. If the select is rendered
+     * with parameters and the database supports it, the ids are bound as one
+     * array parameter, else they are written into an IN clause.
+     *
+     * @param _tableIndex index of the table
+     * @param _columnName name of the column
+     * @param _ids ids to filter for
+     * @return this
+     */
+    public SQLSelect addIdFilterPart(final Integer _tableIndex,
+                                     final String _columnName,
+                                     final Collection<Long> _ids)
+    {
+        parts.add(new IdFilter(new Column(tablePrefix, _tableIndex, _columnName), _ids));
+        return this;
+    }
+
     /**
      * @param _value add the value that must be escaped
      * @return this
@@ -500,6 +566,30 @@ public class SQLSelect
         return select;
     }
 
+    /**
+     * Gets a copy of the columns, tables, joins and order of this select that
+     * can be extended independently of this select. Used to reuse a prepared
+     * select as a plan. The where clause is not copied.
+     *
+     * @return the copy
+     */
+    public SQLSelect getPlanCopy()
+    {
+        final SQLSelect ret = new SQLSelect(tablePrefix, indexer.getCopy());
+        ret.columns.addAll(columns);
+        ret.parts.addAll(parts);
+        for (final FromTable fromTable : fromTables) {
+            ret.fromTables.add(fromTable.getCopy());
+        }
+        ret.distinct = distinct;
+        if (order != null) {
+            ret.order = order.getCopy(ret);
+        }
+        ret.limit = limit;
+        ret.offset = offset;
+        return ret;
+    }
+
     /**
      * Gets the current.
      *
@@ -657,6 +747,24 @@ public class SQLSelect
             }
         }
 
+        /**
+         * Appends the SQL for this table. Values of criterias are rendered as
+         * placeholders and added to the list of parameters if given.
+         *
+         * @param _first <i>true</i> if first statement and a comma must be
+         *            prefixed; otherwise <i>false</i>
+         * @param _cmd string builder used to append SQL statement for this
+         *            table
+         * @param _parameters list the bound values are added to,
+         *            <code>null</code> to render the values literally
+         */
+        public void appendSQL(final boolean _first,
+                              final StringBuilder _cmd,
+                              final List<Object> _parameters)
+        {
+            appendSQL(_first, _cmd);
+        }
+
         /**
          * Getter method for the instance variable {@link #tablePrefix}.
          *
@@ -666,6 +774,16 @@ public class SQLSelect
         {
             return tablePrefix;
         }
+
+        /**
+         * Gets a copy of this table that can be changed independently.
+         *
+         * @return the copy
+         */
+        protected FromTable getCopy()
+        {
+            return this;
+        }
     }
 
     /**
@@ -760,6 +878,14 @@ public class SQLSelect
         @Override
         public void appendSQL(final boolean _first,
                               final StringBuilder _cmd)
+        {
+            appendSQL(_first, _cmd, null);
+        }
+
+        @Override
+        public void appendSQL(final boolean _first,
+                              final StringBuilder _cmd,
+                              final List<Object> _parameters)
         {
             if (!_first) {
                 _cmd.append(' ');
@@ -810,10 +936,31 @@ public class SQLSelect
             if (where != null) {
                 _cmd.append(" ");
                 where.setStarted(true);
-                where.appendSQL(getTablePrefix(), _cmd);
+                where.appendSQL(getTablePrefix(), _cmd, _parameters);
             }
         }
 
+        /**
+         * Copy constructor.
+         *
+         * @param _join the join to copy
+         */
+        protected FromTableLeftJoin(final FromTableLeftJoin _join)
+        {
+            super(_join.getTablePrefix(), _join.getTableName(), _join.getTableIndex());
+            where = _join.where == null ? null : _join.where.getCopy();
+            columnNames = _join.columnNames;
+            joinTableIndex = _join.joinTableIndex;
+            joinColumnNames = _join.joinColumnNames;
+            typeCriterias = _join.typeCriterias == null ? null : _join.typeCriterias.clone();
+        }
+
+        @Override
+        protected FromTable getCopy()
+        {
+            return new FromTableLeftJoin(this);
+        }
+
         /**
          * @return the join for this class
          */
@@ -881,6 +1028,22 @@ public class SQLSelect
             super(_tablePrefix, _tableName, _tableIndex, _columnNames, _joinTableIndex, _joinColumnNames);
         }
 
+        /**
+         * Copy constructor.
+         *
+         * @param _join the join to copy
+         */
+        private FromTableInnerJoin(final FromTableInnerJoin _join)
+        {
+            super(_join);
+        }
+
+        @Override
+        protected FromTable getCopy()
+        {
+            return new FromTableInnerJoin(this);
+        }
+
         /**
          * {@inheritDoc}
          */
@@ -1054,6 +1217,20 @@ public class SQLSelect
             _cmd.append(Context.getDbType().getSQLPart(sqlpart));
         }
 
+        /**
+         * Append the SQL for this part. Parts that can be bound add their
+         * values to the list of parameters if given.
+         *
+         * @param _cmd StringBuilder to append to
+         * @param _parameters list the bound values are added to,
+         *            <code>null</code> to render the values literally
+         */
+        public void appendSQL(final StringBuilder _cmd,
+                              final List<Object> _parameters)
+        {
+            appendSQL(_cmd);
+        }
+
         @Override
         public String toString()
         {
@@ -1120,4 +1297,139 @@ public class SQLSelect
             return cmd.toString();
         }
     }
+
+    /**
+     * Filter on a column for a list of ids.
+     */
+    public static class IdFilter
+        extends SQLSelectPart
+    {
+
+        /** Column the filter is applied on. */
+        private final Column column;
+
+        /** Ids to filter for. */
+        private final Long[] ids;
+
+        /**
+         * @param _column column the filter is applied on
+         * @param _ids ids to filter for
+         */
+        protected IdFilter(final Column _column,
+                           final Collection<Long> _ids)
+        {
+            column = _column;
+            ids = _ids.toArray(new Long[_ids.size()]);
+        }
+
+        @Override
+        public void appendSQL(final StringBuilder _cmd)
+        {
+            appendSQL(_cmd, null);
+        }
+
+        @Override
+        public void appendSQL(final StringBuilder _cmd,
+                              final List<Object> _parameters)
+        {
+            final String arrayType = Context.getDbType().getIdArrayType();
+            if (_parameters != null && arrayType != null) {
+                column.appendSQL(_cmd);
+                _cmd.append(" = ANY(?)");
+                _parameters.add(new IdArray(arrayType, ids));
+            } else {
+                final int max = Context.getDbType().getMaxExpressions();
+                final boolean split = max > -1 && ids.length > max;
+                if (split) {
+                    _cmd.append(Context.getDbType().getSQLPart(SQLPart.PARENTHESIS_OPEN)).append(" ");
+                }
+                appendIn(_cmd);
+                int i = 0;
+                for (final Long id : ids) {
+                    if (split && i > 0 && i % max == 0) {
+                        _cmd.append(" ").append(Context.getDbType().getSQLPart(SQLPart.PARENTHESIS_CLOSE))
+                            .append(" ").append(Context.getDbType().getSQLPart(SQLPart.OR)).append(" ");
+                        appendIn(_cmd);
+                    } else if (i > 0) {
+                        _cmd.append(Context.getDbType().getSQLPart(SQLPart.COMMA));
+                    }
+                    _cmd.append(id);
+                    i++;
+                }
+                _cmd.append(" ").append(Context.getDbType().getSQLPart(SQLPart.PARENTHESIS_CLOSE));
+                if (split) {
+                    _cmd.append(" ").append(Context.getDbType().getSQLPart(SQLPart.PARENTHESIS_CLOSE));
+                }
+            }
+        }
+
+        /**
+         * Append the start of an IN clause for the column.
+         *
+         * @param _cmd StringBuilder to append to
+         */
+        private void appendIn(final StringBuilder _cmd)
+        {
+            column.appendSQL(_cmd);
+            _cmd.append(" ").append(Context.getDbType().getSQLPart(SQLPart.IN))
+                .append(" ").append(Context.getDbType().getSQLPart(SQLPart.PARENTHESIS_OPEN))
+                .append(" ");
+        }
+
+        @Override
+        public String toString()
+        {
+            final StringBuilder cmd = new StringBuilder();
+            appendSQL(cmd);
+            return cmd.toString();
+        }
+    }
+
+    /**
+     * A list of ids bound as one array parameter.
+     */
+    public static class IdArray
+    {
+
+        /** SQL type of the elements of the array. */
+        private final String sqlType;
+
+        /** The ids. */
+        private final Long[] ids;
+
+        /**
+         * @param _sqlType SQL type of the elements of the array
+         * @param _ids the ids
+         */
+        public IdArray(final String _sqlType,
+                       final Long[] _ids)
+        {
+            sqlType = _sqlType;
+            ids = _ids;
+        }
+
+        /**
+         * Bind the ids as array to the statement. The returned array must
+         * be freed after the statement was executed.
+         *
+         * @param _stmt statement to bind to
+         * @param _index index of the parameter
+         * @return the bound array
+         * @throws SQLException on error
+         */
+        public Array bind(final PreparedStatement _stmt,
+                          final int _index)
+            throws SQLException
+        {
+            final Array ret = _stmt.getConnection().createArrayOf(sqlType, ids);
+            _stmt.setArray(_index, ret);
+            return ret;
+        }
+
+        @Override
+        public String toString()
+        {
+            return Arrays.toString(ids);
+        }
+    }
 }
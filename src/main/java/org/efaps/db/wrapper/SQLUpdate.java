@@ -21,14 +21,25 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.apache.commons.dbutils.handlers.ArrayListHandler;
+import org.efaps.admin.EFapsSystemConfiguration;
+import org.efaps.admin.KernelSettings;
+import org.efaps.admin.common.SystemConfiguration;
 import org.efaps.db.Context;
 import org.efaps.db.transaction.ConnectionResource;
+import org.efaps.util.EFapsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,6 +64,11 @@ public class SQLUpdate
      */
     private static final Logger LOG = LoggerFactory.getLogger(SQLUpdate.class);
 
+    /**
+     * Default for the maximum number of ids used in one statement.
+     */
+    private static final int DEFAULT_CHUNKSIZE = 1000;
+
     /**
      * Ids of the rows to be updated.
      */
@@ -89,95 +105,245 @@ public class SQLUpdate
     {
         final Set<String> ret = new HashSet<>();
         if (getIds().length > 1 || checkUpdateRequired(_con)) {
-            final StringBuilder cmd = new StringBuilder()
-                .append(Context.getDbType().getSQLPart(SQLPart.UPDATE)).append(" ")
-                .append(Context.getDbType().getTableQuote())
-                .append(getTableName())
-                .append(Context.getDbType().getTableQuote()).append(" ")
-                .append(Context.getDbType().getSQLPart(SQLPart.SET)).append(" ");
-
-            // append SQL values
-            boolean first = true;
-            for (final ColumnWithSQLValue col : getColumnWithSQLValues())  {
-                if (first)  {
-                    first = false;
-                } else  {
-                    cmd.append(Context.getDbType().getSQLPart(SQLPart.COMMA));
-                }
-                cmd.append(Context.getDbType().getColumnQuote())
-                    .append(col.getColumnName())
-                    .append(Context.getDbType().getColumnQuote())
-                    .append(Context.getDbType().getSQLPart(SQLPart.EQUAL))
-                    .append(col.getSqlValue());
-            }
-
-            // append values
             for (final AbstractColumnWithValue<?> col : getColumnWithValues())  {
-                if (first)  {
-                    first = false;
-                } else  {
-                    cmd.append(Context.getDbType().getSQLPart(SQLPart.COMMA));
-                }
-                cmd.append(Context.getDbType().getColumnQuote())
-                    .append(col.getColumnName())
-                    .append(Context.getDbType().getColumnQuote())
-                    .append(Context.getDbType().getSQLPart(SQLPart.EQUAL))
-                    .append("?");
                 ret.add(col.getColumnName());
             }
+            SQLUpdate.executeMerged(_con, Collections.singletonList(this),
+                            getIds().length > 1 ? SQLUpdate.getChunkSize() : 1);
+        }
+        return ret;
+    }
+
+    /**
+     * Get the SQL statement for the given number of ids.
+     *
+     * @param _idCount number of ids the statement is executed for
+     * @return the SQL statement
+     */
+    protected String getSQL(final int _idCount)
+    {
+        final StringBuilder cmd = new StringBuilder()
+            .append(Context.getDbType().getSQLPart(SQLPart.UPDATE)).append(" ")
+            .append(Context.getDbType().getTableQuote())
+            .append(getTableName())
+            .append(Context.getDbType().getTableQuote()).append(" ")
+            .append(Context.getDbType().getSQLPart(SQLPart.SET)).append(" ");
 
-            // append where clause
-            cmd.append(" ").append(Context.getDbType().getSQLPart(SQLPart.WHERE)).append(" ")
+        // append SQL values
+        boolean first = true;
+        for (final ColumnWithSQLValue col : getColumnWithSQLValues())  {
+            if (first)  {
+                first = false;
+            } else  {
+                cmd.append(Context.getDbType().getSQLPart(SQLPart.COMMA));
+            }
+            cmd.append(Context.getDbType().getColumnQuote())
+                .append(col.getColumnName())
                 .append(Context.getDbType().getColumnQuote())
-                .append(getIdColumn())
-                .append(Context.getDbType().getColumnQuote());
+                .append(Context.getDbType().getSQLPart(SQLPart.EQUAL))
+                .append(col.getSqlValue());
+        }
 
-            if (this.ids.length == 1) {
-                cmd.append(Context.getDbType().getSQLPart(SQLPart.EQUAL))
-                    .append("?");
-            } else {
-                cmd.append(" ").append(Context.getDbType().getSQLPart(SQLPart.IN)).append(" ")
-                    .append(Context.getDbType().getSQLPart(SQLPart.PARENTHESIS_OPEN));
-                first = true;
-                for (@SuppressWarnings("unused") final long id : this.ids) {
-                    if (first)  {
-                        first = false;
-                    } else  {
-                        cmd.append(Context.getDbType().getSQLPart(SQLPart.COMMA));
-                    }
-                    cmd.append("?");
+        // append values
+        for (final AbstractColumnWithValue<?> col : getColumnWithValues())  {
+            if (first)  {
+                first = false;
+            } else  {
+                cmd.append(Context.getDbType().getSQLPart(SQLPart.COMMA));
+            }
+            cmd.append(Context.getDbType().getColumnQuote())
+                .append(col.getColumnName())
+                .append(Context.getDbType().getColumnQuote())
+                .append(Context.getDbType().getSQLPart(SQLPart.EQUAL))
+                .append("?");
+        }
+
+        // append where clause
+        cmd.append(" ").append(Context.getDbType().getSQLPart(SQLPart.WHERE)).append(" ")
+            .append(Context.getDbType().getColumnQuote())
+            .append(getIdColumn())
+            .append(Context.getDbType().getColumnQuote());
+
+        if (_idCount == 1) {
+            cmd.append(Context.getDbType().getSQLPart(SQLPart.EQUAL))
+                .append("?");
+        } else {
+            cmd.append(" ").append(Context.getDbType().getSQLPart(SQLPart.IN)).append(" ")
+                .append(Context.getDbType().getSQLPart(SQLPart.PARENTHESIS_OPEN));
+            for (int i = 0; i < _idCount; i++) {
+                if (i > 0)  {
+                    cmd.append(Context.getDbType().getSQLPart(SQLPart.COMMA));
                 }
-                cmd.append(Context.getDbType().getSQLPart(SQLPart.PARENTHESIS_CLOSE));
+                cmd.append("?");
             }
+            cmd.append(Context.getDbType().getSQLPart(SQLPart.PARENTHESIS_CLOSE));
+        }
+        return cmd.toString();
+    }
 
+    /**
+     * Set the values and the given ids as parameters of the statement.
+     *
+     * @param _stmt statement the parameters will be set for
+     * @param _ids ids to be set
+     * @throws SQLException on error
+     */
+    protected void setValues(final PreparedStatement _stmt,
+                             final Long[] _ids)
+        throws SQLException
+    {
+        int index = 1;
+        for (final AbstractColumnWithValue<?> col : getColumnWithValues())  {
             if (SQLUpdate.LOG.isDebugEnabled()) {
-                SQLUpdate.LOG.debug(cmd.toString());
+                SQLUpdate.LOG.debug("    " + index + " = " + col.getValue());
             }
+            col.set(index++, _stmt);
+        }
 
-            final PreparedStatement stmt = _con.prepareStatement(cmd.toString());
-            int index = 1;
-            for (final AbstractColumnWithValue<?> col : getColumnWithValues())  {
-                if (SQLUpdate.LOG.isDebugEnabled()) {
-                    SQLUpdate.LOG.debug("    " + index + " = " + col.getValue());
-                }
-                col.set(index++, stmt);
+        for (final long id : _ids) {
+            SQLUpdate.LOG.debug("    " + index + " = " + id);
+            _stmt.setLong(index++, id);
+        }
+    }
+
+    /**
+     * Get the key that identifies updates setting identical values on the
+     * same table.
+     *
+     * @return the key
+     */
+    private List<Object> getValueKey()
+    {
+        final List<Object> ret = new ArrayList<>();
+        ret.add(getTableName());
+        ret.add(getIdColumn());
+        for (final ColumnWithSQLValue col : getColumnWithSQLValues())  {
+            ret.add(col.getColumnName());
+            ret.add(col.getSqlValue());
+        }
+        for (final AbstractColumnWithValue<?> col : getColumnWithValues())  {
+            ret.add(col.getColumnName());
+            ret.add(col.getValue());
+        }
+        return ret;
+    }
+
+    /**
+     * Executes the given updates. Updates setting identical values on the same
+     * table are merged into one <code>UPDATE ... WHERE ID IN (...)</code>.
+     * The ids are split into chunks of the size defined by
+     * {@link KernelSettings#UPDATECHUNKSIZE}, and all chunks resulting in the
+     * same SQL statement are executed as one JDBC batch. The chunk size is
+     * read once for all given updates.
+     *
+     * @param _con      SQL connection
+     * @param _updates  updates to execute
+     * @throws SQLException if update failed or one of the rows does not exist
+     */
+    public static void execute(final ConnectionResource _con,
+                               final Collection<SQLUpdate> _updates)
+        throws SQLException
+    {
+        final List<SQLUpdate> updates = new ArrayList<>();
+        for (final SQLUpdate update : _updates) {
+            if (update.getIds().length > 1 || update.checkUpdateRequired(_con)) {
+                updates.add(update);
             }
+        }
+        if (!updates.isEmpty()) {
+            SQLUpdate.executeMerged(_con, updates, SQLUpdate.getChunkSize());
+        }
+    }
 
-            for (final long id : this.ids) {
-                SQLUpdate.LOG.debug("    " + index + " = " + id);
-                stmt.setLong(index++, id);
+    /**
+     * Executes the given updates without checking if the update is required.
+     *
+     * @param _con          SQL connection
+     * @param _updates      updates to execute
+     * @param _chunkSize    maximum number of ids used in one statement
+     * @throws SQLException if update failed or one of the rows does not exist
+     */
+    static void executeMerged(final ConnectionResource _con,
+                              final Collection<SQLUpdate> _updates,
+                              final int _chunkSize)
+        throws SQLException
+    {
+        final Map<List<Object>, SQLUpdate> key2update = new LinkedHashMap<>();
+        final Map<List<Object>, List<Long>> key2ids = new LinkedHashMap<>();
+        for (final SQLUpdate update : _updates) {
+            _con.registerWrite(update.getTableName());
+            final List<Object> key = update.getValueKey();
+            key2update.putIfAbsent(key, update);
+            Collections.addAll(key2ids.computeIfAbsent(key, k -> new ArrayList<>()), update.getIds());
+        }
+
+        final Map<String, List<Chunk>> sql2chunks = new LinkedHashMap<>();
+        for (final Entry<List<Object>, SQLUpdate> entry : key2update.entrySet()) {
+            final Long[] ids = key2ids.get(entry.getKey()).toArray(new Long[0]);
+            for (int i = 0; i < ids.length; i = i + _chunkSize) {
+                final Long[] chunkIds = Arrays.copyOfRange(ids, i, Math.min(i + _chunkSize, ids.length));
+                sql2chunks.computeIfAbsent(entry.getValue().getSQL(chunkIds.length), k -> new ArrayList<>())
+                    .add(new Chunk(entry.getValue(), chunkIds));
             }
+        }
 
+        for (final Entry<String, List<Chunk>> entry : sql2chunks.entrySet()) {
+            if (SQLUpdate.LOG.isDebugEnabled()) {
+                SQLUpdate.LOG.debug(entry.getKey());
+            }
+            final PreparedStatement stmt = _con.prepareStatement(entry.getKey());
             try  {
-                final int rows = stmt.executeUpdate();
-                if (rows == 0) {
-                    throw new SQLException("Object for SQL table '" + getTableName()
-                            + "' with ids '" + this.ids + "' does not exists and was not updated.");
+                if (entry.getValue().size() == 1) {
+                    final Chunk chunk = entry.getValue().get(0);
+                    chunk.update.setValues(stmt, chunk.ids);
+                    if (stmt.executeUpdate() == 0) {
+                        throw new SQLException("Object for SQL table '" + chunk.update.getTableName()
+                                + "' with ids '" + Arrays.toString(chunk.ids)
+                                + "' does not exists and was not updated.");
+                    }
+                } else {
+                    for (final Chunk chunk : entry.getValue()) {
+                        chunk.update.setValues(stmt, chunk.ids);
+                        stmt.addBatch();
+                    }
+                    final int[] rows = stmt.executeBatch();
+                    for (int i = 0; i < rows.length; i++) {
+                        if (rows[i] == 0) {
+                            final Chunk chunk = entry.getValue().get(i);
+                            throw new SQLException("Object for SQL table '" + chunk.update.getTableName()
+                                    + "' with ids '" + Arrays.toString(chunk.ids)
+                                    + "' does not exists and was not updated.");
+                        }
+                    }
                 }
             } finally  {
                 stmt.close();
             }
         }
+    }
+
+    /**
+     * Get the maximum number of ids used in one statement. The value is read
+     * from the SystemConfiguration and limited by the maximum number of
+     * expressions the database supports.
+     *
+     * @return the chunk size
+     */
+    private static int getChunkSize()
+    {
+        final int maxExpressions = Context.getDbType().getMaxExpressions();
+        int ret = maxExpressions > 0 ? maxExpressions : SQLUpdate.DEFAULT_CHUNKSIZE;
+        try {
+            final SystemConfiguration config = EFapsSystemConfiguration.get();
+            if (config != null) {
+                final int configured = config.getAttributeValueAsInteger(KernelSettings.UPDATECHUNKSIZE);
+                if (configured > 0) {
+                    ret = maxExpressions > 0 ? Math.min(configured, maxExpressions) : configured;
+                }
+            }
+        } catch (final EFapsException e) {
+            SQLUpdate.LOG.error("Could not read the chunk size for updates.", e);
+        }
         return ret;
     }
 
@@ -270,4 +436,30 @@ public class SQLUpdate
     {
         return this.ids;
     }
+
+    /**
+     * The ids of an update that are executed with one statement.
+     */
+    private static final class Chunk
+    {
+
+        /** The update. */
+        private final SQLUpdate update;
+
+        /** The ids. */
+        private final Long[] ids;
+
+        /**
+         * Instantiates a new chunk.
+         *
+         * @param _update the update
+         * @param _ids the ids
+         */
+        private Chunk(final SQLUpdate _update,
+                      final Long[] _ids)
+        {
+            update = _update;
+            ids = _ids;
+        }
+    }
 }
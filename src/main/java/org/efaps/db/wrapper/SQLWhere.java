@@ -15,13 +15,30 @@
  */
 package org.efaps.db.wrapper;
 
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-
+import java.util.regex.Pattern;
+
+import org.efaps.admin.datamodel.attributetype.BooleanType;
+import org.efaps.admin.datamodel.attributetype.DateTimeType;
+import org.efaps.admin.datamodel.attributetype.DateType;
+import org.efaps.admin.datamodel.attributetype.DecimalType;
+import org.efaps.admin.datamodel.attributetype.IAttributeType;
+import org.efaps.admin.datamodel.attributetype.IntegerType;
+import org.efaps.admin.datamodel.attributetype.LongType;
+import org.efaps.admin.datamodel.attributetype.RealType;
+import org.efaps.admin.datamodel.attributetype.StringType;
+import org.efaps.admin.datamodel.attributetype.TimeType;
 import org.efaps.db.wrapper.SQLSelect.EscapedValue;
 import org.efaps.db.wrapper.SQLSelect.SQLSelectPart;
 import org.efaps.eql2.Comparison;
@@ -33,6 +50,12 @@ import org.efaps.eql2.Connection;
 public class SQLWhere
 {
 
+    /** Pattern for values that can be bound as Long. */
+    private static final Pattern LONGVALUE = Pattern.compile("-?\\d{1,18}");
+
+    /** Pattern for values that can be bound as BigDecimal. */
+    private static final Pattern DECIMALVALUE = Pattern.compile("-?\\d+\\.\\d+");
+
     /** The criterias. */
     private final List<Section> sections = new ArrayList<>();
 
@@ -103,6 +126,52 @@ public class SQLWhere
         return this;
     }
 
+    /**
+     * Gets a copy of this where including copies of its sections, so that
+     * the copy can be rendered and extended independently of this where.
+     *
+     * @return the copy
+     */
+    public SQLWhere getCopy()
+    {
+        final SQLWhere ret = new SQLWhere();
+        for (final Section section : sections) {
+            ret.sections.add(copy(section));
+        }
+        ret.started = started;
+        ret.sqlSelect = sqlSelect;
+        return ret;
+    }
+
+    /**
+     * Copy a section.
+     *
+     * @param _section the section
+     * @return the copy
+     */
+    private static Section copy(final Section _section)
+    {
+        final Section ret;
+        if (_section instanceof Group) {
+            final Group group = new Group().setConnection(_section.getConnection());
+            for (final Section section : (Group) _section) {
+                group.add(copy(section));
+            }
+            ret = group;
+        } else {
+            final Criteria criteria = (Criteria) _section;
+            ret = new Criteria()
+                            .tableIndex(criteria.tableIndex)
+                            .colNames(criteria.colNames == null ? null : new ArrayList<>(criteria.colNames))
+                            .comparison(criteria.comparison)
+                            .values(criteria.values == null ? null : new LinkedHashSet<>(criteria.values))
+                            .escape(criteria.escape)
+                            .attrType(criteria.attrType)
+                            .connection(criteria.connection);
+        }
+        return ret;
+    }
+
     /**
      * Append SQL.
      *
@@ -111,6 +180,22 @@ public class SQLWhere
      */
     protected void appendSQL(final String _tablePrefix,
                              final StringBuilder _cmd)
+    {
+        appendSQL(_tablePrefix, _cmd, null);
+    }
+
+    /**
+     * Append SQL. If a list of parameters is given, the values of the
+     * criterias are rendered as placeholders and added to the list.
+     *
+     * @param _tablePrefix the table prefix
+     * @param _cmd the cmd
+     * @param _parameters list the bound values are added to, <code>null</code>
+     *            to render the values literally
+     */
+    protected void appendSQL(final String _tablePrefix,
+                             final StringBuilder _cmd,
+                             final List<Object> _parameters)
     {
         if (sections.size() > 0) {
             if (isStarted()) {
@@ -120,13 +205,20 @@ public class SQLWhere
                 new SQLSelectPart(SQLPart.WHERE).appendSQL(_cmd);
                 new SQLSelectPart(SQLPart.SPACE).appendSQL(_cmd);
             }
-            addSectionsSQL(_tablePrefix, _cmd, sections);
+            addSectionsSQL(_tablePrefix, _cmd, sections, _parameters);
         }
     }
 
     protected void addSectionsSQL(final String _tablePrefix,
                                   final StringBuilder _cmd,
                                   final List<Section> sections) {
+        addSectionsSQL(_tablePrefix, _cmd, sections, null);
+    }
+
+    protected void addSectionsSQL(final String _tablePrefix,
+                                  final StringBuilder _cmd,
+                                  final List<Section> sections,
+                                  final List<Object> _parameters) {
         boolean first = true;
         for (final Section section : sections) {
             if (first) {
@@ -151,7 +243,7 @@ public class SQLWhere
             if (section instanceof Group) {
                 final Group group = (Group) section;
                 new SQLSelect.SQLSelectPart(SQLPart.PARENTHESIS_OPEN).appendSQL(_cmd);
-                addSectionsSQL(_tablePrefix, _cmd, group);
+                addSectionsSQL(_tablePrefix, _cmd, group, _parameters);
                 new SQLSelect.SQLSelectPart(SQLPart.PARENTHESIS_CLOSE).appendSQL(_cmd);
             } else {
                 final Criteria criteria = (Criteria) section;
@@ -232,7 +324,9 @@ public class SQLWhere
                             } else {
                                 new SQLSelect.SQLSelectPart(SQLPart.COMMA).appendSQL(_cmd);
                             }
-                            if (criteria.escape) {
+                            if (_parameters != null && addParameter(_parameters, value, criteria)) {
+                                _cmd.append("?");
+                            } else if (criteria.escape) {
                                 new EscapedValue(value).appendSQL(_cmd);
                             } else {
                                 new SQLSelect.Value(value).appendSQL(_cmd);
@@ -247,6 +341,112 @@ public class SQLWhere
         }
     }
 
+    /**
+     * Add the value to the parameters if it can be bound. Escaped values are
+     * bound typed by the attribute type of the criteria, not escaped values
+     * only if they are plain numbers. Values that cannot be converted are
+     * rendered literally.
+     *
+     * @param _parameters the parameters
+     * @param _value the value
+     * @param _criteria the criteria the value belongs to
+     * @return true if the value was added
+     */
+    private static boolean addParameter(final List<Object> _parameters,
+                                        final String _value,
+                                        final Criteria _criteria)
+    {
+        final Object parameter;
+        if (_value == null) {
+            parameter = null;
+        } else if (_criteria.escape) {
+            parameter = SQLWhere.toTypedParameter(_criteria.attrType, _value);
+        } else if (LONGVALUE.matcher(_value).matches()) {
+            parameter = Long.valueOf(_value);
+        } else if (DECIMALVALUE.matcher(_value).matches()) {
+            parameter = new BigDecimal(_value);
+        } else {
+            parameter = null;
+        }
+        if (parameter != null) {
+            _parameters.add(parameter);
+        }
+        return parameter != null;
+    }
+
+    /**
+     * Convert an escaped value into the object to be bound for the given
+     * attribute type.
+     *
+     * @param _attrType the attribute type
+     * @param _value the value
+     * @return the object to be bound, <code>null</code> if the value cannot
+     *         be bound
+     */
+    protected static Object toTypedParameter(final IAttributeType _attrType,
+                                             final String _value)
+    {
+        Object ret = null;
+        if (_attrType instanceof StringType) {
+            ret = _value;
+        } else if (_attrType instanceof IntegerType || _attrType instanceof LongType) {
+            if (LONGVALUE.matcher(_value).matches()) {
+                final long value = Long.parseLong(_value);
+                if (_attrType instanceof IntegerType && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                    ret = Integer.valueOf((int) value);
+                } else {
+                    ret = Long.valueOf(value);
+                }
+            }
+        } else if (_attrType instanceof DecimalType || _attrType instanceof RealType) {
+            if (LONGVALUE.matcher(_value).matches() || DECIMALVALUE.matcher(_value).matches()) {
+                ret = new BigDecimal(_value);
+            }
+        } else if (_attrType instanceof BooleanType) {
+            if ("true".equalsIgnoreCase(_value) || "false".equalsIgnoreCase(_value)) {
+                ret = Boolean.valueOf(_value);
+            }
+        } else if (_attrType instanceof DateType) {
+            final LocalDateTime dateTime = SQLWhere.parseDateTime(_value);
+            if (dateTime != null) {
+                ret = Timestamp.valueOf(dateTime.toLocalDate().atStartOfDay());
+            }
+        } else if (_attrType instanceof DateTimeType && !(_attrType instanceof TimeType)) {
+            final LocalDateTime dateTime = SQLWhere.parseDateTime(_value);
+            if (dateTime != null) {
+                ret = Timestamp.valueOf(dateTime);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Parse a date or date time. As for a literal compared with a timestamp
+     * column an offset is ignored.
+     *
+     * @param _value the value
+     * @return the date time, <code>null</code> if the value could not be
+     *         parsed
+     */
+    private static LocalDateTime parseDateTime(final String _value)
+    {
+        LocalDateTime ret = null;
+        try {
+            ret = OffsetDateTime.parse(_value).toLocalDateTime();
+        } catch (final DateTimeParseException e) {
+            try {
+                ret = LocalDateTime.parse(_value);
+            } catch (final DateTimeParseException e1) {
+                try {
+                    ret = LocalDate.parse(_value).atStartOfDay();
+                } catch (final DateTimeParseException e2) {
+                    ret = null;
+                }
+            }
+        }
+        return ret;
+    }
+
     public interface Section {
         Connection getConnection();
     }
@@ -283,6 +483,7 @@ public class SQLWhere
         private Comparison comparison;
         private Set<String> values;
         private boolean escape;
+        private IAttributeType attrType;
         private Connection connection;
 
         public Criteria values(final Set<String> _values)
@@ -364,6 +565,23 @@ public class SQLWhere
             return this;
         }
 
+        public IAttributeType getAttrType()
+        {
+            return attrType;
+        }
+
+        /**
+         * Attribute type used to bind the escaped values.
+         *
+         * @param _attrType the attribute type
+         * @return this
+         */
+        public Criteria attrType(final IAttributeType _attrType)
+        {
+            attrType = _attrType;
+            return this;
+        }
+
         public Criteria connection(final Connection _connection)
         {
             connection = _connection;
@@ -36,6 +36,26 @@ public class TableIndexer
     /** The tableidxs. */
     private final List<TableIdx> tableidxs = new ArrayList<>();
 
+    /**
+     * Gets a copy of this indexer. The table indexes are copied also, so
+     * that the copy can be used independently of this indexer.
+     *
+     * @return the copy
+     */
+    public TableIndexer getCopy()
+    {
+        final TableIndexer ret = new TableIndexer();
+        ret.currentIdx = currentIdx;
+        for (final TableIdx tableIdx : tableidxs) {
+            ret.tableidxs.add(new TableIdx()
+                            .setCreated(tableIdx.created)
+                            .setTable(tableIdx.table)
+                            .setIdx(tableIdx.idx)
+                            .setKey(tableIdx.key));
+        }
+        return ret;
+    }
+
     /**
      * Gets the table idx.
      *
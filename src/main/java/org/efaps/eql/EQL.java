@@ -108,7 +108,8 @@ public final class EQL
     }
 
     /**
-     * Parses the stmt.
+     * Parses the stmt. The parsed statement is taken from the
+     * {@link StatementCache} if the same text was parsed before.
      *
      * @param _stmt the stmt
      * @return the abstract stmt
@@ -116,7 +117,7 @@ public final class EQL
     public static AbstractStmt getStatement(final CharSequence _stmt)
     {
         AbstractStmt ret = null;
-        final IStatement<?> stmt = parse(_stmt);
+        final IStatement<?> stmt = StatementCache.parse(_stmt);
         if (stmt instanceof IPrintStatement) {
             ret = PrintStmt.get((IPrintStatement<?>) stmt, null);
         } else if (stmt instanceof IDeleteStatement) {
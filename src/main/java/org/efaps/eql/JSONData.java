@@ -15,6 +15,7 @@
  */
 package org.efaps.eql;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -85,12 +86,7 @@ public final class JSONData
                 final PrintStmt printStmt = (PrintStmt) _printStmt;
                 final Map<String, AbstractSelect> mapping = printStmt.getAlias2Selects();
                 for (final Map<String, Object> map : printStmt.getData()) {
-                    final ObjectData data = new ObjectData();
-                    for (final Entry<String, AbstractSelect> entry : mapping.entrySet()) {
-                        final Object obj = map.get(entry.getKey());
-                        data.getValues().add(getValue(entry.getKey(), obj));
-                    }
-                    ret.add(data);
+                    ret.add(getObjectData(mapping, map));
                 }
 
                 final Map<String, Boolean> sortMap = printStmt.getSortKey2desc();
@@ -125,6 +121,87 @@ public final class JSONData
         return ret;
     }
 
+    /**
+     * Execute the statement without reading its rows, so that errors are
+     * thrown before the first ObjectData is passed on by
+     * {@link #forEachData(IPrintStmt, DataConsumer)}.
+     *
+     * @param _printStmt Statement to execute
+     * @throws EFapsException on error
+     */
+    @SuppressWarnings("checkstyle:illegalcatch")
+    public static void prepare(final IPrintStmt _printStmt)
+        throws EFapsException
+    {
+        if (_printStmt instanceof PrintStmt) {
+            try {
+                final PrintStmt printStmt = (PrintStmt) _printStmt;
+                if (printStmt.getSortKey2desc().isEmpty()) {
+                    printStmt.prepare();
+                } else {
+                    printStmt.getData();
+                }
+            } catch (final Exception e) {
+                if (e instanceof EFapsException) {
+                    throw (EFapsException) e;
+                } else {
+                    throw new EFapsException("Could not create JSONData", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pass the ObjectData for every row of the statement to the given
+     * consumer without building the complete DataList first. Only if the
+     * statement must be sorted all rows are read before.
+     *
+     * @param _printStmt Statement the ObjectData will be created for
+     * @param _consumer consumer for the ObjectData
+     * @throws EFapsException on error
+     */
+    @SuppressWarnings("checkstyle:illegalcatch")
+    public static void forEachData(final IPrintStmt _printStmt,
+                                   final DataConsumer _consumer)
+        throws EFapsException
+    {
+        if (_printStmt instanceof PrintStmt) {
+            try {
+                final PrintStmt printStmt = (PrintStmt) _printStmt;
+                if (printStmt.getSortKey2desc().isEmpty()) {
+                    final Map<String, AbstractSelect> mapping = printStmt.getAlias2Selects();
+                    printStmt.forEachRow(map -> _consumer.accept(getObjectData(mapping, map)));
+                } else {
+                    for (final ObjectData data : getDataList(printStmt)) {
+                        _consumer.accept(data);
+                    }
+                }
+            } catch (final Exception e) {
+                if (e instanceof EFapsException) {
+                    throw (EFapsException) e;
+                } else {
+                    throw new EFapsException("Could not create JSONData", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param _mapping mapping of alias to select
+     * @param _row row of values by alias
+     * @return ObjectData for the row
+     */
+    private static ObjectData getObjectData(final Map<String, AbstractSelect> _mapping,
+                                            final Map<String, Object> _row)
+    {
+        final ObjectData ret = new ObjectData();
+        for (final Entry<String, AbstractSelect> entry : _mapping.entrySet()) {
+            final Object obj = _row.get(entry.getKey());
+            ret.getValues().add(getValue(entry.getKey(), obj));
+        }
+        return ret;
+    }
+
     /**
      * @param _key key the value is wanted for
      * @param _object oebjct to be converted
@@ -185,6 +262,21 @@ public final class JSONData
         return ret;
     }
 
+    /**
+     * Consumer for the ObjectData of a statement.
+     */
+    @FunctionalInterface
+    public interface DataConsumer
+    {
+
+        /**
+         * @param _data ObjectData for one row
+         * @throws IOException on error
+         */
+        void accept(ObjectData _data)
+            throws IOException;
+    }
+
     /**
      * The Class ObjectDataComparator.
      *
@@ -42,23 +42,68 @@ public class PrintStmt
     /** The data. */
     private List<Map<String, Object>> data;
 
+    /** The executed MultiPrintQuery not iterated yet. */
+    private MultiPrintQuery preparedMulti;
+
+    /** The esjp selects for the executed MultiPrintQuery. */
+    private Map<String, IEsjpSelect> preparedEsjpSelects;
+
     @Override
     public List<Map<String, Object>> getData()
         throws Exception
     {
         if (this.data == null) {
-            this.data = new ArrayList<>();
-            final MultiPrintQuery multi = getMultiPrint();
+            final List<Map<String, Object>> tmp = new ArrayList<>();
+            forEachRow(tmp::add);
+            this.data = tmp;
+        }
+        return this.data;
+    }
+
+    /**
+     * Execute the statement without reading its rows, so that errors are
+     * thrown before the first row is passed on by {@link #forEachRow}.
+     *
+     * @throws Exception on error
+     */
+    public void prepare()
+        throws Exception
+    {
+        if (this.data == null && this.preparedMulti == null) {
+            final MultiPrintQuery multiTmp = getMultiPrint();
             for (final Entry<String, AbstractSelect> entry : getAlias2Selects().entrySet()) {
                 if (entry.getValue() instanceof SimpleSelect) {
-                    multi.addSelect(entry.getValue().getSelect());
+                    multiTmp.addSelect(entry.getValue().getSelect());
                 }
             }
-            multi.execute();
-            final Map<String, IEsjpSelect> esjpSelects = getEsjpSelect(multi.getInstanceList());
+            multiTmp.execute();
+            this.preparedEsjpSelects = getEsjpSelect(multiTmp.getInstanceList());
+            this.preparedMulti = multiTmp;
+        }
+    }
+
+    /**
+     * Evaluate the statement and pass every row to the given consumer
+     * without keeping the rows.
+     *
+     * @param _consumer consumer for the rows
+     * @throws Exception on error
+     */
+    public void forEachRow(final RowConsumer _consumer)
+        throws Exception
+    {
+        if (this.data != null) {
+            for (final Map<String, Object> map : this.data) {
+                _consumer.accept(map);
+            }
+        } else {
+            prepare();
+            final MultiPrintQuery multi = this.preparedMulti;
+            final Map<String, IEsjpSelect> esjpSelects = this.preparedEsjpSelects;
+            this.preparedMulti = null;
+            this.preparedEsjpSelects = null;
             while (multi.next()) {
                 final Map<String, Object> map = new HashMap<>();
-                this.data.add(map);
                 for (final Entry<String, AbstractSelect> entry : getAlias2Selects().entrySet()) {
                     if (entry.getValue() instanceof SimpleSelect) {
                         map.put(entry.getKey(), multi.getSelect(entry.getValue().getSelect()));
@@ -69,9 +114,9 @@ public class PrintStmt
                         }
                     }
                 }
+                _consumer.accept(map);
             }
         }
-        return this.data;
     }
 
     /**
@@ -125,4 +170,19 @@ public class PrintStmt
         }
         return ret;
     }
+
+    /**
+     * Consumer for the rows of a PrintStmt.
+     */
+    @FunctionalInterface
+    public interface RowConsumer
+    {
+
+        /**
+         * @param _row row mapping the alias to its value
+         * @throws Exception on error
+         */
+        void accept(Map<String, Object> _row)
+            throws Exception;
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.eql;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.commons.collections4.map.LRUMap;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.efaps.admin.EFapsSystemConfiguration;
+import org.efaps.admin.KernelSettings;
+import org.efaps.admin.common.SystemConfiguration;
+import org.efaps.eql2.EQL2;
+import org.efaps.eql2.IStatement;
+import org.efaps.util.EFapsException;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache for the parsed EQL statements by their text. The cached statements
+ * are never handed out; every call gets its own copy, so that the
+ * statements built from them can not interfere with each other. Copying the
+ * parsed tree is much cheaper than parsing and linking the text again. The
+ * cache is cleared with the cache of the types.
+ *
+ * @author The eFaps Team
+ */
+public final class StatementCache
+{
+
+    /** The Constant LOG. */
+    private static final Logger LOG = LoggerFactory.getLogger(StatementCache.class);
+
+    /** Default for the number of cached statements. */
+    private static final int DEFAULT_SIZE = 500;
+
+    /** The parsed statements, <code>null</code> if deactivated. */
+    private static Map<String, IStatement<?>> STATEMENTS;
+
+    /** Was the map of statements initialized. */
+    private static boolean INITIALIZED;
+
+    /**
+     * Utility class.
+     */
+    private StatementCache()
+    {
+    }
+
+    /**
+     * Gets the parsed statement for the given text.
+     *
+     * @param _stmt the stmt
+     * @return a parsed statement not shared with any other caller
+     */
+    public static IStatement<?> parse(final CharSequence _stmt)
+    {
+        IStatement<?> ret;
+        final Map<String, IStatement<?>> statements = getStatements();
+        if (statements == null) {
+            ret = EQL2.parse(_stmt);
+        } else {
+            final String key = _stmt.toString();
+            final IStatement<?> cached = statements.get(key);
+            if (cached == null) {
+                ret = EQL2.parse(_stmt);
+                if (ret instanceof EObject) {
+                    LOG.debug("Caching parsed statement: {}", key);
+                    statements.put(key, copy(ret));
+                }
+            } else {
+                ret = copy(cached);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Remove all statements.
+     */
+    public static void clear()
+    {
+        synchronized (StatementCache.class) {
+            STATEMENTS = null;
+            INITIALIZED = false;
+        }
+    }
+
+    /**
+     * @param _stmt statement to be copied
+     * @return deep copy of the statement
+     */
+    private static IStatement<?> copy(final IStatement<?> _stmt)
+    {
+        return (IStatement<?>) EcoreUtil.copy((EObject) _stmt);
+    }
+
+    /**
+     * Gets the statements.
+     *
+     * @return the statements, <code>null</code> if deactivated
+     */
+    private static Map<String, IStatement<?>> getStatements()
+    {
+        synchronized (StatementCache.class) {
+            if (!INITIALIZED) {
+                int size = DEFAULT_SIZE;
+                try {
+                    final SystemConfiguration config = EFapsSystemConfiguration.get();
+                    if (config != null) {
+                        size = NumberUtils.toInt(config.getAttributeValue(KernelSettings.EQLSTMTCACHESIZE),
+                                        DEFAULT_SIZE);
+                    }
+                } catch (final EFapsException e) {
+                    LOG.error("Could not read the size of the statement cache", e);
+                }
+                STATEMENTS = size > 0 ? Collections.synchronizedMap(new LRUMap<>(size)) : null;
+                INITIALIZED = true;
+            }
+            return STATEMENTS;
+        }
+    }
+}
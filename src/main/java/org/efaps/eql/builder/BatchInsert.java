@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.eql.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.efaps.db.Instance;
+import org.efaps.db.stmt.BatchInsertStmt;
+import org.efaps.db.stmt.InsertStmt;
+import org.efaps.util.EFapsException;
+
+/**
+ * Collects a set of inserts to execute them as a batch.
+ */
+public class BatchInsert
+{
+
+    /** The inserts. */
+    private final List<Insert> inserts = new ArrayList<>();
+
+    /**
+     * Adds inserts to the batch.
+     *
+     * @param _inserts the inserts
+     * @return the batch insert
+     */
+    public BatchInsert add(final Insert... _inserts)
+    {
+        Collections.addAll(inserts, _inserts);
+        return this;
+    }
+
+    /**
+     * Stmt.
+     *
+     * @return the batch insert stmt
+     */
+    public BatchInsertStmt stmt()
+    {
+        final List<InsertStmt> stmts = new ArrayList<>();
+        for (final Insert insert : inserts) {
+            stmts.add(insert.stmt());
+        }
+        return BatchInsertStmt.get(stmts);
+    }
+
+    /**
+     * Execute.
+     *
+     * @return the created instances in the order the inserts were added
+     * @throws EFapsException the e faps exception
+     */
+    public List<Instance> execute()
+        throws EFapsException
+    {
+        return stmt().execute();
+    }
+}
@@ -59,6 +59,17 @@ public class Insert
         return stmt().execute();
     }
 
+    /**
+     * Combine this insert with other inserts to a batch.
+     *
+     * @param _inserts the other inserts
+     * @return the batch insert
+     */
+    public BatchInsert batch(final Insert... _inserts)
+    {
+        return new BatchInsert().add(this).add(_inserts);
+    }
+
     @Override
     protected Insert getThis()
     {
@@ -55,6 +55,8 @@ public class Print
 
     private int phraseCounter = 0;
 
+    private int chunkSize = 0;
+
     private EvalHelper getHelper()
     {
         if (helper == null) {
@@ -71,7 +73,31 @@ public class Print
     public PrintStmt stmt()
     {
         LOG.debug("Stmt: {}", getStmt().eqlStmt());
-        return PrintStmt.get((IPrintStatement<?>) getStmt(), helper);
+        return PrintStmt.get((IPrintStatement<?>) getStmt(), helper).stream(chunkSize);
+    }
+
+    /**
+     * Stream the result in chunks instead of reading it completely.
+     *
+     * @return the prints the
+     * @see PrintStmt#stream()
+     */
+    public Print stream()
+    {
+        return stream(PrintStmt.DEFAULT_CHUNKSIZE);
+    }
+
+    /**
+     * Stream the result in chunks of the given size.
+     *
+     * @param _chunkSize the chunk size
+     * @return the prints the
+     * @see PrintStmt#stream(int)
+     */
+    public Print stream(final int _chunkSize)
+    {
+        chunkSize = _chunkSize;
+        return getThis();
     }
 
     public PrintStmt execute()
@@ -37,6 +37,7 @@ import javax.transaction.TransactionManager;
 import javax.transaction.TransactionSynchronizationRegistry;
 
 import org.apache.commons.lang3.StringUtils;
+import org.efaps.admin.index.IndexManager;
 import org.efaps.db.databases.AbstractDatabase;
 import org.efaps.db.transaction.DelegatingUserTransaction;
 import org.slf4j.Logger;
@@ -565,5 +566,6 @@ public final class StartupDatabaseConnection
         } catch (final NamingException e) {
             throw new StartupException("unbind of the database connection failed", e);
         }
+        IndexManager.closeAll();
     }
 }
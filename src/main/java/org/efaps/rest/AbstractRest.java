@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.joda.JodaModule;
 
@@ -42,6 +43,13 @@ public abstract class AbstractRest
      */
     protected static final Logger LOG = LoggerFactory.getLogger(AbstractRest.class);
 
+    /**
+     * Mapper shared by all replies. It is thread safe once configured.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+                    .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+                    .registerModule(new JodaModule());
+
     /**
      * Check if the logged in users has access to rest.
      * User must be assigned to the Role "Admin_Rest".
@@ -67,17 +75,21 @@ public abstract class AbstractRest
     protected String getJSONReply(final Object _jsonObject)
     {
         String ret = "";
-        final ObjectMapper mapper = new ObjectMapper();
-        if (LOG.isDebugEnabled()) {
-            mapper.enable(SerializationFeature.INDENT_OUTPUT);
-        }
-        mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
-        mapper.registerModule(new JodaModule());
         try {
-            ret =  mapper.writeValueAsString(_jsonObject);
+            ret = getJSONWriter().writeValueAsString(_jsonObject);
         } catch (final JsonProcessingException e) {
             LOG.error("Catched JsonProcessingException", e);
         }
         return ret;
     }
+
+    /**
+     * Gets the writer for JSON replies based on the shared mapper.
+     *
+     * @return the JSON writer
+     */
+    protected ObjectWriter getJSONWriter()
+    {
+        return LOG.isDebugEnabled() ? MAPPER.writerWithDefaultPrettyPrinter() : MAPPER.writer();
+    }
 }
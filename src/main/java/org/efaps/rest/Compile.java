@@ -51,10 +51,12 @@ public class Compile
      * Called to compile java, css etc.
      *
      * @param _type type tobe compiled
+     * @param _incremental compile only changed ESJPs and their dependents
      * @return Response
      */
     @GET
-    public Response compile(@QueryParam("type") final String _type)
+    public Response compile(@QueryParam("type") final String _type,
+                            @QueryParam("incremental") final boolean _incremental)
     {
         boolean success = false;
         try {
@@ -62,7 +64,7 @@ public class Compile
                 AbstractRest.LOG.info("===Starting Compiler via REST===");
                 if ("java".equalsIgnoreCase(_type)) {
                     AbstractRest.LOG.info("==Compiling Java==");
-                    new ESJPCompiler(getClassPathElements()).compile(null, false);
+                    new ESJPCompiler(getClassPathElements()).compile(null, false, _incremental);
                 } else if ("css".equalsIgnoreCase(_type)) {
                     AbstractRest.LOG.info("==Compiling CSS==");
                     new CSSCompiler().compile();
@@ -0,0 +1,360 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.rest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.efaps.admin.EFapsSystemConfiguration;
+import org.efaps.admin.KernelSettings;
+import org.efaps.admin.common.Quartz;
+import org.efaps.admin.common.SystemConfiguration;
+import org.efaps.admin.user.Company;
+import org.efaps.db.Context;
+import org.efaps.db.Insert;
+import org.efaps.util.EFapsException;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Quartz job writing the history of the EQL statements executed via REST
+ * (Common_HistoryEQL). The statements are registered in a bounded queue by
+ * the requests and written by this job in batches per user, either on the
+ * interval of the trigger or as soon as a batch is full. If the queue is
+ * full or the job is not scheduled, the history is written directly by the
+ * request. The statements of each user are written in a context of that
+ * user with the company and the language the statements were executed with.
+ * As Quartz executes the job inside a context already, these contexts
+ * are opened in a thread of their own. Statements that could not be written
+ * are put back in the queue and written with the next run.
+ *
+ * @author The eFaps Team
+ */
+@DisallowConcurrentExecution
+public class HistoryEQLJob
+    implements Job
+{
+
+    /**
+     * Name of the job and of its trigger.
+     */
+    public static final String NAME = "HistoryEQL";
+
+    /**
+     * Default for the number of statements written in one batch.
+     */
+    public static final int DEFAULT_BATCHSIZE = 100;
+
+    /**
+     * Default for the number of statements the queue can hold.
+     */
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    /**
+     * Logging instance used in this class.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(HistoryEQLJob.class);
+
+    /**
+     * UUID of the type Common_HistoryEQL.
+     */
+    private static final UUID TYPEUUID = UUID.fromString("c96c63b5-2d4c-4bf9-9627-f335fd9c7a84");
+
+    /**
+     * Queue of the statements waiting to be written, set on activation.
+     */
+    private static final AtomicReference<BlockingQueue<Entry4History>> QUEUE = new AtomicReference<>();
+
+    /**
+     * Is the job already triggered because a batch is full.
+     */
+    private static final AtomicBoolean TRIGGERED = new AtomicBoolean();
+
+    /**
+     * Number of statements that trigger the job.
+     */
+    private static final AtomicInteger BATCHSIZE = new AtomicInteger(HistoryEQLJob.DEFAULT_BATCHSIZE);
+
+    /**
+     * Execute the job.
+     *
+     * @param _context JobExecutionContext
+     * @throws JobExecutionException on error
+     */
+    @Override
+    public void execute(final JobExecutionContext _context)
+        throws JobExecutionException
+    {
+        HistoryEQLJob.TRIGGERED.set(false);
+        HistoryEQLJob.flush();
+    }
+
+    /**
+     * Activate the queue. Called when the job is scheduled.
+     *
+     * @throws EFapsException on error
+     */
+    public static synchronized void activate()
+        throws EFapsException
+    {
+        int capacity = HistoryEQLJob.DEFAULT_CAPACITY;
+        final SystemConfiguration config = EFapsSystemConfiguration.get();
+        if (config != null) {
+            HistoryEQLJob.BATCHSIZE.set(Math.max(1, NumberUtils.toInt(config.getAttributeValue(
+                            KernelSettings.HISTORYEQLBATCHSIZE), HistoryEQLJob.DEFAULT_BATCHSIZE)));
+            capacity = NumberUtils.toInt(config.getAttributeValue(KernelSettings.HISTORYEQLCAPACITY),
+                            HistoryEQLJob.DEFAULT_CAPACITY);
+        }
+        HistoryEQLJob.QUEUE.compareAndSet(null,
+                        new ArrayBlockingQueue<>(Math.max(HistoryEQLJob.BATCHSIZE.get(), capacity)));
+    }
+
+    /**
+     * Register a statement for the history of the current user.
+     *
+     * @param _origin the origin
+     * @param _stmt the stmt
+     * @throws EFapsException on error
+     */
+    public static void register(final String _origin,
+                                final String _stmt)
+        throws EFapsException
+    {
+        final Company company = Context.getThreadContext().getCompany();
+        final Entry4History entry = new Entry4History(Context.getThreadContext().getPerson().getName(),
+                        company == null ? 0 : company.getId(), Context.getThreadContext().getLanguage(),
+                        "REST: " + (_origin == null ? "" : _origin), _stmt);
+        final BlockingQueue<Entry4History> queue = HistoryEQLJob.QUEUE.get();
+        if (queue != null && queue.offer(entry)) {
+            if (queue.size() >= HistoryEQLJob.BATCHSIZE.get()
+                            && HistoryEQLJob.TRIGGERED.compareAndSet(false, true)) {
+                try {
+                    Quartz.getQuartz().getScheduler()
+                                    .triggerJob(new JobKey(HistoryEQLJob.NAME, Quartz.QUARTZGROUP));
+                } catch (final SchedulerException e) {
+                    HistoryEQLJob.LOG.error("Could not trigger the HistoryEQL job", e);
+                    HistoryEQLJob.TRIGGERED.set(false);
+                }
+            }
+        } else {
+            // the queue is full or not active: the request writes its history itself
+            final List<Entry4History> entries = new ArrayList<>();
+            entries.add(entry);
+            HistoryEQLJob.write(entries);
+        }
+    }
+
+    /**
+     * Write all statements waiting in the queue. If the current thread has a
+     * context, the statements are written by the {@link WriterHolder#WRITER}.
+     * Statements that could not be written are put back in the queue.
+     */
+    public static void flush()
+    {
+        final BlockingQueue<Entry4History> queue = HistoryEQLJob.QUEUE.get();
+        if (queue != null) {
+            final List<Entry4History> entries = new ArrayList<>();
+            while (queue.drainTo(entries, HistoryEQLJob.BATCHSIZE.get()) > 0) {
+                List<Entry4History> failed;
+                if (Context.isThreadActive()) {
+                    try {
+                        failed = WriterHolder.WRITER.submit(() -> HistoryEQLJob.writePerUser(entries)).get();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failed = entries;
+                    } catch (final ExecutionException e) {
+                        HistoryEQLJob.LOG.error("Could not write the HistoryEQL", e);
+                        failed = entries;
+                    }
+                } else {
+                    failed = HistoryEQLJob.writePerUser(entries);
+                }
+                final boolean retry = failed.isEmpty();
+                for (final Entry4History entry : failed) {
+                    if (!queue.offer(entry)) {
+                        HistoryEQLJob.LOG.error("Lost HistoryEQL for {}: {}", entry.userName, entry);
+                    }
+                }
+                entries.clear();
+                // stop on errors, the failed entries are written with the next run
+                if (!retry) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the statements, the statements of each user in a context of the
+     * user with the company and language of the statements. The current
+     * thread must not have a context.
+     *
+     * @param _entries entries to be written
+     * @return entries that could not be written
+     */
+    private static List<Entry4History> writePerUser(final List<Entry4History> _entries)
+    {
+        final List<Entry4History> ret = new ArrayList<>();
+        final Map<String, List<Entry4History>> user2entries = new LinkedHashMap<>();
+        for (final Entry4History entry : _entries) {
+            user2entries.computeIfAbsent(entry.getContextKey(), key -> new ArrayList<>()).add(entry);
+        }
+        for (final Entry<String, List<Entry4History>> userEntry : user2entries.entrySet()) {
+            final Entry4History first = userEntry.getValue().get(0);
+            try {
+                Context.begin(first.userName, Context.Inheritance.Local);
+                boolean commit = false;
+                try {
+                    if (first.companyId > 0) {
+                        Context.getThreadContext().setCompany(Company.get(first.companyId));
+                    }
+                    Context.getThreadContext().setLanguage(first.language);
+                    HistoryEQLJob.write(userEntry.getValue());
+                    commit = true;
+                } finally {
+                    if (commit) {
+                        Context.commit();
+                    } else {
+                        Context.rollback();
+                    }
+                }
+            } catch (final EFapsException e) {
+                HistoryEQLJob.LOG.error("Could not write the HistoryEQL for {}: {}", first.userName,
+                                userEntry.getValue(), e);
+                ret.addAll(userEntry.getValue());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Holds the writer thread, so that it is only created on first use.
+     */
+    private static final class WriterHolder
+    {
+
+        /**
+         * Thread without context writing the history if
+         * {@link HistoryEQLJob#flush()} is called inside a context.
+         */
+        private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(_runnable -> {
+            final Thread thread = new Thread(_runnable, "HistoryEQLWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        /**
+         * Utility class.
+         */
+        private WriterHolder()
+        {
+        }
+    }
+
+    /**
+     * Write the statements in one batch using the current context.
+     *
+     * @param _entries entries to be written
+     * @throws EFapsException on error
+     */
+    private static void write(final List<Entry4History> _entries)
+        throws EFapsException
+    {
+        final List<Insert> inserts = new ArrayList<>();
+        for (final Entry4History entry : _entries) {
+            final Insert insert = new Insert(HistoryEQLJob.TYPEUUID);
+            insert.add("Origin", entry.origin);
+            insert.add("EQLStatement", entry.stmt);
+            inserts.add(insert);
+        }
+        Insert.executeBatch(inserts);
+    }
+
+    /**
+     * One statement waiting to be written.
+     */
+    private static final class Entry4History
+    {
+
+        /** Name of the user that executed the statement. */
+        private final String userName;
+
+        /** Id of the company the statement was executed for, 0 if none. */
+        private final long companyId;
+
+        /** Language the statement was executed with. */
+        private final String language;
+
+        /** Origin of the statement. */
+        private final String origin;
+
+        /** The statement. */
+        private final String stmt;
+
+        /**
+         * @param _userName name of the user that executed the statement
+         * @param _companyId id of the company, 0 if none
+         * @param _language language of the context
+         * @param _origin origin of the statement
+         * @param _stmt the statement
+         */
+        Entry4History(final String _userName,
+                      final long _companyId,
+                      final String _language,
+                      final String _origin,
+                      final String _stmt)
+        {
+            this.userName = _userName;
+            this.companyId = _companyId;
+            this.language = _language;
+            this.origin = _origin;
+            this.stmt = _stmt;
+        }
+
+        /**
+         * @return key of the context the statement must be written in
+         */
+        private String getContextKey()
+        {
+            return this.userName + "|" + this.companyId + "|" + this.language;
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.origin + ": " + this.stmt;
+        }
+    }
+}
@@ -15,17 +15,15 @@
  */
 package org.efaps.rest;
 
-import java.util.UUID;
-
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.apache.commons.lang3.exception.ExceptionUtils;
-import org.efaps.db.Insert;
 import org.efaps.eql.EQLInvoker;
 import org.efaps.eql.InvokerUtil;
 import org.efaps.eql.JSONCI;
@@ -38,7 +36,7 @@ import org.efaps.eql.stmt.IInsertStmt;
 import org.efaps.eql.stmt.IPrintStmt;
 import org.efaps.eql.stmt.IUpdateStmt;
 import org.efaps.json.ci.AbstractCI;
-import org.efaps.json.data.DataList;
+import org.efaps.json.data.ObjectData;
 import org.efaps.json.reply.DeleteEQLReply;
 import org.efaps.json.reply.ErrorReply;
 import org.efaps.json.reply.ExecuteEQLReply;
@@ -48,6 +46,9 @@ import org.efaps.util.EFapsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
 /**
  * TODO comment!
  *
@@ -64,7 +65,13 @@ public class RestEQLInvoker
     private static final Logger LOG = LoggerFactory.getLogger(RestEQLInvoker.class);
 
     /**
-     * Prints the.
+     * Prints the. The rows of a print statement are streamed as a JSON array
+     * of ObjectData with status 200. Syntax errors and errors executing the
+     * statement are answered with status 500 and an ErrorReply. Errors while
+     * a row is evaluated occur after the status 200 was sent, therefore they
+     * are answered by an ErrorReply as the last element of the array. A
+     * client must check the last element for the field <code>error</code>
+     * to know if the array is complete.
      *
      * @param _origin the origin
      * @param _stmt the stmt
@@ -84,8 +91,8 @@ public class RestEQLInvoker
             final IEQLStmt stmt = invoker.invoke(_stmt);
             if (invoker.getSyntaxErrors().isEmpty() && stmt instanceof IPrintStmt) {
                 registerEQLStmt(_origin, _stmt);
-                final DataList datalist = JSONData.getDataList((IPrintStmt) stmt);
-                ret = Response.ok().type(MediaType.APPLICATION_JSON).entity(getJSONReply(datalist)).build();
+                ret = Response.ok().type(MediaType.APPLICATION_JSON).entity(getJSONStream((IPrintStmt) stmt))
+                                .build();
             } else if (invoker.getSyntaxErrors().isEmpty() && stmt instanceof ICIPrintStmt) {
                 registerEQLStmt(_origin, _stmt);
                 final AbstractCI<?> ci = JSONCI.getCI((ICIPrintStmt) stmt);
@@ -297,7 +304,42 @@ public class RestEQLInvoker
     }
 
     /**
-     * Register eql stmt.
+     * Gets the JSON stream for a print statement. The statement is executed
+     * before the stream is returned, so that its errors result in an error
+     * response. The rows are written as an array of ObjectData as they are
+     * read, so the complete DataList is never built. If the evaluation of a
+     * row fails after the response was started, an ErrorReply is written as
+     * the last element of the array.
+     *
+     * @param _stmt the stmt
+     * @return the JSON stream
+     * @throws EFapsException if the statement could not be executed
+     */
+    @SuppressWarnings("checkstyle:illegalcatch")
+    protected StreamingOutput getJSONStream(final IPrintStmt _stmt)
+        throws EFapsException
+    {
+        JSONData.prepare(_stmt);
+        return _output -> {
+            final ObjectWriter writer = getJSONWriter();
+            final ObjectWriter dataWriter = writer.forType(ObjectData.class);
+            try (JsonGenerator generator = writer.getFactory().createGenerator(_output)) {
+                generator.writeStartArray();
+                try {
+                    JSONData.forEachData(_stmt, data -> dataWriter.writeValue(generator, data));
+                } catch (final EFapsException | RuntimeException e) {
+                    LOG.error("Error streaming data.", e);
+                    writer.writeValue(generator, new ErrorReply()
+                                    .setError(e.getClass().getName())
+                                    .setMessage(e.getMessage()));
+                }
+                generator.writeEndArray();
+            }
+        };
+    }
+
+    /**
+     * Register eql stmt. The history is written by the {@link HistoryEQLJob}.
      *
      * @param _origin the origin
      * @param _stmt the stmt
@@ -307,10 +349,6 @@ public class RestEQLInvoker
                                    final String _stmt)
         throws EFapsException
     {
-        // Common_HistoryEQL
-        final Insert insert = new Insert(UUID.fromString("c96c63b5-2d4c-4bf9-9627-f335fd9c7a84"));
-        insert.add("Origin", "REST: " + (_origin == null ? "" : _origin));
-        insert.add("EQLStatement", _stmt);
-        insert.execute();
+        HistoryEQLJob.register(_origin, _stmt);
     }
 }
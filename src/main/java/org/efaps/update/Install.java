@@ -22,27 +22,47 @@ import java.net.URL;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 import org.apache.commons.collections4.MultiMapUtils;
 import org.apache.commons.collections4.MultiValuedMap;
 import org.apache.commons.jexl2.JexlContext;
 import org.apache.commons.jexl2.MapContext;
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.efaps.admin.EFapsSystemConfiguration;
 import org.efaps.admin.KernelSettings;
+import org.efaps.admin.common.SystemConfiguration;
 import org.efaps.ci.CIAdminCommon;
 import org.efaps.db.Context;
 import org.efaps.db.MultiPrintQuery;
 import org.efaps.db.QueryBuilder;
 import org.efaps.db.SelectBuilder;
+import org.efaps.update.schema.access.AccessSetUpdate;
+import org.efaps.update.schema.access.AccessTypeUpdate;
+import org.efaps.update.schema.datamodel.DimensionUpdate;
+import org.efaps.update.schema.datamodel.SQLTableUpdate;
+import org.efaps.update.schema.datamodel.StatusGroupUpdate;
+import org.efaps.update.schema.datamodel.TypeUpdate;
+import org.efaps.update.schema.db.StoreUpdate;
+import org.efaps.update.schema.user.CompanyUpdate;
+import org.efaps.update.schema.user.GroupUpdate;
+import org.efaps.update.schema.user.JAASSystemUpdate;
+import org.efaps.update.schema.user.RoleUpdate;
 import org.efaps.update.util.InstallationException;
 import org.efaps.util.EFapsException;
 import org.joda.time.DateTime;
@@ -63,6 +83,16 @@ public class Install
      */
     private static final Logger LOG = LoggerFactory.getLogger(Install.class);
 
+    /**
+     * Updates that are always executed sequential, because they initialize
+     * shared caches (e.g. {@link StatusGroupUpdate} initializes the types,
+     * dimensions and attributes) or write links to other objects.
+     */
+    private static final Set<Class<? extends IUpdate>> SEQUENTIAL = new HashSet<>(Arrays.asList(
+                    TypeUpdate.class, StatusGroupUpdate.class, SQLTableUpdate.class, DimensionUpdate.class,
+                    AccessTypeUpdate.class, AccessSetUpdate.class, StoreUpdate.class, CompanyUpdate.class,
+                    GroupUpdate.class, JAASSystemUpdate.class, RoleUpdate.class));
+
     /**
      * All defined file urls which are updated.
      *
@@ -157,32 +187,20 @@ public class Install
             jexlContext.set("latest", _latestNumber);
         }
 
+        for (final List<IUpdate> updates : cache.values()) {
+            Collections.sort(updates,
+                            (_update0,
+                             _update1) -> String.valueOf(_update0.getInstallFile().getUrl()).compareTo(
+                                             String.valueOf(_update1.getInstallFile().getUrl())));
+        }
+
         // loop through all life cycle steps
         for (final UpdateLifecycle step : getUpdateLifecycles()) {
             if (!_ignoredSteps.contains(step)) {
                 if (Install.LOG.isInfoEnabled()) {
                     Install.LOG.info("..Running Lifecycle step " + step);
                 }
-                for (final Map.Entry<String, List<IUpdate>> entry : cache.entrySet()) {
-                    final List<IUpdate> updates = entry.getValue();
-                    Collections.sort(updates,
-                                    (_update0,
-                                     _update1) -> String.valueOf(_update0.getInstallFile().getUrl()).compareTo(
-                                                     String.valueOf(_update1.getInstallFile().getUrl())));
-                    for (final IUpdate update : updates) {
-                        try {
-                            updateables.putAll(update.updateInDB(jexlContext, step,
-                                            evaluateProfiles(update.getFileApplication(), _profiles)));
-                            if (!bigTrans) {
-                                Context.commit();
-                                Context.begin(user);
-                            }
-                        } catch (final EFapsException e) {
-                            throw new InstallationException("Transaction start failed", e);
-                        }
-
-                    }
-                }
+                executeStep(step, user, bigTrans, _profiles, update -> jexlContext);
             } else if (Install.LOG.isInfoEnabled()) {
                 Install.LOG.info("..Skipped Lifecycle step " + step);
             }
@@ -238,38 +256,186 @@ public class Install
             if (Install.LOG.isInfoEnabled()) {
                 Install.LOG.info("..Running Lifecycle step " + step);
             }
-            for (final Map.Entry<String, List<IUpdate>> entry : cache.entrySet()) {
-                for (final IUpdate update : entry.getValue()) {
-                    final Integer latestVersion;
-                    if (update.getFileApplication() == null) {
-                        latestVersion = 1;
-                    } else {
-                        latestVersion = versions.get(update.getFileApplication());
-                    }
-                    // initialize JexlContext (used to evaluate version)
-                    final JexlContext jexlContext = new MapContext();
-                    if (latestVersion == null) {
-                        Install.LOG.warn("Could not find any version for {} with Application {}",
-                                        update.getInstallFile(), update.getFileApplication());
-                    } else {
-                        jexlContext.set("version", latestVersion);
-                        jexlContext.set("latest", latestVersion);
+            executeStep(step, user, bigTrans, _profiles, update -> {
+                final Integer latestVersion;
+                if (update.getFileApplication() == null) {
+                    latestVersion = 1;
+                } else {
+                    latestVersion = versions.get(update.getFileApplication());
+                }
+                // initialize JexlContext (used to evaluate version)
+                final JexlContext jexlContext = new MapContext();
+                if (latestVersion == null) {
+                    Install.LOG.warn("Could not find any version for {} with Application {}",
+                                    update.getInstallFile(), update.getFileApplication());
+                } else {
+                    jexlContext.set("version", latestVersion);
+                    jexlContext.set("latest", latestVersion);
+                }
+                return jexlContext;
+            });
+        }
+        return updateables;
+    }
+
+    /**
+     * Execute one life cycle step for all updates. The updates with the same
+     * identifier are executed together, the identifiers in their sort order.
+     * If each update is committed on its own (no big transaction) and more
+     * than one thread is configured, the updates of one identifier are
+     * executed concurrently, each in a context of its own, except the
+     * updates in {@link #SEQUENTIAL}. Updates for the same object are always
+     * executed sequential in their order.
+     *
+     * @param _step         life cycle step to execute
+     * @param _user         name of the user
+     * @param _bigTrans     is the update done in one big transaction
+     * @param _profiles     profiles to be applied
+     * @param _jexlContext  function returning the JexlContext for an update
+     * @throws InstallationException on error
+     */
+    private void executeStep(final UpdateLifecycle _step,
+                             final String _user,
+                             final boolean _bigTrans,
+                             final Set<Profile> _profiles,
+                             final Function<IUpdate, JexlContext> _jexlContext)
+        throws InstallationException
+    {
+        final long start = System.currentTimeMillis();
+        final int threads = getThreads();
+        final ForkJoinPool pool = !_bigTrans && threads > 1 ? new ForkJoinPool(threads) : null;
+        int count = 0;
+        try {
+            for (final List<IUpdate> updates : cache.values()) {
+                if (pool != null && updates.size() > 1 && Install.isConcurrent(updates)) {
+                    updateables.putAll(executeConcurrent(pool, updates, _step, _user, _profiles,
+                                    _jexlContext));
+                } else {
+                    for (final IUpdate update : updates) {
+                        try {
+                            updateables.putAll(update.updateInDB(_jexlContext.apply(update), _step,
+                                            evaluateProfiles(update.getFileApplication(), _profiles)));
+                            if (!_bigTrans) {
+                                Context.commit();
+                                Context.begin(_user);
+                            }
+                        } catch (final EFapsException e) {
+                            throw new InstallationException("Transaction start failed", e);
+                        }
                     }
+                }
+                count += updates.size();
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+        Install.LOG.info("..Lifecycle step {} executed for {} updates in {} ms{}", _step, count,
+                        System.currentTimeMillis() - start, pool == null ? "" : " using " + threads + " threads");
+    }
+
+    /**
+     * @param _updates updates of one identifier
+     * @return <i>true</i> if the updates can be executed concurrently
+     */
+    protected static boolean isConcurrent(final List<IUpdate> _updates)
+    {
+        boolean ret = true;
+        for (final IUpdate update : _updates) {
+            if (Install.SEQUENTIAL.contains(update.getClass())) {
+                ret = false;
+                break;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Group the updates by the object they update, the groups and the
+     * updates inside a group keep the order of the given updates.
+     *
+     * @param _updates updates to group
+     * @return the groups of updates
+     */
+    protected static Collection<List<IUpdate>> group(final List<IUpdate> _updates)
+    {
+        final Map<String, List<IUpdate>> ret = new LinkedHashMap<>();
+        for (final IUpdate update : _updates) {
+            final String target = update instanceof AbstractUpdate && ((AbstractUpdate) update).getUUID() != null
+                            ? ((AbstractUpdate) update).getUUID()
+                            : String.valueOf(update.getInstallFile().getUrl());
+            ret.computeIfAbsent(target, key -> new ArrayList<>()).add(update);
+        }
+        return ret.values();
+    }
+
+    /**
+     * Execute the updates of one identifier concurrently. The updates are
+     * grouped by the object they update, each group is executed sequential
+     * in a context of its own and each update is committed. The results are
+     * merged in the order of the groups. If updates failed, the error of the
+     * first failed group is thrown after all groups were executed.
+     *
+     * @param _pool         pool executing the updates
+     * @param _updates      updates to execute
+     * @param _step         life cycle step to execute
+     * @param _user         name of the user
+     * @param _profiles     profiles to be applied
+     * @param _jexlContext  function returning the JexlContext for an update
+     * @return the merged updateables of the updates
+     * @throws InstallationException on error
+     */
+    protected MultiValuedMap<String, String> executeConcurrent(final ForkJoinPool _pool,
+                                   final List<IUpdate> _updates,
+                                   final UpdateLifecycle _step,
+                                   final String _user,
+                                   final Set<Profile> _profiles,
+                                   final Function<IUpdate, JexlContext> _jexlContext)
+        throws InstallationException
+    {
+        final List<Future<MultiValuedMap<String, String>>> futures = new ArrayList<>();
+        for (final List<IUpdate> group : Install.group(_updates)) {
+            futures.add(_pool.submit(() -> {
+                final MultiValuedMap<String, String> ret = MultiMapUtils.newSetValuedHashMap();
+                for (final IUpdate update : group) {
+                    Context.begin(_user, Context.Inheritance.Local);
+                    boolean committed = false;
                     try {
-                        // and create
-                        updateables.putAll(update.updateInDB(jexlContext, step,
+                        ret.putAll(update.updateInDB(_jexlContext.apply(update), _step,
                                         evaluateProfiles(update.getFileApplication(), _profiles)));
-                        if (!bigTrans) {
-                            Context.commit();
-                            Context.begin(user);
+                        Context.commit();
+                        committed = true;
+                    } finally {
+                        if (!committed) {
+                            Context.rollback();
                         }
-                    } catch (final EFapsException e) {
-                        throw new InstallationException("Transaction start failed", e);
                     }
                 }
+                return ret;
+            }));
+        }
+        // wait for all updates before an error is thrown
+        final MultiValuedMap<String, String> ret = MultiMapUtils.newSetValuedHashMap();
+        InstallationException exception = null;
+        for (final Future<MultiValuedMap<String, String>> future : futures) {
+            try {
+                ret.putAll(future.get());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InstallationException("Update interrupted", e);
+            } catch (final ExecutionException e) {
+                if (exception == null) {
+                    exception = e.getCause() instanceof InstallationException
+                                    ? (InstallationException) e.getCause()
+                                    : new InstallationException("Update failed", e.getCause());
+                }
             }
         }
-        return updateables;
+        if (exception != null) {
+            throw exception;
+        }
+        return ret;
     }
 
     /**
@@ -337,25 +503,15 @@ public class Install
             for (final FileType fileType : FileType.values()) {
 
                 if (fileType == FileType.XML) {
-                    for (final InstallFile file : files) {
-                        if (file.getType() == fileType) {
-                            final SaxHandler handler = new SaxHandler();
-                            try {
-                                final IUpdate elem = handler.parse(file);
-                                final List<IUpdate> list;
-                                if (cache.containsKey(elem.getIdentifier())) {
-                                    list = cache.get(elem.getIdentifier());
-                                } else {
-                                    list = new ArrayList<>();
-                                    cache.put(elem.getIdentifier(), list);
-                                }
-                                list.add(handler.getUpdate());
-                            } catch (final SAXException e) {
-                                throw new InstallationException("initialise()", e);
-                            } catch (final IOException e) {
-                                throw new InstallationException("initialise()", e);
-                            }
+                    for (final IUpdate elem : parseXML()) {
+                        final List<IUpdate> list;
+                        if (cache.containsKey(elem.getIdentifier())) {
+                            list = cache.get(elem.getIdentifier());
+                        } else {
+                            list = new ArrayList<>();
+                            cache.put(elem.getIdentifier(), list);
                         }
+                        list.add(elem);
                     }
                 } else {
                     for (final Class<? extends IUpdate> updateClass : fileType.getClazzes()) {
@@ -398,6 +554,92 @@ public class Install
         }
     }
 
+    /**
+     * Parses all XML update files. If more than one thread is configured,
+     * the files are parsed concurrently. The updates are returned in the
+     * order of the files.
+     *
+     * @return list of updates
+     * @throws InstallationException on error
+     */
+    protected List<IUpdate> parseXML()
+        throws InstallationException
+    {
+        final long start = System.currentTimeMillis();
+        final List<InstallFile> xmlFiles = new ArrayList<>();
+        for (final InstallFile file : files) {
+            if (file.getType() == FileType.XML) {
+                xmlFiles.add(file);
+            }
+        }
+        final List<IUpdate> ret = new ArrayList<>();
+        final int threads = getThreads();
+        if (threads > 1 && xmlFiles.size() > 1) {
+            final ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                final List<Future<IUpdate>> futures = new ArrayList<>();
+                for (final InstallFile file : xmlFiles) {
+                    futures.add(pool.submit(() -> Install.parse(file)));
+                }
+                for (final Future<IUpdate> future : futures) {
+                    ret.add(future.get());
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InstallationException("initialise()", e);
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof InstallationException) {
+                    throw (InstallationException) e.getCause();
+                }
+                throw new InstallationException("initialise()", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        } else {
+            for (final InstallFile file : xmlFiles) {
+                ret.add(Install.parse(file));
+            }
+        }
+        Install.LOG.info("..Parsed {} XML files in {} ms", xmlFiles.size(), System.currentTimeMillis() - start);
+        return ret;
+    }
+
+    /**
+     * @param _file XML file to parse
+     * @return update for the file
+     * @throws InstallationException on error
+     */
+    private static IUpdate parse(final InstallFile _file)
+        throws InstallationException
+    {
+        final SaxHandler handler = new SaxHandler();
+        try {
+            return handler.parse(_file);
+        } catch (final SAXException e) {
+            throw new InstallationException("initialise()", e);
+        } catch (final IOException e) {
+            throw new InstallationException("initialise()", e);
+        }
+    }
+
+    /**
+     * @return number of threads used to parse and update
+     * @see KernelSettings#UPDATETHREADS
+     */
+    protected int getThreads()
+    {
+        int ret = 1;
+        try {
+            final SystemConfiguration config = EFapsSystemConfiguration.get();
+            if (config != null) {
+                ret = NumberUtils.toInt(config.getAttributeValue(KernelSettings.UPDATETHREADS), ret);
+            }
+        } catch (final EFapsException e) {
+            Install.LOG.warn("Could not read the number of threads for the update", e);
+        }
+        return Math.max(1, ret);
+    }
+
     /**
      * @param _installFile InstallFile to add
      */
@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.update.schema.program.esjp;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the names of the classes referenced by a compiled class from its
+ * constant pool. The class entries and the type descriptors and signatures
+ * are evaluated. Constants inlined by the compiler leave no reference in the
+ * constant pool and can therefore not be found.
+ *
+ * @author The eFaps Team
+ */
+public final class ClassReferences
+{
+
+    /**
+     * Magic number of a class file.
+     */
+    private static final int MAGIC = 0xCAFEBABE;
+
+    /**
+     * Pattern for the class names in type descriptors and signatures.
+     */
+    private static final Pattern DESCRIPTOR = Pattern.compile("L([\\w/$]+)[;<]");
+
+    /**
+     * Utility class.
+     */
+    private ClassReferences()
+    {
+    }
+
+    /**
+     * Read the names of the referenced classes.
+     *
+     * @param _classBytes bytes of the compiled class
+     * @return binary names of the referenced classes
+     * @throws IOException if the bytes are not a valid class file
+     */
+    public static Set<String> read(final byte[] _classBytes)
+        throws IOException
+    {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(_classBytes));
+        if (in.readInt() != ClassReferences.MAGIC) {
+            throw new IOException("No valid class file");
+        }
+        // minor and major version
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        final int count = in.readUnsignedShort();
+        final String[] utf8 = new String[count];
+        final int[] classIdx = new int[count];
+        int classCount = 0;
+        for (int i = 1; i < count; i++) {
+            final int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1:
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7:
+                    classIdx[classCount++] = in.readUnsignedShort();
+                    break;
+                case 8:
+                case 16:
+                case 19:
+                case 20:
+                    in.skipBytes(2);
+                    break;
+                case 15:
+                    in.skipBytes(3);
+                    break;
+                case 3:
+                case 4:
+                case 9:
+                case 10:
+                case 11:
+                case 12:
+                case 17:
+                case 18:
+                    in.skipBytes(4);
+                    break;
+                case 5:
+                case 6:
+                    in.skipBytes(8);
+                    // long and double take two entries
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+        final Set<String> ret = new HashSet<>();
+        for (int i = 0; i < classCount; i++) {
+            final String name = utf8[classIdx[i]];
+            if (name != null) {
+                if (name.startsWith("[")) {
+                    ClassReferences.addDescriptor(ret, name);
+                } else {
+                    ret.add(name.replace('/', '.'));
+                }
+            }
+        }
+        for (final String value : utf8) {
+            if (value != null && value.indexOf(';') > 0) {
+                ClassReferences.addDescriptor(ret, value);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Add the classes of a type descriptor or signature.
+     *
+     * @param _names set the names are added to
+     * @param _descriptor descriptor to evaluate
+     */
+    private static void addDescriptor(final Set<String> _names,
+                                      final String _descriptor)
+    {
+        final Matcher matcher = ClassReferences.DESCRIPTOR.matcher(_descriptor);
+        while (matcher.find()) {
+            _names.add(matcher.group(1).replace('/', '.'));
+        }
+    }
+}
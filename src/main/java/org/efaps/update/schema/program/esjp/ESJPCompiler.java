@@ -17,18 +17,29 @@ package org.efaps.update.schema.program.esjp;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
 import java.util.Set;
 import java.util.regex.Matcher;
 
@@ -42,11 +53,17 @@ import javax.tools.StandardJavaFileManager;
 import javax.tools.StandardLocation;
 import javax.tools.ToolProvider;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.SystemUtils;
+import org.efaps.admin.AppConfigHandler;
 import org.efaps.admin.datamodel.Type;
+import org.efaps.admin.program.esjp.EFapsClassLoader;
 import org.efaps.ci.CIAdminProgram;
 import org.efaps.db.Checkin;
 import org.efaps.db.Checkout;
+import org.efaps.db.Context;
 import org.efaps.db.Delete;
 import org.efaps.db.Insert;
 import org.efaps.db.Instance;
@@ -58,9 +75,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * The class is used to compile all checked in ESJP programs. Because the
- * dependencies of a class are not known, all ESJP programs stored in eFaps are
- * compiled.
+ * The class is used to compile all checked in ESJP programs. By default all
+ * ESJP programs stored in eFaps are compiled. An incremental compile uses the
+ * hashes of the sources and classes stored by the previous compile and the
+ * references read from the compiled classes to compile only the changed
+ * ESJP programs and the ones depending on them.
  *
  * @author The eFaps Team
  */
@@ -71,6 +90,16 @@ public class ESJPCompiler
      */
     private static final Logger LOG = LoggerFactory.getLogger(ESJPCompiler.class);
 
+    /**
+     * Prefix for the hash of a source in the state of the previous compile.
+     */
+    private static final String SOURCEKEY = "source.";
+
+    /**
+     * Prefix for the hash of a class in the state of the previous compile.
+     */
+    private static final String CLASSKEY = "class.";
+
     /**
      * Type instance of Java program.
      */
@@ -96,6 +125,14 @@ public class ESJPCompiler
      */
     private final Map<String, Long> class2id = new HashMap<>();
 
+    /**
+     * Mapping between already existing compiled ESJP class name and its
+     * bytes. Only read for an incremental compile.
+     *
+     * @see #readESJPClassBytes()
+     */
+    private final Map<String, byte[]> class2bytes = new HashMap<>();
+
     /**
      * Mapping between the class name and the related ESJP class which must be
      * stored.
@@ -153,10 +190,41 @@ public class ESJPCompiler
     public void compile(final String _debug,
                         final boolean _addRuntimeClassPath)
         throws InstallationException
+    {
+        compile(_debug, _addRuntimeClassPath, false);
+    }
+
+    /**
+     * Compile the ESJP programs. For an incremental compile only the ESJP
+     * programs changed since the previous compile and the ones depending on
+     * them are compiled and only the classes with changed bytes are written.
+     * If no state of a previous compile exists, all ESJP programs are
+     * compiled.
+     *
+     * @param _debug                  String for the debug option
+     * @param _addRuntimeClassPath    Must the classpath from the runtime added
+     *                                to the compiler, default: <code>false</code>
+     * @param _incremental            compile incremental
+     * @throws InstallationException if the compile failed
+     * @see #compile(String, boolean)
+     */
+    public void compile(final String _debug,
+                        final boolean _addRuntimeClassPath,
+                        final boolean _incremental)
+        throws InstallationException
     {
         readESJPPrograms();
         readESJPClasses();
 
+        final Properties state = _incremental ? ESJPCompiler.loadState() : null;
+        final Set<String> toCompile;
+        if (state == null) {
+            toCompile = new HashSet<>(this.name2Source.keySet());
+        } else {
+            readESJPClassBytes();
+            toCompile = evalSources2Compile(state);
+        }
+
         final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
 
         if (compiler == null)  {
@@ -195,45 +263,301 @@ public class ESJPCompiler
             if (_debug != null) {
                 optionList.addAll(Arrays.asList("-g", _debug));
             }
+            // not changed ESJPs are only read from the source path but not
+            // written again
+            if (state != null) {
+                optionList.add("-implicit:none");
+            }
+
+            final List<SourceObject> sources = new ArrayList<>();
+            for (final String name : toCompile) {
+                sources.add(this.name2Source.get(name));
+            }
 
             // logging of compiling classes
             if (ESJPCompiler.LOG.isInfoEnabled()) {
-                final List<SourceObject> ls = new ArrayList<>(this.name2Source.values());
+                final List<SourceObject> ls = new ArrayList<>(sources);
                 Collections.sort(ls, (_arg0, _arg1) -> _arg0.getJavaName().compareTo(_arg1.getJavaName()));
                 for (final SourceObject obj : ls) {
                     ESJPCompiler.LOG.info("    Compiling ESJP '{}'", obj.getJavaName());
                 }
             }
 
-            final FileManager fm = new FileManager(compiler.getStandardFileManager(null, null, null));
-            final boolean noErrors = compiler.getTask(new ErrorWriter(),
-                                                      fm,
-                                                      null,
-                                                      optionList,
-                                                      null,
-                                                      this.name2Source.values())
-                                             .call();
-
-            if (!noErrors)  {
-                throw new InstallationException("error");
+            if (!sources.isEmpty()) {
+                final FileManager fm = new FileManager(compiler.getStandardFileManager(null, null, null));
+                final boolean noErrors = compiler.getTask(new ErrorWriter(),
+                                                          fm,
+                                                          null,
+                                                          optionList,
+                                                          null,
+                                                          sources)
+                                                 .call();
+
+                if (!noErrors)  {
+                    throw new InstallationException("error");
+                }
             }
 
-            // store all compiled ESJP's
+            // store all compiled ESJP's with changed bytes
+            final Map<String, byte[]> compiled = new HashMap<>();
             for (final ESJPCompiler.StoreObject obj : this.classFiles.values())  {
-                obj.write();
+                compiled.put(obj.className, obj.out.toByteArray());
+            }
+            final Set<String> toWrite = ESJPCompiler.evalClasses2Write(this.class2bytes, compiled);
+            for (final ESJPCompiler.StoreObject obj : this.classFiles.values())  {
+                if (toWrite.contains(obj.className)) {
+                    obj.write();
+                } else {
+                    this.class2id.remove(obj.className);
+                }
             }
 
             // delete not needed compiled ESJP classes
-            for (final Long id : this.class2id.values()) {
-                try {
-                    new Delete(this.classType, id).executeWithoutAccessCheck();
-                } catch (final EFapsException e)  {
-                    throw new InstallationException("Could not delete ESJP class with id " + id, e);
+            for (final Entry<String, Long> entry : this.class2id.entrySet()) {
+                final String source = ESJPCompiler.getSourceName(entry.getKey());
+                if (toCompile.contains(source) || !this.name2Source.containsKey(source)) {
+                    try {
+                        new Delete(this.classType, entry.getValue()).executeWithoutAccessCheck();
+                    } catch (final EFapsException e)  {
+                        throw new InstallationException("Could not delete ESJP class with id "
+                                        + entry.getValue(), e);
+                    }
+                    this.class2bytes.remove(entry.getKey());
                 }
             }
+            saveState(toCompile);
+
+            try {
+                EFapsClassLoader.reset();
+            } catch (final EFapsException e) {
+                throw new InstallationException("Could not reset the compiled ESJP classes", e);
+            }
         }
     }
 
+    /**
+     * Evaluate the ESJP programs that must be compiled.
+     *
+     * @param _state state of the previous compile
+     * @return names of the ESJP programs to compile
+     * @throws InstallationException if the sources could not be read
+     * @see #evalSources2Compile(Map, Map, Properties)
+     */
+    protected Set<String> evalSources2Compile(final Properties _state)
+        throws InstallationException
+    {
+        final Map<String, String> source2hash = new HashMap<>();
+        try {
+            for (final SourceObject source : this.name2Source.values()) {
+                source2hash.put(source.getJavaName(), source.getHash());
+            }
+        } catch (final IOException e) {
+            throw new InstallationException("Could not read the ESJP sources", e);
+        }
+        return ESJPCompiler.evalSources2Compile(source2hash, this.class2bytes, _state);
+    }
+
+    /**
+     * Evaluate the ESJP programs that must be compiled. An ESJP program must
+     * be compiled if its source or one of its compiled classes is not the
+     * same as stored in the state of the previous compile. The ESJP programs
+     * referencing a changed or removed ESJP program must be compiled also.
+     *
+     * @param _source2hash hash of the source for each ESJP program
+     * @param _class2bytes bytes of the stored compiled classes
+     * @param _state state of the previous compile
+     * @return names of the ESJP programs to compile
+     */
+    protected static Set<String> evalSources2Compile(final Map<String, String> _source2hash,
+                                                     final Map<String, byte[]> _class2bytes,
+                                                     final Properties _state)
+    {
+        final Map<String, Set<String>> source2classes = new HashMap<>();
+        for (final String className : _class2bytes.keySet()) {
+            source2classes.computeIfAbsent(ESJPCompiler.getSourceName(className), key -> new HashSet<>())
+                .add(className);
+        }
+        final Map<String, Set<String>> source2stateClasses = new HashMap<>();
+        for (final String key : _state.stringPropertyNames()) {
+            if (key.startsWith(ESJPCompiler.CLASSKEY)) {
+                final String className = key.substring(ESJPCompiler.CLASSKEY.length());
+                source2stateClasses.computeIfAbsent(ESJPCompiler.getSourceName(className),
+                                name -> new HashSet<>()).add(className);
+            }
+        }
+
+        final Set<String> changed = new HashSet<>();
+        // ESJP programs depending on an ESJP program
+        final Map<String, Set<String>> dependents = new HashMap<>();
+        for (final Entry<String, byte[]> entry : _class2bytes.entrySet()) {
+            final String source = ESJPCompiler.getSourceName(entry.getKey());
+            try {
+                for (final String reference : ClassReferences.read(entry.getValue())) {
+                    final String refSource = ESJPCompiler.getSourceName(reference);
+                    if (!refSource.equals(source)) {
+                        dependents.computeIfAbsent(refSource, key -> new HashSet<>()).add(source);
+                    }
+                }
+            } catch (final IOException e) {
+                ESJPCompiler.LOG.warn("Could not read the references of '{}'", entry.getKey(), e);
+                changed.add(source);
+            }
+        }
+
+        for (final Entry<String, String> entry : _source2hash.entrySet()) {
+            final String name = entry.getKey();
+            final Set<String> classes = source2classes.getOrDefault(name, Collections.emptySet());
+            boolean change = classes.isEmpty()
+                            || !classes.equals(source2stateClasses.get(name))
+                            || !entry.getValue().equals(_state.getProperty(ESJPCompiler.SOURCEKEY + name));
+            for (final String className : classes) {
+                if (change) {
+                    break;
+                }
+                change = !DigestUtils.sha256Hex(_class2bytes.get(className))
+                                .equals(_state.getProperty(ESJPCompiler.CLASSKEY + className));
+            }
+            if (change) {
+                changed.add(name);
+            }
+        }
+        // removed ESJP programs
+        for (final String source : source2classes.keySet()) {
+            if (!_source2hash.containsKey(source)) {
+                changed.add(source);
+            }
+        }
+
+        final Set<String> ret = new HashSet<>();
+        final Deque<String> queue = new ArrayDeque<>(changed);
+        while (!queue.isEmpty()) {
+            final String source = queue.poll();
+            if (_source2hash.containsKey(source)) {
+                ret.add(source);
+            }
+            for (final String dependent : dependents.getOrDefault(source, Collections.emptySet())) {
+                if (_source2hash.containsKey(dependent) && !ret.contains(dependent)
+                                && !queue.contains(dependent)) {
+                    queue.add(dependent);
+                }
+            }
+        }
+        ESJPCompiler.LOG.info("    {} ESJP changed, {} ESJP must be compiled including dependents",
+                        changed.size(), ret.size());
+        return ret;
+    }
+
+    /**
+     * Evaluate the compiled classes that must be written. Classes with the
+     * same bytes as the already stored classes are skipped.
+     *
+     * @param _class2bytes bytes of the stored compiled classes
+     * @param _compiled bytes of the classes compiled now
+     * @return names of the classes to write
+     */
+    protected static Set<String> evalClasses2Write(final Map<String, byte[]> _class2bytes,
+                                                   final Map<String, byte[]> _compiled)
+    {
+        final Set<String> ret = new HashSet<>();
+        for (final Entry<String, byte[]> entry : _compiled.entrySet()) {
+            final byte[] bytes = _class2bytes.get(entry.getKey());
+            if (bytes == null || !Arrays.equals(bytes, entry.getValue())) {
+                ret.add(entry.getKey());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Store the hashes of the sources and the compiled classes for the next
+     * incremental compile.
+     *
+     * @param _compiled names of the compiled ESJP programs
+     */
+    protected void saveState(final Set<String> _compiled)
+    {
+        final Properties state = new Properties();
+        try {
+            for (final SourceObject source : this.name2Source.values()) {
+                state.setProperty(ESJPCompiler.SOURCEKEY + source.getJavaName(), source.getHash());
+            }
+            for (final Entry<String, byte[]> entry : this.class2bytes.entrySet()) {
+                if (!_compiled.contains(ESJPCompiler.getSourceName(entry.getKey()))) {
+                    state.setProperty(ESJPCompiler.CLASSKEY + entry.getKey(), DigestUtils.sha256Hex(entry.getValue()));
+                }
+            }
+            for (final ESJPCompiler.StoreObject obj : this.classFiles.values())  {
+                state.setProperty(ESJPCompiler.CLASSKEY + obj.className, DigestUtils.sha256Hex(obj.out.toByteArray()));
+            }
+            final File file = ESJPCompiler.getStateFile();
+            if (file != null) {
+                try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                    state.store(out, "State of the last ESJP compile");
+                }
+            }
+        } catch (final IOException e) {
+            ESJPCompiler.LOG.warn("Could not store the state of the ESJP compile", e);
+        }
+    }
+
+    /**
+     * Load the state of the previous compile.
+     *
+     * @return the state, <code>null</code> if not found
+     */
+    protected static Properties loadState()
+    {
+        Properties ret = null;
+        final File file = ESJPCompiler.getStateFile();
+        if (file != null && file.exists()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                ret = new Properties();
+                ret.load(in);
+            } catch (final IOException e) {
+                ESJPCompiler.LOG.warn("Could not read the state of the previous ESJP compile", e);
+                ret = null;
+            }
+        } else {
+            ESJPCompiler.LOG.info("    No state of a previous compile found, compiling all ESJP");
+        }
+        return ret;
+    }
+
+    /**
+     * The name of the file contains a hash of the JDBC URL and user of the
+     * database, so that the states of different databases sharing one temp
+     * folder are not mixed up.
+     *
+     * @return file the state of the compile is stored in, <code>null</code>
+     *         if the database could not be identified
+     */
+    private static File getStateFile()
+    {
+        File ret = null;
+        try (Connection con = Context.getConnection()) {
+            final DatabaseMetaData metaData = con.getMetaData();
+            File folder = AppConfigHandler.get().getTempFolder();
+            if (folder == null) {
+                folder = FileUtils.getTempDirectory();
+            }
+            ret = new File(folder, "eFaps-ESJPCompiler-"
+                            + DigestUtils.sha256Hex(metaData.getURL() + "|" + metaData.getUserName()).substring(0, 16)
+                            + ".properties");
+        } catch (final EFapsException | SQLException e) {
+            ESJPCompiler.LOG.warn("Could not identify the database for the state of the ESJP compile", e);
+        }
+        return ret;
+    }
+
+    /**
+     * @param _className name of a class
+     * @return name of the ESJP program the class belongs to
+     */
+    protected static String getSourceName(final String _className)
+    {
+        return _className.replaceAll("\\.class$", "").replaceAll("\\$.*", "");
+    }
+
     /**
      * All EJSP programs in the eFaps database are read and stored in the
      * mapping {@link #name2Source} for further using.
@@ -295,6 +619,27 @@ public class ESJPCompiler
         }
     }
 
+    /**
+     * The bytes of all compiled ESJP's classes read with
+     * {@link #readESJPClasses()} are stored in the mapping
+     * {@link #class2bytes}.
+     *
+     * @throws InstallationException if read of the ESJP classes failed
+     * @see #class2bytes
+     */
+    protected void readESJPClassBytes()
+        throws InstallationException
+    {
+        for (final Entry<String, Long> entry : this.class2id.entrySet()) {
+            final Checkout checkout = new Checkout(Instance.get(this.classType, entry.getValue()));
+            try (InputStream is = checkout.executeWithoutAccessCheck()) {
+                this.class2bytes.put(entry.getKey(), IOUtils.toByteArray(is));
+            } catch (final EFapsException | IOException e) {
+                throw new InstallationException("Could not read the compiled ESJP class " + entry.getKey(), e);
+            }
+        }
+    }
+
     /**
      * Error writer to show all errors to the
      * {@link ESJPCompiler#LOG compiler logger}.
@@ -509,6 +854,11 @@ public class ESJPCompiler
          */
         private final long id;
 
+        /**
+         * Source code of the ESJP program, read on first access.
+         */
+        private String content;
+
         /**
          * Initializes the source object.
          *
@@ -537,18 +887,26 @@ public class ESJPCompiler
         public CharSequence getCharContent(final boolean _ignoreEncodingErrors)
             throws IOException
         {
-            final StringBuilder ret = new StringBuilder();
-            try {
+            if (this.content == null) {
                 final Checkout checkout = new Checkout(Instance.get(ESJPCompiler.this.esjpType, this.id));
-                final InputStream is = checkout.executeWithoutAccessCheck();
-                final byte[] bytes = new byte[is.available()];
-                is.read(bytes);
-                is.close();
-                ret.append(new String(bytes, "UTF-8"));
-            } catch (final EFapsException e) {
-                throw new IOException("could not checkout class '" + this.javaName + "'", e);
+                try (InputStream is = checkout.executeWithoutAccessCheck()) {
+                    this.content = IOUtils.toString(is, StandardCharsets.UTF_8);
+                } catch (final EFapsException e) {
+                    throw new IOException("could not checkout class '" + this.javaName + "'", e);
+                }
             }
-            return ret;
+            return this.content;
+        }
+
+        /**
+         * @return hash of the source code
+         * @throws IOException if source could not be read from the eFaps
+         *                     database
+         */
+        public String getHash()
+            throws IOException
+        {
+            return DigestUtils.sha256Hex(getCharContent(true).toString());
         }
 
         /**
@@ -620,7 +978,7 @@ public class ESJPCompiler
                 final Long id = ESJPCompiler.this.class2id.get(this.className);
                 final Instance instance;
                 if (id == null) {
-                    final String parent = this.className.replaceAll(".class$", "").replaceAll("\\$.*", "");
+                    final String parent = ESJPCompiler.getSourceName(this.className);
 
                     final ESJPCompiler.SourceObject parentId = ESJPCompiler.this.name2Source.get(parent);
 
@@ -165,6 +165,30 @@ public final class InfinispanCache
                         .withFlags(Flag.IGNORE_RETURN_VALUES, Flag.SKIP_REMOTE_LOOKUP, Flag.SKIP_CACHE_LOAD);
     }
 
+    /**
+     * Register a listener for a cache, unless a listener of the same class is
+     * registered already. A cache might have been started before the class
+     * using it was initialized, therefore the listeners are checked on every
+     * initialization instead of only on the creation of the cache.
+     *
+     * @param _cacheName name of the cache
+     * @param _listener listener to register
+     * @return true if the listener was registered, false if a listener of
+     *         its class was registered already
+     */
+    @SuppressWarnings("deprecation")
+    public boolean addListener(final String _cacheName,
+                               final Object _listener)
+    {
+        final Cache<?, ?> cache = getCache(_cacheName);
+        final boolean ret = cache.getListeners().stream()
+                        .noneMatch(listener -> listener.getClass().equals(_listener.getClass()));
+        if (ret) {
+            cache.addListener(_listener);
+        }
+        return ret;
+    }
+
     /**
      * Method to init a Cache using the default definitions.
      * @param _cacheName cache wanted
@@ -0,0 +1,213 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.admin.access.user;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.admin.access.user.AccessCache.PermissionListener;
+import org.efaps.admin.datamodel.Type;
+import org.efaps.cluster.ClusterCommunication;
+import org.efaps.cluster.InvalidationEvent;
+import org.efaps.cluster.InvalidationEvent.Region;
+import org.efaps.db.Context;
+import org.efaps.db.Instance;
+import org.efaps.mock.Mocks;
+import org.efaps.test.AbstractTest;
+import org.efaps.util.EFapsException;
+import org.efaps.util.cache.InfinispanCache;
+import org.infinispan.Cache;
+import org.jgroups.JChannel;
+import org.jgroups.Message;
+import org.jgroups.Receiver;
+import org.jgroups.protocols.SHARED_LOOPBACK;
+import org.jgroups.protocols.SHARED_LOOPBACK_PING;
+import org.jgroups.protocols.UNICAST3;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.util.Util;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * The Class AccessCacheTest.
+ */
+public class AccessCacheTest
+    extends AbstractTest
+{
+
+    /** The channel of the other member. */
+    private JChannel other;
+
+    /** Events received by the other member. */
+    private final BlockingQueue<InvalidationEvent> received = new LinkedBlockingQueue<>();
+
+    @BeforeMethod
+    public void connect()
+        throws Exception
+    {
+        this.received.clear();
+        this.other = createChannel("B");
+        this.other.setReceiver(new Receiver()
+        {
+
+            @Override
+            public void receive(final Message _msg)
+            {
+                AccessCacheTest.this.received.add(_msg.getObject());
+            }
+        });
+        this.other.connect("AccessCacheTest");
+        final JChannel channel = createChannel("A");
+        ClusterCommunication.start(channel, "AccessCacheTest");
+        Util.waitUntilAllChannelsHaveSameView(10000, 100, channel, this.other);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void disconnect()
+    {
+        ClusterCommunication.stop();
+        this.other.close();
+    }
+
+    @Test(description = "the updates of a transaction are published with one event after the commit")
+    public void testPublishAfterCommit()
+        throws Exception
+    {
+        final Instance instance1 = getInstance(1);
+        final Instance instance2 = getInstance(2);
+        AccessCache.registerUpdate(instance1);
+        AccessCache.registerUpdate(instance2);
+        AccessCache.registerUpdate(instance1);
+        assertNull(this.received.poll(500, TimeUnit.MILLISECONDS));
+        Context.commit();
+        Context.begin("Administrator");
+        final InvalidationEvent event = this.received.poll(10, TimeUnit.SECONDS);
+        assertEquals(event.getRegion(), Region.ACCESSSTATUS);
+        assertEquals(event.getKeys(), Arrays.asList(instance1.getKey(), instance2.getKey()));
+        assertNull(this.received.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(description = "the updates of a rolled back transaction are not published")
+    public void testNoPublishOnRollback()
+        throws Exception
+    {
+        AccessCache.registerUpdate(getInstance(1));
+        Context.rollback();
+        Context.begin("Administrator");
+        assertNull(this.received.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(description = "without transaction the update is published at once")
+    public void testPublishWithoutTransaction()
+        throws Exception
+    {
+        final Instance instance = getInstance(1);
+        Context.commit();
+        try {
+            AccessCache.registerUpdate(instance);
+        } finally {
+            Context.begin("Administrator");
+        }
+        final InvalidationEvent event = this.received.poll(10, TimeUnit.SECONDS);
+        assertEquals(event.getRegion(), Region.ACCESSSTATUS);
+        assertEquals(event.getKeys(), Arrays.asList(instance.getKey()));
+    }
+
+    @Test(description = "every initialization registers the PermissionListener once")
+    @SuppressWarnings("deprecation")
+    public void testPermissionListener()
+    {
+        final Cache<Key, PermissionSet> cache = InfinispanCache.get().getCache(AccessCache.PERMISSIONCACHE);
+        AccessCache.initialize();
+        AccessCache.initialize();
+        assertEquals(countPermissionListeners(cache), 1);
+
+        // a cache started before the initialization has no listener yet
+        new ArrayList<>(cache.getListeners()).stream().filter(PermissionListener.class::isInstance)
+                        .forEach(cache::removeListener);
+        assertEquals(countPermissionListeners(cache), 0);
+        AccessCache.initialize();
+        assertEquals(countPermissionListeners(cache), 1);
+    }
+
+    @Test(description = "the keys of the PermissionCache are registered for their person")
+    public void testEvict4Person()
+    {
+        AccessCache.initialize();
+        final Key key1 = new Key().setPersonId(1).setTypeId(Mocks.AccessType.getId());
+        final Key key2 = new Key().setPersonId(2).setTypeId(Mocks.AccessType.getId());
+        final Key key3 = new Key().setPersonId(1).setTypeId(Mocks.SimpleType.getId());
+        for (final Key key : Arrays.asList(key1, key2, key3)) {
+            AccessCache.getPermissionCache().put(key, new PermissionSet().setPersonId(key.getPersonId())
+                            .setTypeId(key.getTypeId()));
+        }
+        AccessCache.evict4Person(1);
+        assertFalse(AccessCache.getPermissionCache().containsKey(key1));
+        assertFalse(AccessCache.getPermissionCache().containsKey(key3));
+        assertTrue(AccessCache.getPermissionCache().containsKey(key2));
+
+        // a removed key is unregistered and put again registers it again
+        AccessCache.getPermissionCache().remove(key2);
+        AccessCache.getPermissionCache().put(key2, new PermissionSet().setPersonId(2)
+                        .setTypeId(Mocks.AccessType.getId()));
+        AccessCache.evict4Person(2);
+        assertFalse(AccessCache.getPermissionCache().containsKey(key2));
+    }
+
+    /**
+     * @param _cache the cache
+     * @return number of registered PermissionListeners
+     */
+    @SuppressWarnings("deprecation")
+    private long countPermissionListeners(final Cache<?, ?> _cache)
+    {
+        return _cache.getListeners().stream().filter(PermissionListener.class::isInstance).count();
+    }
+
+    /**
+     * @param _id id of the instance
+     * @return instance of the AccessType
+     * @throws EFapsException on error
+     */
+    private Instance getInstance(final long _id)
+        throws EFapsException
+    {
+        return Instance.get(Type.get(Mocks.AccessType.getId()), _id);
+    }
+
+    /**
+     * @param _name name of the channel
+     * @return channel communicating only inside of this JVM
+     * @throws Exception on error
+     */
+    private JChannel createChannel(final String _name)
+        throws Exception
+    {
+        return new JChannel(new SHARED_LOOPBACK(), new SHARED_LOOPBACK_PING(), new NAKACK2(), new UNICAST3(),
+                        new STABLE(), new GMS()).name(_name);
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.admin.access.user;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.efaps.admin.access.user.Evaluation.AccessSource;
+import org.efaps.admin.datamodel.Type;
+import org.efaps.db.Context;
+import org.efaps.db.Instance;
+import org.efaps.mock.MockResult;
+import org.efaps.mock.Mocks;
+import org.efaps.test.AbstractTest;
+import org.efaps.util.EFapsException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import acolyte.jdbc.RowLists;
+
+/**
+ * The Class EvaluationTest.
+ */
+public class EvaluationTest
+    extends AbstractTest
+{
+
+    /** Id of a role of the person. */
+    private static final long ROLE = 100;
+
+    /** Id of a group of the person. */
+    private static final long GROUP = 200;
+
+    /** Id of another user. */
+    private static final long OTHER = 300;
+
+    @BeforeMethod
+    public void init()
+    {
+        AccessCache.initialize();
+    }
+
+    @Test(description = "the PermissionSets evaluated together equal the ones evaluated one by one")
+    public void testBatchedMatchesSingle()
+        throws EFapsException
+    {
+        final TestSource source = new TestSource();
+        final List<PermissionSet> batched = getPermissionSets();
+        Evaluation.eval(batched, source);
+        assertEquals(source.queries, 1);
+
+        for (final PermissionSet set : batched) {
+            final PermissionSet single = getPermissionSet(set.getTypeId());
+            Evaluation.eval(Collections.singletonList(single), source);
+            assertEquals(set.getAccessTypeIds(), single.getAccessTypeIds(), set.toString());
+            assertEquals(set.getStatusIds(), single.getStatusIds(), set.toString());
+        }
+    }
+
+    @Test(description = "the AccessSets of the person, its roles and its groups are applied")
+    public void testMembership()
+        throws EFapsException
+    {
+        final List<PermissionSet> sets = getPermissionSets();
+        Evaluation.eval(sets, new TestSource());
+        // role
+        assertEquals(sets.get(0).getAccessTypeIds(), new HashSet<>(Arrays.asList(1L)));
+        // role and person
+        assertEquals(sets.get(1).getAccessTypeIds(), new HashSet<>(Arrays.asList(1L, 3L)));
+        // group
+        assertEquals(sets.get(2).getAccessTypeIds(), new HashSet<>(Arrays.asList(2L)));
+    }
+
+    @Test(description = "the status is only added for types depending on the status")
+    public void testStatusDependent()
+        throws EFapsException
+    {
+        final List<PermissionSet> sets = getPermissionSets();
+        Evaluation.eval(sets, new TestSource());
+        assertTrue(sets.get(0).getStatusIds().isEmpty());
+        assertEquals(sets.get(1).getStatusIds(), new HashSet<>(Arrays.asList(
+                        Mocks.StatusGrp.getStatusId("Open"), Mocks.StatusGrp.getStatusId("Closed"))));
+        assertTrue(sets.get(2).getStatusIds().isEmpty());
+    }
+
+    @Test(description = "instances of the same type share one PermissionSet evaluated with the others")
+    public void testGetPermissionSets()
+        throws EFapsException
+    {
+        final Instance simple1 = Instance.get(Type.get(Mocks.SimpleType.getId()), 1L);
+        final Instance simple2 = Instance.get(Type.get(Mocks.SimpleType.getId()), 2L);
+        final Instance status = Instance.get(Type.get(Mocks.StatusType.getId()), 3L);
+        final Instance allAttr = Instance.get(Type.get(Mocks.AllAttrType.getId()), 4L);
+        final List<Instance> instances = Arrays.asList(simple1, simple2, status, allAttr);
+        final TestSource source = new TestSource();
+
+        final Map<Instance, PermissionSet> notEvaluated = Evaluation.getPermissionSets(instances, false, source);
+        assertNull(notEvaluated.get(simple1));
+        assertEquals(source.queries, 0);
+
+        final Map<Instance, PermissionSet> sets = Evaluation.getPermissionSets(instances, true, source);
+        assertEquals(source.queries, 1);
+        assertSame(sets.get(simple1), sets.get(simple2));
+        for (final Instance instance : instances) {
+            final PermissionSet single = getPermissionSet(instance.getType().getId());
+            Evaluation.eval(Collections.singletonList(single), source);
+            assertEquals(sets.get(instance).getAccessTypeIds(), single.getAccessTypeIds(), instance.toString());
+            assertEquals(sets.get(instance).getStatusIds(), single.getStatusIds(), instance.toString());
+            assertTrue(AccessCache.getPermissionCache().containsKey(Key.get4Instance(instance)));
+        }
+
+        source.queries = 0;
+        Evaluation.getPermissionSets(instances, true, source);
+        assertEquals(source.queries, 0);
+    }
+
+    @Test(description = "the status of the instances is read with one query per type")
+    public void testEvalStatus()
+        throws EFapsException
+    {
+        MockResult.builder()
+            .withSql(String.format("select T0.ID,T0.%s from %s T0 where T0.ID in ( 1 , 2 )",
+                            Mocks.StatusAttribute.getSQLColumnName(),
+                            Mocks.StatusTypeSQLTable.getSqlTableName()))
+            .withResult(RowLists.rowList2(Long.class, Long.class)
+                            .append(1L, Mocks.StatusGrp.getStatusId("Open"))
+                            .append(2L, Mocks.StatusGrp.getStatusId("Closed"))
+                            .asResult())
+            .build();
+        final Instance status1 = Instance.get(Type.get(Mocks.StatusType.getId()), 1L);
+        final Instance status2 = Instance.get(Type.get(Mocks.StatusType.getId()), 2L);
+        final Instance simple = Instance.get(Type.get(Mocks.SimpleType.getId()), 3L);
+
+        Evaluation.evalStatus(Arrays.asList(status1, simple, status2));
+        assertEquals(AccessCache.getStatusCache().get(status1.getKey()), Mocks.StatusGrp.getStatusId("Open"));
+        assertEquals(AccessCache.getStatusCache().get(status2.getKey()), Mocks.StatusGrp.getStatusId("Closed"));
+        assertFalse(AccessCache.getStatusCache().containsKey(simple.getKey()));
+        assertEquals(Evaluation.getStatus(status1).getKey(), "Open");
+        assertEquals(Evaluation.getStatus(status2).getKey(), "Closed");
+        assertNull(Evaluation.getStatus(simple));
+    }
+
+    /**
+     * @return PermissionSets for SimpleType, StatusType and AllAttrType
+     * @throws EFapsException on error
+     */
+    private List<PermissionSet> getPermissionSets()
+        throws EFapsException
+    {
+        return Arrays.asList(getPermissionSet(Mocks.SimpleType.getId()),
+                        getPermissionSet(Mocks.StatusType.getId()),
+                        getPermissionSet(Mocks.AllAttrType.getId()));
+    }
+
+    /**
+     * @param _typeId id of the type
+     * @return new PermissionSet for the person of the context
+     * @throws EFapsException on error
+     */
+    private PermissionSet getPermissionSet(final long _typeId)
+        throws EFapsException
+    {
+        return new PermissionSet().setPersonId(Context.getThreadContext().getPersonId()).setTypeId(_typeId);
+    }
+
+    /**
+     * AccessSets kept in memory.
+     * <ul>
+     * <li>10: role, SimpleType and StatusType, AccessType 1, Status Open</li>
+     * <li>20: group, AllAttrType, AccessType 2</li>
+     * <li>30: person, StatusType, AccessType 3, Status Closed</li>
+     * <li>40: other user, SimpleType, AccessType 4</li>
+     * </ul>
+     */
+    private static class TestSource
+        implements AccessSource
+    {
+
+        /** Users of the AccessSets. */
+        private final Map<Long, Long> users = new HashMap<>();
+
+        /** Types of the AccessSets. */
+        private final Map<Long, Set<Long>> types = new HashMap<>();
+
+        /** AccessTypes of the AccessSets. */
+        private final Map<Long, Set<Long>> accessTypes = new HashMap<>();
+
+        /** Status of the AccessSets. */
+        private final Map<Long, Set<Long>> status = new HashMap<>();
+
+        /** Number of queries for the AccessSets. */
+        private int queries;
+
+        TestSource()
+        {
+            add(10L, ROLE, 1L, Collections.singleton(Mocks.StatusGrp.getStatusId("Open")),
+                            Mocks.SimpleType.getId(), Mocks.StatusType.getId());
+            add(20L, GROUP, 2L, Collections.emptySet(), Mocks.AllAttrType.getId());
+            add(30L, 1L, 3L, Collections.singleton(Mocks.StatusGrp.getStatusId("Closed")),
+                            Mocks.StatusType.getId());
+            add(40L, OTHER, 4L, Collections.emptySet(), Mocks.SimpleType.getId());
+        }
+
+        private void add(final Long _accessSetId,
+                         final Long _userId,
+                         final Long _accessTypeId,
+                         final Set<Long> _statusIds,
+                         final Long... _typeIds)
+        {
+            this.users.put(_accessSetId, _userId);
+            this.types.put(_accessSetId, new HashSet<>(Arrays.asList(_typeIds)));
+            this.accessTypes.put(_accessSetId, Collections.singleton(_accessTypeId));
+            this.status.put(_accessSetId, _statusIds);
+        }
+
+        @Override
+        public Set<Long> getUserIds(final long _personId)
+        {
+            return new HashSet<>(Arrays.asList(_personId, ROLE, GROUP));
+        }
+
+        @Override
+        public Map<Long, Set<Long>> getAccessSet2Types(final Set<Long> _userIds,
+                                                       final Set<Long> _typeIds)
+        {
+            this.queries++;
+            final Map<Long, Set<Long>> ret = new HashMap<>();
+            for (final Map.Entry<Long, Long> entry : this.users.entrySet()) {
+                if (_userIds.contains(entry.getValue())) {
+                    for (final Long typeId : this.types.get(entry.getKey())) {
+                        if (_typeIds.contains(typeId)) {
+                            ret.computeIfAbsent(entry.getKey(), accessSetId -> new HashSet<>()).add(typeId);
+                        }
+                    }
+                }
+            }
+            return ret;
+        }
+
+        @Override
+        public Map<Long, Set<Long>> getAccessSet2AccessTypes(final Set<Long> _accessSetIds)
+        {
+            final Map<Long, Set<Long>> ret = new HashMap<>(this.accessTypes);
+            ret.keySet().retainAll(_accessSetIds);
+            return ret;
+        }
+
+        @Override
+        public Map<Long, Set<Long>> getAccessSet2Status(final Set<Long> _accessSetIds)
+        {
+            final Map<Long, Set<Long>> ret = new HashMap<>(this.status);
+            ret.keySet().retainAll(_accessSetIds);
+            return ret;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.admin.common;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.efaps.admin.common.SystemConfiguration.Candidates;
+import org.efaps.admin.common.SystemConfiguration.ConfType;
+import org.efaps.admin.common.SystemConfiguration.Value;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the resolution of the values of a SystemConfiguration.
+ */
+public class SystemConfigurationTest
+{
+
+    @Test(description = "a value of the company has priority over the general one")
+    public void testCompanyPriority()
+    {
+        final Candidates candidates = new Candidates();
+        candidates.add(value("General", 0L, null));
+        candidates.add(value("Company2", 2L, null));
+        assertEquals(candidates.resolve(0, "app"), "General");
+        assertEquals(candidates.resolve(1, "app"), "General");
+        assertEquals(candidates.resolve(2, "app"), "Company2");
+    }
+
+    @Test(description = "a value of another company only is not used")
+    public void testOtherCompany()
+    {
+        final Candidates candidates = new Candidates();
+        candidates.add(value("Company2", 2L, null));
+        assertNull(candidates.resolve(1, "app"));
+        assertNull(candidates.resolve(0, "app"));
+    }
+
+    @Test(description = "values of another application are ignored")
+    public void testApplication()
+    {
+        final Candidates candidates = new Candidates();
+        candidates.add(value("Other", 1L, "other"));
+        candidates.add(value("General", 0L, "app"));
+        assertEquals(candidates.resolve(1, "app"), "General");
+        assertEquals(candidates.resolve(1, "other"), "Other");
+    }
+
+    @Test(description = "the value is resolved once per company")
+    public void testMemoized()
+    {
+        final Candidates candidates = new Candidates();
+        candidates.add(value("General", 0L, null));
+        candidates.add(value("Company2", 2L, null));
+        assertFalse(candidates.isResolved(2));
+        assertEquals(candidates.resolve(2, "app"), "Company2");
+        assertTrue(candidates.isResolved(2));
+        assertFalse(candidates.isResolved(1));
+        assertEquals(candidates.resolve(2, "app"), "Company2");
+        assertEquals(candidates.resolve(1, "app"), "General");
+        assertTrue(candidates.isResolved(1));
+    }
+
+    @Test(description = "adding a value discards the resolved values")
+    public void testAddResets()
+    {
+        final Candidates candidates = new Candidates();
+        candidates.add(value("General", 0L, null));
+        assertEquals(candidates.resolve(1, "app"), "General");
+        candidates.add(value("Company1", 1L, null));
+        assertFalse(candidates.isResolved(1));
+        assertEquals(candidates.resolve(1, "app"), "Company1");
+    }
+
+    @Test(description = "without a known application nothing is remembered")
+    public void testUnknownApplication()
+    {
+        final Candidates candidates = new Candidates();
+        candidates.add(value("General", 0L, "app"));
+        assertEquals(candidates.resolve(1, null), "General");
+        assertFalse(candidates.isResolved(1));
+    }
+
+    private static Value value(final String _value,
+                               final Long _companyId,
+                               final String _appKey)
+    {
+        return new Value(ConfType.ATTRIBUTE, "Key", _value, _companyId, _appKey);
+    }
+}
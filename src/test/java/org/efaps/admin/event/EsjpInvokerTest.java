@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.admin.event;
+
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import org.efaps.admin.event.Return.ReturnValues;
+import org.efaps.admin.program.esjp.EFapsStateless;
+import org.efaps.test.AbstractTest;
+import org.testng.annotations.Test;
+
+public class EsjpInvokerTest
+    extends AbstractTest
+{
+
+    @Test
+    public void testInvoke()
+        throws Throwable
+    {
+        final EsjpInvoker invoker = EsjpInvoker.get(Stateful.class.getName(), "execute");
+        final Object first = invoker.invoke(new Parameter()).get(ReturnValues.VALUES);
+        final Object second = invoker.invoke(new Parameter()).get(ReturnValues.VALUES);
+        assertNotSame(first, second);
+        assertSame(EsjpInvoker.get(Stateful.class.getName(), "execute"), invoker);
+    }
+
+    @Test
+    public void testInvokeStateless()
+        throws Throwable
+    {
+        final EsjpInvoker invoker = EsjpInvoker.get(Stateless.class.getName(), "execute");
+        final Object first = invoker.invoke(new Parameter()).get(ReturnValues.VALUES);
+        final Object second = invoker.invoke(new Parameter()).get(ReturnValues.VALUES);
+        assertSame(first, second);
+    }
+
+    @Test
+    public void testClear()
+        throws Throwable
+    {
+        final EsjpInvoker invoker = EsjpInvoker.get(Stateless.class.getName(), "execute");
+        EsjpInvoker.clear();
+        assertNotSame(EsjpInvoker.get(Stateless.class.getName(), "execute"), invoker);
+    }
+
+    @Test(expectedExceptions = NoSuchMethodException.class)
+    public void testMissingMethod()
+        throws Throwable
+    {
+        EsjpInvoker.get(Stateful.class.getName(), "missing");
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "fail")
+    public void testThrowing()
+        throws Throwable
+    {
+        EsjpInvoker.get(Stateful.class.getName(), "fail").invoke(new Parameter());
+    }
+
+    public static class Stateful
+    {
+
+        public Return execute(final Parameter _parameter)
+        {
+            return new Return().put(ReturnValues.VALUES, this);
+        }
+
+        public Return fail(final Parameter _parameter)
+        {
+            throw new IllegalStateException("fail");
+        }
+    }
+
+    @EFapsStateless
+    public static class Stateless
+    {
+
+        public Return execute(final Parameter _parameter)
+        {
+            return new Return().put(ReturnValues.VALUES, this);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.admin.index;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager.SearcherAndTaxonomy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.FSDirectory;
+import org.efaps.admin.index.Indexer.Key;
+import org.efaps.util.EFapsException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class IndexManagerTest
+{
+
+    @AfterMethod
+    public void close()
+    {
+        IndexManager.closeAll();
+    }
+
+    @Test(description = "one manager per directory")
+    public void testManagerPerDirectory()
+        throws EFapsException
+    {
+        final IndexContext context = createContext();
+        final IndexManager manager = IndexManager.get(context);
+        assertSame(IndexManager.get(context), manager);
+        assertNotSame(IndexManager.get(createContext()), manager);
+    }
+
+    @Test(description = "file system directories opened twice share the manager holding the lock")
+    public void testManagerPerPath()
+        throws EFapsException, IOException
+    {
+        final Path path = Files.createTempDirectory("IndexManagerTest");
+        try {
+            final IndexManager manager = IndexManager.get(new IndexContext()
+                            .setAnalyzer(new StandardAnalyzer())
+                            .setDirectory(FSDirectory.open(path.resolve("index")))
+                            .setTaxonomyDirectory(FSDirectory.open(path.resolve("taxonomy"))));
+            final IndexManager manager2 = IndexManager.get(new IndexContext()
+                            .setAnalyzer(new StandardAnalyzer())
+                            .setDirectory(FSDirectory.open(path.resolve("index")))
+                            .setTaxonomyDirectory(FSDirectory.open(path.resolve("taxonomy"))));
+            assertSame(manager2, manager);
+        } finally {
+            IndexManager.closeAll();
+            FileUtils.deleteDirectory(path.toFile());
+        }
+    }
+
+    @Test(description = "the searchers see the documents after the commit")
+    public void testSearcherRefresh()
+        throws EFapsException, IOException
+    {
+        final IndexManager manager = IndexManager.get(createContext());
+        final TermQuery query = new TermQuery(new Term(Key.OID.name(), "123.4"));
+        final Document doc = new Document();
+        doc.add(new StringField(Key.OID.name(), "123.4", Store.YES));
+        manager.getWriter().addDocument(doc);
+
+        SearcherAndTaxonomy searcher = manager.acquire();
+        try {
+            assertEquals(searcher.searcher.count(query), 0);
+        } finally {
+            manager.release(searcher);
+        }
+        manager.commit();
+        searcher = manager.acquire();
+        try {
+            assertEquals(searcher.searcher.count(query), 1);
+        } finally {
+            manager.release(searcher);
+        }
+    }
+
+    @Test(description = "the commit data is kept by the writer")
+    public void testCommitData()
+        throws EFapsException, IOException
+    {
+        final IndexManager manager = IndexManager.get(createContext());
+        manager.commit(Collections.singletonMap("checkpoint", "42"));
+        assertEquals(manager.getCommitData().get("checkpoint"), "42");
+    }
+
+    /**
+     * @return context using in memory directories
+     */
+    private IndexContext createContext()
+    {
+        return new IndexContext()
+                        .setAnalyzer(new StandardAnalyzer())
+                        .setDirectory(new ByteBuffersDirectory())
+                        .setTaxonomyDirectory(new ByteBuffersDirectory());
+    }
+}
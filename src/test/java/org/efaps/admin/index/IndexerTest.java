@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.admin.index;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.efaps.admin.index.Indexer.Key;
+import org.efaps.db.Instance;
+import org.efaps.mock.Mocks;
+import org.efaps.test.AbstractTest;
+import org.testng.annotations.Test;
+
+public class IndexerTest
+    extends AbstractTest
+{
+
+    private static final String OID1 = Mocks.SimpleType.getId() + ".1";
+
+    private static final String OID2 = Mocks.SimpleType.getId() + ".2";
+
+    @Test
+    public void testDeleteDocuments()
+        throws IOException
+    {
+        final Directory directory = new ByteBuffersDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (final String oid : Arrays.asList(OID1, OID2)) {
+                final Document doc = new Document();
+                doc.add(new StringField(Key.OID.name(), oid, Store.YES));
+                writer.addDocument(doc);
+            }
+            writer.commit();
+            Indexer.deleteDocuments(Arrays.asList(Instance.get(OID1), Instance.get(OID2)),
+                            Collections.singleton(OID1), writer);
+            writer.commit();
+        }
+        try (DirectoryReader reader = DirectoryReader.open(directory)) {
+            final IndexSearcher searcher = new IndexSearcher(reader);
+            assertEquals(reader.numDocs(), 1);
+            assertEquals(searcher.count(new TermQuery(new Term(Key.OID.name(), OID1))), 1);
+            assertEquals(searcher.count(new TermQuery(new Term(Key.OID.name(), OID2))), 0);
+        }
+    }
+}
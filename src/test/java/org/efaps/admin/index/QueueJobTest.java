@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.admin.index;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.efaps.db.Context;
+import org.efaps.db.Instance;
+import org.efaps.mock.Mocks;
+import org.efaps.test.AbstractTest;
+import org.efaps.util.EFapsException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class QueueJobTest
+    extends AbstractTest
+{
+
+    private static final String OID1 = Mocks.SimpleType.getId() + ".1";
+
+    private static final String OID2 = Mocks.SimpleType.getId() + ".2";
+
+    @BeforeMethod
+    public void clearQueue()
+    {
+        Queue.getCache().clear();
+    }
+
+    @Test
+    public void testEnqueueOnCommit()
+        throws EFapsException
+    {
+        Queue.enqueue("0|en|commit", OID1);
+        assertFalse(Queue.getCache().containsKey("0|en|commit"));
+        Context.commit();
+        assertEquals(Queue.getCache().get("0|en|commit"), OID1);
+        Context.begin("Administrator");
+    }
+
+    @Test
+    public void testEnqueueOnRollback()
+        throws EFapsException
+    {
+        Queue.enqueue("0|en|rollback", OID1);
+        Context.rollback();
+        assertFalse(Queue.getCache().containsKey("0|en|rollback"));
+        Context.begin("Administrator");
+    }
+
+    @Test
+    public void testDrainUpdate()
+        throws EFapsException
+    {
+        Queue.getCache().put("0|en|a", OID1);
+        Queue.getCache().put("0|en|b", OID1);
+        Queue.getCache().put("0|en|c", OID2);
+        final List<IndexContext> contexts = new ArrayList<>();
+        final List<List<Instance>> batches = new ArrayList<>();
+        QueueJob.drain((_context, _instances) -> {
+            contexts.add(_context);
+            batches.add(_instances);
+        });
+        assertEquals(batches.size(), 1);
+        assertEquals(batches.get(0).size(), 2);
+        assertEquals(contexts.get(0).getCompanyId(), 0L);
+        assertEquals(contexts.get(0).getLanguage(), "en");
+        assertTrue(Queue.getCache().isEmpty());
+    }
+
+    @Test
+    public void testDrainRetry()
+        throws EFapsException
+    {
+        Queue.getCache().put("0|en|retry", OID1);
+        for (int i = 1; i < QueueJob.MAXATTEMPTS; i++) {
+            QueueJob.drain((_context, _instances) -> {
+                throw new EFapsException(QueueJobTest.class, "testDrainRetry");
+            });
+            assertEquals(Queue.getCache().get("0|en|retry"), OID1);
+        }
+        QueueJob.drain((_context, _instances) -> {
+            throw new EFapsException(QueueJobTest.class, "testDrainRetry");
+        });
+        assertFalse(Queue.getCache().containsKey("0|en|retry"));
+    }
+
+    @Test
+    public void testDrainRetrySucceeds()
+        throws EFapsException
+    {
+        Queue.getCache().put("0|en|retry2", OID2);
+        QueueJob.drain((_context, _instances) -> {
+            throw new EFapsException(QueueJobTest.class, "testDrainRetrySucceeds");
+        });
+        assertEquals(Queue.getCache().get("0|en|retry2"), OID2);
+        final List<Instance> indexed = new ArrayList<>();
+        QueueJob.drain((_context, _instances) -> indexed.addAll(_instances));
+        assertEquals(indexed.size(), 1);
+        assertEquals(indexed.get(0).getOid(), OID2);
+        assertTrue(Queue.getCache().isEmpty());
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.admin.index;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.efaps.admin.datamodel.Type;
+import org.efaps.admin.index.Reindex.PageQuery;
+import org.efaps.db.Instance;
+import org.efaps.mock.Mocks;
+import org.efaps.test.AbstractTest;
+import org.efaps.util.EFapsException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class ReindexTest
+    extends AbstractTest
+{
+
+    private static final String KEY = Reindex.CHECKPOINT + "DEF1";
+
+    private static final String KEY2 = Reindex.CHECKPOINT + "DEF2";
+
+    @AfterMethod
+    public void close()
+    {
+        IndexManager.closeAll();
+    }
+
+    @Test(description = "the instances are read page by page after the id of the last instance")
+    public void testPagedIteration()
+        throws EFapsException
+    {
+        final IndexManager manager = IndexManager.get(createContext());
+        final List<Long> lastIds = new ArrayList<>();
+        final List<Integer> pageSizes = Collections.synchronizedList(new ArrayList<>());
+        final long docs = Reindex.execute(manager, Collections.singletonMap(KEY, query(25, lastIds)), 10, 1,
+            _instances -> {
+                pageSizes.add(_instances.size());
+                return _instances.size();
+            });
+        assertEquals(docs, 25L);
+        assertEquals(lastIds, Arrays.asList(0L, 10L, 20L));
+        Collections.sort(pageSizes);
+        assertEquals(pageSizes, Arrays.asList(5, 10, 10));
+        assertFalse(manager.getCommitData().containsKey(KEY));
+    }
+
+    @Test(description = "a full last page is followed by one empty page")
+    public void testFullLastPage()
+        throws EFapsException
+    {
+        final IndexManager manager = IndexManager.get(createContext());
+        final List<Long> lastIds = new ArrayList<>();
+        final long docs = Reindex.execute(manager, Collections.singletonMap(KEY, query(20, lastIds)), 10, 2,
+            List::size);
+        assertEquals(docs, 20L);
+        assertEquals(lastIds, Arrays.asList(0L, 10L, 20L));
+    }
+
+    @Test(description = "the reindex resumes after the stored checkpoints")
+    public void testResume()
+        throws EFapsException
+    {
+        final IndexManager manager = IndexManager.get(createContext());
+        final Map<String, String> commitData = new LinkedHashMap<>();
+        commitData.put(KEY, Reindex.DONE);
+        commitData.put(KEY2, "10");
+        manager.commit(commitData);
+
+        final List<Long> lastIds = new ArrayList<>();
+        final List<Long> lastIds2 = new ArrayList<>();
+        final Map<String, PageQuery> queries = new LinkedHashMap<>();
+        queries.put(KEY, query(25, lastIds));
+        queries.put(KEY2, query(25, lastIds2));
+        final long docs = Reindex.execute(manager, queries, 10, 1, List::size);
+        assertEquals(docs, 15L);
+        assertTrue(lastIds.isEmpty());
+        assertEquals(lastIds2, Arrays.asList(10L, 20L));
+        assertTrue(manager.getCommitData().isEmpty());
+    }
+
+    @Test(description = "a failed page leaves the checkpoint of the last indexed page")
+    public void testCheckpointOnFailure()
+        throws EFapsException
+    {
+        final IndexManager manager = IndexManager.get(createContext());
+        try {
+            Reindex.execute(manager, Collections.singletonMap(KEY, query(25, new ArrayList<>())), 10, 1,
+                _instances -> {
+                    if (_instances.get(0).getId() > 20) {
+                        throw new EFapsException(ReindexTest.class, "testCheckpointOnFailure");
+                    }
+                    return _instances.size();
+                });
+            fail("the failed page must stop the reindex");
+        } catch (final EFapsException e) {
+            assertEquals(manager.getCommitData().get(KEY), "20");
+        }
+
+        final List<Long> lastIds = new ArrayList<>();
+        final long docs = Reindex.execute(manager, Collections.singletonMap(KEY, query(25, lastIds)), 10, 1,
+            List::size);
+        assertEquals(docs, 5L);
+        assertEquals(lastIds, Arrays.asList(20L));
+    }
+
+    /**
+     * @param _count number of instances with the ids 1 to _count
+     * @param _lastIds list the requested last ids are added to
+     * @return query paging over the instances
+     */
+    private PageQuery query(final int _count,
+                            final List<Long> _lastIds)
+    {
+        return (_lastId, _pageSize) -> {
+            _lastIds.add(_lastId);
+            final List<Instance> ret = new ArrayList<>();
+            for (long id = _lastId + 1; id <= _count && ret.size() < _pageSize; id++) {
+                ret.add(Instance.get(Type.get(Mocks.SimpleType.getId()), id));
+            }
+            return ret;
+        };
+    }
+
+    /**
+     * @return context using in memory directories
+     */
+    private IndexContext createContext()
+    {
+        return new IndexContext()
+                        .setAnalyzer(new StandardAnalyzer())
+                        .setDirectory(new ByteBuffersDirectory())
+                        .setTaxonomyDirectory(new ByteBuffersDirectory());
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.admin.index;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager.SearcherAndTaxonomy;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyReader;
+import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.efaps.admin.access.user.AccessCache;
+import org.efaps.admin.access.user.Key;
+import org.efaps.admin.access.user.PermissionSet;
+import org.efaps.admin.datamodel.Type;
+import org.efaps.db.Instance;
+import org.efaps.json.index.SearchResult;
+import org.efaps.json.index.result.Element;
+import org.efaps.mock.Mocks;
+import org.efaps.mock.esjp.AccessCheck;
+import org.efaps.test.AbstractTest;
+import org.efaps.util.EFapsException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SearcherTest
+    extends AbstractTest
+{
+
+    private Instance simple1;
+
+    private Instance access2;
+
+    private Instance simple3;
+
+    private Instance access4;
+
+    private Instance legacy5;
+
+    private Directory directory;
+
+    private Directory taxonomyDirectory;
+
+    @BeforeMethod
+    public void createIndex()
+        throws IOException, EFapsException
+    {
+        this.simple1 = Instance.get(Type.get(Mocks.SimpleType.getId()), 1L);
+        this.access2 = Instance.get(Type.get(Mocks.AccessType.getId()), 2L);
+        this.simple3 = Instance.get(Type.get(Mocks.SimpleType.getId()), 3L);
+        this.access4 = Instance.get(Type.get(Mocks.AccessType.getId()), 4L);
+        this.legacy5 = Instance.get(Type.get(Mocks.SimpleType.getId()), 5L);
+
+        this.directory = new ByteBuffersDirectory();
+        this.taxonomyDirectory = new ByteBuffersDirectory();
+        new DirectoryTaxonomyWriter(this.taxonomyDirectory).close();
+        // no merges, so that every commit creates a segment of its own
+        try (IndexWriter writer = new IndexWriter(this.directory, new IndexWriterConfig(new StandardAnalyzer())
+                        .setMergePolicy(NoMergePolicy.INSTANCE))) {
+            writer.addDocument(createDocument(this.simple1, 100L));
+            writer.addDocument(createDocument(this.access2, 300L));
+            writer.commit();
+            writer.addDocument(createDocument(this.simple3, 200L));
+            writer.addDocument(createDocument(this.access4, 400L));
+            // indexed before the doc values were added
+            final Document legacy = new Document();
+            legacy.add(new StringField(Indexer.Key.OID.name(), this.legacy5.getOid(), Store.YES));
+            legacy.add(new StoredField(Indexer.Key.MSGPHRASE.name(), "Text " + this.legacy5.getId()));
+            writer.addDocument(legacy);
+            writer.commit();
+        }
+
+        AccessCache.initialize();
+        for (final Instance instance : Arrays.asList(this.access2, this.access4)) {
+            final Key key = Key.get4Instance(instance);
+            AccessCache.getPermissionCache().put(key, new PermissionSet().setPersonId(key.getPersonId())
+                            .setCompanyId(key.getCompanyId()).setTypeId(key.getTypeId()));
+        }
+        AccessCheck.RESULTS.put(this.access2, false);
+        AccessCheck.RESULTS.put(this.access4, true);
+    }
+
+    @AfterMethod
+    public void cleanUp()
+    {
+        AccessCheck.RESULTS.remove(this.access2);
+        AccessCheck.RESULTS.remove(this.access4);
+    }
+
+    @Test(description = "the hits are resolved over all segments in the order of the sort")
+    public void testHitOrder()
+        throws IOException, EFapsException
+    {
+        final SearchResult result = search(new HashMap<>());
+        assertEquals(result.getHitCount(), 5L);
+        assertEquals(getOids(result), Arrays.asList(this.access4.getOid(), this.simple3.getOid(),
+                        this.simple1.getOid(), this.legacy5.getOid()));
+        final List<String> texts = new ArrayList<>();
+        for (final Element element : result.getElements()) {
+            texts.add(element.getText());
+        }
+        assertEquals(texts, Arrays.asList("Text 4", "Text 3", "Text 1", "Text 5"));
+    }
+
+    @Test(description = "hits without access are not returned and their fields are not loaded")
+    public void testAccessFiltering()
+        throws IOException, EFapsException
+    {
+        final Map<Integer, Set<String>> loaded = new HashMap<>();
+        final SearchResult result = search(loaded);
+        assertFalse(getOids(result).contains(this.access2.getOid()));
+        // only the stored OID of the document without doc values is read
+        // before the access is checked
+        assertEquals(loaded.size(), 4);
+        assertFalse(loaded.containsKey(1));
+    }
+
+    @Test(description = "only the message phrase and the result fields are loaded")
+    public void testLoadedFields()
+        throws IOException, EFapsException
+    {
+        final Map<Integer, Set<String>> loaded = new HashMap<>();
+        search(loaded);
+        final Set<String> expected = new HashSet<>(Arrays.asList(Indexer.Key.MSGPHRASE.name(), "Name"));
+        for (final int docId : Arrays.asList(0, 2, 3)) {
+            assertEquals(loaded.get(docId), expected, "document " + docId);
+        }
+        assertTrue(loaded.get(4).contains(Indexer.Key.OID.name()));
+        assertTrue(loaded.get(4).containsAll(expected));
+    }
+
+    /**
+     * @param _loaded map the fields loaded for a document are added to
+     * @return the result of a search for all documents
+     * @throws IOException on error
+     * @throws EFapsException on error
+     */
+    private SearchResult search(final Map<Integer, Set<String>> _loaded)
+        throws IOException, EFapsException
+    {
+        final SearchResult ret = new SearchResult();
+        try (IndexReader reader = DirectoryReader.open(this.directory);
+                        DirectoryTaxonomyReader taxoReader = new DirectoryTaxonomyReader(this.taxonomyDirectory)) {
+            assertTrue(reader.leaves().size() > 1, "the index must have more than one segment");
+            final IndexSearcher searcher = new IndexSearcher(reader)
+            {
+
+                @Override
+                public Document doc(final int _docID,
+                                    final Set<String> _fieldsToLoad)
+                    throws IOException
+                {
+                    _loaded.computeIfAbsent(_docID, docId -> new HashSet<>()).addAll(_fieldsToLoad);
+                    return super.doc(_docID, _fieldsToLoad);
+                }
+            };
+            final ISearch search = new ISearch()
+            {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                public void setQuery(final String _query)
+                {
+                }
+
+                @Override
+                public String getQuery()
+                {
+                    return "*";
+                }
+
+                @Override
+                public Map<String, Collection<String>> getResultFields()
+                {
+                    return Collections.singletonMap("Name", Collections.singletonList("Name"));
+                }
+            };
+            new Searcher().executeSearch(search, ret, new MatchAllDocsQuery(),
+                            new Sort(new SortField(Indexer.Key.CREATED.name(), SortField.Type.LONG, true)),
+                            new FacetsConfig(), new SearcherAndTaxonomy(searcher, taxoReader));
+        }
+        return ret;
+    }
+
+    /**
+     * @param _result the result
+     * @return the oids of the elements
+     */
+    private List<String> getOids(final SearchResult _result)
+    {
+        final List<String> ret = new ArrayList<>();
+        for (final Element element : _result.getElements()) {
+            ret.add(element.getOid());
+        }
+        return ret;
+    }
+
+    /**
+     * @param _instance the instance
+     * @param _created the created time
+     * @return document as indexed by the Indexer
+     */
+    private Document createDocument(final Instance _instance,
+                                    final long _created)
+    {
+        final Document ret = new Document();
+        ret.add(new StringField(Indexer.Key.OID.name(), _instance.getOid(), Store.YES));
+        ret.add(new NumericDocValuesField(Indexer.Key.CREATED.name(), _created));
+        ret.add(new NumericDocValuesField(Indexer.Key.TYPEID.name(), _instance.getType().getId()));
+        ret.add(new NumericDocValuesField(Indexer.Key.ID.name(), _instance.getId()));
+        ret.add(new StoredField(Indexer.Key.MSGPHRASE.name(), "Text " + _instance.getId()));
+        ret.add(new StoredField("Name", "Name " + _instance.getId()));
+        ret.add(new StoredField("Secret", "Secret " + _instance.getId()));
+        return ret;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.cluster;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.cluster.InvalidationEvent.Region;
+import org.jgroups.JChannel;
+import org.jgroups.protocols.SHARED_LOOPBACK;
+import org.jgroups.protocols.SHARED_LOOPBACK_PING;
+import org.jgroups.protocols.UNICAST3;
+import org.jgroups.protocols.pbcast.GMS;
+import org.jgroups.protocols.pbcast.NAKACK2;
+import org.jgroups.protocols.pbcast.STABLE;
+import org.jgroups.util.Util;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * The Class InvalidationBusTest.
+ */
+public class InvalidationBusTest
+{
+
+    /** The first bus. */
+    private InvalidationBus bus1;
+
+    /** The second bus. */
+    private InvalidationBus bus2;
+
+    /** Keys evicted by the first bus. */
+    private final BlockingQueue<String> evicted1 = new LinkedBlockingQueue<>();
+
+    /** Keys evicted by the second bus. */
+    private final BlockingQueue<String> evicted2 = new LinkedBlockingQueue<>();
+
+    @BeforeMethod
+    public void connect()
+        throws Exception
+    {
+        this.bus1 = new InvalidationBus(createChannel("A"));
+        this.bus1.register(Region.PERSON, key -> this.evicted1.add("P" + key))
+                        .register(Region.ACCESSSTATUS, key -> this.evicted1.add("S" + key));
+        this.bus2 = new InvalidationBus(createChannel("B"));
+        this.bus2.register(Region.PERSON, key -> this.evicted2.add("P" + key))
+                        .register(Region.ACCESSSTATUS, key -> this.evicted2.add("S" + key));
+        this.bus1.connect("InvalidationBusTest");
+        this.bus2.connect("InvalidationBusTest");
+        Util.waitUntilAllChannelsHaveSameView(10000, 100, this.bus1.getChannel(), this.bus2.getChannel());
+    }
+
+    @AfterMethod
+    public void close()
+    {
+        this.bus2.close();
+        this.bus1.close();
+    }
+
+    @Test
+    public void testPublish()
+        throws Exception
+    {
+        this.bus1.publish(Region.PERSON, "4711");
+        this.bus2.publish(Region.ACCESSSTATUS, "123.456");
+        assertEquals(this.evicted2.poll(10, TimeUnit.SECONDS), "P4711");
+        assertEquals(this.evicted1.poll(10, TimeUnit.SECONDS), "S123.456");
+        // markers send after the own messages, an own message applied
+        // wrongly would be received before them
+        this.bus1.publish(Region.PERSON, "marker");
+        this.bus2.publish(Region.PERSON, "marker");
+        assertEquals(this.evicted1.poll(10, TimeUnit.SECONDS), "Pmarker");
+        assertEquals(this.evicted2.poll(10, TimeUnit.SECONDS), "Pmarker");
+        // own messages are not applied again
+        assertTrue(this.evicted1.isEmpty());
+        assertTrue(this.evicted2.isEmpty());
+    }
+
+    @Test
+    public void testEventSize()
+        throws Exception
+    {
+        final InvalidationEvent event = new InvalidationEvent(Region.SYSTEMCONFIGURATION,
+                        "50a65460-2d08-4ea8-b801-37594e93dad5");
+        final byte[] bytes = Util.streamableToByteBuffer(event);
+        assertEquals(bytes.length, event.serializedSize());
+        final InvalidationEvent copy = new InvalidationEvent();
+        copy.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+        assertEquals(copy.getRegion(), event.getRegion());
+        assertEquals(copy.getKeys(), event.getKeys());
+    }
+
+    @Test
+    public void testPublishKeys()
+        throws Exception
+    {
+        this.bus1.publish(Region.ACCESSSTATUS, Arrays.asList("123.456", "123.457", "124.1"));
+        assertEquals(this.evicted2.poll(10, TimeUnit.SECONDS), "S123.456");
+        assertEquals(this.evicted2.poll(10, TimeUnit.SECONDS), "S123.457");
+        assertEquals(this.evicted2.poll(10, TimeUnit.SECONDS), "S124.1");
+    }
+
+    @Test
+    public void testEventSizeKeys()
+        throws Exception
+    {
+        final InvalidationEvent event = new InvalidationEvent(Region.ACCESSSTATUS,
+                        Arrays.asList("123.456", "123.457", "124.1"));
+        final byte[] bytes = Util.streamableToByteBuffer(event);
+        assertEquals(bytes.length, event.serializedSize());
+        final InvalidationEvent copy = new InvalidationEvent();
+        copy.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+        assertEquals(copy.getRegion(), event.getRegion());
+        assertEquals(copy.getKeys(), event.getKeys());
+    }
+
+    /**
+     * @param _name name of the channel
+     * @return channel communicating only inside of this JVM
+     * @throws Exception on error
+     */
+    private JChannel createChannel(final String _name)
+        throws Exception
+    {
+        return new JChannel(new SHARED_LOOPBACK(), new SHARED_LOOPBACK_PING(), new NAKACK2(), new UNICAST3(),
+                        new STABLE(), new GMS()).name(_name);
+    }
+}
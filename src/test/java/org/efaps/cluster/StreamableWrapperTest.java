@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.cluster;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.Serializable;
+import java.net.URL;
+import java.util.HashMap;
+
+import org.testng.annotations.Test;
+
+/**
+ * The Class StreamableWrapperTest.
+ */
+public class StreamableWrapperTest
+{
+
+    @Test
+    public void testAllowedPayload()
+        throws IOException
+    {
+        final HashMap<String, Long> payload = new HashMap<>();
+        payload.put("Key", 4711L);
+        final HashMap<String, Long> copy = copy(payload).getObject();
+        assertEquals(copy, payload);
+    }
+
+    @Test(expectedExceptions = InvalidClassException.class)
+    public void testRejectedPayload()
+        throws IOException
+    {
+        copy(new URL("http://www.efaps.org")).getObject();
+    }
+
+    /**
+     * @param _payload payload to be copied
+     * @return wrapper read from the serialized payload
+     * @throws IOException on error
+     */
+    private StreamableWrapper copy(final Serializable _payload)
+        throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new StreamableWrapper(_payload).writeTo(new DataOutputStream(bytes));
+        final StreamableWrapper ret = new StreamableWrapper();
+        ret.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        return ret;
+    }
+}
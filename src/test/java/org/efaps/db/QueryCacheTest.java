@@ -0,0 +1,247 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.db;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.efaps.db.QueryCache.EntryListener;
+import org.efaps.test.AbstractTest;
+import org.efaps.util.cache.InfinispanCache;
+import org.infinispan.Cache;
+import org.infinispan.notifications.cachelistener.event.CacheEntryCreatedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryModifiedEvent;
+import org.infinispan.notifications.cachelistener.event.CacheEntryRemovedEvent;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * The Class QueryCacheTest.
+ */
+public class QueryCacheTest
+    extends AbstractTest
+{
+
+    /** Definition without lifespan. */
+    private static final ICacheDefinition CACHEDEF = new ICacheDefinition()
+    {
+    };
+
+    @BeforeMethod
+    public void clearCache()
+    {
+        QueryCache.initialize();
+    }
+
+    @Test(description = "writing a table evicts exactly the entries reading from it")
+    public void testEvictTable()
+    {
+        final QueryKey key1 = QueryKey.get("QueryCacheTest", "select 1");
+        final QueryKey key2 = QueryKey.get("QueryCacheTest", "select 2");
+        final QueryKey key3 = QueryKey.get("QueryCacheTest", "select 3");
+        final QueryKey key4 = QueryKey.get("QueryCacheTest", "select 4");
+        QueryCache.put(CACHEDEF, key1, getValue(1), Collections.singleton("T_A"));
+        QueryCache.put(CACHEDEF, key2, getValue(1), new HashSet<>(Arrays.asList("t_a", "T_B")));
+        QueryCache.put(CACHEDEF, key3, getValue(1), Collections.singleton("T_C"));
+        QueryCache.put(CACHEDEF, key4, getValue(1));
+
+        QueryCache.evictTable("t_a");
+        assertFalse(QueryCache.get().containsKey(key1));
+        assertFalse(QueryCache.get().containsKey(key2));
+        assertTrue(QueryCache.get().containsKey(key3));
+        assertTrue(QueryCache.get().containsKey(key4));
+
+        // the entry was removed from the index of T_B also
+        QueryCache.put(CACHEDEF, key2, getValue(1), Collections.singleton("T_A"));
+        QueryCache.evictTable("T_B");
+        assertTrue(QueryCache.get().containsKey(key2));
+
+        QueryCache.cleanByTables(Collections.singleton("T_C"));
+        assertFalse(QueryCache.get().containsKey(key3));
+        assertTrue(QueryCache.get().containsKey(key2));
+        assertTrue(QueryCache.get().containsKey(key4));
+    }
+
+    @Test(description = "no entry put concurrently to the eviction of its table escapes the index")
+    public void testEvictTableConcurrent()
+        throws Exception
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        QueryCache.put(CACHEDEF, QueryKey.get("QueryCacheTest", "select " + thread + "." + i),
+                                        getValue(1), Collections.singleton("T_A"));
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    QueryCache.evictTable("T_A");
+                }
+            }));
+            for (final Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        QueryCache.evictTable("T_A");
+        assertTrue(QueryCache.get().isEmpty());
+    }
+
+    @Test(description = "the bytes follow creation, replacement and removal of an entry")
+    public void testByteSize()
+    {
+        final QueryCache.EntryListener listener = new QueryCache.EntryListener();
+        final QueryKey queryKey = QueryKey.get("QueryCacheTest", "select 1");
+        final QueryValue small = getValue(1);
+        final QueryValue large = getValue(10);
+        assertTrue(small.getByteSize() > 0);
+        assertTrue(large.getByteSize() > small.getByteSize());
+
+        final long start = QueryCache.getBytes();
+        listener.onCacheEntryCreated(event(CacheEntryCreatedEvent.class, false, "getKey", queryKey,
+                        "getValue", small));
+        assertEquals(QueryCache.getBytes(), start + small.getByteSize());
+
+        // the modified event fired together with the creation is ignored
+        listener.onCacheEntryModified(event(CacheEntryModifiedEvent.class, false, "getKey", queryKey,
+                        "isCreated", true, "getNewValue", small));
+        assertEquals(QueryCache.getBytes(), start + small.getByteSize());
+
+        // the pre event is ignored
+        listener.onCacheEntryModified(event(CacheEntryModifiedEvent.class, true, "getKey", queryKey,
+                        "isCreated", false, "getNewValue", large));
+        assertEquals(QueryCache.getBytes(), start + small.getByteSize());
+
+        // the old value is not needed
+        listener.onCacheEntryModified(event(CacheEntryModifiedEvent.class, false, "getKey", queryKey,
+                        "isCreated", false, "getOldValue", null, "getNewValue", large));
+        assertEquals(QueryCache.getBytes(), start + large.getByteSize());
+
+        listener.onCacheEntryRemoved(event(CacheEntryRemovedEvent.class, false, "getKey", queryKey,
+                        "getOldValue", null));
+        assertEquals(QueryCache.getBytes(), start);
+    }
+
+    @Test(description = "the bytes return to zero after replacing and removing entries through the cache")
+    public void testByteSizeThroughCache()
+    {
+        assertEquals(QueryCache.getBytes(), 0);
+        final QueryKey key1 = QueryKey.get("QueryCacheTest", "select 1");
+        final QueryKey key2 = QueryKey.get("QueryCacheTest", "select 2");
+        final QueryValue small = getValue(1);
+        final QueryValue large = getValue(10);
+        QueryCache.put(CACHEDEF, key1, small);
+        QueryCache.put(CACHEDEF, key2, small, Collections.singleton("T_A"));
+        assertEquals(QueryCache.getBytes(), 2 * small.getByteSize());
+
+        QueryCache.put(CACHEDEF, key1, large);
+        assertEquals(QueryCache.getBytes(), small.getByteSize() + large.getByteSize());
+
+        QueryCache.get().remove(key1);
+        assertEquals(QueryCache.getBytes(), small.getByteSize());
+
+        QueryCache.get().put(key2, large);
+        assertEquals(QueryCache.getBytes(), large.getByteSize());
+
+        QueryCache.evictTable("T_A");
+        assertEquals(QueryCache.getBytes(), 0);
+
+        QueryCache.put(CACHEDEF, key1, large);
+        QueryCache.cleanByKey("QueryCacheTest");
+        assertEquals(QueryCache.getBytes(), 0);
+    }
+
+    @Test(description = "every initialization registers the EntryListener once")
+    @SuppressWarnings("deprecation")
+    public void testEntryListener()
+    {
+        final Cache<QueryKey, Object> cache = InfinispanCache.get().getCache(QueryCache.CACHE);
+        QueryCache.initialize();
+        assertEquals(countEntryListeners(cache), 1);
+
+        // a cache started before the initialization has no listener yet
+        final List<Object> listeners = new ArrayList<>(cache.getListeners());
+        listeners.stream().filter(EntryListener.class::isInstance).forEach(cache::removeListener);
+        assertEquals(countEntryListeners(cache), 0);
+        QueryCache.initialize();
+        assertEquals(countEntryListeners(cache), 1);
+
+        final QueryKey key = QueryKey.get("QueryCacheTest", "select listener");
+        QueryCache.put(CACHEDEF, key, getValue(1));
+        assertEquals(QueryCache.getBytes(), getValue(1).getByteSize());
+        QueryCache.cleanByKey("QueryCacheTest");
+        assertFalse(QueryCache.get().containsKey(key));
+        assertEquals(QueryCache.getBytes(), 0);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long countEntryListeners(final Cache<?, ?> _cache)
+    {
+        return _cache.getListeners().stream().filter(EntryListener.class::isInstance).count();
+    }
+
+    private static QueryValue getValue(final int _rows)
+    {
+        final List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < _rows; i++) {
+            rows.add(new Object[] { (long) i, "Value " + i });
+        }
+        return QueryValue.get("QueryCacheTest", rows);
+    }
+
+    /**
+     * Create an event answering the given methods with the given values.
+     *
+     * @param <T> the type of the event
+     * @param _class the event class
+     * @param _pre is it a pre event
+     * @param _values pairs of method name and value
+     * @return the event
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <T> T event(final Class _class,
+                               final boolean _pre,
+                               final Object... _values)
+    {
+        final Map<String, Object> values = new HashMap<>();
+        values.put("isPre", _pre);
+        for (int i = 0; i < _values.length; i = i + 2) {
+            values.put((String) _values[i], _values[i + 1]);
+        }
+        return (T) Proxy.newProxyInstance(QueryCacheTest.class.getClassLoader(), new Class<?>[] { _class },
+            (_proxy, _method, _args) -> values.get(_method.getName()));
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.db;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+/**
+ * The Class QueryRowsTest.
+ */
+public class QueryRowsTest
+{
+    @Test
+    public void testRoundTrip()
+    {
+        final Timestamp timestamp = new Timestamp(1_700_000_000_123L);
+        timestamp.setNanos(123_456_789);
+        final UUID uuid = UUID.randomUUID();
+        final List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] { 4L, 12, new BigDecimal("-1234.5600"), "Ñandú", timestamp, true, 1.5d, uuid });
+        rows.add(new Object[] { null, null });
+
+        final QueryValue value = QueryValue.get("key", rows);
+        final List<?> content = (List<?>) value.getContent();
+        assertEquals(content.getClass(), QueryRows.class);
+        assertEquals(content.size(), 2);
+        assertEquals((Object[]) content.get(0), rows.get(0));
+        final Object[] second = (Object[]) content.get(1);
+        assertEquals(second.length, 2);
+        assertNull(second[0]);
+        assertEquals(((BigDecimal) ((Object[]) content.get(0))[2]).scale(), 4);
+    }
+}
@@ -69,6 +69,69 @@ public class PrintQueryStmtTest
         assertTrue(evaluator.next());
         assertEquals(evaluator.get(1), "Val3");
         assertFalse(evaluator.next());
+        assertTrue(evaluator.isClosed());
+    }
+
+    @Test
+    public void testSimpleTypeStreamedAbandoned()
+        throws EFapsException
+    {
+        final String sql = String.format("select T0.%s,T0.ID from %s T0",
+                        Mocks.TestAttribute.getSQLColumnName(), Mocks.SimpleTypeSQLTable.getSqlTableName());
+
+        MockResult.builder()
+            .withSql(sql)
+            .withResult(RowLists.rowList2(String.class, Long.class)
+                            .append("Val1", 6L)
+                            .append("Val2", 8L)
+                            .append("Val3", 11L)
+                            .asResult())
+            .build();
+
+        final String stmtStr = String.format("print query type %s select attribute[%s]",
+                        Mocks.SimpleType.getName(), Mocks.TestAttribute.getName());
+        final IPrintQueryStatement stmt = (IPrintQueryStatement) EQL2.parse(stmtStr);
+        final PrintStmt printStmt = PrintStmt.get(stmt).stream(2);
+        final Evaluator[] evaluator = new Evaluator[1];
+        final String value = printStmt.evaluate(_evaluator -> {
+            evaluator[0] = _evaluator;
+            assertTrue(_evaluator.next());
+            assertFalse(_evaluator.isClosed());
+            return _evaluator.get(1);
+        });
+        assertEquals(value, "Val1");
+        assertTrue(evaluator[0].isClosed());
+        assertFalse(evaluator[0].next());
+    }
+
+    @Test
+    public void testSimpleTypeStreamed()
+        throws EFapsException
+    {
+        final String sql = String.format("select T0.%s,T0.ID from %s T0",
+                        Mocks.TestAttribute.getSQLColumnName(), Mocks.SimpleTypeSQLTable.getSqlTableName());
+
+        MockResult.builder()
+            .withSql(sql)
+            .withResult(RowLists.rowList2(String.class, Long.class)
+                            .append("Val1", 6L)
+                            .append("Val2", 8L)
+                            .append("Val3", 11L)
+                            .asResult())
+            .build();
+
+        final String stmtStr = String.format("print query type %s select attribute[%s]",
+                        Mocks.SimpleType.getName(), Mocks.TestAttribute.getName());
+        final IPrintQueryStatement stmt = (IPrintQueryStatement) EQL2.parse(stmtStr);
+        final PrintStmt printStmt = PrintStmt.get(stmt).stream(2);
+        final Evaluator evaluator = printStmt.evaluate();
+        assertTrue(evaluator.next());
+        assertEquals(evaluator.get(1), "Val1");
+        assertTrue(evaluator.next());
+        assertEquals(evaluator.get(1), "Val2");
+        assertTrue(evaluator.next());
+        assertEquals(evaluator.get(1), "Val3");
+        assertFalse(evaluator.next());
     }
 
     @Test
@@ -169,6 +232,35 @@ public class PrintQueryStmtTest
         assertTrue(evaluator.next());
     }
 
+    @Test
+    public void testSameSelectDifferentWhere()
+        throws EFapsException
+    {
+        final String sqlOpen = String.format("select T0.%s,T0.ID from %s T0 where T0.%s = %s",
+                        Mocks.StatusStringAttribute.getSQLColumnName(),
+                        Mocks.StatusTypeSQLTable.getSqlTableName(),
+                        Mocks.StatusAttribute.getSQLColumnName(),
+                        Mocks.StatusGrp.getStatusId("Open"));
+        final String sqlClosed = String.format("select T0.%s,T0.ID from %s T0 where T0.%s = %s",
+                        Mocks.StatusStringAttribute.getSQLColumnName(),
+                        Mocks.StatusTypeSQLTable.getSqlTableName(),
+                        Mocks.StatusAttribute.getSQLColumnName(),
+                        Mocks.StatusGrp.getStatusId("Closed"));
+        final SQLVerify verifyOpen = SQLVerify.builder().withSql(sqlOpen).build();
+        final SQLVerify verifyClosed = SQLVerify.builder().withSql(sqlClosed).build();
+
+        for (final String status : new String[] { "Open", "Closed" }) {
+            final String stmtStr = String.format("print query type %s where %s = %s select attribute[%s]",
+                            Mocks.StatusType.getName(),
+                            Mocks.StatusAttribute.getName(),
+                            Mocks.StatusGrp.getStatusId(status),
+                            Mocks.StatusStringAttribute.getName());
+            PrintStmt.get((IPrintQueryStatement) EQL2.parse(stmtStr)).execute();
+        }
+        verifyOpen.verify();
+        verifyClosed.verify();
+    }
+
     @Test(dataProvider = "status")
     public void testTypeWithStatusFilterWithId(final String _statusFilter)
         throws EFapsException
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.db.stmt.selection;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.efaps.admin.access.AccessTypeEnums;
+import org.efaps.admin.datamodel.Type;
+import org.efaps.db.Instance;
+import org.efaps.mock.Mocks;
+import org.efaps.mock.esjp.AccessCheck;
+import org.efaps.test.AbstractTest;
+import org.efaps.util.EFapsException;
+import org.testng.annotations.Test;
+
+/**
+ * The Class AccessTest.
+ */
+public class AccessTest
+    extends AbstractTest
+{
+
+    @Test(description = "only the window containing the instance is evaluated")
+    public void testWindow()
+        throws EFapsException
+    {
+        final List<Instance> instances = getInstances(4);
+        final CountingIterator iter = new CountingIterator(instances);
+        final Access access = Access.get(AccessTypeEnums.READ.getAccessType(), iter, 2);
+        assertEquals(iter.count, 0);
+        assertTrue(access.hasAccess(instances.get(0)));
+        assertEquals(iter.count, 2);
+        assertTrue(access.hasAccess(instances.get(1)));
+        assertEquals(iter.count, 2);
+        assertTrue(access.hasAccess(instances.get(2)));
+        assertEquals(iter.count, 4);
+    }
+
+    @Test(description = "an unknown instance reads all windows and has no access")
+    public void testUnknownInstance()
+        throws EFapsException
+    {
+        final List<Instance> instances = getInstances(4);
+        final CountingIterator iter = new CountingIterator(instances);
+        final Access access = Access.get(AccessTypeEnums.READ.getAccessType(), iter, 2);
+        assertFalse(access.hasAccess(Instance.get(Type.get(Mocks.AccessType.getId()), 999L)));
+        assertEquals(iter.count, 4);
+        assertFalse(access.hasAccess(null));
+    }
+
+    @Test(description = "zero window size evaluates everything at once")
+    public void testNoWindow()
+        throws EFapsException
+    {
+        final List<Instance> instances = getInstances(4);
+        final CountingIterator iter = new CountingIterator(instances);
+        final Access access = Access.get(AccessTypeEnums.READ.getAccessType(), iter, 0);
+        assertTrue(access.hasAccess(instances.get(0)));
+        assertEquals(iter.count, 4);
+    }
+
+    @Test(description = "instances already evaluated do not count for the window")
+    public void testDuplicates()
+        throws EFapsException
+    {
+        final List<Instance> instances = getInstances(4);
+        final CountingIterator iter = new CountingIterator(Arrays.asList(instances.get(0), instances.get(1),
+                        instances.get(0), instances.get(1), instances.get(2), instances.get(3)));
+        final Access access = Access.get(AccessTypeEnums.READ.getAccessType(), iter, 2);
+        assertTrue(access.hasAccess(instances.get(1)));
+        assertEquals(iter.count, 2);
+        assertTrue(access.hasAccess(instances.get(3)));
+        assertEquals(iter.count, 6);
+    }
+
+    @Test(description = "access denied by the access check in a later window")
+    public void testDenied()
+        throws EFapsException
+    {
+        final List<Instance> instances = getInstances(4);
+        AccessCheck.RESULTS.put(instances.get(3), false);
+        final CountingIterator iter = new CountingIterator(instances);
+        final Access access = Access.get(AccessTypeEnums.READ.getAccessType(), iter, 2);
+        assertTrue(access.hasAccess(instances.get(0)));
+        assertEquals(iter.count, 2);
+        assertFalse(access.hasAccess(instances.get(3)));
+        assertTrue(access.hasAccess(instances.get(2)));
+        assertEquals(iter.count, 4);
+    }
+
+    /**
+     * Gets instances of the AccessType.
+     *
+     * @param _count number of instances
+     * @return the instances
+     */
+    private List<Instance> getInstances(final int _count)
+    {
+        final List<Instance> ret = new ArrayList<>();
+        for (int i = 1; i <= _count; i++) {
+            ret.add(Instance.get(Type.get(Mocks.AccessType.getId()), i * 100L));
+        }
+        return ret;
+    }
+
+    /**
+     * Iterator counting the instances read.
+     */
+    private static class CountingIterator
+        implements Iterator<Instance>
+    {
+
+        /** The iterator. */
+        private final Iterator<Instance> iterator;
+
+        /** The number of instances read. */
+        private int count;
+
+        /**
+         * Instantiates a new counting iterator.
+         *
+         * @param _instances the instances
+         */
+        CountingIterator(final List<Instance> _instances)
+        {
+            iterator = _instances.iterator();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return iterator.hasNext();
+        }
+
+        @Override
+        public Instance next()
+        {
+            count++;
+            return iterator.next();
+        }
+    }
+}
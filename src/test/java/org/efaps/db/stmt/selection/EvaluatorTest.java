@@ -20,6 +20,8 @@ import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 
 import org.efaps.admin.datamodel.Type;
@@ -739,5 +741,40 @@ public class EvaluatorTest
         assertEquals(eval.attribute("alias2").getName(), CI.AllAttrType.LongAttribute.name);
     }
 
+    @Test(description = "instances are read row by row, including linked instances")
+    public void testInstances()
+    {
+        final Instance inst1 = Instance.get(Type.get(Mocks.AccessType.getId()), 1L);
+        final Instance inst2 = Instance.get(Type.get(Mocks.AccessType.getId()), 2L);
+        final Instance link1 = Instance.get(Type.get(Mocks.AccessType2.getId()), 11L);
+        final Instance link2 = Instance.get(Type.get(Mocks.AccessType2.getId()), 12L);
+
+        final Select baseSelect = Select.get();
+        baseSelect.getObjects().addAll(Arrays.asList(inst1, inst2));
+        final Select linkSelect = Select.get();
+        linkSelect.getObjects().addAll(Arrays.asList(Arrays.asList(link1, null), link2));
+
+        final Iterator<Instance> iter = Evaluator.instances(Arrays.asList(baseSelect, linkSelect));
+        assertEquals(iter.next(), inst1);
+        assertEquals(iter.next(), link1);
+        assertEquals(iter.next(), inst2);
+        assertEquals(iter.next(), link2);
+        assertFalse(iter.hasNext());
+    }
 
+    @Test(description = "the rows are not read before the iterator advances")
+    public void testInstancesLazy()
+    {
+        final Instance inst1 = Instance.get(Type.get(Mocks.AccessType.getId()), 1L);
+        final Instance inst2 = Instance.get(Type.get(Mocks.AccessType.getId()), 2L);
+        final Instance inst3 = Instance.get(Type.get(Mocks.AccessType.getId()), 3L);
+        final Select baseSelect = Select.get();
+        baseSelect.getObjects().addAll(Arrays.asList(inst1, inst2));
+
+        final Iterator<Instance> iter = Evaluator.instances(Arrays.asList(baseSelect));
+        assertEquals(iter.next(), inst1);
+        baseSelect.getObjects().set(1, inst3);
+        assertEquals(iter.next(), inst3);
+        assertFalse(iter.hasNext());
+    }
 }
@@ -0,0 +1,311 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.db.wrapper;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.dbutils.handlers.ArrayListHandler;
+import org.efaps.db.stmt.filter.TypeCriterion;
+import org.efaps.db.stmt.runner.SQLRunner;
+import org.efaps.db.wrapper.SQLSelect.FromTableLeftJoin;
+import org.efaps.db.wrapper.SQLSelect.IdArray;
+import org.efaps.eql2.Comparison;
+import org.efaps.eql2.Connection;
+import org.efaps.test.AbstractTest;
+import org.testng.annotations.Test;
+
+/**
+ * The Class SQLSelectTest.
+ */
+public class SQLSelectTest
+    extends AbstractTest
+{
+
+    @Test(description = "with parameters the ids are bound as one array")
+    public void testIdFilterArray()
+    {
+        final List<Object> parameters = new ArrayList<>();
+        final String sql = getSelect().getSQL(parameters);
+        assertTrue(sql.trim().endsWith("where T0.ID = ANY(?)"), sql);
+        assertEquals(parameters.size(), 1);
+        assertTrue(parameters.get(0) instanceof IdArray);
+        assertEquals(parameters.get(0).toString(), "[1, 2, 3]");
+    }
+
+    @Test(description = "without parameters the ids are written into an IN clause")
+    public void testIdFilterIn()
+    {
+        final String sql = getSelect().getSQL();
+        assertTrue(sql.trim().endsWith("where T0.ID in ( 1,2,3 )"), sql);
+    }
+
+    @Test(description = "the ids are bound as array and the array is freed after execution")
+    public void testExecuteQuery()
+        throws SQLException
+    {
+        final List<Object> parameters = new ArrayList<>();
+        getSelect().getSQL(parameters);
+        parameters.add("A Value");
+        final JDBCRecorder recorder = new JDBCRecorder();
+        final List<Object[]> rows = SQLRunner.executeQuery(recorder.getStatement(), parameters,
+                        new ArrayListHandler());
+        assertTrue(rows.isEmpty());
+        assertEquals(recorder.arrayType, "int8");
+        assertEquals(recorder.arrayElements, new Object[] { 1L, 2L, 3L });
+        assertEquals(recorder.calls, Arrays.asList("setArray:1", "setObject:2=A Value", "executeQuery",
+                        "close", "free"));
+    }
+
+    @Test(description = "the array is freed also if the execution fails")
+    public void testExecuteQueryFails()
+    {
+        final List<Object> parameters = new ArrayList<>();
+        getSelect().getSQL(parameters);
+        final JDBCRecorder recorder = new JDBCRecorder();
+        recorder.fail = true;
+        boolean failed = false;
+        try {
+            SQLRunner.executeQuery(recorder.getStatement(), parameters, new ArrayListHandler());
+        } catch (final SQLException e) {
+            failed = true;
+        }
+        assertTrue(failed);
+        assertEquals(recorder.calls, Arrays.asList("setArray:1", "executeQuery", "free"));
+        assertFalse(recorder.calls.contains("close"));
+    }
+
+    @Test(description = "the where of a join is copied with the plan")
+    public void testPlanCopyJoinWhere()
+    {
+        final SQLWhere joinWhere = new SQLWhere();
+        joinWhere.addCriteria(1, "TYPEID", Comparison.EQUAL, "12", Connection.AND);
+        final SQLSelect select = getJoinSelect(joinWhere);
+        final SQLSelect plan = select.getPlanCopy();
+        final String sql = plan.getPlanCopy().getSQL();
+        assertTrue(strip(sql).contains("T1.TYPEID=12"), sql);
+
+        joinWhere.addCriteria(1, "STATUS", Comparison.EQUAL, "4", Connection.AND);
+        assertEquals(plan.getPlanCopy().getSQL(), sql);
+        assertTrue(strip(select.getSQL()).contains("T1.STATUS=4"));
+    }
+
+    @Test(description = "the type criteria of a join added to a copy do not change the plan")
+    public void testPlanCopyJoinTypeCriteria()
+    {
+        final SQLSelect plan = getJoinSelect(null).getPlanCopy();
+        final String sql = plan.getPlanCopy().getSQL();
+        final SQLSelect copy = plan.getPlanCopy();
+        addTypeCriteria(copy, 4711);
+        assertTrue(strip(copy.getSQL()).contains("T1.TYPEID=4711"), copy.getSQL());
+        assertEquals(plan.getPlanCopy().getSQL(), sql);
+    }
+
+    @Test(description = "copies of a plan can be extended and rendered concurrently")
+    public void testPlanCopyConcurrent()
+        throws Exception
+    {
+        final SQLWhere joinWhere = new SQLWhere();
+        joinWhere.addCriteria(1, "STATUS", Comparison.EQUAL, "4", Connection.AND);
+        final SQLSelect plan = getJoinSelect(joinWhere).getPlanCopy();
+        final String sql = plan.getPlanCopy().getSQL();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final long typeId = 1000 + t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        final SQLSelect copy = plan.getPlanCopy();
+                        addTypeCriteria(copy, typeId);
+                        copy.addPart(SQLPart.WHERE).addIdFilterPart(0, "ID", Arrays.asList(typeId, (long) i));
+                        final String copySql = copy.getSQL();
+                        assertTrue(strip(copySql).contains("T1.TYPEID=" + typeId), copySql);
+                        assertEquals(copySql.split("TYPEID").length, 2, copySql);
+                        assertTrue(strip(copySql).contains("T1.STATUS=4"), copySql);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(plan.getPlanCopy().getSQL(), sql);
+    }
+
+    /**
+     * @param _sql sql
+     * @return the sql without whitespace and quotes
+     */
+    private static String strip(final String _sql)
+    {
+        return _sql.replaceAll("[\\s\"]", "");
+    }
+
+    /**
+     * Gets a select with a left join.
+     *
+     * @param _joinWhere where of the join, may be <code>null</code>
+     * @return the select
+     */
+    private SQLSelect getJoinSelect(final SQLWhere _joinWhere)
+    {
+        return new SQLSelect()
+                        .column(0, "ID")
+                        .column(1, "NAME")
+                        .from("T_TEST", 0)
+                        .leftJoin("T_JOIN", 1, "ID", 0, "LINKID", _joinWhere);
+    }
+
+    /**
+     * Add a type criterion to the join of the given select.
+     *
+     * @param _select the select
+     * @param _typeId id of the type
+     */
+    private void addTypeCriteria(final SQLSelect _select,
+                                 final long _typeId)
+    {
+        for (final SQLSelect.FromTable fromTable : _select.getFromTables()) {
+            if (fromTable instanceof FromTableLeftJoin) {
+                ((FromTableLeftJoin) fromTable).addTypeCriterias(TypeCriterion.of(
+                                new TableIndexer().getTableIdx("T_JOIN"), "TYPEID", _typeId));
+            }
+        }
+    }
+
+    /**
+     * Gets a select filtering for three ids.
+     *
+     * @return the select
+     */
+    private SQLSelect getSelect()
+    {
+        return new SQLSelect()
+                        .column(0, "ID")
+                        .from("T_TEST", 0)
+                        .addPart(SQLPart.WHERE)
+                        .addIdFilterPart(0, "ID", Arrays.asList(1L, 2L, 3L));
+    }
+
+    /**
+     * Records the calls against the JDBC objects.
+     */
+    private static class JDBCRecorder
+    {
+
+        /** The calls. */
+        private final List<String> calls = new ArrayList<>();
+
+        /** The type of the created array. */
+        private String arrayType;
+
+        /** The elements of the created array. */
+        private Object[] arrayElements;
+
+        /** Let the execution fail. */
+        private boolean fail;
+
+        /**
+         * Gets the statement.
+         *
+         * @return the statement
+         */
+        private PreparedStatement getStatement()
+        {
+            final Array array = proxy(Array.class, (_proxy, _method, _args) -> {
+                if ("free".equals(_method.getName())) {
+                    calls.add("free");
+                }
+                return null;
+            });
+            final ResultSet resultSet = proxy(ResultSet.class, (_proxy, _method, _args) -> {
+                Object ret = null;
+                if ("next".equals(_method.getName())) {
+                    ret = false;
+                } else if ("close".equals(_method.getName())) {
+                    calls.add("close");
+                }
+                return ret;
+            });
+            final Connection connection = proxy(Connection.class, (_proxy, _method, _args) -> {
+                Object ret = null;
+                if ("createArrayOf".equals(_method.getName())) {
+                    arrayType = (String) _args[0];
+                    arrayElements = (Object[]) _args[1];
+                    ret = array;
+                }
+                return ret;
+            });
+            return proxy(PreparedStatement.class, (_proxy, _method, _args) -> {
+                Object ret = null;
+                switch (_method.getName()) {
+                    case "getConnection":
+                        ret = connection;
+                        break;
+                    case "setArray":
+                        calls.add("setArray:" + _args[0]);
+                        break;
+                    case "setObject":
+                        calls.add("setObject:" + _args[0] + "=" + _args[1]);
+                        break;
+                    case "executeQuery":
+                        calls.add("executeQuery");
+                        if (fail) {
+                            throw new SQLException("failed");
+                        }
+                        ret = resultSet;
+                        break;
+                    default:
+                        break;
+                }
+                return ret;
+            });
+        }
+
+        /**
+         * Create a proxy for the given interface.
+         *
+         * @param <T> the generic type
+         * @param _class the interface
+         * @param _handler the handler
+         * @return the proxy
+         */
+        private static <T> T proxy(final Class<T> _class,
+                                   final java.lang.reflect.InvocationHandler _handler)
+        {
+            return _class.cast(Proxy.newProxyInstance(SQLSelectTest.class.getClassLoader(),
+                            new Class<?>[] { _class }, _handler));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.db.wrapper;
+
+import static org.testng.Assert.assertEquals;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.efaps.db.Context;
+import org.efaps.test.AbstractTest;
+import org.efaps.test.SQLVerify;
+import org.efaps.util.EFapsException;
+import org.testng.annotations.Test;
+
+import acolyte.jdbc.StatementHandler.Parameter;
+
+public class SQLUpdateTest
+    extends AbstractTest
+{
+
+    @Test
+    public void testMergedStatement()
+        throws EFapsException, SQLException
+    {
+        final SQLVerify verify = SQLVerify.builder()
+                        .withSql("update T_UPDTEST set NAME=? where ID in (?,?,?)")
+                        .build();
+        SQLUpdate.executeMerged(Context.getThreadContext().getConnectionResource(),
+                        Arrays.asList(getUpdate("A Value", 4L), getUpdate("A Value", 5L, 6L)), 1000);
+        final List<Parameter> parameters = verify.getSqlParameters();
+        verify.verify();
+        assertEquals(parameters.get(0).getValue(), "A Value");
+        assertEquals(parameters.get(1).getValue(), 4L);
+        assertEquals(parameters.get(2).getValue(), 5L);
+        assertEquals(parameters.get(3).getValue(), 6L);
+    }
+
+    @Test
+    public void testDifferentValuesNotMerged()
+        throws EFapsException, SQLException
+    {
+        final SQLVerify verify = SQLVerify.builder()
+                        .withSql("update T_UPDTEST set NAME=? where ID=?")
+                        .withCount(2)
+                        .build();
+        SQLUpdate.executeMerged(Context.getThreadContext().getConnectionResource(),
+                        Arrays.asList(getUpdate("A Value", 4L), getUpdate("Another Value", 5L)), 1000);
+        final List<Parameter> parameters = verify.getSqlParameters();
+        verify.verify();
+        assertEquals(parameters.get(0).getValue(), "Another Value");
+        assertEquals(parameters.get(1).getValue(), 5L);
+    }
+
+    @Test
+    public void testChunkSplit()
+        throws EFapsException, SQLException
+    {
+        final SQLVerify verify = SQLVerify.builder()
+                        .withSql("update T_UPDTEST set NAME=? where ID in (?,?)")
+                        .withCount(2)
+                        .build();
+        SQLUpdate.executeMerged(Context.getThreadContext().getConnectionResource(),
+                        Collections.singletonList(getUpdate("A Value", 1L, 2L, 3L, 4L)), 2);
+        final List<Parameter> parameters = verify.getSqlParameters();
+        verify.verify();
+        assertEquals(parameters.get(0).getValue(), "A Value");
+        assertEquals(parameters.get(1).getValue(), 3L);
+        assertEquals(parameters.get(2).getValue(), 4L);
+    }
+
+    @Test
+    public void testLastPartialChunk()
+        throws EFapsException, SQLException
+    {
+        final SQLVerify chunkVerify = SQLVerify.builder()
+                        .withSql("update T_UPDTEST set NAME=? where ID in (?,?)")
+                        .withCount(2)
+                        .build();
+        final SQLVerify lastVerify = SQLVerify.builder()
+                        .withSql("update T_UPDTEST set NAME=? where ID=?")
+                        .build();
+        SQLUpdate.executeMerged(Context.getThreadContext().getConnectionResource(),
+                        Arrays.asList(getUpdate("A Value", 1L, 2L, 3L), getUpdate("A Value", 4L, 5L)), 2);
+        final List<Parameter> parameters = lastVerify.getSqlParameters();
+        chunkVerify.verify();
+        lastVerify.verify();
+        assertEquals(parameters.get(0).getValue(), "A Value");
+        assertEquals(parameters.get(1).getValue(), 5L);
+    }
+
+    private SQLUpdate getUpdate(final String _value,
+                                final Long... _ids)
+    {
+        return Context.getDbType().newUpdate("T_UPDTEST", "ID", _ids).column("NAME", _value);
+    }
+}
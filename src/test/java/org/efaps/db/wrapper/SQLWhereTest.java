@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.db.wrapper;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.efaps.admin.datamodel.Attribute;
+import org.efaps.admin.datamodel.attributetype.IAttributeType;
+import org.efaps.db.Context;
+import org.efaps.eql2.Comparison;
+import org.efaps.eql2.Connection;
+import org.efaps.mock.Mocks;
+import org.efaps.test.AbstractTest;
+import org.efaps.test.SQLVerify;
+import org.efaps.util.EFapsException;
+import org.testng.annotations.Test;
+
+import acolyte.jdbc.StatementHandler.Parameter;
+
+public class SQLWhereTest
+    extends AbstractTest
+{
+
+    @Test
+    public void testStringParameter()
+        throws EFapsException
+    {
+        final List<Object> parameters = new ArrayList<>();
+        final String sql = getSQL(Mocks.AllAttrStringAttribute, "A Value", parameters);
+        assertTrue(sql.trim().endsWith("= ?"), sql);
+        assertEquals(parameters, Collections.singletonList("A Value"));
+    }
+
+    @Test
+    public void testIntegerParameter()
+        throws EFapsException
+    {
+        final List<Object> parameters = new ArrayList<>();
+        final String sql = getSQL(Mocks.AllAttrIntegerAttribute, "4", parameters);
+        assertTrue(sql.trim().endsWith("= ?"), sql);
+        assertEquals(parameters, Collections.singletonList(4));
+    }
+
+    @Test
+    public void testDecimalParameter()
+        throws EFapsException
+    {
+        final List<Object> parameters = new ArrayList<>();
+        getSQL(Mocks.AllAttrDecimalAttribute, "12.98", parameters);
+        assertEquals(parameters, Collections.singletonList(new BigDecimal("12.98")));
+    }
+
+    @Test
+    public void testBooleanParameter()
+        throws EFapsException
+    {
+        final List<Object> parameters = new ArrayList<>();
+        getSQL(Mocks.AllAttrBooleanAttribute, "true", parameters);
+        assertEquals(parameters, Collections.singletonList(Boolean.TRUE));
+    }
+
+    @Test
+    public void testDateParameter()
+        throws EFapsException
+    {
+        final List<Object> parameters = new ArrayList<>();
+        getSQL(Mocks.AllAttrDateAttribute, "2018-08-22", parameters);
+        assertEquals(parameters, Collections.singletonList(Timestamp.valueOf("2018-08-22 00:00:00")));
+    }
+
+    @Test
+    public void testDateTimeParameter()
+        throws EFapsException
+    {
+        final List<Object> parameters = new ArrayList<>();
+        getSQL(Mocks.AllAttrDateTimeAttribute, "2018-08-22T10:15:30", parameters);
+        assertEquals(parameters, Collections.singletonList(Timestamp.valueOf("2018-08-22 10:15:30")));
+    }
+
+    @Test
+    public void testNotConvertibleIsLiteral()
+        throws EFapsException
+    {
+        final List<Object> parameters = new ArrayList<>();
+        final String sql = getSQL(Mocks.AllAttrIntegerAttribute, "not a number", parameters);
+        assertTrue(sql.trim().endsWith("= 'not a number'"), sql);
+        assertTrue(parameters.isEmpty());
+    }
+
+    @Test
+    public void testPreparedStatementBindsTyped()
+        throws EFapsException, SQLException
+    {
+        final List<Object> parameters = new ArrayList<>();
+        final String sql = getSQL(Mocks.AllAttrIntegerAttribute, "4", parameters);
+        final SQLVerify verify = SQLVerify.builder().withSql(sql.trim()).build();
+        final PreparedStatement stmt = Context.getThreadContext().getConnectionResource()
+                        .prepareCachedStatement(sql, 10);
+        int idx = 1;
+        for (final Object parameter : parameters) {
+            stmt.setObject(idx++, parameter);
+        }
+        stmt.executeQuery().close();
+        verify.verify();
+        final List<Parameter> sqlParameters = verify.getSqlParameters();
+        assertEquals(sqlParameters.size(), 1);
+        assertEquals(sqlParameters.get(0).getValue(), 4);
+    }
+
+    private String getSQL(final org.efaps.mock.datamodel.Attribute _attr,
+                          final String _value,
+                          final List<Object> _parameters)
+        throws EFapsException
+    {
+        final Attribute attr = Attribute.get(_attr.getId());
+        final IAttributeType attrType = attr.getAttributeType().getDbAttrType();
+        final SQLSelect select = new SQLSelect()
+                        .column(0, "ID")
+                        .from(attr.getTable().getSqlTable(), 0);
+        final LinkedHashSet<String> values = new LinkedHashSet<>();
+        values.add(_value);
+        select.getWhere().addCriteria(0, attr.getSqlColNames(), Comparison.EQUAL, values, true, Connection.AND)
+                        .attrType(attrType);
+        return select.getSQL(_parameters);
+    }
+}
@@ -116,6 +116,33 @@ public class InsertTest
         assertEquals(instance.getId(), 3435L);
     }
 
+    @Test
+    public void testBatchInsertReturnsInstances()
+        throws EFapsException
+    {
+        final String sql = String.format("select nextval('%s_ID_SEQ') from generate_series(1,2)",
+                        Mocks.SimpleTypeSQLTable.getSqlTableName());
+
+        MockResult.builder().withSql(sql)
+                    .withResult(RowLists.rowList1(Long.class)
+                                    .append(3435L)
+                                    .append(3436L)
+                                    .asResult())
+                    .build();
+
+        final List<Instance> instances = EQL.builder()
+            .insert(CI.SimpleType)
+            .set(CI.SimpleType.TestAttr, "A Value")
+            .batch(EQL.builder()
+                .insert(CI.SimpleType)
+                .set(CI.SimpleType.TestAttr, "Another Value"))
+            .execute();
+        assertEquals(instances.size(), 2);
+        assertEquals(instances.get(0).getType(), CI.SimpleType.getType());
+        assertEquals(instances.get(0).getId(), 3435L);
+        assertEquals(instances.get(1).getId(), 3436L);
+    }
+
     @Test
     public void testInsertSetsCompany()
         throws EFapsException
@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.eql;
+
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+import org.efaps.eql2.IStatement;
+import org.efaps.test.AbstractTest;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.testng.annotations.Test;
+
+/**
+ * The Class StatementCacheTest.
+ */
+public class StatementCacheTest
+    extends AbstractTest
+{
+
+    @Test(description = "Every call gets its own copy of the parsed statement")
+    public void testCopy()
+    {
+        final String stmt = "print query type CompanyType select attribute[Name] as name";
+        final IStatement<?> first = StatementCache.parse(stmt);
+        final IStatement<?> second = StatementCache.parse(stmt);
+        assertNotSame(first, second);
+        assertTrue(EcoreUtil.equals((EObject) first, (EObject) second));
+        assertTrue(EcoreUtil.equals((EObject) first, (EObject) EQL.parse(stmt)));
+        StatementCache.clear();
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.efaps.mock;
 
+import java.util.UUID;
+
 import org.apache.commons.lang3.RandomUtils;
 import org.efaps.admin.datamodel.Type.Purpose;
 import org.efaps.mock.datamodel.Attribute;
@@ -703,4 +705,29 @@ public interface Mocks
                     .withESJP(TriggerEvent.class.getName())
                     .withMethod("insertOverride")
                     .build();
+
+    Type HistoryEQLType = Type.builder()
+                    .withId(RandomUtils.nextLong())
+                    .withUuid(UUID.fromString("c96c63b5-2d4c-4bf9-9627-f335fd9c7a84"))
+                    .withName("Common_HistoryEQL")
+                    .build();
+
+    SQLTable HistoryEQLTypeSQLTable = SQLTable.builder()
+                    .withName("HistoryEQLTypeSQLTable")
+                    .withSqlTableName("T_CMHISTORYEQL")
+                    .build();
+
+    Attribute HistoryEQLOriginAttribute = Attribute.builder()
+                    .withName("Origin")
+                    .withDataModelTypeId(HistoryEQLType.getId())
+                    .withSqlTableId(HistoryEQLTypeSQLTable.getId())
+                    .withAttributeTypeId(IDataModel.StringType.getId())
+                    .build();
+
+    Attribute HistoryEQLStatementAttribute = Attribute.builder()
+                    .withName("EQLStatement")
+                    .withDataModelTypeId(HistoryEQLType.getId())
+                    .withSqlTableId(HistoryEQLTypeSQLTable.getId())
+                    .withAttributeTypeId(IDataModel.StringType.getId())
+                    .build();
 }
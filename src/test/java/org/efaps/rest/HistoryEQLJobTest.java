@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.rest;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.efaps.db.Context;
+import org.efaps.mock.MockResult;
+import org.efaps.mock.Mocks;
+import org.efaps.test.AbstractTest;
+import org.efaps.test.EFapsQueryHandler;
+import org.efaps.test.SQLVerify;
+import org.efaps.util.EFapsException;
+import org.testng.annotations.Test;
+
+import acolyte.jdbc.RowLists;
+import acolyte.jdbc.StatementHandler.Parameter;
+
+public class HistoryEQLJobTest
+    extends AbstractTest
+{
+
+    private static final String IDSQL = String.format("select nextval('%s_ID_SEQ') from generate_series(1,1)",
+                    Mocks.HistoryEQLTypeSQLTable.getSqlTableName());
+
+    private static final String INSERTSQL = String.format("insert into %s (%s,%s,ID)values(?,?,?)",
+                    Mocks.HistoryEQLTypeSQLTable.getSqlTableName(),
+                    Mocks.HistoryEQLOriginAttribute.getSQLColumnName(),
+                    Mocks.HistoryEQLStatementAttribute.getSQLColumnName());
+
+    @Test
+    public void testFlushWithActiveContext()
+        throws EFapsException
+    {
+        assertTrue(Context.isThreadActive());
+        MockResult.builder().withSql(IDSQL)
+                        .withResult(RowLists.rowList1(Long.class).append(12L).asResult())
+                        .build();
+        final SQLVerify verify = SQLVerify.builder().withSql(INSERTSQL).build();
+
+        HistoryEQLJob.activate();
+        HistoryEQLJob.register("test", "print obj 1.1 select attribute[Name]");
+        HistoryEQLJob.flush();
+
+        verify.verify();
+        final List<Parameter> parameters = verify.getSqlParameters();
+        assertEquals(parameters.get(0).getValue(), "REST: test");
+        assertEquals(parameters.get(1).getValue(), "print obj 1.1 select attribute[Name]");
+    }
+
+    @Test
+    public void testFlushKeepsFailedEntries()
+        throws EFapsException
+    {
+        final SQLVerify verify = SQLVerify.builder().withSql(INSERTSQL).build();
+        HistoryEQLJob.activate();
+        HistoryEQLJob.register("test", "print obj 1.2 select attribute[Name]");
+        // no ids can be retrieved, so the write fails
+        HistoryEQLJob.flush();
+
+        MockResult.builder().withSql(IDSQL)
+                        .withResult(RowLists.rowList1(Long.class).append(13L).asResult())
+                        .build();
+        HistoryEQLJob.flush();
+        verify.verify();
+        assertEquals(verify.getSqlParameters().get(1).getValue(), "print obj 1.2 select attribute[Name]");
+        EFapsQueryHandler.get().unregister(IDSQL);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.rest;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.efaps.eql.PrintStmt;
+import org.efaps.util.EFapsException;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class RestEQLInvokerTest
+{
+
+    @Test(expectedExceptions = EFapsException.class)
+    public void testStatementFailsBeforeStream()
+        throws EFapsException
+    {
+        new RestEQLInvoker().getJSONStream(new PrintStmt()
+        {
+
+            @Override
+            public void prepare()
+                throws Exception
+            {
+                throw new EFapsException(RestEQLInvokerTest.class, "testStatementFailsBeforeStream");
+            }
+        });
+    }
+
+    @Test
+    public void testStream()
+        throws EFapsException, IOException
+    {
+        final JsonNode array = write(new RestEQLInvoker().getJSONStream(new TestPrintStmt(3, false)));
+        assertTrue(array.isArray());
+        assertEquals(array.size(), 3);
+    }
+
+    @Test
+    public void testErrorTerminator()
+        throws EFapsException, IOException
+    {
+        final JsonNode array = write(new RestEQLInvoker().getJSONStream(new TestPrintStmt(2, true)));
+        assertTrue(array.isArray());
+        assertEquals(array.size(), 3);
+        assertEquals(array.get(2).get("error").asText(), EFapsException.class.getName());
+    }
+
+    @Test(description = "only the last element of a failed stream is an ErrorReply")
+    public void testErrorContract()
+        throws EFapsException, IOException
+    {
+        final JsonNode array = write(new RestEQLInvoker().getJSONStream(new TestPrintStmt(2, true)));
+        assertFalse(array.get(0).has("error"));
+        assertFalse(array.get(1).has("error"));
+        final JsonNode error = array.get(array.size() - 1);
+        assertEquals(error.get("error").asText(), EFapsException.class.getName());
+        assertTrue(error.get("message").asText().contains("testErrorTerminator"), error.toString());
+    }
+
+    @Test(description = "a stream failing on its first row is an array holding only the ErrorReply")
+    public void testErrorOnFirstRow()
+        throws EFapsException, IOException
+    {
+        final JsonNode array = write(new RestEQLInvoker().getJSONStream(new TestPrintStmt(0, true)));
+        assertTrue(array.isArray());
+        assertEquals(array.size(), 1);
+        assertEquals(array.get(0).get("error").asText(), EFapsException.class.getName());
+    }
+
+    @Test(description = "a complete stream contains no ErrorReply")
+    public void testNoErrorOnSuccess()
+        throws EFapsException, IOException
+    {
+        final JsonNode array = write(new RestEQLInvoker().getJSONStream(new TestPrintStmt(0, false)));
+        assertTrue(array.isArray());
+        assertEquals(array.size(), 0);
+    }
+
+    /**
+     * @param _stream stream to write
+     * @return the written JSON
+     * @throws IOException on error
+     */
+    private JsonNode write(final StreamingOutput _stream)
+        throws IOException
+    {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        _stream.write(out);
+        return new ObjectMapper().readTree(out.toByteArray());
+    }
+
+    /**
+     * PrintStmt returning empty rows without accessing the database.
+     */
+    public static class TestPrintStmt
+        extends PrintStmt
+    {
+
+        private final int rows;
+
+        private final boolean fail;
+
+        public TestPrintStmt(final int _rows,
+                             final boolean _fail)
+        {
+            rows = _rows;
+            fail = _fail;
+        }
+
+        @Override
+        public void prepare()
+        {
+            // nothing to execute
+        }
+
+        @Override
+        public void forEachRow(final RowConsumer _consumer)
+            throws Exception
+        {
+            for (int i = 0; i < rows; i++) {
+                _consumer.accept(new HashMap<>());
+            }
+            if (fail) {
+                throw new EFapsException(RestEQLInvokerTest.class, "testErrorTerminator");
+            }
+        }
+    }
+}
@@ -34,6 +34,9 @@ public class SQLVerify
     /** The counter. */
     private int counter = 0;
 
+    /** The expected number of executions. */
+    private final int count;
+
     /** Parameters the SQL was executed with. */
     private List<Parameter> sqlParameters;
 
@@ -45,6 +48,7 @@ public class SQLVerify
     public SQLVerify(final SQLVerifyBuilder _sqlVerifyBuilder)
     {
         this.sql = _sqlVerifyBuilder.sql;
+        this.count = _sqlVerifyBuilder.count;
     }
 
     @Override
@@ -64,7 +68,7 @@ public class SQLVerify
     public void verify()
     {
         EFapsQueryHandler.get().unregister(getSql());
-        assertEquals(this.counter, 1, getSql());
+        assertEquals(this.counter, this.count, getSql());
     }
 
     @Override
@@ -107,6 +111,9 @@ public class SQLVerify
         /** The sql. */
         private String sql;
 
+        /** The expected number of executions. */
+        private int count = 1;
+
         /**
          * With sql.
          *
@@ -119,6 +126,18 @@ public class SQLVerify
             return this;
         }
 
+        /**
+         * With the expected number of executions.
+         *
+         * @param _count the expected number of executions
+         * @return the SQL verify builder
+         */
+        public SQLVerifyBuilder withCount(final int _count)
+        {
+            this.count = _count;
+            return this;
+        }
+
         /**
          * Builds the.
          *
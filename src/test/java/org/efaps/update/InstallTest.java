@@ -0,0 +1,247 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.update;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.collections4.MultiMapUtils;
+import org.apache.commons.collections4.MultiValuedMap;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.jexl2.JexlContext;
+import org.apache.commons.jexl2.MapContext;
+import org.efaps.test.AbstractTest;
+import org.efaps.update.Install.InstallFile;
+import org.efaps.update.schema.datamodel.StatusGroupUpdate;
+import org.efaps.update.schema.datamodel.TypeUpdate;
+import org.efaps.update.util.InstallationException;
+import org.testng.annotations.Test;
+
+public class InstallTest
+    extends AbstractTest
+{
+
+    @Test
+    public void testGroup()
+        throws MalformedURLException
+    {
+        final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        final TestUpdate a1 = new TestUpdate("a", "a1", executed);
+        final TestUpdate b1 = new TestUpdate("b", "b1", executed);
+        final TestUpdate a2 = new TestUpdate("a", "a2", executed);
+        final Collection<List<IUpdate>> groups = Install.group(Arrays.asList(a1, b1, a2));
+        final Iterator<List<IUpdate>> iter = groups.iterator();
+        assertEquals(groups.size(), 2);
+        assertEquals(iter.next(), Arrays.asList(a1, a2));
+        assertEquals(iter.next(), Arrays.asList(b1));
+    }
+
+    @Test
+    public void testIsConcurrent()
+        throws MalformedURLException
+    {
+        final InstallFile file = new InstallFile().setURL(new URL("file:/type.xml")).setType("install-xml");
+        final TestUpdate update = new TestUpdate("a", "a1", new ArrayList<>());
+        assertTrue(Install.isConcurrent(Arrays.asList(update)));
+        assertFalse(Install.isConcurrent(Arrays.asList(new TypeUpdate(file))));
+        assertFalse(Install.isConcurrent(Arrays.asList(new StatusGroupUpdate(file))));
+    }
+
+    @Test
+    public void testExecuteConcurrentOrder()
+        throws MalformedURLException, InstallationException
+    {
+        final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        final TestUpdate a1 = new TestUpdate("a", "a1", executed).setDelay(50);
+        final TestUpdate b1 = new TestUpdate("b", "b1", executed);
+        final TestUpdate a2 = new TestUpdate("a", "a2", executed);
+        final TestUpdate c1 = new TestUpdate("c", "c1", executed);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final MultiValuedMap<String, String> result = new Install().executeConcurrent(pool,
+                            Arrays.asList(a1, b1, a2, c1), UpdateLifecycle.EFAPS_UPDATE, "Administrator",
+                            Collections.emptySet(), update -> new MapContext());
+            assertEquals(executed.size(), 4);
+            assertTrue(executed.indexOf("a1") < executed.indexOf("a2"));
+            assertEquals(result.keySet().size(), 4);
+            assertTrue(result.containsMapping("a2", "a"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExecuteConcurrentError()
+        throws MalformedURLException
+    {
+        final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        final TestUpdate a1 = new TestUpdate("a", "a1", executed).setDelay(50);
+        final TestUpdate b1 = new TestUpdate("b", "b1", executed).setFail(true).setDelay(20);
+        final TestUpdate c1 = new TestUpdate("c", "c1", executed).setFail(true);
+        final TestUpdate d1 = new TestUpdate("d", "d1", executed);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new Install().executeConcurrent(pool, Arrays.asList(a1, b1, c1, d1), UpdateLifecycle.EFAPS_UPDATE,
+                            "Administrator", Collections.emptySet(), update -> new MapContext());
+            fail("Failed updates must throw an exception");
+        } catch (final InstallationException e) {
+            // the error of the first failed group is thrown
+            assertEquals(e.getMessage(), "b1 failed");
+            assertTrue(executed.containsAll(Arrays.asList("a1", "b1", "c1", "d1")));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testParseXMLOrder()
+        throws IOException, InstallationException
+    {
+        final File folder = Files.createTempDirectory("InstallTest").toFile();
+        try {
+            final Install install = new Install()
+            {
+
+                @Override
+                protected int getThreads()
+                {
+                    return 4;
+                }
+            };
+            final List<String> uuids = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                final String uuid = "00000000-0000-0000-0000-0000000000" + String.format("%02d", i);
+                final File file = new File(folder, i + ".xml");
+                FileUtils.writeStringToFile(file, "<user-company><uuid>" + uuid
+                                + "</uuid><file-application>eFaps-Kernel</file-application></user-company>",
+                                StandardCharsets.UTF_8);
+                install.addFile(new InstallFile().setURL(file.toURI().toURL()).setType("install-xml"));
+                uuids.add(uuid);
+            }
+            final List<String> parsed = new ArrayList<>();
+            for (final IUpdate update : install.parseXML()) {
+                parsed.add(((AbstractUpdate) update).getUUID());
+            }
+            assertEquals(parsed, uuids);
+        } finally {
+            FileUtils.deleteQuietly(folder);
+        }
+    }
+
+    /**
+     * Update recording its execution.
+     */
+    public static class TestUpdate
+        implements IUpdate
+    {
+
+        private final InstallFile installFile;
+
+        private final String name;
+
+        private final List<String> executed;
+
+        private long delay;
+
+        private boolean fail;
+
+        public TestUpdate(final String _target,
+                          final String _name,
+                          final List<String> _executed)
+            throws MalformedURLException
+        {
+            installFile = new InstallFile().setURL(new URL("file:/" + _target + ".xml"));
+            name = _name;
+            executed = _executed;
+        }
+
+        public TestUpdate setDelay(final long _delay)
+        {
+            delay = _delay;
+            return this;
+        }
+
+        public TestUpdate setFail(final boolean _fail)
+        {
+            fail = _fail;
+            return this;
+        }
+
+        @Override
+        public MultiValuedMap<String, String> updateInDB(final JexlContext _jexlContext,
+                                                         final UpdateLifecycle _step,
+                                                         final Set<Profile> _profiles)
+            throws InstallationException
+        {
+            try {
+                Thread.sleep(delay);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executed.add(name);
+            if (fail) {
+                throw new InstallationException(name + " failed");
+            }
+            final MultiValuedMap<String, String> ret = MultiMapUtils.newSetValuedHashMap();
+            ret.put(name, String.valueOf(installFile.getUrl().getPath()).replaceAll("[/]|\\.xml", ""));
+            return ret;
+        }
+
+        @Override
+        public String getFileApplication()
+        {
+            return null;
+        }
+
+        @Override
+        public void readXML(final List<String> _tags,
+                            final Map<String, String> _attributes,
+                            final String _text)
+        {
+            // not used
+        }
+
+        @Override
+        public InstallFile getInstallFile()
+        {
+            return installFile;
+        }
+
+        @Override
+        public String getIdentifier()
+        {
+            return "0000-" + TestUpdate.class.getName();
+        }
+    }
+}
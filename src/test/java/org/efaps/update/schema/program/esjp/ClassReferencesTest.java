@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.update.schema.program.esjp;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.Test;
+
+public class ClassReferencesTest
+{
+
+    @Test
+    public void testRead()
+        throws IOException
+    {
+        final Set<String> references = ClassReferences.read(readClass(Sample.class));
+        assertTrue(references.contains(Referenced.class.getName()));
+        assertTrue(references.contains(Set.class.getName()));
+        assertTrue(references.contains(List.class.getName()));
+        assertFalse(references.contains(Map.class.getName()));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testInvalid()
+        throws IOException
+    {
+        ClassReferences.read(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+    }
+
+    private static byte[] readClass(final Class<?> _clazz)
+        throws IOException
+    {
+        final String name = _clazz.getName().replace('.', '/') + ".class";
+        try (InputStream in = _clazz.getClassLoader().getResourceAsStream(name)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    public static class Referenced
+    {
+    }
+
+    public static class Sample
+    {
+
+        private List<Set<String>> values;
+
+        public Referenced get()
+        {
+            return new Referenced();
+        }
+
+        public List<Set<String>> getValues()
+        {
+            return this.values;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2003 - 2024 The eFaps Team (-)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.efaps.update.schema.program.esjp;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests for the incremental compile of the {@link ESJPCompiler}. The classes
+ * ClassReferences, ClassReferencesTest and IOUtils are used as ESJPs, where
+ * ClassReferencesTest references the two others.
+ */
+public class ESJPCompilerTest
+{
+
+    /** ESJP referenced by {@link #ESJP_B}. */
+    private static final String ESJP_A = ClassReferences.class.getName();
+
+    /** ESJP referencing {@link #ESJP_A} and {@link #ESJP_C}. */
+    private static final String ESJP_B = ClassReferencesTest.class.getName();
+
+    /** ESJP referenced by {@link #ESJP_B}. */
+    private static final String ESJP_C = IOUtils.class.getName();
+
+    /** Hashes of the sources. */
+    private Map<String, String> source2hash;
+
+    /** Bytes of the stored classes. */
+    private Map<String, byte[]> class2bytes;
+
+    /** State of the previous compile. */
+    private Properties state;
+
+    @BeforeMethod
+    public void prepare()
+        throws IOException
+    {
+        this.source2hash = new HashMap<>();
+        this.class2bytes = new HashMap<>();
+        for (final Class<?> clazz : Arrays.asList(ClassReferences.class, ClassReferencesTest.class,
+                        IOUtils.class)) {
+            this.source2hash.put(clazz.getName(), "hash" + clazz.getSimpleName());
+            this.class2bytes.put(clazz.getName(), readClass(clazz));
+        }
+        this.state = new Properties();
+        for (final Entry<String, String> entry : this.source2hash.entrySet()) {
+            this.state.setProperty("source." + entry.getKey(), entry.getValue());
+        }
+        for (final Entry<String, byte[]> entry : this.class2bytes.entrySet()) {
+            this.state.setProperty("class." + entry.getKey(), DigestUtils.sha256Hex(entry.getValue()));
+        }
+    }
+
+    @Test(description = "nothing changed, nothing to compile")
+    public void testUnchanged()
+    {
+        assertTrue(ESJPCompiler.evalSources2Compile(this.source2hash, this.class2bytes, this.state).isEmpty());
+    }
+
+    @Test(description = "a changed source is compiled with its dependents")
+    public void testChangedSource()
+    {
+        this.source2hash.put(ESJP_A, "changed");
+        assertEquals(ESJPCompiler.evalSources2Compile(this.source2hash, this.class2bytes, this.state),
+                        set(ESJP_A, ESJP_B));
+    }
+
+    @Test(description = "a changed source without dependents is compiled alone")
+    public void testChangedSourceNoDependents()
+    {
+        this.source2hash.put(ESJP_B, "changed");
+        assertEquals(ESJPCompiler.evalSources2Compile(this.source2hash, this.class2bytes, this.state),
+                        set(ESJP_B));
+    }
+
+    @Test(description = "a class not matching the state is compiled with its dependents")
+    public void testChangedClass()
+    {
+        this.state.setProperty("class." + ESJP_C, "changed");
+        assertEquals(ESJPCompiler.evalSources2Compile(this.source2hash, this.class2bytes, this.state),
+                        set(ESJP_C, ESJP_B));
+    }
+
+    @Test(description = "a class missing in the state is compiled with its dependents")
+    public void testClassNotInState()
+    {
+        this.state.remove("class." + ESJP_A);
+        assertEquals(ESJPCompiler.evalSources2Compile(this.source2hash, this.class2bytes, this.state),
+                        set(ESJP_A, ESJP_B));
+    }
+
+    @Test(description = "the dependents of a removed ESJP are compiled")
+    public void testRemoved()
+    {
+        this.source2hash.remove(ESJP_C);
+        assertEquals(ESJPCompiler.evalSources2Compile(this.source2hash, this.class2bytes, this.state),
+                        set(ESJP_B));
+    }
+
+    @Test(description = "a new ESJP without compiled classes is compiled")
+    public void testNew()
+    {
+        this.source2hash.put("org.efaps.esjp.New", "hashNew");
+        assertEquals(ESJPCompiler.evalSources2Compile(this.source2hash, this.class2bytes, this.state),
+                        set("org.efaps.esjp.New"));
+    }
+
+    @Test(description = "classes with unchanged bytes are not written")
+    public void testClasses2Write()
+    {
+        final Map<String, byte[]> compiled = new HashMap<>();
+        compiled.put(ESJP_A, this.class2bytes.get(ESJP_A).clone());
+        compiled.put(ESJP_B, new byte[] { 1, 2, 3 });
+        compiled.put("org.efaps.esjp.New", new byte[] { 4, 5, 6 });
+        assertEquals(ESJPCompiler.evalClasses2Write(this.class2bytes, compiled), set(ESJP_B, "org.efaps.esjp.New"));
+    }
+
+    @Test
+    public void testGetSourceName()
+    {
+        assertEquals(ESJPCompiler.getSourceName("org.efaps.esjp.Test$Inner.class"), "org.efaps.esjp.Test");
+        assertEquals(ESJPCompiler.getSourceName("org.efaps.esjp.Test$Inner"), "org.efaps.esjp.Test");
+        assertEquals(ESJPCompiler.getSourceName("org.efaps.esjp.Subclass"), "org.efaps.esjp.Subclass");
+    }
+
+    private static Set<String> set(final String... _values)
+    {
+        return new HashSet<>(Arrays.asList(_values));
+    }
+
+    private static byte[] readClass(final Class<?> _clazz)
+        throws IOException
+    {
+        final String name = _clazz.getName().replace('.', '/') + ".class";
+        try (InputStream in = _clazz.getClassLoader().getResourceAsStream(name)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+}